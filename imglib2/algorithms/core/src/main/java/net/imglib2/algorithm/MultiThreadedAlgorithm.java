@@ -36,6 +36,8 @@
 
 package net.imglib2.algorithm;
 
+import net.imglib2.multithreading.TaskExecutor;
+
 /**
  * This is a convenience implementation of an algorithm that implements {@link MultiThreaded}
  * and {@link Algorithm} so that less code has to be re-implemented.
@@ -49,11 +51,12 @@ public abstract class MultiThreadedAlgorithm implements MultiThreaded, Algorithm
 {
 	protected int numThreads;
 	protected String errorMessage = "";
+	protected TaskExecutor taskExecutor = null;
 
 	public MultiThreadedAlgorithm() { setNumThreads(); }
 	
 	@Override
-	public void setNumThreads() { this.numThreads = Runtime.getRuntime().availableProcessors(); }
+	public void setNumThreads() { this.numThreads = getTaskExecutor().getParallelism(); }
 
 	@Override
 	public void setNumThreads( final int numThreads ) { this.numThreads = numThreads; }
@@ -61,6 +64,14 @@ public abstract class MultiThreadedAlgorithm implements MultiThreaded, Algorithm
 	@Override
 	public int getNumThreads() { return numThreads; }
 
+	/**
+	 * Set the {@link TaskExecutor} that runs the parallel parts of this
+	 * algorithm. If it is not set (or null), the shared default is used.
+	 */
+	public void setTaskExecutor( final TaskExecutor taskExecutor ) { this.taskExecutor = taskExecutor; }
+
+	public TaskExecutor getTaskExecutor() { return taskExecutor == null ? TaskExecutor.getDefault() : taskExecutor; }
+
 	@Override
 	public String getErrorMessage() { return errorMessage; }
 }
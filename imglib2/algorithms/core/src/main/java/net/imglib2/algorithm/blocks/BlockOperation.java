@@ -0,0 +1,73 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.blocks;
+
+import net.imglib2.RandomAccessibleInterval;
+
+/**
+ * An operation that computes one block of a target image from a source image.
+ * Used by {@link BlockProcessing} to run an operation in parallel over the
+ * blocks of a target image.
+ *
+ * <p>
+ * {@link #compute(RandomAccessibleInterval, RandomAccessibleInterval)} is
+ * called concurrently for different blocks, so implementations must not keep
+ * per-block state in fields.
+ * </p>
+ *
+ * @param <S>
+ *            source pixel type
+ * @param <T>
+ *            target pixel type
+ *
+ * @author ImgLib2 developers
+ */
+public interface BlockOperation< S, T >
+{
+	/**
+	 * Compute the target block.
+	 *
+	 * @param source
+	 *            the source, restricted to the target block expanded by the
+	 *            halo. Coordinates are the same as in the full source, i.e.,
+	 *            the source is not translated to the origin.
+	 * @param target
+	 *            the target block. Coordinates are the same as in the full
+	 *            target.
+	 */
+	public void compute( RandomAccessibleInterval< S > source, RandomAccessibleInterval< T > target );
+}
@@ -0,0 +1,300 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.blocks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.region.localneighborhood.Shape;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.view.Views;
+
+/**
+ * Runs a {@link BlockOperation} in parallel over the blocks of a target
+ * image.
+ *
+ * <p>
+ * The target is divided into blocks that are aligned to the storage of the
+ * target where possible: cells of a {@link CellImg}, planes of a
+ * {@link PlanarImg}, and slabs along the last dimension of an {@link ArrayImg}.
+ * Each block is handed to the operation together with the source restricted
+ * to the block expanded by a halo. The halo is the extent of the neighborhood
+ * that the operation reads around each target pixel and can be computed from
+ * a {@link Shape} using {@link #halo(Shape, int)}. If the expanded blocks reach
+ * outside the source, the source must be extended (e.g., using
+ * {@link Views#extendMirrorSingle(RandomAccessibleInterval)}).
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class BlockProcessing
+{
+	/**
+	 * Default block size (per dimension) used for targets that have no
+	 * storage layout that could be exploited.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 64;
+
+	/**
+	 * Run <em>op</em> on all blocks of <em>target</em> using the default
+	 * {@link TaskExecutor}. Blocks are aligned to the storage of
+	 * <em>target</em>, see {@link #suggestBlockSize(RandomAccessibleInterval)}.
+	 *
+	 * @param source
+	 *            source image, must be defined on the target interval expanded
+	 *            by <em>halo</em>.
+	 * @param target
+	 *            target image.
+	 * @param halo
+	 *            the number of source pixels, in every dimension, that the
+	 *            operation reads on each side of a target pixel.
+	 * @param op
+	 *            the operation to run on every block.
+	 */
+	public static < S, T > void process( final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final long[] halo, final BlockOperation< S, T > op )
+	{
+		process( source, target, halo, op, suggestBlockSize( target ), TaskExecutor.getDefault() );
+	}
+
+	/**
+	 * Run <em>op</em> on all blocks of <em>target</em> using the default
+	 * {@link TaskExecutor}. The halo is computed from the given neighborhood
+	 * {@link Shape}.
+	 *
+	 * @param source
+	 *            source image, must be defined on the target interval expanded
+	 *            by the halo of <em>shape</em>.
+	 * @param target
+	 *            target image.
+	 * @param shape
+	 *            the neighborhood that the operation reads around each target
+	 *            pixel.
+	 * @param op
+	 *            the operation to run on every block.
+	 */
+	public static < S, T > void process( final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final Shape shape, final BlockOperation< S, T > op )
+	{
+		process( source, target, halo( shape, target.numDimensions() ), op );
+	}
+
+	/**
+	 * Run <em>op</em> on all blocks of <em>target</em>.
+	 *
+	 * @param source
+	 *            source image, must be defined on the target interval expanded
+	 *            by <em>halo</em>.
+	 * @param target
+	 *            target image.
+	 * @param halo
+	 *            the number of source pixels, in every dimension, that the
+	 *            operation reads on each side of a target pixel.
+	 * @param op
+	 *            the operation to run on every block.
+	 * @param blockSize
+	 *            the size of the blocks. Blocks are aligned to a grid with
+	 *            origin at 0.
+	 * @param executor
+	 *            runs the blocks.
+	 */
+	public static < S, T > void process( final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final long[] halo, final BlockOperation< S, T > op, final long[] blockSize, final TaskExecutor executor )
+	{
+		final int n = target.numDimensions();
+		final List< Interval > blocks = divideIntoBlocks( target, blockSize );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( blocks.size() );
+		for ( final Interval block : blocks )
+		{
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final long[] min = new long[ n ];
+					final long[] max = new long[ n ];
+					for ( int d = 0; d < n; ++d )
+					{
+						min[ d ] = block.min( d ) - halo[ d ];
+						max[ d ] = block.max( d ) + halo[ d ];
+					}
+					op.compute( Views.interval( source, min, max ), Views.interval( target, block ) );
+				}
+			} );
+		}
+		executor.run( tasks );
+	}
+
+	/**
+	 * Divide an interval into blocks of the given size. The blocks are
+	 * aligned to a grid with origin at 0, such that blocks match the cells of
+	 * a {@link CellImg} with the same cell size. Blocks at the border of the
+	 * interval are cut off.
+	 *
+	 * @param interval
+	 *            the interval to divide.
+	 * @param blockSize
+	 *            the size of the blocks in every dimension.
+	 * @return list of blocks covering the interval.
+	 */
+	public static List< Interval > divideIntoBlocks( final Interval interval, final long[] blockSize )
+	{
+		final int n = interval.numDimensions();
+		final ArrayList< Interval > blocks = new ArrayList< Interval >();
+		for ( int d = 0; d < n; ++d )
+			if ( interval.dimension( d ) <= 0 )
+				return blocks;
+
+		// grid coordinates of the first and last block
+		final long[] gridMin = new long[ n ];
+		final long[] gridMax = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			gridMin[ d ] = floorDiv( interval.min( d ), blockSize[ d ] );
+			gridMax[ d ] = floorDiv( interval.max( d ), blockSize[ d ] );
+		}
+
+		final long[] g = gridMin.clone();
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		while ( true )
+		{
+			for ( int d = 0; d < n; ++d )
+			{
+				min[ d ] = Math.max( interval.min( d ), g[ d ] * blockSize[ d ] );
+				max[ d ] = Math.min( interval.max( d ), ( g[ d ] + 1 ) * blockSize[ d ] - 1 );
+			}
+			blocks.add( new FinalInterval( min, max ) );
+
+			int d = 0;
+			for ( ; d < n; ++d )
+			{
+				if ( g[ d ] < gridMax[ d ] )
+				{
+					++g[ d ];
+					break;
+				}
+				g[ d ] = gridMin[ d ];
+			}
+			if ( d == n )
+				return blocks;
+		}
+	}
+
+	/**
+	 * Suggest a block size that is aligned to the storage of <em>img</em>:
+	 * the cell size of a {@link CellImg}, single planes of a {@link PlanarImg},
+	 * and slabs along the last dimension of an {@link ArrayImg}. For other
+	 * images, blocks of {@link #DEFAULT_BLOCK_SIZE} pixels in every dimension
+	 * are used.
+	 *
+	 * @param img
+	 *            the image to be divided into blocks.
+	 * @return block size in every dimension.
+	 */
+	public static long[] suggestBlockSize( final RandomAccessibleInterval< ? > img )
+	{
+		final int n = img.numDimensions();
+		final long[] blockSize = new long[ n ];
+		if ( img instanceof CellImg )
+		{
+			final CellImg< ?, ?, ? > cellImg = ( CellImg< ?, ?, ? > ) img;
+			for ( int d = 0; d < n; ++d )
+				blockSize[ d ] = cellImg.getCells().cellDimension( d );
+		}
+		else if ( img instanceof PlanarImg )
+		{
+			for ( int d = 0; d < n; ++d )
+				blockSize[ d ] = d < 2 ? img.dimension( d ) : 1;
+		}
+		else if ( img instanceof ArrayImg && n > 0 )
+		{
+			// slabs of consecutive memory, enough for a few tasks per thread
+			long sliceSize = 1;
+			for ( int d = 0; d < n - 1; ++d )
+			{
+				blockSize[ d ] = img.dimension( d );
+				sliceSize *= img.dimension( d );
+			}
+			final long numSlices = img.dimension( n - 1 );
+			final long numTasks = TaskExecutor.suggestNumTasks( sliceSize * numSlices, TaskExecutor.getDefault().getParallelism() );
+			blockSize[ n - 1 ] = Math.max( 1, ( numSlices + numTasks - 1 ) / numTasks );
+		}
+		else
+		{
+			for ( int d = 0; d < n; ++d )
+				blockSize[ d ] = DEFAULT_BLOCK_SIZE;
+		}
+		for ( int d = 0; d < n; ++d )
+			blockSize[ d ] = Math.max( 1, blockSize[ d ] );
+		return blockSize;
+	}
+
+	/**
+	 * Compute the halo required by an operation that reads the given
+	 * neighborhood {@link Shape} around each pixel, i.e., the maximum extent
+	 * of the neighborhood on either side of its center in every dimension.
+	 *
+	 * @param shape
+	 *            the neighborhood shape.
+	 * @param numDimensions
+	 *            number of dimensions of the images.
+	 * @return halo in every dimension.
+	 */
+	public static long[] halo( final Shape shape, final int numDimensions )
+	{
+		final long[] dims = new long[ numDimensions ];
+		for ( int d = 0; d < numDimensions; ++d )
+			dims[ d ] = 1;
+		final Interval box = shape.neighborhoodsRandomAccessibleSafe( ArrayImgs.bits( dims ) ).randomAccess().get().getStructuringElementBoundingBox();
+		final long[] halo = new long[ numDimensions ];
+		for ( int d = 0; d < numDimensions; ++d )
+			halo[ d ] = Math.max( Math.max( -box.min( d ), box.max( d ) ), 0 );
+		return halo;
+	}
+
+	private static long floorDiv( final long a, final long b )
+	{
+		final long q = a / b;
+		return ( a % b != 0 && ( a < 0 ) != ( b < 0 ) ) ? q - 1 : q;
+	}
+}
@@ -0,0 +1,555 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.componenttree.mser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.componenttree.ComponentTree;
+import net.imglib2.algorithm.componenttree.pixellist.PixelList;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.view.Views;
+
+/**
+ * Builds the component tree of an {@link IntegerType} image for
+ * {@link MserTree} without per-pixel objects. This runs the same algorithm
+ * (Nister &amp; Stewenius) as {@link ComponentTree}, but on linear pixel
+ * indices: Pixel values are mapped to integer levels, boundary pixels are kept
+ * in a binary heap of packed (level, index) longs, and the components on the
+ * stack are stored in primitive arrays. Only emitted components allocate, in
+ * the form of the {@link MserEvaluationNode} that {@link MserTree} needs
+ * anyway.
+ *
+ * The heap orders pixels of equal level exactly like the
+ * {@link java.util.PriorityQueue} used by {@link ComponentTree}. The order in
+ * which equal-level pixels are visited determines which of several
+ * equally-sized child components continues the history of a branch, so this
+ * is required to obtain the same MSERs.
+ *
+ * Pixel positions are relative to the min of the input interval.
+ *
+ * @param <T>
+ *            value type of the input image.
+ *
+ * @author ImgLib2 developers
+ */
+final class IntegerMserComponentTree< T extends IntegerType< T > >
+{
+	/**
+	 * Build the component tree of the input and emit its components as
+	 * {@link MserEvaluationNode}s to the tree.
+	 *
+	 * @param input
+	 *            input image with less than {@link Integer#MAX_VALUE} pixels.
+	 * @param darkToBright
+	 *            whether thresholds are applied from dark to bright.
+	 * @param comparator
+	 *            ordering of threshold values, must be consistent with
+	 *            darkToBright.
+	 * @param delta
+	 *            to compute (value - delta).
+	 * @param tree
+	 *            receives the MSERs.
+	 */
+	static < T extends IntegerType< T > > void buildComponentTree( final RandomAccessibleInterval< T > input, final boolean darkToBright, final Comparator< T > comparator, final ComputeDelta< T > delta, final MserTree< T > tree )
+	{
+		new IntegerMserComponentTree< T >( input, darkToBright, comparator, delta, tree ).run();
+	}
+
+	private final Comparator< T > comparator;
+
+	private final ComputeDelta< T > delta;
+
+	private final MserTree< T > tree;
+
+	private final T type;
+
+	private final int n;
+
+	private final long[] dimensions;
+
+	private final int[] intDimensions;
+
+	private final int[] steps;
+
+	/**
+	 * Level of every pixel. Lower levels are processed first.
+	 */
+	private final int[] levels;
+
+	/**
+	 * Number of distinct levels.
+	 */
+	private int numLevels;
+
+	/**
+	 * Maps level to pixel value if values were ranked, null otherwise.
+	 */
+	private long[] levelValues;
+
+	/**
+	 * Maps level to pixel value (level + valueOffset) * valueSign if values
+	 * were not ranked.
+	 */
+	private long valueOffset;
+
+	private long valueSign;
+
+	private final boolean[] visited;
+
+	/**
+	 * Binary heap of boundary pixels. Each entry holds the level in the upper
+	 * and the pixel index in the lower 32 bits.
+	 */
+	private long[] heap;
+
+	private int heapSize;
+
+	/**
+	 * Index of the next neighbor to visit for pixels in the boundary heap. (A
+	 * pixel is in the heap at most once at any time.)
+	 */
+	private final byte[] nextNeighbor;
+
+	/**
+	 * Singly-linked lists of pixel indices (the {@link PixelList}s of all
+	 * components).
+	 */
+	private final long[] links;
+
+	private final ArrayImg< LongType, LongArray > linkedList;
+
+	/*
+	 * The component stack. Slot 0 holds a terminator component with a level
+	 * greater than any occurring in the input.
+	 */
+
+	private int stackSize;
+
+	private int[] stackLevel;
+
+	private long[] stackHead;
+
+	private long[] stackTail;
+
+	private long[] stackPixels;
+
+	private double[][] stackSumPos;
+
+	private double[][] stackSumSquPos;
+
+	private final ArrayList< MserEvaluationNode< T > > stackNode;
+
+	private final ArrayList< ArrayList< MserEvaluationNode< T > > > stackChildren;
+
+	private IntegerMserComponentTree( final RandomAccessibleInterval< T > input, final boolean darkToBright, final Comparator< T > comparator, final ComputeDelta< T > delta, final MserTree< T > tree )
+	{
+		this.comparator = comparator;
+		this.delta = delta;
+		this.tree = tree;
+
+		n = input.numDimensions();
+		dimensions = new long[ n ];
+		input.dimensions( dimensions );
+		intDimensions = new int[ n ];
+		long size = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			intDimensions[ d ] = ( int ) dimensions[ d ];
+			size *= dimensions[ d ];
+		}
+		if ( size >= Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "input has too many pixels" );
+		final int numPixels = ( int ) size;
+		steps = new int[ n ];
+		IntervalIndexer.createAllocationSteps( intDimensions, steps );
+
+		type = input.randomAccess().get().createVariable();
+		levels = new int[ numPixels ];
+		computeLevels( input, darkToBright );
+
+		visited = new boolean[ numPixels ];
+		heap = new long[ 1024 ];
+		heapSize = 0;
+		nextNeighbor = new byte[ numPixels ];
+
+		links = new long[ numPixels ];
+		linkedList = ArrayImgs.longs( links, dimensions );
+
+		final int capacity = Math.min( numLevels + 1, 64 );
+		stackSize = 0;
+		stackLevel = new int[ capacity ];
+		stackHead = new long[ capacity ];
+		stackTail = new long[ capacity ];
+		stackPixels = new long[ capacity ];
+		stackSumPos = new double[ capacity ][];
+		stackSumSquPos = new double[ capacity ][];
+		stackNode = new ArrayList< MserEvaluationNode< T > >( capacity );
+		stackChildren = new ArrayList< ArrayList< MserEvaluationNode< T > > >( capacity );
+	}
+
+	/**
+	 * Read the input into {@link #levels}. If the value range fits into an
+	 * int, values are mapped to levels by subtracting the minimum. Otherwise
+	 * the distinct values are sorted and ranked.
+	 */
+	private void computeLevels( final RandomAccessibleInterval< T > input, final boolean darkToBright )
+	{
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		final Cursor< T > c = Views.flatIterable( input ).cursor();
+		while ( c.hasNext() )
+		{
+			final long v = c.next().getIntegerLong();
+			if ( v < min )
+				min = v;
+			if ( v > max )
+				max = v;
+		}
+
+		final long range = max - min + 1;
+		if ( range > 0 && range < Integer.MAX_VALUE )
+		{
+			numLevels = ( int ) range;
+			levelValues = null;
+			valueOffset = darkToBright ? min : -max;
+			valueSign = darkToBright ? 1 : -1;
+			c.reset();
+			for ( int i = 0; i < levels.length; ++i )
+				levels[ i ] = ( int ) ( valueSign * c.next().getIntegerLong() - valueOffset );
+		}
+		else
+		{
+			final long[] values = new long[ levels.length ];
+			c.reset();
+			for ( int i = 0; i < values.length; ++i )
+				values[ i ] = c.next().getIntegerLong();
+			final long[] sorted = values.clone();
+			Arrays.sort( sorted );
+			int numDistinct = 0;
+			for ( int i = 0; i < sorted.length; ++i )
+				if ( i == 0 || sorted[ i ] != sorted[ i - 1 ] )
+					sorted[ numDistinct++ ] = sorted[ i ];
+			numLevels = numDistinct;
+			levelValues = new long[ numLevels ];
+			for ( int l = 0; l < numLevels; ++l )
+				levelValues[ l ] = sorted[ darkToBright ? l : numLevels - 1 - l ];
+			for ( int i = 0; i < values.length; ++i )
+			{
+				final int rank = Arrays.binarySearch( sorted, 0, numDistinct, values[ i ] );
+				levels[ i ] = darkToBright ? rank : numLevels - 1 - rank;
+			}
+		}
+	}
+
+	private long levelToValue( final int level )
+	{
+		return levelValues == null ? valueSign * ( level + valueOffset ) : levelValues[ level ];
+	}
+
+	/**
+	 * Main loop of the algorithm. This follows exactly along the steps of
+	 * {@link ComponentTree}, with pixels represented by their index.
+	 */
+	private void run()
+	{
+		final int numNeighbors = 2 * n;
+		final long[] position = new long[ n ];
+
+		// terminator component
+		pushComponent( numLevels );
+
+		int current = 0;
+		int currentLevel = levels[ current ];
+		int k = 0;
+		IntervalIndexer.indexToPosition( current, intDimensions, position );
+
+		// step 2
+		visited[ current ] = true;
+
+		// step 3
+		pushComponent( currentLevel );
+
+		// step 4
+		while ( true )
+		{
+			while ( k < numNeighbors )
+			{
+				final int d = k >> 1;
+				final boolean bck = ( k & 1 ) == 0;
+				++k;
+				final int neighbor;
+				if ( bck )
+				{
+					if ( position[ d ] == 0 )
+						continue;
+					neighbor = current - steps[ d ];
+				}
+				else
+				{
+					if ( position[ d ] + 1 == dimensions[ d ] )
+						continue;
+					neighbor = current + steps[ d ];
+				}
+				if ( !visited[ neighbor ] )
+				{
+					visited[ neighbor ] = true;
+					final int neighborLevel = levels[ neighbor ];
+					if ( neighborLevel >= currentLevel )
+					{
+						enqueue( neighbor, 0, neighborLevel );
+					}
+					else
+					{
+						enqueue( current, k, currentLevel );
+						current = neighbor;
+						currentLevel = neighborLevel;
+						position[ d ] += bck ? -1 : 1;
+
+						// go to 3, i.e.:
+						pushComponent( currentLevel );
+						k = 0;
+					}
+				}
+			}
+
+			// step 5
+			addPosition( current, position );
+
+			// step 6
+			if ( heapSize == 0 )
+			{
+				processStack( currentLevel );
+				return;
+			}
+
+			final int p = dequeue();
+			final int pLevel = levels[ p ];
+			if ( pLevel != currentLevel )
+			{
+				// step 7
+				processStack( pLevel );
+			}
+			current = p;
+			currentLevel = pLevel;
+			k = nextNeighbor[ p ];
+			IntervalIndexer.indexToPosition( current, intDimensions, position );
+		}
+	}
+
+	/**
+	 * Add a pixel to the boundary heap. Sifts up like
+	 * {@link java.util.PriorityQueue#offer(Object)}.
+	 */
+	private void enqueue( final int pixel, final int neighborIndex, final int level )
+	{
+		nextNeighbor[ pixel ] = ( byte ) neighborIndex;
+		if ( heapSize == heap.length )
+			heap = Arrays.copyOf( heap, 2 * heap.length );
+		final long x = ( ( long ) level << 32 ) | pixel;
+		int k = heapSize++;
+		while ( k > 0 )
+		{
+			final int parent = ( k - 1 ) >>> 1;
+			final long e = heap[ parent ];
+			if ( level >= ( int ) ( e >>> 32 ) )
+				break;
+			heap[ k ] = e;
+			k = parent;
+		}
+		heap[ k ] = x;
+	}
+
+	/**
+	 * Remove the pixel with the lowest level from the boundary heap. Sifts down
+	 * like {@link java.util.PriorityQueue#poll()}.
+	 */
+	private int dequeue()
+	{
+		final int pixel = ( int ) heap[ 0 ];
+		final int size = --heapSize;
+		if ( size != 0 )
+		{
+			final long x = heap[ size ];
+			final int level = ( int ) ( x >>> 32 );
+			final int half = size >>> 1;
+			int k = 0;
+			while ( k < half )
+			{
+				int child = 2 * k + 1;
+				long c = heap[ child ];
+				final int right = child + 1;
+				if ( right < size && ( int ) ( c >>> 32 ) > ( int ) ( heap[ right ] >>> 32 ) )
+					c = heap[ child = right ];
+				if ( level <= ( int ) ( c >>> 32 ) )
+					break;
+				heap[ k ] = c;
+				k = child;
+			}
+			heap[ k ] = x;
+		}
+		return pixel;
+	}
+
+	/**
+	 * This is called whenever the current level is raised.
+	 */
+	private void processStack( final int level )
+	{
+		while ( true )
+		{
+			// process component on top of stack
+			final int top = stackSize - 1;
+			emit( top );
+
+			// get level of second component on stack
+			final int second = top - 1;
+			final int c = level - stackLevel[ second ];
+			if ( c < 0 )
+			{
+				stackLevel[ top ] = level;
+				return;
+			}
+			merge( top, second );
+			--stackSize;
+			if ( c == 0 )
+				return;
+		}
+	}
+
+	private void pushComponent( final int level )
+	{
+		if ( stackSize == stackLevel.length )
+			growStack();
+		final int i = stackSize++;
+		stackLevel[ i ] = level;
+		stackPixels[ i ] = 0;
+		if ( stackSumPos[ i ] == null )
+		{
+			stackSumPos[ i ] = new double[ n ];
+			stackSumSquPos[ i ] = new double[ ( n * ( n + 1 ) ) / 2 ];
+			stackNode.add( null );
+			stackChildren.add( new ArrayList< MserEvaluationNode< T > >() );
+		}
+		else
+		{
+			Arrays.fill( stackSumPos[ i ], 0 );
+			Arrays.fill( stackSumSquPos[ i ], 0 );
+			stackNode.set( i, null );
+			stackChildren.get( i ).clear();
+		}
+	}
+
+	private void growStack()
+	{
+		final int capacity = 2 * stackLevel.length;
+		stackLevel = Arrays.copyOf( stackLevel, capacity );
+		stackHead = Arrays.copyOf( stackHead, capacity );
+		stackTail = Arrays.copyOf( stackTail, capacity );
+		stackPixels = Arrays.copyOf( stackPixels, capacity );
+		stackSumPos = Arrays.copyOf( stackSumPos, capacity );
+		stackSumSquPos = Arrays.copyOf( stackSumSquPos, capacity );
+	}
+
+	/**
+	 * Add a pixel to the component on top of the stack.
+	 */
+	private void addPosition( final int pixel, final long[] position )
+	{
+		final int i = stackSize - 1;
+		if ( stackPixels[ i ] == 0 )
+			stackHead[ i ] = pixel;
+		else
+			links[ ( int ) stackTail[ i ] ] = pixel;
+		stackTail[ i ] = pixel;
+		++stackPixels[ i ];
+
+		final double[] sumPos = stackSumPos[ i ];
+		final double[] sumSquPos = stackSumSquPos[ i ];
+		int k = 0;
+		for ( int d = 0; d < n; ++d )
+		{
+			sumPos[ d ] += position[ d ];
+			for ( int e = d; e < n; ++e )
+				sumSquPos[ k++ ] += position[ d ] * position[ e ];
+		}
+	}
+
+	/**
+	 * Merge component i into component j.
+	 */
+	private void merge( final int i, final int j )
+	{
+		if ( stackPixels[ j ] == 0 )
+			stackHead[ j ] = stackHead[ i ];
+		else
+			links[ ( int ) stackTail[ j ] ] = stackHead[ i ];
+		stackTail[ j ] = stackTail[ i ];
+		stackPixels[ j ] += stackPixels[ i ];
+
+		final double[] sumPos = stackSumPos[ j ];
+		final double[] sumSquPos = stackSumSquPos[ j ];
+		for ( int d = 0; d < sumPos.length; ++d )
+			sumPos[ d ] += stackSumPos[ i ][ d ];
+		for ( int d = 0; d < sumSquPos.length; ++d )
+			sumSquPos[ d ] += stackSumSquPos[ i ][ d ];
+
+		stackChildren.get( j ).add( stackNode.get( i ) );
+	}
+
+	/**
+	 * Create the {@link MserEvaluationNode} for component i.
+	 */
+	private void emit( final int i )
+	{
+		final T value = type.createVariable();
+		value.setInteger( levelToValue( stackLevel[ i ] ) );
+		final PixelList pixelList = new PixelList( linkedList.randomAccess(), dimensions, stackHead[ i ], stackPixels[ i ] );
+		final ArrayList< MserEvaluationNode< T > > children = stackChildren.get( i );
+		final MserEvaluationNode< T > node = new MserEvaluationNode< T >( value, pixelList, stackNode.get( i ), children, stackSumPos[ i ], stackSumSquPos[ i ], comparator, delta, tree );
+		stackNode.set( i, node );
+		children.clear();
+	}
+}
@@ -129,12 +129,37 @@ final class MserEvaluationNode< T extends Type< T > >
 
 	MserEvaluationNode( final MserComponentIntermediate< T > component, final Comparator< T > comparator, final ComputeDelta< T > delta, final MserTree< T > tree )
 	{
-		value = component.getValue().copy();
-		pixelList = new PixelList( component.pixelList );
+		this( component.getValue().copy(), new PixelList( component.pixelList ), component.getEvaluationNode(), evaluationNodes( component.children ), component.sumPos, component.sumSquPos, comparator, delta, tree );
+		component.setEvaluationNode( this );
+	}
+
+	/**
+	 * Create a direct (non-intermediate) node from the raw data of an emitted
+	 * component.
+	 *
+	 * @param value
+	 *            threshold value of the component (not copied).
+	 * @param pixelList
+	 *            pixels in the component (not copied).
+	 * @param previous
+	 *            the node created when the component was last emitted, or
+	 *            null.
+	 * @param mergedChildren
+	 *            nodes of the components merged into the component since it
+	 *            was last emitted.
+	 * @param sumPos
+	 *            sum of pixel positions.
+	 * @param sumSquPos
+	 *            sum of independent elements of outer product of positions.
+	 */
+	MserEvaluationNode( final T value, final PixelList pixelList, final MserEvaluationNode< T > previous, final ArrayList< MserEvaluationNode< T > > mergedChildren, final double[] sumPos, final double[] sumSquPos, final Comparator< T > comparator, final ComputeDelta< T > delta, final MserTree< T > tree )
+	{
+		this.value = value;
+		this.pixelList = pixelList;
 		size = pixelList.size();
 
 		final ArrayList< MserEvaluationNode< T > > children = new ArrayList< MserEvaluationNode< T > >();
-		MserEvaluationNode< T > node = component.getEvaluationNode();
+		MserEvaluationNode< T > node = previous;
 		long historySize = 0;
 		if ( node != null )
 		{
@@ -146,35 +171,34 @@ final class MserEvaluationNode< T extends Type< T > >
 		}
 
 		MserEvaluationNode< T > historyWinner = node;
-		for ( MserComponentIntermediate< T > c : component.children )
+		for ( final MserEvaluationNode< T > c : mergedChildren )
 		{
 			// create intermediate MserEvaluationNode between child and this node.
-			node = new MserEvaluationNode< T >( c.getEvaluationNode(), value, comparator, delta );
+			node = new MserEvaluationNode< T >( c, value, comparator, delta );
 			children.add( node );
 			node.setParent( this );
-			if ( c.size() > historySize )
+			if ( c.size > historySize )
 			{
 				historyWinner = node;
-				historySize = c.size();
+				historySize = c.size;
 			}
 		}
 		
 		historyChild = historyWinner;
 		
-		n = component.n;
+		n = sumPos.length;
 		mean = new double[ n ];
 		cov = new double[ ( n * (n+1) ) / 2 ];
 		for ( int i = 0; i < n; ++i )
-			mean[ i ] = component.sumPos[ i ] / size;
+			mean[ i ] = sumPos[ i ] / size;
 		int k = 0;
 		for ( int i = 0; i < n; ++i )
 			for ( int j = i; j < n; ++j )
 			{
-				cov[ k ] = component.sumSquPos[ k ] / size - mean[ i ] * mean[ j ];
+				cov[ k ] = sumSquPos[ k ] / size - mean[ i ] * mean[ j ];
 				++k;
 			}
 
-		component.setEvaluationNode( this );
 		isScoreValid = computeMserScore( delta, comparator, false );
 		if ( isScoreValid )
 			for ( MserEvaluationNode< T > a : children )
@@ -190,6 +214,18 @@ final class MserEvaluationNode< T extends Type< T > >
 		}
 	}
 
+	/**
+	 * Get the {@link MserEvaluationNode}s last emitted from the given
+	 * components.
+	 */
+	private static < T extends Type< T > > ArrayList< MserEvaluationNode< T > > evaluationNodes( final ArrayList< MserComponentIntermediate< T > > components )
+	{
+		final ArrayList< MserEvaluationNode< T > > nodes = new ArrayList< MserEvaluationNode< T > >( components.size() );
+		for ( final MserComponentIntermediate< T > c : components )
+			nodes.add( c.getEvaluationNode() );
+		return nodes;
+	}
+
 	private MserEvaluationNode( final MserEvaluationNode< T > child, final T value, final Comparator< T > comparator, final ComputeDelta< T > delta )
 	{
 		child.setParent( this );
@@ -51,6 +51,7 @@ import net.imglib2.img.ImgFactory;
 import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.img.cell.CellImgFactory;
 import net.imglib2.type.Type;
+import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.integer.LongType;
 
@@ -197,6 +198,77 @@ public final class MserTree< T extends Type< T > > implements Component.Handler<
 		return tree;
 	}
 
+	/**
+	 * Build a MSER tree from an {@link IntegerType} input image. Calls
+	 * {@link #buildIntegerMserTree(RandomAccessibleInterval, IntegerType, long, long, double, double, boolean)}.
+	 *
+	 * @param input
+	 *            the input image.
+	 * @param delta
+	 *            delta for computing instability score.
+	 * @param minSize
+	 *            minimum size (in pixels) of accepted MSER.
+	 * @param maxSize
+	 *            maximum size (in pixels) of accepted MSER.
+	 * @param maxVar
+	 *            maximum instability score of accepted MSER.
+	 * @param minDiversity
+	 *            minimal diversity of adjacent accepted MSER.
+	 * @param darkToBright
+	 *            whether to apply thresholds from dark to bright (true) or
+	 *            bright to dark (false)
+	 * @return MSER tree of the image.
+	 */
+	public static < T extends IntegerType< T > > MserTree< T > buildIntegerMserTree( final RandomAccessibleInterval< T > input, final long delta, final long minSize, final long maxSize, final double maxVar, final double minDiversity, final boolean darkToBright )
+	{
+		final T deltaT = input.randomAccess().get().createVariable();
+		deltaT.setInteger( delta );
+		return buildIntegerMserTree( input, deltaT, minSize, maxSize, maxVar, minDiversity, darkToBright );
+	}
+
+	/**
+	 * Build a MSER tree from an {@link IntegerType} input image. This produces
+	 * the same MSERs as
+	 * {@link #buildMserTree(RandomAccessibleInterval, RealType, long, long, double, double, boolean)}
+	 * but builds the component tree on linear pixel indices with a primitive
+	 * heap and primitive component storage ({@link IntegerMserComponentTree}),
+	 * which avoids allocating objects per pixel. Images with
+	 * {@link Integer#MAX_VALUE} pixels or more fall back to
+	 * {@link #buildMserTree(RandomAccessibleInterval, RealType, long, long, double, double, boolean)}.
+	 *
+	 * @param input
+	 *            the input image.
+	 * @param delta
+	 *            delta for computing instability score.
+	 * @param minSize
+	 *            minimum size (in pixels) of accepted MSER.
+	 * @param maxSize
+	 *            maximum size (in pixels) of accepted MSER.
+	 * @param maxVar
+	 *            maximum instability score of accepted MSER.
+	 * @param minDiversity
+	 *            minimal diversity of adjacent accepted MSER.
+	 * @param darkToBright
+	 *            whether to apply thresholds from dark to bright (true) or
+	 *            bright to dark (false)
+	 * @return MSER tree of the image.
+	 */
+	public static < T extends IntegerType< T > > MserTree< T > buildIntegerMserTree( final RandomAccessibleInterval< T > input, final T delta, final long minSize, final long maxSize, final double maxVar, final double minDiversity, final boolean darkToBright )
+	{
+		long size = 1;
+		for ( int d = 0; d < input.numDimensions(); ++d )
+			size *= input.dimension( d );
+		if ( size >= Integer.MAX_VALUE )
+			return buildMserTree( input, delta, minSize, maxSize, maxVar, minDiversity, darkToBright );
+
+		final Comparator< T > comparator = darkToBright ? new ComponentTree.DarkToBright< T >() : new ComponentTree.BrightToDark< T >();
+		final ComputeDelta< T > computeDelta = darkToBright ? new ComputeDeltaDarkToBright< T >( delta ) : new ComputeDeltaBrightToDark< T >( delta );
+		final MserTree< T > tree = new MserTree< T >( comparator, computeDelta, minSize, maxSize, maxVar, minDiversity );
+		IntegerMserComponentTree.buildComponentTree( input, darkToBright, comparator, computeDelta, tree );
+		tree.pruneDuplicates();
+		return tree;
+	}
+
 	/**
 	 * Build a MSER tree from an input image. Calls
 	 * {@link #buildMserTree(RandomAccessibleInterval, ComputeDelta, long, long, double, double, ImgFactory, Type, Comparator)}
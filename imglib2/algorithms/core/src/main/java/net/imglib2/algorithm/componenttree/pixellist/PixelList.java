@@ -95,6 +95,28 @@ public final class PixelList implements Iterable< Localizable >
 		size = 0;
 	}
 
+	/**
+	 * Create a read-only view of a linked list that has been built directly in
+	 * the index image.
+	 *
+	 * @param locationsAccess
+	 *            RandomAccess into the index image that stores the linked list.
+	 * @param dimensions
+	 *            Dimensions of the index image.
+	 * @param headIndex
+	 *            index of the first location in the list.
+	 * @param size
+	 *            length of the list.
+	 */
+	public PixelList( final RandomAccess< LongType > locationsAccess, final long[] dimensions, final long headIndex, final long size )
+	{
+		this.locationsAccess = locationsAccess;
+		this.dimensions = dimensions;
+		this.headIndex = headIndex;
+		this.tailPos = null;
+		this.size = size;
+	}
+
 	public PixelList( final PixelList l )
 	{
 		this.locationsAccess = l.locationsAccess;
@@ -39,9 +39,11 @@ package net.imglib2.algorithm.gauss3;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.multithreading.TaskExecutor;
 import net.imglib2.type.numeric.NumericType;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.util.Util;
 import net.imglib2.view.Views;
 
 /**
@@ -99,6 +101,13 @@ public final class Gauss3
 	 * in their own precision. The source type S and target type T are either
 	 * both {@link RealType RealTypes} or both the same type.
 	 *
+	 * <p>
+	 * For {@link RealType RealTypes}, dimensions with sigma of at least
+	 * {@link RecursiveGauss#DEFAULT_RECURSIVE_SIGMA} are filtered with the
+	 * recursive Gaussian approximation of {@link RecursiveGauss}, whose cost
+	 * does not grow with sigma. In these dimensions the source must provide a
+	 * border of 4 sigma.
+	 *
 	 * @param sigma
 	 *            standard deviation in every dimension.
 	 * @param source
@@ -118,6 +127,18 @@ public final class Gauss3
 	 */
 	public static < S extends NumericType< S >, T extends NumericType< T > > void gauss( final double[] sigma, final RandomAccessible< S > source, final RandomAccessibleInterval< T > target ) throws IncompatibleTypeException
 	{
+		if ( Util.getTypeFromInterval( target ) instanceof RealType )
+		{
+			final boolean[] recursive = RecursiveGauss.suggestRecursive( sigma );
+			for ( final boolean r : recursive )
+			{
+				if ( r )
+				{
+					RecursiveGauss.gauss( sigma, recursive, source, target, TaskExecutor.getDefault() );
+					return;
+				}
+			}
+		}
 		final double[][] halfkernels = halfkernels( sigma );
 		final int numthreads = Runtime.getRuntime().availableProcessors();
 		SeparableSymmetricConvolution.convolve( halfkernels, source, target, numthreads );
@@ -0,0 +1,390 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.gauss3;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.type.numeric.NumericType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+
+/**
+ * Gaussian convolution and Gaussian derivatives by recursive (IIR) filtering.
+ *
+ * <p>
+ * The recursive filter of Young and van Vliet costs a constant number of
+ * operations per pixel, whereas the cost of convolving with a sampled kernel
+ * grows linearly with sigma. The recursive filter is an approximation, its
+ * error is larger than that of the sampled kernel, in particular for small
+ * sigma. It is applied line by line through
+ * {@link SeparableSymmetricConvolution}, so it runs multithreaded and can be
+ * combined with sampled kernels in other dimensions. Dimensions for which
+ * recursive filtering is not requested (or sigma is smaller than
+ * {@link #MIN_SIGMA}) are convolved with the sampled Gaussian kernel.
+ *
+ * <p>
+ * Derivatives are computed by central differences of the recursively smoothed
+ * lines.
+ *
+ * <p>
+ * {@link Gauss3#gauss(double[], RandomAccessible, RandomAccessibleInterval)}
+ * uses the recursive filter for all dimensions with sigma of at least
+ * {@link #DEFAULT_RECURSIVE_SIGMA}.
+ *
+ * @author ImgLib2 developers
+ */
+public final class RecursiveGauss
+{
+	/**
+	 * The smallest sigma the recursive filter is defined for.
+	 */
+	final public static double MIN_SIGMA = 0.5;
+
+	/**
+	 * Sigma from which on {@link Gauss3} uses the recursive filter instead of
+	 * the sampled kernel.
+	 */
+	final public static double DEFAULT_RECURSIVE_SIGMA = 8;
+
+	/**
+	 * Compute the coefficients of the Young-van Vliet recursive filter. The
+	 * filter is applied forwards and backwards along a line as
+	 * <code>w[i] = c[0] * x[i] + c[1] * w[i-1] + c[2] * w[i-2] + c[3] * w[i-3]</code>.
+	 *
+	 * <p>
+	 * The poles are those of Young, van Vliet and van Ginkel (2002), scaled by
+	 * a parameter q that is chosen such that the variance of the impulse
+	 * response of the forward-backward filter is exactly sigma<sup>2</sup>.
+	 * (The closed-form q of the original 1995 filter overestimates sigma by
+	 * about 10% for large sigma.)
+	 *
+	 * @param sigma
+	 *            standard deviation, at least {@link #MIN_SIGMA}.
+	 * @return the coefficients {B, b1/b0, b2/b0, b3/b0}.
+	 */
+	public static double[] coefficients( final double sigma )
+	{
+		if ( sigma < MIN_SIGMA )
+			throw new IllegalArgumentException( "sigma must be at least " + MIN_SIGMA + " for recursive filtering, but is " + sigma );
+
+		// the variance grows monotonically with q, bracket and bisect
+		final double variance = sigma * sigma;
+		double lo = 0;
+		double hi = sigma;
+		while ( variance( coefficientsForQ( hi ) ) < variance )
+		{
+			lo = hi;
+			hi *= 2;
+		}
+		for ( int i = 0; i < 64 && hi - lo > 1e-12 * hi; ++i )
+		{
+			final double q = 0.5 * ( lo + hi );
+			if ( variance( coefficientsForQ( q ) ) >= variance )
+				hi = q;
+			else
+				lo = q;
+		}
+		return coefficientsForQ( 0.5 * ( lo + hi ) );
+	}
+
+	/**
+	 * Compute the variance of the impulse response of the forward-backward
+	 * filter with the given coefficients.
+	 *
+	 * @param c
+	 *            the coefficients {B, b1/b0, b2/b0, b3/b0}.
+	 * @return the variance of the impulse response.
+	 */
+	public static double variance( final double[] c )
+	{
+		// moments of the causal impulse response from the derivatives of its
+		// z-transform at z=1, the backward pass contributes the same variance
+		final double mean = ( c[ 1 ] + 2 * c[ 2 ] + 3 * c[ 3 ] ) / c[ 0 ];
+		return 2 * ( mean * mean + mean + ( 2 * c[ 2 ] + 6 * c[ 3 ] ) / c[ 0 ] );
+	}
+
+	/**
+	 * Coefficients for the poles d<sup>1/q</sup>, where d are the complex pair
+	 * 1.41650 &plusmn; 1.00829i and the real pole 1.86543.
+	 */
+	private static double[] coefficientsForQ( final double q )
+	{
+		final double r = Math.pow( Math.hypot( 1.41650, 1.00829 ), 1 / q );
+		final double theta = Math.atan2( 1.00829, 1.41650 ) / q;
+		final double re = r * Math.cos( theta );
+		final double abs2 = r * r;
+		final double d3 = Math.pow( 1.86543, 1 / q );
+
+		// expand 1 / ( (1 - 1/d1 z^-1) (1 - 1/d2 z^-1) (1 - 1/d3 z^-1) )
+		final double a1 = 2 * re / abs2 + 1 / d3;
+		final double a2 = -( 1 / abs2 + 2 * re / ( abs2 * d3 ) );
+		final double a3 = 1 / ( abs2 * d3 );
+		return new double[] { 1 - ( a1 + a2 + a3 ), a1, a2, a3 };
+	}
+
+	/**
+	 * Create half-kernels for the given sigmas. For dimensions that are filtered
+	 * recursively the half-kernel only determines the border that is used to
+	 * let the recursion settle, which needs to be larger than the sampled kernel.
+	 *
+	 * @param sigma
+	 *            standard deviation in every dimension.
+	 * @param recursive
+	 *            for every dimension, whether to use the recursive filter.
+	 * @return half-kernels for every dimension.
+	 */
+	public static double[][] halfkernels( final double[] sigma, final boolean[] recursive )
+	{
+		final double[][] halfkernels = Gauss3.halfkernels( sigma );
+		for ( int d = 0; d < sigma.length; ++d )
+			if ( recursive[ d ] )
+				halfkernels[ d ] = Gauss3.halfkernel( sigma[ d ], Math.max( 2, ( int ) ( 4 * sigma[ d ] + 0.5 ) + 1 ), true );
+		return halfkernels;
+	}
+
+	/**
+	 * @param sigma
+	 *            standard deviation in every dimension.
+	 * @return for every dimension, whether the recursive filter should be used
+	 *         (sigma is at least {@link #DEFAULT_RECURSIVE_SIGMA}).
+	 */
+	public static boolean[] suggestRecursive( final double[] sigma )
+	{
+		final boolean[] recursive = new boolean[ sigma.length ];
+		for ( int d = 0; d < sigma.length; ++d )
+			recursive[ d ] = sigma[ d ] >= DEFAULT_RECURSIVE_SIGMA;
+		return recursive;
+	}
+
+	/**
+	 * Apply recursive Gaussian filtering in every dimension to source and write
+	 * the result to target. In-place operation (source==target) is supported.
+	 *
+	 * <p>
+	 * If the target type T is {@link DoubleType}, intermediate results are
+	 * stored in double precision, otherwise in float precision. Source and
+	 * target must be {@link RealType RealTypes}.
+	 *
+	 * @param sigma
+	 *            standard deviation in every dimension.
+	 * @param source
+	 *            source image, must be sufficiently padded (e.g.
+	 *            {@link Views#extendMirrorSingle(RandomAccessibleInterval)}) to
+	 *            provide values for the target interval plus a border of
+	 *            4 sigma in recursively filtered dimensions (see
+	 *            {@link #halfkernels(double[], boolean[])}).
+	 * @param target
+	 *            target image
+	 * @throws IncompatibleTypeException
+	 *             if source or target are not {@link RealType RealTypes}.
+	 */
+	public static < S extends NumericType< S >, T extends NumericType< T > > void gauss( final double[] sigma, final RandomAccessible< S > source, final RandomAccessibleInterval< T > target ) throws IncompatibleTypeException
+	{
+		final boolean[] recursive = new boolean[ sigma.length ];
+		for ( int d = 0; d < sigma.length; ++d )
+			recursive[ d ] = true;
+		gauss( sigma, recursive, source, target, TaskExecutor.getDefault() );
+	}
+
+	/**
+	 * Apply Gaussian convolution to source and write the result to target,
+	 * using the recursive filter in the selected dimensions and the sampled
+	 * Gaussian kernel in all others. In-place operation (source==target) is
+	 * supported.
+	 *
+	 * @see #gauss(double[], RandomAccessible, RandomAccessibleInterval)
+	 *
+	 * @param sigma
+	 *            standard deviation in every dimension.
+	 * @param recursive
+	 *            for every dimension, whether to use the recursive filter.
+	 *            Ignored for sigma smaller than {@link #MIN_SIGMA}.
+	 * @param source
+	 *            source image, must be sufficiently padded.
+	 * @param target
+	 *            target image
+	 * @param executor
+	 *            runs the parallel parts of the computation.
+	 * @throws IncompatibleTypeException
+	 *             if source or target are not {@link RealType RealTypes}.
+	 */
+	public static < S extends NumericType< S >, T extends NumericType< T > > void gauss( final double[] sigma, final boolean[] recursive, final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final TaskExecutor executor ) throws IncompatibleTypeException
+	{
+		final boolean[] r = new boolean[ sigma.length ];
+		for ( int d = 0; d < sigma.length; ++d )
+			r[ d ] = recursive[ d ] && sigma[ d ] >= MIN_SIGMA;
+		double[][] halfkernels = halfkernels( sigma, r );
+		if ( !SeparableSymmetricConvolution.canUseBufferedConvolver( target, halfkernels ) )
+		{
+			for ( int d = 0; d < sigma.length; ++d )
+				r[ d ] = false;
+			halfkernels = Gauss3.halfkernels( sigma );
+		}
+		convolve( halfkernels, sigma, new int[ sigma.length ], r, source, target, executor );
+	}
+
+	/**
+	 * Compute Gaussian derivatives of source by recursive filtering and write
+	 * the result to target. In-place operation (source==target) is supported.
+	 *
+	 * @see #gauss(double[], RandomAccessible, RandomAccessibleInterval)
+	 *
+	 * @param sigma
+	 *            standard deviation in every dimension, at least
+	 *            {@link #MIN_SIGMA}.
+	 * @param order
+	 *            order of the derivative (0, 1, or 2) in every dimension.
+	 * @param source
+	 *            source image, must be sufficiently padded.
+	 * @param target
+	 *            target image
+	 * @throws IncompatibleTypeException
+	 *             if source or target are not {@link RealType RealTypes}.
+	 */
+	public static < S extends NumericType< S >, T extends NumericType< T > > void derivative( final double[] sigma, final int[] order, final RandomAccessible< S > source, final RandomAccessibleInterval< T > target ) throws IncompatibleTypeException
+	{
+		derivative( sigma, order, source, target, TaskExecutor.getDefault() );
+	}
+
+	/**
+	 * Compute Gaussian derivatives of source by recursive filtering and write
+	 * the result to target. In-place operation (source==target) is supported.
+	 *
+	 * @see #derivative(double[], int[], RandomAccessible, RandomAccessibleInterval)
+	 *
+	 * @param executor
+	 *            runs the parallel parts of the computation.
+	 */
+	public static < S extends NumericType< S >, T extends NumericType< T > > void derivative( final double[] sigma, final int[] order, final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final TaskExecutor executor ) throws IncompatibleTypeException
+	{
+		final boolean[] recursive = new boolean[ sigma.length ];
+		for ( int d = 0; d < sigma.length; ++d )
+		{
+			if ( order[ d ] < 0 || order[ d ] > 2 )
+				throw new IllegalArgumentException( "derivative order must be 0, 1, or 2, but is " + order[ d ] );
+			if ( sigma[ d ] < MIN_SIGMA )
+				throw new IllegalArgumentException( "sigma must be at least " + MIN_SIGMA + " for recursive filtering, but is " + sigma[ d ] );
+			recursive[ d ] = true;
+		}
+		final double[][] halfkernels = halfkernels( sigma, recursive );
+		if ( !SeparableSymmetricConvolution.canUseBufferedConvolver( target, halfkernels ) )
+			throw new IllegalArgumentException( "lines longer than Integer.MAX_VALUE are not supported" );
+		convolve( halfkernels, sigma, order, recursive, source, target, executor );
+	}
+
+	@SuppressWarnings( { "rawtypes", "unchecked" } )
+	private static < S extends NumericType< S >, T extends NumericType< T > > void convolve( final double[][] halfkernels, final double[] sigma, final int[] order, final boolean[] recursive, final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final TaskExecutor executor ) throws IncompatibleTypeException
+	{
+		final T targetType = Util.getTypeFromInterval( target );
+		if ( ! ( targetType instanceof RealType ) )
+			throw new IncompatibleTypeException( targetType, "RealType target required for recursive Gaussian filtering" );
+		final RandomAccess< S > a = source.randomAccess();
+		target.min( a );
+		final S sourceType = a.get();
+		if ( ! ( sourceType instanceof RealType ) )
+			throw new IncompatibleTypeException( sourceType, "RealType source required for convolving into a RealType target" );
+		if ( ( ( Object ) targetType ) instanceof DoubleType )
+			convolveRealTypeDouble( halfkernels, sigma, order, recursive, ( RandomAccessible ) source, ( RandomAccessibleInterval ) target, executor );
+		else
+			convolveRealTypeFloat( halfkernels, sigma, order, recursive, ( RandomAccessible ) source, ( RandomAccessibleInterval ) target, executor );
+	}
+
+	private static < S extends RealType< S >, T extends RealType< T > > void convolveRealTypeFloat( final double[][] halfkernels, final double[] sigma, final int[] order, final boolean[] recursive,
+			final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final TaskExecutor executor )
+	{
+		final FloatType type = new FloatType();
+		final ImgFactory< FloatType > imgfac = SeparableSymmetricConvolution.getImgFactory( target, halfkernels, type );
+		if ( SeparableSymmetricConvolution.canUseBufferedConvolver( target, halfkernels ) )
+			SeparableSymmetricConvolution.convolve( halfkernels, source, target,
+					select( recursive, FloatConvolverRealTypeBuffered.< S, FloatType >factory(), RecursiveGaussConvolverRealType.< S, FloatType >factory( sigma, order ) ),
+					select( recursive, FloatConvolverRealTypeBuffered.< FloatType, FloatType >factory(), RecursiveGaussConvolverRealType.< FloatType, FloatType >factory( sigma, order ) ),
+					select( recursive, FloatConvolverRealTypeBuffered.< FloatType, T >factory(), RecursiveGaussConvolverRealType.< FloatType, T >factory( sigma, order ) ),
+					select( recursive, FloatConvolverRealTypeBuffered.< S, T >factory(), RecursiveGaussConvolverRealType.< S, T >factory( sigma, order ) ),
+					imgfac, type, executor, executor.getParallelism() );
+		else
+			SeparableSymmetricConvolution.convolve( halfkernels, source, target,
+					FloatConvolverRealType.< S, FloatType >factory(),
+					FloatConvolverRealType.< FloatType, FloatType >factory(),
+					FloatConvolverRealType.< FloatType, T >factory(),
+					FloatConvolverRealType.< S, T >factory(), imgfac, type, executor, executor.getParallelism() );
+	}
+
+	private static < S extends RealType< S >, T extends RealType< T > > void convolveRealTypeDouble( final double[][] halfkernels, final double[] sigma, final int[] order, final boolean[] recursive,
+			final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final TaskExecutor executor )
+	{
+		final DoubleType type = new DoubleType();
+		final ImgFactory< DoubleType > imgfac = SeparableSymmetricConvolution.getImgFactory( target, halfkernels, type );
+		if ( SeparableSymmetricConvolution.canUseBufferedConvolver( target, halfkernels ) )
+			SeparableSymmetricConvolution.convolve( halfkernels, source, target,
+					select( recursive, DoubleConvolverRealTypeBuffered.< S, DoubleType >factory(), RecursiveGaussConvolverRealType.< S, DoubleType >factory( sigma, order ) ),
+					select( recursive, DoubleConvolverRealTypeBuffered.< DoubleType, DoubleType >factory(), RecursiveGaussConvolverRealType.< DoubleType, DoubleType >factory( sigma, order ) ),
+					select( recursive, DoubleConvolverRealTypeBuffered.< DoubleType, T >factory(), RecursiveGaussConvolverRealType.< DoubleType, T >factory( sigma, order ) ),
+					select( recursive, DoubleConvolverRealTypeBuffered.< S, T >factory(), RecursiveGaussConvolverRealType.< S, T >factory( sigma, order ) ),
+					imgfac, type, executor, executor.getParallelism() );
+		else
+			SeparableSymmetricConvolution.convolve( halfkernels, source, target,
+					DoubleConvolverRealType.< S, DoubleType >factory(),
+					DoubleConvolverRealType.< DoubleType, DoubleType >factory(),
+					DoubleConvolverRealType.< DoubleType, T >factory(),
+					DoubleConvolverRealType.< S, T >factory(), imgfac, type, executor, executor.getParallelism() );
+	}
+
+	/**
+	 * @return a {@link ConvolverFactory} that creates recursive line convolvers
+	 *         for the dimensions d with recursive[d], and sampled kernel line
+	 *         convolvers for all others.
+	 */
+	private static < S, T > ConvolverFactory< S, T > select( final boolean[] recursive, final ConvolverFactory< S, T > kernelFactory, final ConvolverFactory< S, T > recursiveFactory )
+	{
+		return new ConvolverFactory< S, T >() {
+			@Override
+			public Runnable create( final double[] halfkernel, final RandomAccess< S > in, final RandomAccess< T > out, final int d, final long lineLength )
+			{
+				return recursive[ d ] ?
+						recursiveFactory.create( halfkernel, in, out, d, lineLength ) :
+						kernelFactory.create( halfkernel, in, out, d, lineLength );
+			}
+		};
+	}
+}
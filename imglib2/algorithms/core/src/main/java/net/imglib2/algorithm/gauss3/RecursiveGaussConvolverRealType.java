@@ -0,0 +1,248 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.gauss3;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * A 1-dimensional line convolver that approximates Gaussian convolution (and
+ * its first and second derivative) by the recursive filter of Young and van
+ * Vliet. The cost per pixel is constant, independent of sigma. It operates on
+ * all {@link RealType} and stores a line in a double[] array. This works for
+ * images, where a single line has no more than {@link Integer#MAX_VALUE}
+ * elements.
+ *
+ * <p>
+ * The half-kernel passed to the {@link ConvolverFactory} is only used to
+ * determine the border of the line that is read from the source. The border is
+ * used to let the recursion settle, so the half-kernel should be about 4 sigma
+ * long (see {@link RecursiveGauss#halfkernels(double[], boolean[])}).
+ *
+ * @author ImgLib2 developers
+ * @see ConvolverFactory
+ * @see RecursiveGauss
+ *
+ * @param <S>
+ *            input type
+ * @param <T>
+ *            output type
+ */
+public final class RecursiveGaussConvolverRealType< S extends RealType< S >, T extends RealType< T > > implements Runnable
+{
+	/**
+	 * @param sigma
+	 *            standard deviation in every dimension.
+	 * @param order
+	 *            order of the derivative (0, 1, or 2) in every dimension.
+	 * @return a {@link ConvolverFactory} producing
+	 *         {@link RecursiveGaussConvolverRealType}.
+	 */
+	public static < S extends RealType< S >, T extends RealType< T > > ConvolverFactory< S, T > factory( final double[] sigma, final int[] order )
+	{
+		final double[] s = sigma.clone();
+		final int[] o = order.clone();
+		return new ConvolverFactory< S, T >() {
+			@Override
+			public Runnable create( final double[] halfkernel, final RandomAccess< S > in, final RandomAccess< T > out, final int d, final long lineLength )
+			{
+				return new RecursiveGaussConvolverRealType< S, T >( RecursiveGauss.coefficients( s[ d ] ), o[ d ], halfkernel.length - 1, in, out, d, lineLength );
+			}
+		};
+	}
+
+	final private double b;
+
+	final private double a1;
+
+	final private double a2;
+
+	final private double a3;
+
+	/**
+	 * maps the deviation of the last three causal outputs from the last input
+	 * to the deviation of the initial anti-causal state (Triggs and Sdika).
+	 */
+	final private double[] m;
+
+	final private int order;
+
+	final private RandomAccess< S > in;
+
+	final private RandomAccess< T > out;
+
+	final private int d;
+
+	final private int k1;
+
+	final private int lineLength;
+
+	final private double[] buf;
+
+	private RecursiveGaussConvolverRealType( final double[] coefficients, final int order, final int k1, final RandomAccess< S > in, final RandomAccess< T > out, final int d, final long lineLength )
+	{
+		this.b = coefficients[ 0 ];
+		this.a1 = coefficients[ 1 ];
+		this.a2 = coefficients[ 2 ];
+		this.a3 = coefficients[ 3 ];
+		this.m = boundaryMatrix( b, a1, a2, a3 );
+		this.order = order;
+		this.in = in;
+		this.out = out;
+		this.d = d;
+		this.k1 = k1;
+		this.lineLength = ( int ) lineLength;
+
+		buf = new double[ this.lineLength + 2 * k1 ];
+	}
+
+	@Override
+	public void run()
+	{
+		final int buflen = buf.length;
+		for ( int i = 0; i < buflen; ++i )
+		{
+			buf[ i ] = in.get().getRealDouble();
+			in.fwd( d );
+		}
+
+		final double u = buf[ buflen - 1 ];
+
+		// causal pass, starting from the steady state for the first sample
+		double w1 = buf[ 0 ], w2 = w1, w3 = w1;
+		for ( int i = 0; i < buflen; ++i )
+		{
+			final double w = b * buf[ i ] + a1 * w1 + a2 * w2 + a3 * w3;
+			buf[ i ] = w;
+			w3 = w2;
+			w2 = w1;
+			w1 = w;
+		}
+
+		// anti-causal pass, starting from the state the filters reach if the
+		// last sample is continued infinitely
+		final double d1 = w1 - u, d2 = w2 - u, d3 = w3 - u;
+		w1 = u + m[ 0 ] * d1 + m[ 1 ] * d2 + m[ 2 ] * d3;
+		w2 = u + m[ 3 ] * d1 + m[ 4 ] * d2 + m[ 5 ] * d3;
+		w3 = u + m[ 6 ] * d1 + m[ 7 ] * d2 + m[ 8 ] * d3;
+		for ( int i = buflen - 1; i >= 0; --i )
+		{
+			final double w = b * buf[ i ] + a1 * w1 + a2 * w2 + a3 * w3;
+			buf[ i ] = w;
+			w3 = w2;
+			w2 = w1;
+			w1 = w;
+		}
+
+		writeLine();
+	}
+
+	/**
+	 * Compute the matrix that maps the deviation (d1, d2, d3) of the last three
+	 * causal outputs from the last input to the deviation of the initial
+	 * anti-causal state, by running both filters on the continuation of the
+	 * line with the last input until the response has decayed.
+	 */
+	private static double[] boundaryMatrix( final double b, final double a1, final double a2, final double a3 )
+	{
+		final double[] m = new double[ 9 ];
+		double[] dev = new double[ 64 ];
+		for ( int j = 0; j < 3; ++j )
+		{
+			// causal response to the deviation
+			double w1 = j == 0 ? 1 : 0, w2 = j == 1 ? 1 : 0, w3 = j == 2 ? 1 : 0;
+			int n = 0;
+			while ( n < 3 || Math.abs( w1 ) + Math.abs( w2 ) + Math.abs( w3 ) > 1e-16 )
+			{
+				if ( n == dev.length )
+				{
+					final double[] tmp = new double[ 2 * n ];
+					System.arraycopy( dev, 0, tmp, 0, n );
+					dev = tmp;
+				}
+				final double w = a1 * w1 + a2 * w2 + a3 * w3;
+				dev[ n++ ] = w;
+				w3 = w2;
+				w2 = w1;
+				w1 = w;
+			}
+
+			// anti-causal response, starting from steady state at the far end
+			w1 = 0;
+			w2 = 0;
+			w3 = 0;
+			for ( int i = n - 1; i >= 0; --i )
+			{
+				final double w = b * dev[ i ] + a1 * w1 + a2 * w2 + a3 * w3;
+				if ( i < 3 )
+					m[ 3 * i + j ] = w;
+				w3 = w2;
+				w2 = w1;
+				w1 = w;
+			}
+		}
+		return m;
+	}
+
+	private void writeLine()
+	{
+		final int max = k1 + lineLength;
+		switch ( order )
+		{
+		case 0:
+			for ( int i = k1; i < max; ++i )
+			{
+				out.get().setReal( buf[ i ] );
+				out.fwd( d );
+			}
+			break;
+		case 1:
+			for ( int i = k1; i < max; ++i )
+			{
+				out.get().setReal( 0.5 * ( buf[ i + 1 ] - buf[ i - 1 ] ) );
+				out.fwd( d );
+			}
+			break;
+		default:
+			for ( int i = k1; i < max; ++i )
+			{
+				out.get().setReal( buf[ i + 1 ] - 2 * buf[ i ] + buf[ i - 1 ] );
+				out.fwd( d );
+			}
+		}
+	}
+}
@@ -36,9 +36,7 @@
 
 package net.imglib2.algorithm.gauss3;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
 
 import net.imglib2.Dimensions;
 import net.imglib2.FinalInterval;
@@ -52,6 +50,7 @@ import net.imglib2.img.ImgFactory;
 import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.img.cell.CellImgFactory;
 import net.imglib2.img.list.ListImgFactory;
+import net.imglib2.multithreading.TaskExecutor;
 import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.NumericType;
 import net.imglib2.type.numeric.RealType;
@@ -100,8 +99,36 @@ public final class SeparableSymmetricConvolution
 	 *             if source and target type are not compatible (they must be
 	 *             either both {@link RealType RealTypes} or the same type).
 	 */
-	@SuppressWarnings( { "rawtypes", "unchecked" } )
 	public static < S extends NumericType< S >, T extends NumericType< T > > void convolve( final double[][] halfkernels, final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final int numThreads ) throws IncompatibleTypeException
+	{
+		convolve( halfkernels, source, target, TaskExecutor.getDefault(), numThreads );
+	}
+
+	/**
+	 * Convolve source with a separable symmetric kernel and write the result to
+	 * output. In-place operation (source==target) is supported. The
+	 * computation is parallelized on the given {@link TaskExecutor}.
+	 *
+	 * @see #convolve(double[][], RandomAccessible, RandomAccessibleInterval, int)
+	 *
+	 * @param halfkernels
+	 *            an array containing half-kernels for every dimension.
+	 * @param source
+	 *            source image, must be sufficiently padded.
+	 * @param target
+	 *            target image.
+	 * @param executor
+	 *            runs the parallel parts of the computation.
+	 * @throws IncompatibleTypeException
+	 *             if source and target type are not compatible.
+	 */
+	public static < S extends NumericType< S >, T extends NumericType< T > > void convolve( final double[][] halfkernels, final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final TaskExecutor executor ) throws IncompatibleTypeException
+	{
+		convolve( halfkernels, source, target, executor, executor.getParallelism() );
+	}
+
+	@SuppressWarnings( { "rawtypes", "unchecked" } )
+	private static < S extends NumericType< S >, T extends NumericType< T > > void convolve( final double[][] halfkernels, final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final TaskExecutor executor, final int numThreads ) throws IncompatibleTypeException
 	{
 		final T targetType = Util.getTypeFromInterval( target );
 		final S sourceType = getType( source, target );
@@ -110,23 +137,23 @@ public final class SeparableSymmetricConvolution
 			if ( ! ( sourceType instanceof RealType ) )
 				throw new IncompatibleTypeException( sourceType, "RealType source required for convolving into a RealType target" );
 			if ( ( ( Object ) targetType ) instanceof DoubleType )
-				convolveRealTypeDouble( halfkernels, ( RandomAccessible ) source, ( RandomAccessibleInterval ) target, numThreads );
+				convolveRealTypeDouble( halfkernels, ( RandomAccessible ) source, ( RandomAccessibleInterval ) target, executor, numThreads );
 			else
-				convolveRealTypeFloat( halfkernels, ( RandomAccessible ) source, ( RandomAccessibleInterval ) target, numThreads );
+				convolveRealTypeFloat( halfkernels, ( RandomAccessible ) source, ( RandomAccessibleInterval ) target, executor, numThreads );
 		}
 		else
 		{
 			if ( ! targetType.getClass().isInstance( sourceType ) )
 				throw new IncompatibleTypeException( sourceType, targetType.getClass().getCanonicalName() + " source required for convolving into a " + targetType.getClass().getCanonicalName() + " target" );
 			if ( targetType instanceof NativeType )
-				convolveNativeType( halfkernels, ( RandomAccessible ) source, ( RandomAccessibleInterval ) target, numThreads );
+				convolveNativeType( halfkernels, ( RandomAccessible ) source, ( RandomAccessibleInterval ) target, executor, numThreads );
 			else
-				convolveNumericType( halfkernels, ( RandomAccessible ) source, ( RandomAccessibleInterval ) target, numThreads );
+				convolveNumericType( halfkernels, ( RandomAccessible ) source, ( RandomAccessibleInterval ) target, executor, numThreads );
 		}
 	}
 
 	private static < S extends RealType< S >, T extends RealType< T > > void convolveRealTypeFloat( final double[][] halfkernels,
-			final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final int numThreads )
+			final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final TaskExecutor executor, final int numThreads )
 	{
 		final FloatType type = new FloatType();
 		final ImgFactory< FloatType > imgfac = getImgFactory( target, halfkernels, type );
@@ -135,17 +162,17 @@ public final class SeparableSymmetricConvolution
 					FloatConvolverRealTypeBuffered.< S, FloatType >factory(),
 					FloatConvolverRealTypeBuffered.< FloatType, FloatType >factory(),
 					FloatConvolverRealTypeBuffered.< FloatType, T >factory(),
-					FloatConvolverRealTypeBuffered.< S, T >factory(), imgfac, type, numThreads );
+					FloatConvolverRealTypeBuffered.< S, T >factory(), imgfac, type, executor, numThreads );
 		else
 			convolve( halfkernels, source, target,
 					FloatConvolverRealType.< S, FloatType >factory(),
 					FloatConvolverRealType.< FloatType, FloatType >factory(),
 					FloatConvolverRealType.< FloatType, T >factory(),
-					FloatConvolverRealType.< S, T >factory(), imgfac, type, numThreads );
+					FloatConvolverRealType.< S, T >factory(), imgfac, type, executor, numThreads );
 	}
 
 	private static < S extends RealType< S >, T extends RealType< T > > void convolveRealTypeDouble( final double[][] halfkernels,
-			final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final int numThreads )
+			final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final TaskExecutor executor, final int numThreads )
 	{
 		final DoubleType type = new DoubleType();
 		final ImgFactory< DoubleType > imgfac = getImgFactory( target, halfkernels, type );
@@ -154,17 +181,17 @@ public final class SeparableSymmetricConvolution
 					DoubleConvolverRealTypeBuffered.< S, DoubleType >factory(),
 					DoubleConvolverRealTypeBuffered.< DoubleType, DoubleType >factory(),
 					DoubleConvolverRealTypeBuffered.< DoubleType, T >factory(),
-					DoubleConvolverRealTypeBuffered.< S, T >factory(), imgfac, type, numThreads );
+					DoubleConvolverRealTypeBuffered.< S, T >factory(), imgfac, type, executor, numThreads );
 		else
 			convolve( halfkernels, source, target,
 					DoubleConvolverRealType.< S, DoubleType >factory(),
 					DoubleConvolverRealType.< DoubleType, DoubleType >factory(),
 					DoubleConvolverRealType.< DoubleType, T >factory(),
-					DoubleConvolverRealType.< S, T >factory(), imgfac, type, numThreads );
+					DoubleConvolverRealType.< S, T >factory(), imgfac, type, executor, numThreads );
 	}
 
 	private static < T extends NumericType< T > & NativeType< T > > void convolveNativeType( final double[][] halfkernels,
-			final RandomAccessible< T > source, final RandomAccessibleInterval< T > target, final int numThreads )
+			final RandomAccessible< T > source, final RandomAccessibleInterval< T > target, final TaskExecutor executor, final int numThreads )
 	{
 		final T type = Util.getTypeFromInterval( target );
 		final ConvolverFactory< T, T > convfac;
@@ -173,15 +200,15 @@ public final class SeparableSymmetricConvolution
 		else
 			convfac = ConvolverNativeType.factory( type );
 		final ImgFactory< T > imgfac = getImgFactory( target, halfkernels, type );
-		convolve( halfkernels, source, target, convfac, convfac, convfac, convfac, imgfac, type, numThreads );
+		convolve( halfkernels, source, target, convfac, convfac, convfac, convfac, imgfac, type, executor, numThreads );
 	}
 
 	private static < T extends NumericType< T > > void convolveNumericType( final double[][] halfkernels,
-			final RandomAccessible< T > source, final RandomAccessibleInterval< T > target, final int numThreads )
+			final RandomAccessible< T > source, final RandomAccessibleInterval< T > target, final TaskExecutor executor, final int numThreads )
 	{
 		final T type = Util.getTypeFromInterval( target );
 		final ConvolverFactory< T, T > convfac = ConvolverNumericType.factory( type );
-		convolve( halfkernels, source, target, convfac, convfac, convfac, convfac, new ListImgFactory< T >(), type, numThreads );
+		convolve( halfkernels, source, target, convfac, convfac, convfac, convfac, new ListImgFactory< T >(), type, executor, numThreads );
 	}
 
 	/**
@@ -204,7 +231,7 @@ public final class SeparableSymmetricConvolution
 			final ConvolverFactory< S, T > convolverFactoryST )
 	{
 	    final long[] sourceOffset = new long[] { 1 - halfkernel.length };
-	    convolveOffset( halfkernel, source, sourceOffset, target, target, 0, convolverFactoryST, 1, 1 );
+	    convolveOffset( halfkernel, source, sourceOffset, target, target, 0, convolverFactoryST, TaskExecutor.getDefault(), 1 );
 	}
 
 	/**
@@ -250,6 +277,41 @@ public final class SeparableSymmetricConvolution
 			final ConvolverFactory< S, T > convolverFactoryST,
 			final ImgFactory< I > imgFactory, final I type,
 			final int numThreads )
+	{
+		convolve( halfkernels, source, target, convolverFactorySI, convolverFactoryII, convolverFactoryIT, convolverFactoryST, imgFactory, type, TaskExecutor.getDefault(), numThreads );
+	}
+
+	/**
+	 * Convolve source with a separable symmetric kernel and write the result to
+	 * output. In-place operation (source==target) is supported. Calculations are
+	 * done in the intermediate type determined by the {@link ConvolverFactory ConvolverFactories}.
+	 * The computation is parallelized on the given {@link TaskExecutor}.
+	 *
+	 * @see #convolve(double[][], RandomAccessible, RandomAccessibleInterval, ConvolverFactory, ConvolverFactory, ConvolverFactory, ConvolverFactory, ImgFactory, Object, int)
+	 *
+	 * @param executor
+	 *            runs the parallel parts of the computation.
+	 */
+	public static < S, I, T > void convolve( final double[][] halfkernels,
+			final RandomAccessible< S > source, final RandomAccessibleInterval< T > target,
+			final ConvolverFactory< S, I > convolverFactorySI,
+			final ConvolverFactory< I, I > convolverFactoryII,
+			final ConvolverFactory< I, T > convolverFactoryIT,
+			final ConvolverFactory< S, T > convolverFactoryST,
+			final ImgFactory< I > imgFactory, final I type,
+			final TaskExecutor executor )
+	{
+		convolve( halfkernels, source, target, convolverFactorySI, convolverFactoryII, convolverFactoryIT, convolverFactoryST, imgFactory, type, executor, executor.getParallelism() );
+	}
+
+	static < S, I, T > void convolve( final double[][] halfkernels,
+			final RandomAccessible< S > source, final RandomAccessibleInterval< T > target,
+			final ConvolverFactory< S, I > convolverFactorySI,
+			final ConvolverFactory< I, I > convolverFactoryII,
+			final ConvolverFactory< I, T > convolverFactoryIT,
+			final ConvolverFactory< S, T > convolverFactoryST,
+			final ImgFactory< I > imgFactory, final I type,
+			final TaskExecutor executor, final int numThreads )
 	{
 		final int n = source.numDimensions();
 		if ( n == 1 )
@@ -258,7 +320,6 @@ public final class SeparableSymmetricConvolution
 		}
 		else
 		{
-			final int numTasks = numThreads > 1 ? numThreads * 4 : 1;
 		    final long[] sourceOffset = new long[ n ];
 		    final long[] targetOffset = new long[ n ];
 		    target.min( sourceOffset );
@@ -272,22 +333,22 @@ public final class SeparableSymmetricConvolution
 			Img< I > tmp1 = imgFactory.create( tmpdims[ 0 ], type );
 		    if ( n == 2 )
 		    {
-			    convolveOffset( halfkernels[ 0 ], source, sourceOffset, tmp1, tmp1, 0, convolverFactorySI, numThreads, numTasks );
-			    convolveOffset( halfkernels[ 1 ], tmp1, targetOffset, target, target, 1, convolverFactoryIT, numThreads, numTasks );
+			    convolveOffset( halfkernels[ 0 ], source, sourceOffset, tmp1, tmp1, 0, convolverFactorySI, executor, numThreads );
+			    convolveOffset( halfkernels[ 1 ], tmp1, targetOffset, target, target, 1, convolverFactoryIT, executor, numThreads );
 		    }
 		    else
 		    {
 				Img< I > tmp2 = imgFactory.create( tmpdims[ 1 ], type );
 			    final long[] zeroOffset = new long[ n ];
-			    convolveOffset( halfkernels[ 0 ], source, sourceOffset, tmp1, new FinalInterval( tmpdims[ 0 ] ), 0, convolverFactorySI, numThreads, numTasks );
+			    convolveOffset( halfkernels[ 0 ], source, sourceOffset, tmp1, new FinalInterval( tmpdims[ 0 ] ), 0, convolverFactorySI, executor, numThreads );
 				for( int d = 1; d < n - 1; ++d )
 				{
-				    convolveOffset( halfkernels[ d ], tmp1, zeroOffset, tmp2, new FinalInterval( tmpdims[ d ] ), d, convolverFactoryII, numThreads, numTasks );
+				    convolveOffset( halfkernels[ d ], tmp1, zeroOffset, tmp2, new FinalInterval( tmpdims[ d ] ), d, convolverFactoryII, executor, numThreads );
 				    final Img< I > tmp = tmp2;
 				    tmp2 = tmp1;
 				    tmp1 = tmp;
 				}
-			    convolveOffset( halfkernels[ n - 1 ], tmp1, targetOffset, target, target, n - 1, convolverFactoryIT, numThreads, numTasks );
+			    convolveOffset( halfkernels[ n - 1 ], tmp1, targetOffset, target, target, n - 1, convolverFactoryIT, executor, numThreads );
 		    }
 		}
 	}
@@ -295,7 +356,7 @@ public final class SeparableSymmetricConvolution
 	/**
 	 * 1D convolution in dimension d.
 	 */
-	static < S, T > void convolveOffset( final double[] halfkernel, final RandomAccessible< S > source, final long[] sourceOffset, final RandomAccessible< T > target, final Interval targetInterval, final int d, final ConvolverFactory< S, T > factory, final int numThreads, final int numTasks )
+	static < S, T > void convolveOffset( final double[] halfkernel, final RandomAccessible< S > source, final long[] sourceOffset, final RandomAccessible< T > target, final Interval targetInterval, final int d, final ConvolverFactory< S, T > factory, final TaskExecutor executor, final int numThreads )
 	{
 		final int n = source.numDimensions();
 		final int k1 = halfkernel.length - 1;
@@ -321,7 +382,9 @@ public final class SeparableSymmetricConvolution
 			srcmax[ i ] = max[ i ] + sourceOffset[ i ] + 2 * k1;
 		}
 
-		final ExecutorService ex = Executors.newFixedThreadPool( numThreads );
+		// the number of tasks adapts to the number of pixels, but there must be at least one line per task
+		final int numTasks = ( int ) Math.min( endIndex, TaskExecutor.suggestNumTasks( endIndex * targetInterval.dimension( d ), numThreads ) );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( numTasks );
 		for ( int taskNum = 0; taskNum < numTasks; ++taskNum )
 		{
 			final long myStartIndex = taskNum * ( ( endIndex + 1 ) / numTasks );
@@ -370,17 +433,9 @@ public final class SeparableSymmetricConvolution
 					}
 				}
 			};
-			ex.execute( r );
-		}
-		ex.shutdown();
-		try
-		{
-			ex.awaitTermination( 1000, TimeUnit.DAYS );
-		}
-		catch ( final InterruptedException e )
-		{
-			e.printStackTrace();
+			tasks.add( r );
 		}
+		executor.run( tasks, numThreads );
 	}
 
 	static long[][] getTempImageDimensions( final Dimensions targetsize, final double[][] halfkernels )
@@ -0,0 +1,298 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.labeling;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.labeling.LabelingMapping;
+import net.imglib2.labeling.LabelingType;
+import net.imglib2.labeling.NativeImgLabeling;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.view.Views;
+
+/**
+ * Seeded watershed that floods using a bucket queue over flat pixel indices
+ * instead of a {@link java.util.PriorityQueue} of pixel objects.
+ *
+ * <p>
+ * Intensities are mapped to a fixed number of levels. For {@link IntegerType
+ * integer} images whose range fits into {@link #setNumLevels(int) numLevels}
+ * levels this mapping is exact and the result is identical to
+ * {@link Watershed}. Other images are quantized linearly between their
+ * minimum and maximum intensity. Each level has a FIFO bucket, so ties are
+ * broken in the same way as in {@link Watershed}: by the order in which pixels
+ * were reached.
+ * </p>
+ *
+ * <p>
+ * Flooding takes time linear in the number of pixels and levels. Apart from a
+ * few primitive arrays with one element per pixel (intensity level, label
+ * index and bucket link), nothing is allocated per pixel. The number of
+ * pixels must be less than 2<sup>31</sup>.
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class BucketQueueWatershed< T extends RealType< T >, L extends Comparable< L >> extends Watershed< T, L >
+{
+	/**
+	 * Default number of intensity levels.
+	 */
+	public static final int DEFAULT_NUM_LEVELS = 1 << 16;
+
+	protected int numLevels = DEFAULT_NUM_LEVELS;
+
+	/**
+	 * Set the number of intensity levels, i.e., the number of buckets of the
+	 * queue.
+	 *
+	 * @param numLevels
+	 *            number of levels, at least 1.
+	 */
+	public void setNumLevels( final int numLevels )
+	{
+		this.numLevels = numLevels;
+	}
+
+	public int getNumLevels()
+	{
+		return numLevels;
+	}
+
+	@Override
+	public boolean process()
+	{
+		if ( structuringElement == null )
+			structuringElement = AllConnectedComponents.getStructuringElement( image.numDimensions() );
+		if ( !checkInput() )
+			return false;
+
+		final int n = image.numDimensions();
+		final long[] dimensions = new long[ n ];
+		image.dimensions( dimensions );
+		for ( int d = 0; d < n; ++d )
+		{
+			if ( seeds.dimension( d ) != dimensions[ d ] || ( output != null && output.dimension( d ) != dimensions[ d ] ) )
+			{
+				errorMessage = "The dimensions of the seed labeling, intensity image and output labeling must be identical";
+				return false;
+			}
+		}
+		if ( image.size() >= Integer.MAX_VALUE )
+		{
+			errorMessage = "The image has too many pixels for the bucket queue watershed";
+			return false;
+		}
+		if ( numLevels < 1 )
+		{
+			errorMessage = "The number of levels must be at least 1";
+			return false;
+		}
+		if ( output == null )
+			output = new NativeImgLabeling< L, IntType >( new ArrayImgFactory< IntType >().create( dimensions, new IntType() ) );
+
+		final int size = ( int ) image.size();
+		final LabelingType< L > outputType = output.firstElement();
+		final LabelingMapping< L > mapping = outputType.getMapping();
+
+		final int[] levels = computeLevels( image, size, numLevels );
+
+		// label indices of the output mapping, 0 is the empty labeling
+		final int[] labels = new int[ size ];
+		final Cursor< LabelingType< L > > oc = Views.flatIterable( output ).cursor();
+		for ( int i = 0; i < size; ++i )
+			labels[ i ] = mapping.indexOf( oc.next().getLabeling() );
+		final boolean[] written = new boolean[ size ];
+
+		// bucket queue: singly linked FIFO lists through the pixel indices.
+		// every pixel is enqueued at most once, when it is labeled.
+		final int[] head = new int[ numLevels ];
+		final int[] tail = new int[ numLevels ];
+		Arrays.fill( head, -1 );
+		final int[] next = new int[ size ];
+		int minLevel = numLevels;
+
+		final Cursor< LabelingType< L > > sc = Views.flatIterable( seeds ).cursor();
+		for ( int i = 0; i < size; ++i )
+		{
+			final List< L > l = sc.next().getLabeling();
+			if ( l.isEmpty() )
+				continue;
+			labels[ i ] = mapping.indexOf( outputType.intern( l ) );
+			written[ i ] = true;
+			final int level = levels[ i ];
+			push( i, level, head, tail, next );
+			minLevel = Math.min( minLevel, level );
+		}
+
+		// structuring element as flat index offsets
+		final int numOffsets = structuringElement.length;
+		final long[] strides = new long[ n ];
+		strides[ 0 ] = 1;
+		for ( int d = 1; d < n; ++d )
+			strides[ d ] = strides[ d - 1 ] * dimensions[ d - 1 ];
+		final int[] flatOffsets = new int[ numOffsets ];
+		for ( int o = 0; o < numOffsets; ++o )
+		{
+			long offset = 0;
+			for ( int d = 0; d < n; ++d )
+				offset += structuringElement[ o ][ d ] * strides[ d ];
+			flatOffsets[ o ] = ( int ) offset;
+		}
+
+		final long[] position = new long[ n ];
+		int level = minLevel;
+		while ( true )
+		{
+			while ( level < numLevels && head[ level ] < 0 )
+				++level;
+			if ( level == numLevels )
+				break;
+
+			// pop
+			final int p = head[ level ];
+			head[ level ] = next[ p ];
+
+			final int label = labels[ p ];
+			long rem = p;
+			for ( int d = n - 1; d >= 0; --d )
+			{
+				position[ d ] = rem / strides[ d ];
+				rem -= position[ d ] * strides[ d ];
+			}
+			A: for ( int o = 0; o < numOffsets; ++o )
+			{
+				final long[] offset = structuringElement[ o ];
+				for ( int d = 0; d < n; ++d )
+				{
+					final long x = position[ d ] + offset[ d ];
+					if ( x < 0 || x >= dimensions[ d ] )
+						continue A;
+				}
+				final int q = p + flatOffsets[ o ];
+				if ( labels[ q ] != 0 )
+					continue;
+				labels[ q ] = label;
+				written[ q ] = true;
+				final int qLevel = levels[ q ];
+				push( q, qLevel, head, tail, next );
+				if ( qLevel < level )
+					level = qLevel;
+			}
+		}
+
+		writeOutput( labels, written, mapping );
+		return true;
+	}
+
+	private static void push( final int p, final int level, final int[] head, final int[] tail, final int[] next )
+	{
+		next[ p ] = -1;
+		if ( head[ level ] < 0 )
+			head[ level ] = p;
+		else
+			next[ tail[ level ] ] = p;
+		tail[ level ] = p;
+	}
+
+	/**
+	 * Map intensities in flat iteration order to levels
+	 * {@code 0 ... numLevels-1}.
+	 */
+	private static < T extends RealType< T > > int[] computeLevels( final Img< T > image, final int size, final int numLevels )
+	{
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for ( final T t : image )
+		{
+			final double v = t.getRealDouble();
+			if ( v < min )
+				min = v;
+			if ( v > max )
+				max = v;
+		}
+
+		final int[] levels = new int[ size ];
+		final Cursor< T > c = Views.flatIterable( image ).cursor();
+		final boolean exact = image.firstElement() instanceof IntegerType && max - min < numLevels;
+		final double scale = ( max > min ) ? ( numLevels - 1 ) / ( max - min ) : 0;
+		for ( int i = 0; i < size; ++i )
+		{
+			final double v = c.next().getRealDouble();
+			levels[ i ] = exact ? ( int ) ( v - min ) : ( int ) ( ( v - min ) * scale );
+		}
+		return levels;
+	}
+
+	/**
+	 * Write labels of pixels that were labeled by seeds or flooding to the
+	 * output.
+	 */
+	private void writeOutput( final int[] labels, final boolean[] written, final LabelingMapping< L > mapping )
+	{
+		if ( output instanceof NativeImgLabeling )
+		{
+			// write label indices directly to the storage
+			final NativeImgLabeling< L, ? > nativeOutput = ( NativeImgLabeling< L, ? > ) output;
+			final Img< ? extends IntegerType< ? > > storage = nativeOutput.getStorageImg();
+			final Cursor< ? extends IntegerType< ? > > c = Views.flatIterable( storage ).cursor();
+			for ( int i = 0; i < labels.length; ++i )
+			{
+				c.fwd();
+				if ( written[ i ] )
+					c.get().setInteger( labels[ i ] );
+			}
+			nativeOutput.incrementGeneration();
+		}
+		else
+		{
+			final Cursor< LabelingType< L > > c = Views.flatIterable( output ).cursor();
+			for ( int i = 0; i < labels.length; ++i )
+			{
+				c.fwd();
+				if ( written[ i ] )
+					c.get().setLabeling( mapping.listAtIndex( labels[ i ] ) );
+			}
+		}
+	}
+}
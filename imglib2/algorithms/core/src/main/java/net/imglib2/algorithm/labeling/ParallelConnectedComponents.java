@@ -0,0 +1,493 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.labeling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.labeling.LabelingType;
+import net.imglib2.labeling.NativeImgLabeling;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+/**
+ * Label all connected components of a binary image using union-find, in
+ * parallel.
+ *
+ * <p>
+ * The image is divided into slabs along the last dimension. Each slab is
+ * labeled independently in a raster scan that merges provisional labels of
+ * already visited neighbors. Provisional labels are kept in an int array per
+ * slab, so neighbors are found at precomputed flat index offsets.
+ * Equivalences across slab borders are then merged and label indices are
+ * written directly into the storage image of the {@link NativeImgLabeling} in
+ * parallel.
+ * Components are named in the order of their first pixel in flat iteration
+ * order.
+ * </p>
+ *
+ * <p>
+ * Structuring elements have the same meaning as in
+ * {@link AllConnectedComponents}, see
+ * {@link AllConnectedComponents#getStructuringElement(int)}. Connectivity is
+ * considered symmetric, i.e., if a pixel is connected to its neighbor at
+ * offset o, the neighbor is connected to the pixel at offset -o.
+ * </p>
+ *
+ * <p>
+ * Foreground pixels are overwritten, background pixels are left unchanged.
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class ParallelConnectedComponents
+{
+	/**
+	 * Label all connected components in the given image using an 8-connected
+	 * structuring element or it's N-dimensional analog, using the default
+	 * {@link TaskExecutor}.
+	 *
+	 * @param labeling
+	 *            Assign labels to this labeling space
+	 * @param img
+	 *            a binary image where true indicates parts of components.
+	 *            Must have the same dimensions as the labeling.
+	 * @param names
+	 *            supplies names for the different components as needed
+	 * @return the number of components.
+	 * @throws NoSuchElementException
+	 *             if there are not enough names
+	 */
+	public static < T extends Comparable< T >, I extends IntegerType< I > > int labelAllConnectedComponents( final NativeImgLabeling< T, I > labeling, final RandomAccessibleInterval< BitType > img, final Iterator< T > names ) throws NoSuchElementException
+	{
+		return labelAllConnectedComponents( labeling, img, names, AllConnectedComponents.getStructuringElement( img.numDimensions() ), TaskExecutor.getDefault() );
+	}
+
+	/**
+	 * Label all connected components in the given image using an arbitrary
+	 * structuring element.
+	 *
+	 * @param labeling
+	 *            Assign labels to this labeling space
+	 * @param img
+	 *            a binary image where true indicates parts of components.
+	 *            Must have the same dimensions as the labeling.
+	 * @param names
+	 *            supplies names for the different components as needed
+	 * @param structuringElement
+	 *            an array of offsets to a pixel of the pixels which are
+	 *            considered connected. For instance, a 4-connected structuring
+	 *            element would be "new int [][] {{-1,0},{1,0},{0,-1},{0,1}}".
+	 * @param executor
+	 *            runs the slabs in parallel.
+	 * @return the number of components.
+	 * @throws NoSuchElementException
+	 *             if there are not enough names
+	 */
+	public static < T extends Comparable< T >, I extends IntegerType< I > > int labelAllConnectedComponents( final NativeImgLabeling< T, I > labeling, final RandomAccessibleInterval< BitType > img, final Iterator< T > names, final long[][] structuringElement, final TaskExecutor executor ) throws NoSuchElementException
+	{
+		final int n = img.numDimensions();
+		final Img< I > storage = labeling.getStorageImg();
+		for ( int d = 0; d < n; ++d )
+			if ( img.dimension( d ) != storage.dimension( d ) || img.min( d ) != 0 )
+				throw new IllegalArgumentException( "Labeling and image must have the same dimensions and zero min." );
+
+		final long[][] backward = backwardOffsets( structuringElement, n );
+
+		// divide into slabs along the last dimension, the provisional labels
+		// of a slab must fit into an int array
+		final int last = n - 1;
+		final long numPixels = storage.size();
+		if ( numPixels == 0 )
+			return 0;
+		final long depth = img.dimension( last );
+		final long sliceSize = sliceSize( img );
+		if ( sliceSize > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "Too many pixels in a slice of the image: " + sliceSize );
+		final long maxSlabDepth = Integer.MAX_VALUE / sliceSize;
+		final long minSlabs = ( depth + maxSlabDepth - 1 ) / maxSlabDepth;
+		final int numSlabs = ( int ) Math.min( depth, Math.max( minSlabs, TaskExecutor.suggestNumTasks( numPixels, executor.getParallelism() ) ) );
+		final long[] flatOffsets = flatOffsets( backward, img );
+		final long[] slabStart = new long[ numSlabs + 1 ];
+		for ( int s = 0; s <= numSlabs; ++s )
+			slabStart[ s ] = s * depth / numSlabs;
+
+		// pass 1: label slabs independently
+		final Slab[] slabs = new Slab[ numSlabs ];
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( numSlabs );
+		for ( int s = 0; s < numSlabs; ++s )
+		{
+			final int slab = s;
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					slabs[ slab ] = labelSlab( img, backward, flatOffsets, slabStart[ slab ], slabStart[ slab + 1 ] - 1 );
+				}
+			} );
+		}
+		executor.run( tasks );
+
+		// global union-find over the provisional labels of all slabs
+		long total = 0;
+		for ( int s = 0; s < numSlabs; ++s )
+		{
+			slabs[ s ].offset = ( int ) total;
+			total += slabs[ s ].numLabels;
+		}
+		if ( total > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "Too many provisional labels: " + total );
+		final int[] parent = new int[ ( int ) total ];
+		for ( int s = 0; s < numSlabs; ++s )
+		{
+			final Slab slab = slabs[ s ];
+			for ( int l = 0; l < slab.numLabels; ++l )
+				parent[ slab.offset + l ] = slab.offset + slab.parent[ l ];
+			slab.parent = null;
+		}
+
+		// pass 2: merge equivalences across slab borders
+		for ( int s = 1; s < numSlabs; ++s )
+			mergeSlabBorder( img, backward, flatOffsets, slabs, slabStart, s, parent );
+
+		// name components in the order of their first pixel
+		final LabelingType< T > first = labeling.firstElement();
+		final int[] labelIndex = new int[ parent.length ];
+		int numComponents = 0;
+		for ( int l = 0; l < parent.length; ++l )
+		{
+			final int root = find( parent, l );
+			if ( root == l )
+			{
+				labelIndex[ l ] = first.getMapping().indexOf( first.intern( names.next() ) );
+				++numComponents;
+			}
+			else
+				labelIndex[ l ] = labelIndex[ root ];
+		}
+
+		// pass 3: write the label indices of the provisional labels
+		tasks.clear();
+		for ( int s = 0; s < numSlabs; ++s )
+		{
+			final Slab slab = slabs[ s ];
+			final long min = slabStart[ s ];
+			final long max = slabStart[ s + 1 ] - 1;
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final Cursor< I > c = Views.flatIterable( Views.interval( storage, slabInterval( img, min, max ) ) ).cursor();
+					final int[] labels = slab.labels;
+					for ( int i = 0; i < labels.length; ++i )
+					{
+						c.fwd();
+						if ( labels[ i ] != 0 )
+							c.get().setInteger( labelIndex[ slab.offset + labels[ i ] - 1 ] );
+					}
+					slab.labels = null;
+				}
+			} );
+		}
+		executor.run( tasks );
+
+		labeling.incrementGeneration();
+
+		return numComponents;
+	}
+
+	/**
+	 * Provisional labels of one slab.
+	 */
+	private static class Slab
+	{
+		/**
+		 * number of provisional labels.
+		 */
+		int numLabels;
+
+		/**
+		 * provisional label (1-based) of each pixel in flat iteration order,
+		 * 0 for background pixels.
+		 */
+		int[] labels;
+
+		/**
+		 * union-find parent of provisional labels (0-based).
+		 */
+		int[] parent;
+
+		/**
+		 * offset of the labels of this slab in the global union-find.
+		 */
+		int offset;
+	}
+
+	/**
+	 * Raster scan a slab, assigning provisional labels 1, 2, ... to
+	 * foreground pixels and recording equivalences.
+	 */
+	private static Slab labelSlab( final RandomAccessibleInterval< BitType > img, final long[][] backward, final long[] flatOffsets, final long min, final long max )
+	{
+		final int n = img.numDimensions();
+		final int last = n - 1;
+		final long[] dims = new long[ n ];
+		img.dimensions( dims );
+
+		final Cursor< BitType > m = Views.flatIterable( Views.interval( img, slabInterval( img, min, max ) ) ).localizingCursor();
+		final int[] labels = new int[ ( int ) ( ( max - min + 1 ) * sliceSize( img ) ) ];
+		final long[] p = new long[ n ];
+
+		int[] parent = new int[ 1024 ];
+		int numLabels = 0;
+		for ( int i = 0; i < labels.length; ++i )
+		{
+			if ( !m.next().get() )
+				continue;
+			m.localize( p );
+
+			int label = -1;
+			A: for ( int o = 0; o < backward.length; ++o )
+			{
+				final long[] offset = backward[ o ];
+				for ( int d = 0; d < n; ++d )
+				{
+					final long q = p[ d ] + offset[ d ];
+					if ( q < 0 || q >= dims[ d ] || ( d == last && q < min ) )
+						continue A;
+				}
+				final int neighbor = labels[ ( int ) ( i + flatOffsets[ o ] ) ];
+				if ( neighbor == 0 )
+					continue;
+				final int neighborLabel = find( parent, neighbor - 1 );
+				if ( label < 0 )
+					label = neighborLabel;
+				else if ( neighborLabel != label )
+					label = union( parent, label, neighborLabel );
+			}
+			if ( label < 0 )
+			{
+				if ( numLabels == parent.length )
+					parent = Arrays.copyOf( parent, 2 * numLabels );
+				label = numLabels++;
+				parent[ label ] = label;
+			}
+			labels[ i ] = label + 1;
+		}
+
+		final Slab slab = new Slab();
+		slab.numLabels = numLabels;
+		for ( int l = 0; l < numLabels; ++l )
+			find( parent, l );
+		slab.parent = parent;
+		slab.labels = labels;
+		return slab;
+	}
+
+	/**
+	 * Merge equivalences between pixels of slab s and pixels of preceding
+	 * slabs.
+	 */
+	private static void mergeSlabBorder( final RandomAccessibleInterval< BitType > img, final long[][] backward, final long[] flatOffsets, final Slab[] slabs, final long[] slabStart, final int s, final int[] parent )
+	{
+		final int n = img.numDimensions();
+		final int last = n - 1;
+		final long[] dims = new long[ n ];
+		img.dimensions( dims );
+		final long sliceSize = sliceSize( img );
+
+		// the pixels of slab s that may have neighbors in preceding slabs
+		long reach = 0;
+		for ( final long[] o : backward )
+			reach = Math.max( reach, -o[ last ] );
+		if ( reach == 0 )
+			return;
+		final long min = slabStart[ s ];
+		final long max = Math.min( slabStart[ s + 1 ] - 1, min + reach - 1 );
+
+		final Slab slab = slabs[ s ];
+		final int[] labels = slab.labels;
+		final long start = min * sliceSize;
+		final int end = ( int ) ( ( max - min + 1 ) * sliceSize );
+		final long[] p = new long[ n ];
+		p[ last ] = min;
+		for ( int i = 0; i < end; ++i )
+		{
+			if ( labels[ i ] != 0 )
+			{
+				final int label = slab.offset + labels[ i ] - 1;
+				A: for ( int o = 0; o < backward.length; ++o )
+				{
+					final long[] offset = backward[ o ];
+					for ( int d = 0; d < n; ++d )
+					{
+						final long q = p[ d ] + offset[ d ];
+						if ( q < 0 || q >= dims[ d ] || ( d == last && q >= min ) )
+							continue A;
+					}
+					final int neighborSlab = slabIndex( slabStart, p[ last ] + offset[ last ] );
+					final Slab other = slabs[ neighborSlab ];
+					final int neighbor = other.labels[ ( int ) ( start + i + flatOffsets[ o ] - slabStart[ neighborSlab ] * sliceSize ) ];
+					if ( neighbor != 0 )
+						union( parent, label, other.offset + neighbor - 1 );
+				}
+			}
+
+			// advance to the next pixel in flat iteration order
+			int d = 0;
+			while ( d < last && ++p[ d ] == dims[ d ] )
+				p[ d++ ] = 0;
+			if ( d == last )
+				++p[ last ];
+		}
+	}
+
+	/**
+	 * For each offset o of the structuring element, choose whichever of o and
+	 * -o points to a pixel that precedes the center in flat iteration order.
+	 * Duplicates and the zero offset are removed.
+	 */
+	static long[][] backwardOffsets( final long[][] structuringElement, final int n )
+	{
+		final ArrayList< long[] > offsets = new ArrayList< long[] >();
+		A: for ( final long[] o : structuringElement )
+		{
+			int d = n - 1;
+			while ( d >= 0 && o[ d ] == 0 )
+				--d;
+			if ( d < 0 )
+				continue;
+			final long[] b = o.clone();
+			if ( o[ d ] > 0 )
+				for ( int e = 0; e < n; ++e )
+					b[ e ] = -o[ e ];
+			for ( final long[] existing : offsets )
+				if ( Arrays.equals( existing, b ) )
+					continue A;
+			offsets.add( b );
+		}
+		return offsets.toArray( new long[ offsets.size() ][] );
+	}
+
+	/**
+	 * The offsets of the structuring element as offsets of flat indices.
+	 */
+	private static long[] flatOffsets( final long[][] offsets, final RandomAccessibleInterval< ? > img )
+	{
+		final int n = img.numDimensions();
+		final long[] flatOffsets = new long[ offsets.length ];
+		for ( int o = 0; o < offsets.length; ++o )
+		{
+			long stride = 1;
+			for ( int d = 0; d < n; ++d )
+			{
+				flatOffsets[ o ] += offsets[ o ][ d ] * stride;
+				stride *= img.dimension( d );
+			}
+		}
+		return flatOffsets;
+	}
+
+	/**
+	 * The number of pixels in a slice orthogonal to the last dimension.
+	 */
+	private static long sliceSize( final RandomAccessibleInterval< ? > img )
+	{
+		long size = 1;
+		for ( int d = 0; d < img.numDimensions() - 1; ++d )
+			size *= img.dimension( d );
+		return size;
+	}
+
+	private static Interval slabInterval( final RandomAccessibleInterval< ? > img, final long min, final long max )
+	{
+		final int n = img.numDimensions();
+		final long[] minmax = new long[ 2 * n ];
+		for ( int d = 0; d < n - 1; ++d )
+			minmax[ n + d ] = img.dimension( d ) - 1;
+		minmax[ n - 1 ] = min;
+		minmax[ 2 * n - 1 ] = max;
+		return Intervals.createMinMax( minmax );
+	}
+
+	private static int slabIndex( final long[] slabStart, final long position )
+	{
+		// slabs are not empty, so slab starts are strictly increasing
+		final int i = Arrays.binarySearch( slabStart, position );
+		return i < 0 ? -i - 2 : i;
+	}
+
+	private static int find( final int[] parent, int l )
+	{
+		while ( parent[ l ] != l )
+		{
+			parent[ l ] = parent[ parent[ l ] ];
+			l = parent[ l ];
+		}
+		return l;
+	}
+
+	/**
+	 * Union the sets of a and b. The smaller label becomes the root, so that
+	 * the root of a component is its first label in flat iteration order.
+	 *
+	 * @return the new root.
+	 */
+	private static int union( final int[] parent, final int a, final int b )
+	{
+		final int ra = find( parent, a );
+		final int rb = find( parent, b );
+		if ( ra < rb )
+		{
+			parent[ rb ] = ra;
+			return ra;
+		}
+		parent[ ra ] = rb;
+		return rb;
+	}
+}
@@ -0,0 +1,346 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.pyramid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.Cursor;
+import net.imglib2.Dimensions;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.blocks.BlockProcessing;
+import net.imglib2.algorithm.gauss3.Gauss3;
+import net.imglib2.algorithm.gauss3.SeparableSymmetricConvolution;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+
+/**
+ * A multi-resolution pyramid of an image. Level 0 is the image itself, every
+ * further level is down-sampled from the previous level by an integer factor
+ * in every dimension (2 by default, 1 for dimensions that should not be
+ * down-sampled).
+ *
+ * <p>
+ * Before down-sampling, the previous level is smoothed with a Gaussian of
+ * standard deviation <em>0.5 &radic;(f<sup>2</sup>-1)</em> for factor
+ * <em>f</em>, assuming the previous level has an inherent blur of 0.5 pixels.
+ * Pixel <em>x</em> of a level is the smoothed previous level at <em>f x</em>,
+ * i.e., pixel <em>x</em> of level <em>k</em> is centered on pixel <em>x
+ * s<sub>k</sub></em> of level 0 where <em>s<sub>k</sub></em> is the
+ * {@link #getScale(int, int) scale} of the level.
+ * </p>
+ *
+ * <p>
+ * Levels are computed block-wise and in parallel. Each block only requires
+ * the previous level in the block (scaled up) plus the kernel border, so the
+ * temporary memory is bounded by the block size. Levels are stored in images
+ * created by an {@link ImgFactory}, by default {@link CellImgFactory}. Use
+ * {@link PyramidRealRandomAccessible} to sample the pyramid at the
+ * appropriate resolution.
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class ImagePyramid< T extends RealType< T > & NativeType< T > >
+{
+	/**
+	 * Default cell size of the {@link CellImgFactory} used to store levels.
+	 */
+	public static final int DEFAULT_CELL_SIZE = 64;
+
+	final protected List< RandomAccessibleInterval< T > > levels;
+
+	/**
+	 * Size of a pixel of each level in pixels of level 0, for every dimension.
+	 */
+	final protected List< long[] > scales;
+
+	protected ImagePyramid( final List< RandomAccessibleInterval< T > > levels, final List< long[] > scales )
+	{
+		this.levels = levels;
+		this.scales = scales;
+	}
+
+	/**
+	 * Build a pyramid with the given number of levels, down-sampling by 2 in
+	 * every dimension. Levels are stored in {@link CellImg CellImgs}.
+	 *
+	 * @param source
+	 *            level 0 of the pyramid.
+	 * @param numLevels
+	 *            number of levels including level 0.
+	 */
+	public static < T extends RealType< T > & NativeType< T > > ImagePyramid< T > build( final RandomAccessibleInterval< T > source, final int numLevels )
+	{
+		final int[] factors = new int[ source.numDimensions() ];
+		for ( int d = 0; d < factors.length; ++d )
+			factors[ d ] = 2;
+		return build( source, factors, numLevels, new CellImgFactory< T >( DEFAULT_CELL_SIZE ), TaskExecutor.getDefault() );
+	}
+
+	/**
+	 * Build a pyramid with the given number of levels.
+	 *
+	 * @param source
+	 *            level 0 of the pyramid.
+	 * @param factors
+	 *            down-sampling factor from one level to the next in every
+	 *            dimension.
+	 * @param numLevels
+	 *            number of levels including level 0.
+	 * @param factory
+	 *            creates the images that store the levels.
+	 * @param executor
+	 *            runs the blocks of every level in parallel.
+	 */
+	public static < T extends RealType< T > & NativeType< T > > ImagePyramid< T > build( final RandomAccessibleInterval< T > source, final int[] factors, final int numLevels, final ImgFactory< T > factory, final TaskExecutor executor )
+	{
+		final int n = source.numDimensions();
+		if ( factors.length != n )
+			throw new IllegalArgumentException( "factors must have " + n + " elements" );
+		for ( int d = 0; d < n; ++d )
+			if ( factors[ d ] < 1 )
+				throw new IllegalArgumentException( "factors must be positive" );
+
+		final ArrayList< RandomAccessibleInterval< T > > levels = new ArrayList< RandomAccessibleInterval< T > >();
+		final ArrayList< long[] > scales = new ArrayList< long[] >();
+		final T type = Util.getTypeFromInterval( source ).createVariable();
+		final double[][] halfkernels = halfkernels( factors );
+
+		RandomAccessibleInterval< T > previous = Views.zeroMin( source );
+		long[] scale = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+			scale[ d ] = 1;
+		levels.add( previous );
+		scales.add( scale );
+
+		for ( int l = 1; l < numLevels; ++l )
+		{
+			final long[] dimensions = new long[ n ];
+			scale = scale.clone();
+			for ( int d = 0; d < n; ++d )
+			{
+				dimensions[ d ] = ( previous.dimension( d ) + factors[ d ] - 1 ) / factors[ d ];
+				scale[ d ] *= factors[ d ];
+			}
+			final Img< T > level = factory.create( dimensions, type );
+			downsample( Views.extendMirrorSingle( previous ), level, factors, halfkernels, executor );
+			levels.add( level );
+			scales.add( scale );
+			previous = level;
+		}
+		return new ImagePyramid< T >( levels, scales );
+	}
+
+	/**
+	 * Suggest the number of levels of a pyramid such that the largest
+	 * down-sampled dimension of the coarsest level is at most
+	 * <em>minSize</em> (but at least one level, and no level in which a
+	 * down-sampled dimension would be smaller than one pixel).
+	 */
+	public static int suggestNumLevels( final Dimensions dimensions, final int[] factors, final long minSize )
+	{
+		final int n = dimensions.numDimensions();
+		final long[] dims = new long[ n ];
+		dimensions.dimensions( dims );
+		int numLevels = 1;
+		while ( true )
+		{
+			long max = 0;
+			boolean canDownsample = false;
+			for ( int d = 0; d < n; ++d )
+				if ( factors[ d ] > 1 )
+				{
+					max = Math.max( max, dims[ d ] );
+					canDownsample |= dims[ d ] > 1;
+				}
+			if ( max <= minSize || !canDownsample )
+				return numLevels;
+			for ( int d = 0; d < n; ++d )
+				dims[ d ] = ( dims[ d ] + factors[ d ] - 1 ) / factors[ d ];
+			++numLevels;
+		}
+	}
+
+	public int numDimensions()
+	{
+		return levels.get( 0 ).numDimensions();
+	}
+
+	public int numLevels()
+	{
+		return levels.size();
+	}
+
+	/**
+	 * Get a level of the pyramid. Level 0 is the source image (translated to
+	 * the origin).
+	 */
+	public RandomAccessibleInterval< T > getLevel( final int level )
+	{
+		return levels.get( level );
+	}
+
+	/**
+	 * Get the size of a pixel of the given level in pixels of level 0.
+	 */
+	public long getScale( final int level, final int d )
+	{
+		return scales.get( level )[ d ];
+	}
+
+	/**
+	 * Select the coarsest level that still samples an image with the given
+	 * pixel spacing, i.e., for which the pixel size is at most
+	 * <em>pixelSpacing</em> in every dimension.
+	 *
+	 * @param pixelSpacing
+	 *            the distance between samples, in pixels of level 0, in every
+	 *            dimension. For example, when rendering to a screen at 1/4
+	 *            zoom the spacing is 4.
+	 */
+	public int selectLevel( final double[] pixelSpacing )
+	{
+		final int n = numDimensions();
+		for ( int l = levels.size() - 1; l > 0; --l )
+		{
+			final long[] s = scales.get( l );
+			boolean fits = true;
+			for ( int d = 0; d < n && fits; ++d )
+				fits = s[ d ] <= pixelSpacing[ d ];
+			if ( fits )
+				return l;
+		}
+		return 0;
+	}
+
+	/**
+	 * Half-kernels of the anti-aliasing Gaussian for the given factors. For
+	 * factor 1 the kernel is the identity.
+	 */
+	protected static double[][] halfkernels( final int[] factors )
+	{
+		final double[][] halfkernels = new double[ factors.length ][];
+		for ( int d = 0; d < factors.length; ++d )
+		{
+			final int f = factors[ d ];
+			if ( f == 1 )
+				halfkernels[ d ] = new double[] { 1 };
+			else
+			{
+				final double sigma = 0.5 * Math.sqrt( f * f - 1 );
+				final int size = Math.max( 2, ( int ) ( 3 * sigma + 0.5 ) + 1 );
+				halfkernels[ d ] = Gauss3.halfkernel( sigma, size, true );
+			}
+		}
+		return halfkernels;
+	}
+
+	/**
+	 * Smooth and down-sample <em>source</em> into <em>target</em> block by
+	 * block. Target blocks are aligned to the storage of the target.
+	 */
+	protected static < T extends RealType< T > > void downsample( final RandomAccessible< T > source, final RandomAccessibleInterval< T > target, final int[] factors, final double[][] halfkernels, final TaskExecutor executor )
+	{
+		final List< Interval > blocks = BlockProcessing.divideIntoBlocks( target, BlockProcessing.suggestBlockSize( target ) );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( blocks.size() );
+		for ( final Interval block : blocks )
+		{
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					downsampleBlock( source, Views.interval( target, block ), factors, halfkernels );
+				}
+			} );
+		}
+		executor.run( tasks );
+	}
+
+	/**
+	 * Smooth the part of <em>source</em> that is sampled by the
+	 * <em>target</em> block into a temporary image and copy every
+	 * <em>f</em>-th pixel into the block.
+	 */
+	protected static < T extends RealType< T > > void downsampleBlock( final RandomAccessible< T > source, final RandomAccessibleInterval< T > target, final int[] factors, final double[][] halfkernels )
+	{
+		final int n = target.numDimensions();
+		final long[] min = new long[ n ];
+		final long[] dimensions = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			min[ d ] = target.min( d ) * factors[ d ];
+			dimensions[ d ] = ( target.dimension( d ) - 1 ) * factors[ d ] + 1;
+		}
+		final ArrayImg< FloatType, FloatArray > smoothed = ArrayImgs.floats( dimensions );
+		try
+		{
+			SeparableSymmetricConvolution.convolve( halfkernels, source, Views.translate( smoothed, min ), 1 );
+		}
+		catch ( final IncompatibleTypeException e )
+		{
+			// cannot happen, source and target are both RealTypes
+			throw new RuntimeException( e );
+		}
+
+		final RandomAccess< FloatType > in = smoothed.randomAccess();
+		final Cursor< T > out = Views.flatIterable( target ).localizingCursor();
+		while ( out.hasNext() )
+		{
+			out.fwd();
+			for ( int d = 0; d < n; ++d )
+				in.setPosition( ( out.getLongPosition( d ) - target.min( d ) ) * factors[ d ], d );
+			out.get().setReal( in.get().getRealDouble() );
+		}
+	}
+}
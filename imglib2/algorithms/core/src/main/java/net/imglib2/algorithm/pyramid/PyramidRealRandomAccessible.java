@@ -0,0 +1,203 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.pyramid;
+
+import java.util.ArrayList;
+
+import net.imglib2.RandomAccessible;
+import net.imglib2.RealInterval;
+import net.imglib2.RealPoint;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.interpolation.InterpolatorFactory;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+
+/**
+ * A {@link RealRandomAccessible} in the coordinates of level 0 of an
+ * {@link ImagePyramid} that samples an interpolated level of the pyramid. The
+ * level is selected with {@link #setLevel(int)}, or from the spacing of the
+ * samples that will be taken with {@link #selectLevel(double[])}, e.g., from
+ * the zoom of a viewer before the accessible is transformed to the screen
+ * (for example with <code>RealViews.affine</code>).
+ *
+ * <p>
+ * {@link RealRandomAccess RealRandomAccesses} sample the level that was
+ * selected when they were created. Levels are extended by border values.
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class PyramidRealRandomAccessible< T extends RealType< T > & NativeType< T > > implements RealRandomAccessible< T >
+{
+	final protected ImagePyramid< T > pyramid;
+
+	/**
+	 * Interpolated, extended levels of the pyramid.
+	 */
+	final protected ArrayList< RealRandomAccessible< T > > levels;
+
+	protected volatile int currentLevel;
+
+	/**
+	 * {@link RealRandomAccess} that samples one level of the pyramid at its
+	 * position scaled to the coordinates of that level.
+	 */
+	public class PyramidRealRandomAccess extends RealPoint implements RealRandomAccess< T >
+	{
+		final protected RealRandomAccess< T > levelAccess;
+
+		final protected double[] scale;
+
+		protected PyramidRealRandomAccess( final int level )
+		{
+			super( pyramid.numDimensions() );
+			levelAccess = levels.get( level ).realRandomAccess();
+			scale = new double[ n ];
+			for ( int d = 0; d < n; ++d )
+				scale[ d ] = 1.0 / pyramid.getScale( level, d );
+		}
+
+		private PyramidRealRandomAccess( final PyramidRealRandomAccess a )
+		{
+			super( a );
+			levelAccess = a.levelAccess.copyRealRandomAccess();
+			scale = a.scale;
+		}
+
+		@Override
+		public T get()
+		{
+			for ( int d = 0; d < n; ++d )
+				levelAccess.setPosition( position[ d ] * scale[ d ], d );
+			return levelAccess.get();
+		}
+
+		@Override
+		public PyramidRealRandomAccess copy()
+		{
+			return new PyramidRealRandomAccess( this );
+		}
+
+		@Override
+		public RealRandomAccess< T > copyRealRandomAccess()
+		{
+			return copy();
+		}
+	}
+
+	/**
+	 * @param pyramid
+	 *            the pyramid to sample.
+	 * @param interpolatorFactory
+	 *            interpolates the levels.
+	 */
+	public PyramidRealRandomAccessible( final ImagePyramid< T > pyramid, final InterpolatorFactory< T, RandomAccessible< T > > interpolatorFactory )
+	{
+		this.pyramid = pyramid;
+		levels = new ArrayList< RealRandomAccessible< T > >( pyramid.numLevels() );
+		for ( int l = 0; l < pyramid.numLevels(); ++l )
+			levels.add( Views.interpolate( Views.extendBorder( pyramid.getLevel( l ) ), interpolatorFactory ) );
+		currentLevel = 0;
+	}
+
+	public ImagePyramid< T > getPyramid()
+	{
+		return pyramid;
+	}
+
+	public int getLevel()
+	{
+		return currentLevel;
+	}
+
+	/**
+	 * Set the level sampled by {@link RealRandomAccess RealRandomAccesses}
+	 * created from now on.
+	 */
+	public void setLevel( final int level )
+	{
+		if ( level < 0 || level >= levels.size() )
+			throw new IllegalArgumentException( "level " + level + " does not exist" );
+		currentLevel = level;
+	}
+
+	/**
+	 * Select the coarsest level that still resolves samples taken with the
+	 * given spacing.
+	 *
+	 * @see ImagePyramid#selectLevel(double[])
+	 *
+	 * @param pixelSpacing
+	 *            distance between samples, in level 0 pixels, in every
+	 *            dimension.
+	 * @return the selected level.
+	 */
+	public int selectLevel( final double[] pixelSpacing )
+	{
+		setLevel( pyramid.selectLevel( pixelSpacing ) );
+		return currentLevel;
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return pyramid.numDimensions();
+	}
+
+	@Override
+	public PyramidRealRandomAccess realRandomAccess()
+	{
+		return new PyramidRealRandomAccess( currentLevel );
+	}
+
+	@Override
+	public PyramidRealRandomAccess realRandomAccess( final RealInterval interval )
+	{
+		return realRandomAccess();
+	}
+
+	/**
+	 * Create a {@link RealRandomAccess} that samples the given level,
+	 * independent of the current level.
+	 */
+	public PyramidRealRandomAccess realRandomAccess( final int level )
+	{
+		return new PyramidRealRandomAccess( level );
+	}
+}
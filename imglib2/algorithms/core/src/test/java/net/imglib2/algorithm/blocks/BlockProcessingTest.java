@@ -0,0 +1,200 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.blocks;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.region.localneighborhood.HyperSphereShape;
+import net.imglib2.algorithm.region.localneighborhood.Neighborhood;
+import net.imglib2.algorithm.region.localneighborhood.RectangleShape;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link BlockProcessing}.
+ *
+ * @author ImgLib2 developers
+ */
+public class BlockProcessingTest
+{
+	final long[] dimensions = new long[] { 53, 37, 11 };
+
+	@Test
+	public void testDivideIntoBlocks()
+	{
+		final Interval interval = new FinalInterval( new long[] { -7, 3, 0 }, new long[] { 20, 17, 4 } );
+		final long[] blockSize = new long[] { 8, 5, 2 };
+		final List< Interval > blocks = BlockProcessing.divideIntoBlocks( interval, blockSize );
+
+		final int[][][] count = new int[ 28 ][ 15 ][ 5 ];
+		for ( final Interval block : blocks )
+		{
+			for ( int d = 0; d < 3; ++d )
+			{
+				// blocks must not cross grid lines
+				assertEquals( Math.floor( ( double ) block.min( d ) / blockSize[ d ] ), Math.floor( ( double ) block.max( d ) / blockSize[ d ] ), 0 );
+			}
+			for ( long x = block.min( 0 ); x <= block.max( 0 ); ++x )
+				for ( long y = block.min( 1 ); y <= block.max( 1 ); ++y )
+					for ( long z = block.min( 2 ); z <= block.max( 2 ); ++z )
+						++count[ ( int ) x + 7 ][ ( int ) y - 3 ][ ( int ) z ];
+		}
+		for ( int x = 0; x < 28; ++x )
+			for ( int y = 0; y < 15; ++y )
+				for ( int z = 0; z < 5; ++z )
+					assertEquals( 1, count[ x ][ y ][ z ] );
+	}
+
+	@Test
+	public void testHalo()
+	{
+		assertArrayEquals( new long[] { 2, 2, 2 }, BlockProcessing.halo( new RectangleShape( 2, false ), 3 ) );
+		assertArrayEquals( new long[] { 3, 3 }, BlockProcessing.halo( new HyperSphereShape( 3 ), 2 ) );
+	}
+
+	@Test
+	public void testSuggestBlockSize()
+	{
+		final Img< FloatType > cellImg = new CellImgFactory< FloatType >( new int[] { 10, 20, 5 } ).create( dimensions, new FloatType() );
+		assertArrayEquals( new long[] { 10, 20, 5 }, BlockProcessing.suggestBlockSize( cellImg ) );
+
+		final Img< FloatType > planarImg = new PlanarImgFactory< FloatType >().create( dimensions, new FloatType() );
+		assertArrayEquals( new long[] { 53, 37, 1 }, BlockProcessing.suggestBlockSize( planarImg ) );
+	}
+
+	@Test
+	public void testProcessCellImg()
+	{
+		testBoxSum( new CellImgFactory< FloatType >( 16 ).create( dimensions, new FloatType() ) );
+	}
+
+	@Test
+	public void testProcessPlanarImg()
+	{
+		testBoxSum( new PlanarImgFactory< FloatType >().create( dimensions, new FloatType() ) );
+	}
+
+	@Test
+	public void testProcessArrayImg()
+	{
+		testBoxSum( new ArrayImgFactory< FloatType >().create( dimensions, new FloatType() ) );
+	}
+
+	/**
+	 * Compute a 3x3x3 box sum in blocks and compare to the sequential result.
+	 */
+	private void testBoxSum( final Img< FloatType > target )
+	{
+		final Img< FloatType > sourceImg = new ArrayImgFactory< FloatType >().create( dimensions, new FloatType() );
+		final Random random = new Random( 123 );
+		for ( final FloatType t : sourceImg )
+			t.set( random.nextInt( 100 ) );
+		final RandomAccessible< FloatType > source = Views.extendMirrorSingle( sourceImg );
+
+		final RectangleShape shape = new RectangleShape( 1, false );
+		BlockProcessing.process( source, target, shape, new BlockOperation< FloatType, FloatType >()
+		{
+			@Override
+			public void compute( final RandomAccessibleInterval< FloatType > src, final RandomAccessibleInterval< FloatType > tgt )
+			{
+				final Cursor< FloatType > t = Views.iterable( tgt ).localizingCursor();
+				final RandomAccess< Neighborhood< FloatType > > n = shape.neighborhoodsRandomAccessible( src ).randomAccess();
+				while ( t.hasNext() )
+				{
+					t.fwd();
+					n.setPosition( t );
+					float sum = 0;
+					for ( final FloatType s : n.get() )
+						sum += s.get();
+					t.get().set( sum );
+				}
+			}
+		} );
+
+		final RandomAccess< FloatType > s = source.randomAccess();
+		final Cursor< FloatType > t = target.localizingCursor();
+		final long[] pos = new long[ 3 ];
+		while ( t.hasNext() )
+		{
+			t.fwd();
+			t.localize( pos );
+			float sum = 0;
+			for ( int dx = -1; dx <= 1; ++dx )
+				for ( int dy = -1; dy <= 1; ++dy )
+					for ( int dz = -1; dz <= 1; ++dz )
+					{
+						s.setPosition( new long[] { pos[ 0 ] + dx, pos[ 1 ] + dy, pos[ 2 ] + dz } );
+						sum += s.get().get();
+					}
+			assertEquals( sum, t.get().get(), 0 );
+		}
+	}
+
+	@Test
+	public void testProcessWithBlockSize()
+	{
+		final Img< FloatType > target = new ArrayImgFactory< FloatType >().create( dimensions, new FloatType() );
+		BlockProcessing.process( target, target, new long[ 3 ], new BlockOperation< FloatType, FloatType >()
+		{
+			@Override
+			public void compute( final RandomAccessibleInterval< FloatType > src, final RandomAccessibleInterval< FloatType > tgt )
+			{
+				for ( final FloatType t : Views.iterable( tgt ) )
+					t.inc();
+			}
+		}, new long[] { 7, 7, 7 }, new TaskExecutor( 3 ) );
+		for ( final FloatType t : target )
+			assertEquals( 1, t.get(), 0 );
+	}
+}
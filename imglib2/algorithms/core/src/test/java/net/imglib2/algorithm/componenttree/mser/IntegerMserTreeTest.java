@@ -0,0 +1,172 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.componenttree.mser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.Localizable;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.util.IntervalIndexer;
+
+import org.junit.Test;
+
+/**
+ * Tests that {@link MserTree#buildIntegerMserTree} finds the same MSERs as
+ * {@link MserTree#buildMserTree}.
+ *
+ * @author ImgLib2 developers
+ */
+public class IntegerMserTreeTest
+{
+	/**
+	 * Create an image with blobs of varying contrast on a noisy background.
+	 */
+	private static < T extends IntegerType< T > & NativeType< T > > Img< T > createImage( final long[] dimensions, final T type, final long scale, final long seed )
+	{
+		final Img< T > img = new ArrayImgFactory< T >().create( dimensions, type );
+		final Random random = new Random( seed );
+		final int numBlobs = 12;
+		final double[][] centers = new double[ numBlobs ][ dimensions.length ];
+		final double[] radii = new double[ numBlobs ];
+		final double[] heights = new double[ numBlobs ];
+		for ( int b = 0; b < numBlobs; ++b )
+		{
+			for ( int d = 0; d < dimensions.length; ++d )
+				centers[ b ][ d ] = random.nextDouble() * dimensions[ d ];
+			radii[ b ] = 2 + random.nextDouble() * 6;
+			heights[ b ] = 50 + random.nextDouble() * 150;
+		}
+		final long[] pos = new long[ dimensions.length ];
+		final Cursor< T > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( pos );
+			double v = random.nextDouble() * 30;
+			for ( int b = 0; b < numBlobs; ++b )
+			{
+				double r2 = 0;
+				for ( int d = 0; d < dimensions.length; ++d )
+					r2 += ( pos[ d ] - centers[ b ][ d ] ) * ( pos[ d ] - centers[ b ][ d ] );
+				v += heights[ b ] * Math.exp( -r2 / ( 2 * radii[ b ] * radii[ b ] ) );
+			}
+			c.get().setInteger( Math.min( 255, ( long ) v ) * scale );
+		}
+		return img;
+	}
+
+	/**
+	 * Summary of a {@link Mser} that can be compared and sorted.
+	 */
+	private static String describe( final Mser< ? > mser, final long[] dimensions )
+	{
+		final ArrayList< Long > indices = new ArrayList< Long >();
+		final long[] pos = new long[ dimensions.length ];
+		for ( final Localizable l : mser )
+		{
+			l.localize( pos );
+			indices.add( IntervalIndexer.positionToIndex( pos, dimensions ) );
+		}
+		Collections.sort( indices );
+		return mser.value() + " " + mser.size() + " " + mser.score() + " " + Arrays.toString( mser.mean() ) + " " + Arrays.toString( mser.cov() ) + " " + mser.getChildren().size() + " " + indices;
+	}
+
+	private static String[] describe( final MserTree< ? > tree, final long[] dimensions )
+	{
+		final ArrayList< String > descriptions = new ArrayList< String >();
+		for ( final Mser< ? > mser : tree )
+			descriptions.add( describe( mser, dimensions ) );
+		Collections.sort( descriptions );
+		return descriptions.toArray( new String[ 0 ] );
+	}
+
+	private static < T extends IntegerType< T > > void assertSameMsers( final Img< T > img, final T delta, final long minSize, final long maxSize, final double maxVar, final double minDiversity )
+	{
+		final long[] dimensions = new long[ img.numDimensions() ];
+		img.dimensions( dimensions );
+		for ( final boolean darkToBright : new boolean[] { true, false } )
+		{
+			final MserTree< T > expected = MserTree.buildMserTree( img, delta, minSize, maxSize, maxVar, minDiversity, darkToBright );
+			final MserTree< T > actual = MserTree.buildIntegerMserTree( img, delta, minSize, maxSize, maxVar, minDiversity, darkToBright );
+			assertEquals( expected.size(), actual.size() );
+			assertEquals( expected.roots().size(), actual.roots().size() );
+			assertArrayEquals( describe( expected, dimensions ), describe( actual, dimensions ) );
+		}
+	}
+
+	@Test
+	public void testUnsignedByte2D()
+	{
+		final Img< UnsignedByteType > img = createImage( new long[] { 97, 83 }, new UnsignedByteType(), 1, 1 );
+		assertSameMsers( img, new UnsignedByteType( 5 ), 5, 5000, 0.8, 0 );
+		assertSameMsers( img, new UnsignedByteType( 15 ), 10, 2000, 0.5, 0.2 );
+	}
+
+	@Test
+	public void testUnsignedByte3D()
+	{
+		final Img< UnsignedByteType > img = createImage( new long[] { 31, 27, 19 }, new UnsignedByteType(), 1, 2 );
+		assertSameMsers( img, new UnsignedByteType( 10 ), 5, 10000, 0.8, 0.1 );
+	}
+
+	@Test
+	public void testLargeValueRange()
+	{
+		// values spread over a range larger than the number of pixels use ranked levels
+		final Img< IntType > img = createImage( new long[] { 64, 48 }, new IntType(), 100003, 3 );
+		assertSameMsers( img, new IntType( 10 * 100003 ), 5, 3000, 0.8, 0 );
+	}
+
+	@Test
+	public void testConstantImage()
+	{
+		final Img< UnsignedByteType > img = new ArrayImgFactory< UnsignedByteType >().create( new long[] { 10, 10 }, new UnsignedByteType() );
+		assertSameMsers( img, new UnsignedByteType( 1 ), 0, 1000, 1, 0 );
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.gauss3;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link RecursiveGauss}.
+ *
+ * @author ImgLib2 developers
+ */
+public class RecursiveGaussTest
+{
+	final long[] dimensions = new long[] { 131, 97 };
+
+	private Img< FloatType > createImpulseImg()
+	{
+		final Img< FloatType > img = new ArrayImgFactory< FloatType >().create( dimensions, new FloatType() );
+		final Random random = new Random( 1l );
+		final RandomAccess< FloatType > a = img.randomAccess();
+		for ( int i = 0; i < 20; ++i )
+		{
+			a.setPosition( random.nextInt( ( int ) dimensions[ 0 ] ), 0 );
+			a.setPosition( random.nextInt( ( int ) dimensions[ 1 ] ), 1 );
+			a.get().set( 1000 );
+		}
+		return img;
+	}
+
+	private static double maxDifference( final RandomAccessibleInterval< FloatType > a, final RandomAccessibleInterval< FloatType > b )
+	{
+		double max = 0;
+		final Cursor< FloatType > ca = Views.iterable( a ).localizingCursor();
+		final RandomAccess< FloatType > rb = b.randomAccess();
+		while ( ca.hasNext() )
+		{
+			ca.fwd();
+			rb.setPosition( ca );
+			max = Math.max( max, Math.abs( ca.get().get() - rb.get().get() ) );
+		}
+		return max;
+	}
+
+	private static double maxValue( final RandomAccessibleInterval< FloatType > a )
+	{
+		double max = 0;
+		for ( final FloatType t : Views.iterable( a ) )
+			max = Math.max( max, Math.abs( t.get() ) );
+		return max;
+	}
+
+	private void assertGaussMatchesKernel( final double[] sigma, final boolean[] recursive, final double relativeTolerance ) throws IncompatibleTypeException
+	{
+		final Img< FloatType > img = createImpulseImg();
+		final Img< FloatType > kernel = img.factory().create( img, new FloatType() );
+		final Img< FloatType > iir = img.factory().create( img, new FloatType() );
+
+		SeparableSymmetricConvolution.convolve( Gauss3.halfkernels( sigma ), Views.extendMirrorSingle( img ), kernel, 1 );
+		RecursiveGauss.gauss( sigma, recursive, Views.extendMirrorSingle( img ), iir, TaskExecutor.getDefault() );
+
+		final double max = maxValue( kernel );
+		assertEquals( 0, maxDifference( kernel, iir ) / max, relativeTolerance );
+	}
+
+	private static double impulseResponseSigma( final double sigma ) throws IncompatibleTypeException
+	{
+		final int center = ( int ) ( 12 * sigma ) + 10;
+		final Img< DoubleType > img = new ArrayImgFactory< DoubleType >().create( new long[] { 2 * center + 1 }, new DoubleType() );
+		final RandomAccess< DoubleType > a = img.randomAccess();
+		a.setPosition( center, 0 );
+		a.get().set( 1 );
+		RecursiveGauss.gauss( new double[] { sigma }, Views.extendValue( img, new DoubleType() ), img );
+
+		double s0 = 0, s2 = 0;
+		final Cursor< DoubleType > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			final double v = c.next().get();
+			final double x = c.getDoublePosition( 0 ) - center;
+			s0 += v;
+			s2 += v * x * x;
+		}
+		return Math.sqrt( s2 / s0 );
+	}
+
+	@Test
+	public void testImpulseResponseVariance() throws IncompatibleTypeException
+	{
+		for ( final double sigma : new double[] { 0.5, 1, 2.5, 3, 7.9, 8, 10, 30 } )
+		{
+			assertEquals( sigma, Math.sqrt( RecursiveGauss.variance( RecursiveGauss.coefficients( sigma ) ) ), 1e-9 * sigma );
+			assertEquals( sigma, impulseResponseSigma( sigma ), 1e-3 * sigma );
+		}
+	}
+
+	@Test
+	public void testGaussMatchesKernel() throws IncompatibleTypeException
+	{
+		assertGaussMatchesKernel( new double[] { 10, 12 }, new boolean[] { true, true }, 0.025 );
+		assertGaussMatchesKernel( new double[] { 3, 4 }, new boolean[] { true, true }, 0.025 );
+	}
+
+	@Test
+	public void testMixedGaussMatchesKernel() throws IncompatibleTypeException
+	{
+		assertGaussMatchesKernel( new double[] { 1.5, 10 }, new boolean[] { false, true }, 0.025 );
+		assertGaussMatchesKernel( new double[] { 10, 0.3 }, new boolean[] { true, true }, 0.025 );
+	}
+
+	@Test
+	public void testGauss3UsesRecursiveForLargeSigma() throws IncompatibleTypeException
+	{
+		final double[] sigma = new double[] { 2, RecursiveGauss.DEFAULT_RECURSIVE_SIGMA + 1 };
+		final Img< FloatType > img = createImpulseImg();
+		final Img< FloatType > gauss3 = img.factory().create( img, new FloatType() );
+		final Img< FloatType > iir = img.factory().create( img, new FloatType() );
+
+		Gauss3.gauss( sigma, Views.extendMirrorSingle( img ), gauss3 );
+		RecursiveGauss.gauss( sigma, RecursiveGauss.suggestRecursive( sigma ), Views.extendMirrorSingle( img ), iir, TaskExecutor.getDefault() );
+
+		assertEquals( 0, maxDifference( gauss3, iir ), 0 );
+	}
+
+	@Test
+	public void testDerivative() throws IncompatibleTypeException
+	{
+		// f(x,y) = 3x^2 + 2xy - y around the center, the image is large enough to provide the border for the interior target
+		final Img< DoubleType > img = new ArrayImgFactory< DoubleType >().create( new long[] { 120, 120 }, new DoubleType() );
+		final Cursor< DoubleType > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			final double x = c.getDoublePosition( 0 ) - 60;
+			final double y = c.getDoublePosition( 1 ) - 60;
+			c.get().set( 3 * x * x + 2 * x * y - y );
+		}
+
+		final double[] sigma = new double[] { 5, 4 };
+		final FinalInterval interior = new FinalInterval( new long[] { 40, 40 }, new long[] { 79, 79 } );
+		final Img< DoubleType > out = img.factory().create( interior, new DoubleType() );
+		final RandomAccessibleInterval< DoubleType > target = Views.translate( out, 40, 40 );
+
+		final int[][] orders = new int[][] { { 1, 0 }, { 0, 1 }, { 2, 0 }, { 1, 1 } };
+		for ( final int[] order : orders )
+		{
+			RecursiveGauss.derivative( sigma, order, img, target );
+			final Cursor< DoubleType > t = Views.iterable( target ).localizingCursor();
+			while ( t.hasNext() )
+			{
+				t.fwd();
+				final double x = t.getDoublePosition( 0 ) - 60;
+				final double y = t.getDoublePosition( 1 ) - 60;
+				final double expected;
+				if ( order[ 0 ] == 1 && order[ 1 ] == 0 )
+					expected = 6 * x + 2 * y;
+				else if ( order[ 0 ] == 0 )
+					expected = 2 * x - 1;
+				else if ( order[ 0 ] == 2 )
+					expected = 6;
+				else
+					expected = 2;
+				assertEquals( expected, t.get().get(), 2e-2 * Math.max( 1, Math.abs( expected ) ) );
+			}
+		}
+	}
+}
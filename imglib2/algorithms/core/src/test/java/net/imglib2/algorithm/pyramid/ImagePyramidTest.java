@@ -0,0 +1,130 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.pyramid;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.gauss3.SeparableSymmetricConvolution;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.interpolation.randomaccess.NearestNeighborInterpolatorFactory;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ImagePyramid} and {@link PyramidRealRandomAccessible}.
+ *
+ * @author ImgLib2 developers
+ */
+public class ImagePyramidTest
+{
+	final long[] dimensions = new long[] { 53, 37, 11 };
+
+	final int[] factors = new int[] { 2, 2, 1 };
+
+	private Img< FloatType > createRandomImg()
+	{
+		final Img< FloatType > img = new ArrayImgFactory< FloatType >().create( dimensions, new FloatType() );
+		final Random random = new Random( 1l );
+		for ( final FloatType t : img )
+			t.set( random.nextFloat() );
+		return img;
+	}
+
+	@Test
+	public void testLevelDimensions()
+	{
+		final ImagePyramid< FloatType > pyramid = ImagePyramid.build( createRandomImg(), factors, 4, new ArrayImgFactory< FloatType >(), TaskExecutor.getDefault() );
+		assertEquals( 4, pyramid.numLevels() );
+		final long[][] expected = new long[][] { { 53, 37, 11 }, { 27, 19, 11 }, { 14, 10, 11 }, { 7, 5, 11 } };
+		for ( int l = 0; l < 4; ++l )
+			for ( int d = 0; d < 3; ++d )
+			{
+				assertEquals( expected[ l ][ d ], pyramid.getLevel( l ).dimension( d ) );
+				assertEquals( d < 2 ? 1 << l : 1, pyramid.getScale( l, d ) );
+			}
+		assertEquals( 4, ImagePyramid.suggestNumLevels( pyramid.getLevel( 0 ), factors, 7 ) );
+	}
+
+	@Test
+	public void testBlocksMatchWholeImage() throws Exception
+	{
+		final Img< FloatType > img = createRandomImg();
+		final ImagePyramid< FloatType > pyramid = ImagePyramid.build( img, factors, 2, new CellImgFactory< FloatType >( 5 ), TaskExecutor.getDefault() );
+
+		// smooth the whole image at once and subsample
+		final Img< FloatType > smoothed = img.factory().create( img, new FloatType() );
+		SeparableSymmetricConvolution.convolve( ImagePyramid.halfkernels( factors ), Views.extendMirrorSingle( img ), smoothed, 1 );
+		final RandomAccessibleInterval< FloatType > level = pyramid.getLevel( 1 );
+		final Cursor< FloatType > c = Views.iterable( level ).localizingCursor();
+		final RandomAccess< FloatType > r = smoothed.randomAccess();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			for ( int d = 0; d < 3; ++d )
+				r.setPosition( c.getLongPosition( d ) * factors[ d ], d );
+			assertEquals( r.get().get(), c.get().get(), 1e-5 );
+		}
+	}
+
+	@Test
+	public void testSelectLevel()
+	{
+		final ImagePyramid< FloatType > pyramid = ImagePyramid.build( createRandomImg(), factors, 3, new ArrayImgFactory< FloatType >(), TaskExecutor.getDefault() );
+		assertEquals( 0, pyramid.selectLevel( new double[] { 1, 1, 1 } ) );
+		assertEquals( 1, pyramid.selectLevel( new double[] { 3, 3, 1 } ) );
+		assertEquals( 2, pyramid.selectLevel( new double[] { 4, 4, 1 } ) );
+		assertEquals( 1, pyramid.selectLevel( new double[] { 2, 8, 1 } ) );
+
+		final PyramidRealRandomAccessible< FloatType > accessible = new PyramidRealRandomAccessible< FloatType >( pyramid, new NearestNeighborInterpolatorFactory< FloatType >() );
+		assertEquals( 2, accessible.selectLevel( new double[] { 5, 5, 1 } ) );
+		final PyramidRealRandomAccessible< FloatType >.PyramidRealRandomAccess a = accessible.realRandomAccess();
+		final RandomAccess< FloatType > r = pyramid.getLevel( 2 ).randomAccess();
+		a.setPosition( new double[] { 12, 8, 3 } );
+		r.setPosition( new long[] { 3, 2, 3 } );
+		assertEquals( r.get().get(), a.get().get(), 0 );
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+package tests.labeling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.algorithm.labeling.BucketQueueWatershed;
+import net.imglib2.algorithm.labeling.Watershed;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.labeling.Labeling;
+import net.imglib2.labeling.LabelingType;
+import net.imglib2.labeling.NativeImgLabeling;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Compare {@link BucketQueueWatershed} with {@link Watershed}.
+ *
+ * @author ImgLib2 developers
+ */
+public class BucketQueueWatershedTest
+{
+	final long[] dimensions = new long[] { 71, 53, 9 };
+
+	private NativeImgLabeling< Integer, IntType > createSeeds( final int numSeeds )
+	{
+		final NativeImgLabeling< Integer, IntType > seeds = new NativeImgLabeling< Integer, IntType >( new ArrayImgFactory< IntType >().create( dimensions, new IntType() ) );
+		final RandomAccess< LabelingType< Integer > > a = seeds.randomAccess();
+		final Random random = new Random( 7 );
+		for ( int i = 1; i <= numSeeds; ++i )
+		{
+			for ( int d = 0; d < dimensions.length; ++d )
+				a.setPosition( random.nextInt( ( int ) dimensions[ d ] ), d );
+			a.get().setLabel( i );
+		}
+		return seeds;
+	}
+
+	private < T extends RealType< T > > Labeling< Integer > run( final Watershed< T, Integer > watershed, final Img< T > image, final Labeling< Integer > seeds )
+	{
+		watershed.setSeeds( seeds );
+		watershed.setIntensityImage( image );
+		watershed.setStructuringElement( new long[][] { { -1, 0, 0 }, { 1, 0, 0 }, { 0, -1, 0 }, { 0, 1, 0 }, { 0, 0, -1 }, { 0, 0, 1 } } );
+		assertTrue( watershed.process() );
+		return watershed.getResult();
+	}
+
+	private void assertLabelingEquals( final Labeling< Integer > expected, final Labeling< Integer > actual )
+	{
+		final Cursor< LabelingType< Integer > > e = expected.cursor();
+		final Cursor< LabelingType< Integer > > a = actual.cursor();
+		while ( e.hasNext() )
+			assertEquals( e.next().getLabeling(), a.next().getLabeling() );
+	}
+
+	@Test
+	public void testIntegerImage()
+	{
+		final Img< UnsignedShortType > image = new ArrayImgFactory< UnsignedShortType >().create( dimensions, new UnsignedShortType() );
+		final Random random = new Random( 1 );
+		for ( final UnsignedShortType t : image )
+			t.set( random.nextInt( 50 ) );
+		final NativeImgLabeling< Integer, IntType > seeds = createSeeds( 20 );
+
+		final Labeling< Integer > expected = run( new Watershed< UnsignedShortType, Integer >(), image, seeds );
+		final Labeling< Integer > actual = run( new BucketQueueWatershed< UnsignedShortType, Integer >(), image, seeds );
+		assertLabelingEquals( expected, actual );
+	}
+
+	@Test
+	public void testQuantizedRealImage()
+	{
+		// real values that are already on a grid of levels are not changed
+		// by quantization
+		final Img< FloatType > image = new ArrayImgFactory< FloatType >().create( dimensions, new FloatType() );
+		final Random random = new Random( 2 );
+		for ( final FloatType t : image )
+			t.set( random.nextInt( 11 ) * 0.5f );
+		final NativeImgLabeling< Integer, IntType > seeds = createSeeds( 10 );
+
+		final Labeling< Integer > expected = run( new Watershed< FloatType, Integer >(), image, seeds );
+		final BucketQueueWatershed< FloatType, Integer > watershed = new BucketQueueWatershed< FloatType, Integer >();
+		watershed.setNumLevels( 11 );
+		final Labeling< Integer > actual = run( watershed, image, seeds );
+		assertLabelingEquals( expected, actual );
+	}
+}
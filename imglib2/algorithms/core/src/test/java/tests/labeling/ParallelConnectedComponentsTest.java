@@ -0,0 +1,117 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+package tests.labeling;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.algorithm.labeling.AllConnectedComponents;
+import net.imglib2.algorithm.labeling.ParallelConnectedComponents;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.labeling.LabelingType;
+import net.imglib2.labeling.NativeImgLabeling;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.integer.IntType;
+
+import org.junit.Test;
+
+/**
+ * Compare {@link ParallelConnectedComponents} with
+ * {@link AllConnectedComponents}.
+ *
+ * @author ImgLib2 developers
+ */
+public class ParallelConnectedComponentsTest
+{
+	private void compare( final long[] dimensions, final double density, final long[][] structuringElement )
+	{
+		final ArrayImg< BitType, ? > image = new ArrayImgFactory< BitType >().create( dimensions, new BitType() );
+		final Random random = new Random( 42 );
+		for ( final BitType t : image )
+			t.set( random.nextDouble() < density );
+
+		final NativeImgLabeling< Integer, IntType > expected = new NativeImgLabeling< Integer, IntType >( new ArrayImgFactory< IntType >().create( dimensions, new IntType() ) );
+		final NativeImgLabeling< Integer, IntType > actual = new NativeImgLabeling< Integer, IntType >( new ArrayImgFactory< IntType >().create( dimensions, new IntType() ) );
+		AllConnectedComponents.labelAllConnectedComponents( expected, image, AllConnectedComponents.getIntegerNames( 1 ), structuringElement );
+		final int numComponents = ParallelConnectedComponents.labelAllConnectedComponents( actual, image, AllConnectedComponents.getIntegerNames( 1 ), structuringElement, new TaskExecutor( 4 ) );
+
+		// components are named in the same order, so labels must be identical
+		final Cursor< LabelingType< Integer > > e = expected.cursor();
+		final Cursor< LabelingType< Integer > > a = actual.cursor();
+		int maxLabel = 0;
+		while ( e.hasNext() )
+		{
+			e.fwd();
+			a.fwd();
+			assertEquals( e.get().getLabeling(), a.get().getLabeling() );
+			if ( !a.get().getLabeling().isEmpty() )
+				maxLabel = Math.max( maxLabel, a.get().getLabeling().get( 0 ) );
+		}
+		assertEquals( maxLabel, numComponents );
+	}
+
+	@Test
+	public void test8Connected3D()
+	{
+		final long[] dimensions = new long[] { 61, 47, 53 };
+		compare( dimensions, 0.3, AllConnectedComponents.getStructuringElement( dimensions.length ) );
+	}
+
+	@Test
+	public void test4Connected2D()
+	{
+		final long[][] structuringElement = new long[][] { { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } };
+		compare( new long[] { 301, 517 }, 0.55, structuringElement );
+	}
+
+	@Test
+	public void testLongRange2D()
+	{
+		// offsets reaching two lines back must be merged across slab borders
+		final long[][] structuringElement = new long[][] { { 0, -2 }, { 0, 2 }, { -1, 0 }, { 1, 0 } };
+		compare( new long[] { 200, 400 }, 0.4, structuringElement );
+	}
+
+	@Test
+	public void testEmpty()
+	{
+		compare( new long[] { 100, 300 }, 0, AllConnectedComponents.getStructuringElement( 2 ) );
+	}
+}
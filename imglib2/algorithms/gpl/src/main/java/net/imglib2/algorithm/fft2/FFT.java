@@ -26,12 +26,22 @@ public class FFT
 		return realToComplex( Views.extendValue( input, Util.getTypeFromInterval( input ).createVariable() ), input, factory, new ComplexFloatType() );
 	}
 	
+	final public static < R extends RealType< R > > Img< ComplexFloatType > realToComplex( final RandomAccessibleInterval< R > input, final ImgFactory< ComplexFloatType > factory, final int numThreads )
+	{
+		return realToComplex( Views.extendValue( input, Util.getTypeFromInterval( input ).createVariable() ), input, factory, new ComplexFloatType(), numThreads );
+	}
+	
 	final public static < R extends RealType< R > > Img< ComplexFloatType > realToComplex( final RandomAccessibleInterval< R > input, final OutOfBoundsFactory< R, RandomAccessibleInterval< R > > oobs, final ImgFactory< ComplexFloatType > factory )
 	{
 		return realToComplex( Views.extend( input, oobs ), input, factory, new ComplexFloatType() );
 	}
 	
 	final public static < R extends RealType< R >, C extends ComplexType< C > > Img< C > realToComplex( final RandomAccessible< R > input, Interval inputInterval, final ImgFactory< C > factory, final C type )
+	{
+		return realToComplex( input, inputInterval, factory, type, Runtime.getRuntime().availableProcessors() );
+	}
+	
+	final public static < R extends RealType< R >, C extends ComplexType< C > > Img< C > realToComplex( final RandomAccessible< R > input, Interval inputInterval, final ImgFactory< C > factory, final C type, final int numThreads )
 	{
 		// compute the size of the complex-valued output and the required padding
 		final long[] paddedDimensions = new long[ input.numDimensions() ];
@@ -47,7 +57,7 @@ public class FFT
 			inputInterval = FFTMethods.paddingIntervalCentered( inputInterval, FinalDimensions.wrap( paddedDimensions ) );
 		
 		// real-to-complex fft
-		realToComplex( Views.interval( input, inputInterval ), fft );
+		realToComplex( Views.interval( input, inputInterval ), fft, numThreads );
 		
 		return fft;
 	}
@@ -115,10 +125,15 @@ public class FFT
 
 	final public static < R extends RealType< R >, C extends ComplexType< C > > void realToComplex( final RandomAccessibleInterval< R > input, final RandomAccessibleInterval< C > output )
 	{
-		FFTMethods.realToComplex( input, output, 0 );
+		realToComplex( input, output, Runtime.getRuntime().availableProcessors() );
+	}
+
+	final public static < R extends RealType< R >, C extends ComplexType< C > > void realToComplex( final RandomAccessibleInterval< R > input, final RandomAccessibleInterval< C > output, final int numThreads )
+	{
+		FFTMethods.realToComplex( input, output, 0, false, numThreads );
 		
 		for ( int d = 1; d < input.numDimensions(); ++d )
-			FFTMethods.complexToComplex( output, d, true );
+			FFTMethods.complexToComplex( output, d, true, false, numThreads );
 	}
 
 	final public static < C extends ComplexType< C > > void complexToComplexForward( final RandomAccessibleInterval< C > data )
@@ -142,10 +157,15 @@ public class FFT
 	}
 
 	final public static < C extends ComplexType< C >, R extends RealType< R > > void complexToRealUnpad( final RandomAccessibleInterval< C > input, final RandomAccessibleInterval< R > output )
+	{
+		complexToRealUnpad( input, output, Runtime.getRuntime().availableProcessors() );
+	}
+
+	final public static < C extends ComplexType< C >, R extends RealType< R > > void complexToRealUnpad( final RandomAccessibleInterval< C > input, final RandomAccessibleInterval< R > output, final int numThreads )
 	{
 		for ( int d = 1; d < input.numDimensions(); ++d )
-			FFTMethods.complexToComplex( input, d, false );
+			FFTMethods.complexToComplex( input, d, false, true, numThreads );
 		
-		FFTMethods.complexToReal( input, output, FFTMethods.unpaddingIntervalCentered( input, output ), 0 );
+		FFTMethods.complexToReal( input, output, FFTMethods.unpaddingIntervalCentered( input, output ), 0, true, numThreads );
 	}
 }
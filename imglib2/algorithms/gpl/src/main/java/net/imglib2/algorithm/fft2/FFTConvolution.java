@@ -1,5 +1,7 @@
 package net.imglib2.algorithm.fft2;
 
+import java.util.concurrent.Callable;
+
 import net.imglib2.Cursor;
 import net.imglib2.FinalDimensions;
 import net.imglib2.FinalInterval;
@@ -32,6 +34,9 @@ import net.imglib2.view.Views;
  * NOTE: There is no checking if the sizes are compatible. If the new input has smaller or larger dimensions, it will simply fail. It is up to you to look for that.
  * NOTE: This is not influenced by whether the computation is performed in-place or not, just the FFT of the kernel is kept.
  * 
+ * To share the FFT of a kernel between several instances, e.g. when convolving many tiles with the same kernel in parallel, hand the same
+ * {@link FFTConvolutionCache} to all of them using setCache(FFTConvolutionCache cache). The kernel FFT is then computed once per padded size.
+ * 
  * @author Stephan Preibisch
  */
 public class FFTConvolution < R extends RealType< R > > implements Runnable
@@ -44,6 +49,11 @@ public class FFTConvolution < R extends RealType< R > > implements Runnable
 	RandomAccessibleInterval< R > output;
 	
 	boolean keepImgFFT = false;
+	int numThreads = Runtime.getRuntime().availableProcessors();
+
+	// identifies the kernel in the cache, the object that was handed to us
+	Object kernelKey;
+	FFTConvolutionCache cache = null;
 
 	/**
 	 * Compute a Fourier space based convolution in-place (img will be replaced by the convolved result). 
@@ -99,6 +109,7 @@ public class FFTConvolution < R extends RealType< R > > implements Runnable
 	public FFTConvolution( final RandomAccessibleInterval< R > img, final RandomAccessibleInterval< R > kernel, final RandomAccessibleInterval< R > output, final ImgFactory< ComplexFloatType > factory )
 	{
 		this ( Views.extendMirrorSingle( img ), img, Views.extendValue( kernel, Util.getTypeFromInterval( kernel ).createVariable() ), kernel, output, factory );
+		this.kernelKey = kernel;
 	}
 
 	/**
@@ -139,6 +150,7 @@ public class FFTConvolution < R extends RealType< R > > implements Runnable
 		this.imgInterval = imgInterval;
 		this.kernel = kernel;
 		this.kernelInterval = kernelInterval;
+		this.kernelKey = kernel;
 		this.output = output;
 		this.fftFactory = factory;
 	}
@@ -161,6 +173,7 @@ public class FFTConvolution < R extends RealType< R > > implements Runnable
 	{
 		this.kernel = Views.extendValue( kernel, Util.getTypeFromInterval( kernel ).createVariable() );
 		this.kernelInterval = kernel;
+		this.kernelKey = kernel;
 		this.fftKernel = null;
 	}
 
@@ -168,6 +181,7 @@ public class FFTConvolution < R extends RealType< R > > implements Runnable
 	{
 		this.kernel = kernel;
 		this.kernelInterval = kernelInterval;
+		this.kernelKey = kernel;
 		this.fftKernel = null;
 	}
 
@@ -179,53 +193,48 @@ public class FFTConvolution < R extends RealType< R > > implements Runnable
 	public ImgFactory< ComplexFloatType > fftImgFactory() { return fftFactory; }
 	public Img< ComplexFloatType > imgFFT() { return fftImg; }
 	public Img< ComplexFloatType > kernelFFT() { return fftKernel; }
+
+	/**
+	 * Share kernel FFTs between {@link FFTConvolution} instances (and threads) through the given cache.
+	 * The kernel FFT is then looked up in the cache instead of being computed by every instance.
+	 * 
+	 * @param cache - the cache, or null to compute the kernel FFT for this instance only
+	 */
+	public void setCache( final FFTConvolutionCache cache )
+	{
+		this.cache = cache;
+		this.fftKernel = null;
+	}
+
+	public FFTConvolutionCache cache() { return cache; }
+
+	/**
+	 * @param numThreads - the number of threads used to compute the FFTs
+	 */
+	public void setNumThreads( final int numThreads ) { this.numThreads = numThreads; }
+	public int numThreads() { return numThreads; }
 	
 	@Override
 	public void run() 
 	{
-		final int numDimensions = imgInterval.numDimensions();
-		
-		// the image has to be extended at least by kernelDimensions/2-1 in each dimension so that
-		// the pixels outside of the interval are used for the convolution.
-		final long[] newDimensions = new long[ numDimensions ];
-		
-		for ( int d = 0; d < numDimensions; ++d )
-			newDimensions[ d ] = (int)imgInterval.dimension( d ) + (int)kernelInterval.dimension( d ) - 1;
-		
-		// compute the size of the complex-valued output and the required padding
-		// based on the prior extended input image
-		final long[] paddedDimensions = new long[ numDimensions ];
-		final long[] fftDimensions = new long[ numDimensions ];
-		
-		FFTMethods.dimensionsRealToComplexFast( FinalDimensions.wrap( newDimensions ), paddedDimensions, fftDimensions );
-
-		// compute the new interval for the input image
-		final Interval imgConvolutionInterval = FFTMethods.paddingIntervalCentered( imgInterval, FinalDimensions.wrap( paddedDimensions ) );
-		
-		// compute the new interval for the kernel image
-		final Interval kernelConvolutionInterval = FFTMethods.paddingIntervalCentered( kernelInterval, FinalDimensions.wrap( paddedDimensions ) );
+		final FFTConvolutionCache.Plan plan = FFTConvolutionCache.plan( imgInterval, kernelInterval );
 
-		// compute where to place the final Interval for the kernel so that the coordinate in the center
-		// of the kernel is at position (0,0)
-		final long[] min = new long[ numDimensions ];
-		final long[] max = new long[ numDimensions ];
-		
-		for ( int d = 0; d < numDimensions; ++d )
-		{
-			min[ d ] = kernelInterval.min( d ) + kernelInterval.dimension( d ) / 2;
-			max[ d ] = min[ d ] + kernelConvolutionInterval.dimension( d ) - 1;
-		}
-		
-		// assemble the correct kernel (size of the input + extended periodic + top left at center of input kernel)
-		final RandomAccessibleInterval< R > kernelInput = Views.interval( Views.extendPeriodic( Views.interval( kernel, kernelConvolutionInterval ) ), new FinalInterval( min, max ) );
-		final RandomAccessibleInterval< R > imgInput = Views.interval( img, imgConvolutionInterval );
-		
 		// compute the FFT's if they do not exist yet
 		if ( fftImg == null )
-			fftImg = FFT.realToComplex( imgInput, fftFactory );
+			fftImg = FFT.realToComplex( imgInput( img, imgInterval, plan ), fftFactory, numThreads );
 		
-		if( fftKernel == null )
-			fftKernel = FFT.realToComplex( kernelInput, fftFactory );
+		// with a cache, look the kernel FFT up every time as the padded size may have changed with the image
+		if ( cache != null )
+			fftKernel = cache.kernelSpectrum( kernelKey, kernelInterval, plan, new Callable< Img< ComplexFloatType > >()
+			{
+				@Override
+				public Img< ComplexFloatType > call()
+				{
+					return FFT.realToComplex( kernelInput( kernel, kernelInterval, plan ), fftFactory, numThreads );
+				}
+			} );
+		else if( fftKernel == null )
+			fftKernel = FFT.realToComplex( kernelInput( kernel, kernelInterval, plan ), fftFactory, numThreads );
 		
 		final Img< ComplexFloatType > fftconvolved;
 		
@@ -238,37 +247,49 @@ public class FFTConvolution < R extends RealType< R > > implements Runnable
 		multiplyComplex( fftconvolved, fftKernel );
 		
 		// inverse FFT in place
-		FFT.complexToRealUnpad( fftconvolved, output );
+		FFT.complexToRealUnpad( fftconvolved, output, numThreads );
 	}
 	
 	final public static < R extends RealType< R > > void convolve( final RandomAccessible< R > img, final Interval imgInterval, final RandomAccessible< R > kernel, final Interval kernelInterval, final RandomAccessibleInterval< R > output, final ImgFactory< ComplexFloatType > factory )
 	{
-		final int numDimensions = imgInterval.numDimensions();
-		
-		// the image has to be extended at least by kernelDimensions/2-1 in each dimension so that
-		// the pixels outside of the interval are used for the convolution.
-		final long[] newDimensions = new long[ numDimensions ];
+		final FFTConvolutionCache.Plan plan = FFTConvolutionCache.plan( imgInterval, kernelInterval );
 		
-		for ( int d = 0; d < numDimensions; ++d )
-			newDimensions[ d ] = (int)imgInterval.dimension( d ) + (int)kernelInterval.dimension( d ) - 1;
+		// compute the FFT's
+		final Img<ComplexFloatType> fftImg = FFT.realToComplex( imgInput( img, imgInterval, plan ), factory );
+		final Img<ComplexFloatType> fftKernel = FFT.realToComplex( kernelInput( kernel, kernelInterval, plan ), factory );
 		
-		// compute the size of the complex-valued output and the required padding
-		// based on the prior extended input image
-		final long[] paddedDimensions = new long[ numDimensions ];
-		final long[] fftDimensions = new long[ numDimensions ];
+		// multiply in place
+		multiplyComplex( fftImg, fftKernel );
 		
-		FFTMethods.dimensionsRealToComplexFast( FinalDimensions.wrap( newDimensions ), paddedDimensions, fftDimensions );
-
+		// inverse FFT in place
+		FFT.complexToRealUnpad( fftImg, output );
+	}
+	
+	/**
+	 * The input image restricted to the padded interval of the plan (centered on the input interval).
+	 */
+	protected static < R extends RealType< R > > RandomAccessibleInterval< R > imgInput( final RandomAccessible< R > img, final Interval imgInterval, final FFTConvolutionCache.Plan plan )
+	{
 		// compute the new interval for the input image
-		final Interval imgConvolutionInterval = FFTMethods.paddingIntervalCentered( imgInterval, FinalDimensions.wrap( paddedDimensions ) );
+		final Interval imgConvolutionInterval = FFTMethods.paddingIntervalCentered( imgInterval, FinalDimensions.wrap( plan.paddedDimensions ) );
+		
+		return Views.interval( img, imgConvolutionInterval );
+	}
+	
+	/**
+	 * The kernel padded to the size of the plan, extended periodically so that the center of the kernel is at position (0,0).
+	 */
+	protected static < R extends RealType< R > > RandomAccessibleInterval< R > kernelInput( final RandomAccessible< R > kernel, final Interval kernelInterval, final FFTConvolutionCache.Plan plan )
+	{
+		final int numDimensions = kernelInterval.numDimensions();
 		
 		// compute the new interval for the kernel image
-		final Interval kernelConvolutionInterval = FFTMethods.paddingIntervalCentered( kernelInterval, FinalDimensions.wrap( paddedDimensions ) );
+		final Interval kernelConvolutionInterval = FFTMethods.paddingIntervalCentered( kernelInterval, FinalDimensions.wrap( plan.paddedDimensions ) );
 
 		// compute where to place the final Interval for the kernel so that the coordinate in the center
 		// of the kernel is at position (0,0)
-		long[] min = new long[ numDimensions ];
-		long[] max = new long[ numDimensions ];
+		final long[] min = new long[ numDimensions ];
+		final long[] max = new long[ numDimensions ];
 		
 		for ( int d = 0; d < numDimensions; ++d )
 		{
@@ -277,18 +298,7 @@ public class FFTConvolution < R extends RealType< R > > implements Runnable
 		}
 		
 		// assemble the correct kernel (size of the input + extended periodic + top left at center of input kernel)
-		final RandomAccessibleInterval< R > kernelInput = Views.interval( Views.extendPeriodic( Views.interval( kernel, kernelConvolutionInterval ) ), new FinalInterval( min, max ) );
-		final RandomAccessibleInterval< R > imgInput = Views.interval( img, imgConvolutionInterval );
-		
-		// compute the FFT's
-		final Img<ComplexFloatType> fftImg = FFT.realToComplex( imgInput, factory );
-		final Img<ComplexFloatType> fftKernel = FFT.realToComplex( kernelInput, factory );
-		
-		// multiply in place
-		multiplyComplex( fftImg, fftKernel );
-		
-		// inverse FFT in place
-		FFT.complexToRealUnpad( fftImg, output );
+		return Views.interval( Views.extendPeriodic( Views.interval( kernel, kernelConvolutionInterval ) ), new FinalInterval( min, max ) );
 	}
 	
 	final public static void multiplyComplex( final Img< ComplexFloatType > img, final Img< ComplexFloatType > kernel )
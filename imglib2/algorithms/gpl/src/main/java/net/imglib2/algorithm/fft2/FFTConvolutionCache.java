@@ -0,0 +1,283 @@
+package net.imglib2.algorithm.fft2;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import net.imglib2.Dimensions;
+import net.imglib2.FinalDimensions;
+import net.imglib2.Interval;
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.complex.ComplexFloatType;
+
+/**
+ * Caches the padded FFT sizes ({@link Plan plans}) and the Fourier transforms
+ * of kernels used by {@link FFTConvolution}, so that convolving many images of
+ * the same size with the same kernel computes the kernel FFT only once.
+ *
+ * Plans only depend on the dimensions of image and kernel and are cached
+ * globally. Kernel spectra are cached per {@link FFTConvolutionCache} instance,
+ * which is handed to every {@link FFTConvolution} that should share them (see
+ * {@link FFTConvolution#setCache(FFTConvolutionCache)}). A kernel is identified
+ * by the identity of the kernel object, its interval and the padded size.
+ * NOTE: If the pixels of a kernel are changed after its spectrum was cached, the
+ * cache has to be {@link #clear() cleared}.
+ *
+ * The cache is thread-safe. If several threads request the same spectrum at the
+ * same time, it is computed once and the other threads wait for the result.
+ * The cached spectra are shared and must not be modified.
+ *
+ * @author ImgLib2 developers
+ */
+public class FFTConvolutionCache
+{
+	/**
+	 * The default number of kernel spectra kept by a cache.
+	 */
+	final public static int DEFAULT_MAX_SPECTRA = 16;
+
+	/**
+	 * Plans are dropped altogether when there are more than this, which only
+	 * happens when convolving images of a large number of different sizes.
+	 */
+	final protected static int MAX_PLANS = 1024;
+
+	final protected static ConcurrentHashMap< DimensionsKey, Plan > plans = new ConcurrentHashMap< DimensionsKey, Plan >();
+
+	final protected int maxSpectra;
+
+	final protected LinkedHashMap< SpectrumKey, FutureTask< Img< ComplexFloatType > > > spectra;
+
+	/**
+	 * The sizes required to convolve an image with a kernel in Fourier space.
+	 */
+	public static class Plan
+	{
+		final protected long[] paddedDimensions;
+		final protected long[] fftDimensions;
+
+		protected Plan( final Dimensions convolutionDimensions )
+		{
+			final int numDimensions = convolutionDimensions.numDimensions();
+			paddedDimensions = new long[ numDimensions ];
+			fftDimensions = new long[ numDimensions ];
+			FFTMethods.dimensionsRealToComplexFast( convolutionDimensions, paddedDimensions, fftDimensions );
+		}
+
+		/**
+		 * @return the size of the padded real-valued input (image and kernel)
+		 */
+		public Dimensions getPaddedDimensions() { return FinalDimensions.wrap( paddedDimensions.clone() ); }
+
+		/**
+		 * @return the size of the complex-valued Fourier transform
+		 */
+		public Dimensions getFFTDimensions() { return FinalDimensions.wrap( fftDimensions.clone() ); }
+	}
+
+	public FFTConvolutionCache()
+	{
+		this( DEFAULT_MAX_SPECTRA );
+	}
+
+	/**
+	 * @param maxSpectra - the number of kernel spectra to keep, the least recently used ones are dropped first
+	 */
+	public FFTConvolutionCache( final int maxSpectra )
+	{
+		this.maxSpectra = maxSpectra;
+		this.spectra = new LinkedHashMap< SpectrumKey, FutureTask< Img< ComplexFloatType > > >( 16, 0.75f, true )
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( final Map.Entry< SpectrumKey, FutureTask< Img< ComplexFloatType > > > eldest )
+			{
+				return size() > FFTConvolutionCache.this.maxSpectra;
+			}
+		};
+	}
+
+	/**
+	 * Get the {@link Plan} for convolving an image with a kernel of the given sizes.
+	 *
+	 * @param imgInterval - the interval to be convolved
+	 * @param kernelInterval - the interval of the kernel
+	 * @return the (cached) plan
+	 */
+	public static Plan plan( final Dimensions imgInterval, final Dimensions kernelInterval )
+	{
+		final int numDimensions = imgInterval.numDimensions();
+
+		// the image has to be extended at least by kernelDimensions/2-1 in each dimension so that
+		// the pixels outside of the interval are used for the convolution.
+		final long[] newDimensions = new long[ numDimensions ];
+
+		for ( int d = 0; d < numDimensions; ++d )
+			newDimensions[ d ] = (int)imgInterval.dimension( d ) + (int)kernelInterval.dimension( d ) - 1;
+
+		final DimensionsKey key = new DimensionsKey( newDimensions );
+		Plan plan = plans.get( key );
+
+		if ( plan == null )
+		{
+			if ( plans.size() >= MAX_PLANS )
+				plans.clear();
+
+			plan = new Plan( FinalDimensions.wrap( newDimensions ) );
+			final Plan existing = plans.putIfAbsent( key, plan );
+
+			if ( existing != null )
+				plan = existing;
+		}
+
+		return plan;
+	}
+
+	/**
+	 * Get the Fourier transform of a kernel, computing it if it is not cached.
+	 *
+	 * @param kernel - identifies the kernel (compared by identity)
+	 * @param kernelInterval - the kernel interval
+	 * @param plan - the plan the spectrum is computed for
+	 * @param computeSpectrum - computes the spectrum if it is not cached
+	 * @return the shared spectrum, must not be modified
+	 */
+	public Img< ComplexFloatType > kernelSpectrum( final Object kernel, final Interval kernelInterval, final Plan plan, final Callable< Img< ComplexFloatType > > computeSpectrum )
+	{
+		final SpectrumKey key = new SpectrumKey( kernel, kernelInterval, plan );
+		final FutureTask< Img< ComplexFloatType > > task;
+		boolean compute = false;
+
+		synchronized ( spectra )
+		{
+			FutureTask< Img< ComplexFloatType > > t = spectra.get( key );
+
+			if ( t == null )
+			{
+				t = new FutureTask< Img< ComplexFloatType > >( computeSpectrum );
+				spectra.put( key, t );
+				compute = true;
+			}
+			task = t;
+		}
+
+		// compute outside of the lock, other threads requesting the same spectrum wait in get()
+		if ( compute )
+			task.run();
+
+		try
+		{
+			return task.get();
+		}
+		catch ( final ExecutionException e )
+		{
+			// do not keep the failed computation
+			synchronized ( spectra )
+			{
+				if ( spectra.get( key ) == task )
+					spectra.remove( key );
+			}
+
+			final Throwable cause = e.getCause();
+
+			if ( cause instanceof RuntimeException )
+				throw ( RuntimeException ) cause;
+			else if ( cause instanceof Error )
+				throw ( Error ) cause;
+			else
+				throw new RuntimeException( cause );
+		}
+		catch ( final InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( e );
+		}
+	}
+
+	/**
+	 * Remove all cached kernel spectra.
+	 */
+	public void clear()
+	{
+		synchronized ( spectra )
+		{
+			spectra.clear();
+		}
+	}
+
+	/**
+	 * @return the number of cached kernel spectra
+	 */
+	public int numSpectra()
+	{
+		synchronized ( spectra )
+		{
+			return spectra.size();
+		}
+	}
+
+	protected static class DimensionsKey
+	{
+		final long[] dimensions;
+		final int hash;
+
+		DimensionsKey( final long[] dimensions )
+		{
+			this.dimensions = dimensions;
+			this.hash = Arrays.hashCode( dimensions );
+		}
+
+		@Override
+		public int hashCode() { return hash; }
+
+		@Override
+		public boolean equals( final Object o )
+		{
+			return o instanceof DimensionsKey && Arrays.equals( dimensions, ( ( DimensionsKey ) o ).dimensions );
+		}
+	}
+
+	protected static class SpectrumKey
+	{
+		final Object kernel;
+		final long[] kernelInterval;
+		final long[] paddedDimensions;
+		final int hash;
+
+		SpectrumKey( final Object kernel, final Interval interval, final Plan plan )
+		{
+			final int numDimensions = interval.numDimensions();
+
+			this.kernel = kernel;
+			this.kernelInterval = new long[ 2 * numDimensions ];
+
+			for ( int d = 0; d < numDimensions; ++d )
+			{
+				kernelInterval[ d ] = interval.min( d );
+				kernelInterval[ d + numDimensions ] = interval.max( d );
+			}
+
+			this.paddedDimensions = plan.paddedDimensions;
+			this.hash = 31 * ( 31 * System.identityHashCode( kernel ) + Arrays.hashCode( kernelInterval ) ) + Arrays.hashCode( paddedDimensions );
+		}
+
+		@Override
+		public int hashCode() { return hash; }
+
+		@Override
+		public boolean equals( final Object o )
+		{
+			if ( !( o instanceof SpectrumKey ) )
+				return false;
+
+			final SpectrumKey k = ( SpectrumKey ) o;
+
+			return kernel == k.kernel && Arrays.equals( kernelInterval, k.kernelInterval ) && Arrays.equals( paddedDimensions, k.paddedDimensions );
+		}
+	}
+}
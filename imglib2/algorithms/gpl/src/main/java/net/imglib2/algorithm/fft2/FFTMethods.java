@@ -154,6 +154,10 @@ public class FFTMethods
 			return false;
 		}
 		
+		// direct access to the lines if input or output are float array backed images
+		final FloatLines inLines = FloatLines.wrap( input, true );
+		final FloatLines outLines = FloatLines.wrap( output, false );
+
 		// perform the complex-to-real fft in a dimension multithreaded if more than one dimension exisits	
 		if ( numDimensions > 1  )
 		{
@@ -231,7 +235,7 @@ A:						while ( cursorDim.hasNext() )
 								randomAccessOut.setPosition( cursorOutPosition );
 								
 								// compute the FFT along the 1d vector and write it into the output
-								computeComplexToReal1dFFT( fft, randomAccessIn, randomAccessOut, interval, dim, tempIn, tempOut, scale );
+								computeComplexToReal1dFFT( fft, randomAccessIn, inLines, cursorInPosition, randomAccessOut, outLines, cursorOutPosition, interval, dim, tempIn, tempOut, scale );
 							}
 						}				
 					}
@@ -257,7 +261,7 @@ A:						while ( cursorDim.hasNext() )
 			randomAccessOut.setPosition( (int)output.min( 0 ), 0 );
 			
 			// compute the FFT along the 1d vector and write it into the output
-			computeComplexToReal1dFFT( fft, randomAccessIn, randomAccessOut, interval, 0, tempIn, tempOut, scale );		
+			computeComplexToReal1dFFT( fft, randomAccessIn, inLines, new int[] { (int)input.min( 0 ) }, randomAccessOut, outLines, new int[] { (int)output.min( 0 ) }, interval, 0, tempIn, tempOut, scale );		
 		}
 		
 		return true;
@@ -371,6 +375,10 @@ A:						while ( cursorDim.hasNext() )
 			return false;
 		}
 
+		// direct access to the lines if input or output are float array backed images
+		final FloatLines inLines = FloatLines.wrap( input, false );
+		final FloatLines outLines = FloatLines.wrap( output, true );
+
 		// perform the real-to-complex fft in a dimension multithreaded if more than one dimension exisits
 		if ( numDimensions > 1 )
 		{		
@@ -448,7 +456,7 @@ A:						while ( cursorDim.hasNext() )
 								randomAccessOut.setPosition( cursorOutPosition );
 								
 								// compute the FFT along the 1d vector and write it into the output
-								computeRealToComplex1dFFT( fft, randomAccessIn, randomAccessOut, interval, dim, tempIn, tempOut, scale );
+								computeRealToComplex1dFFT( fft, randomAccessIn, inLines, cursorInPosition, randomAccessOut, outLines, cursorOutPosition, interval, dim, tempIn, tempOut, scale );
 							}
 						}				
 					}
@@ -476,7 +484,7 @@ A:						while ( cursorDim.hasNext() )
 			randomAccessOut.setPosition( (int)output.min( 0 ), 0 );
 			
 			// compute the FFT along the 1d vector and write it into the output
-			computeRealToComplex1dFFT( fft, randomAccessIn, randomAccessOut, interval, 0, tempIn, tempOut, scale );
+			computeRealToComplex1dFFT( fft, randomAccessIn, inLines, new int[] { (int)input.min( 0 ) }, randomAccessOut, outLines, new int[] { (int)output.min( 0 ) }, interval, 0, tempIn, tempOut, scale );
 		}
 		return true;
 	}
@@ -545,6 +553,9 @@ A:						while ( cursorDim.hasNext() )
 		// perform the real-to-complex fft in a dimension multithreaded if more than one dimension exisits
 		final int size = dataSize[ dim ];
 
+		// direct access to the lines if the data is a float array backed image
+		final FloatLines lines = FloatLines.wrap( data, true );
+
 		if ( numDimensions > 1 )
 		{		
 			final AtomicInteger ai = new AtomicInteger( 0 );
@@ -604,7 +615,7 @@ A:						while ( cursorDim.hasNext() )
 								randomAccess.setPosition( randomAccessPosition );
 								
 								// compute the FFT along the 1d vector and write it into the output
-								computeComplexToComplex1dFFT( fft, forward, randomAccess, dim, tempIn, tempOut, scale );
+								computeComplexToComplex1dFFT( fft, forward, randomAccess, lines, randomAccessPosition, dim, tempIn, tempOut, scale );
 							}
 						}				
 					}
@@ -628,13 +639,13 @@ A:						while ( cursorDim.hasNext() )
 			randomAccess.setPosition( (int)data.min( 0 ), 0 );
 			
 			// compute the FFT along the 1d vector and write it into the output
-			computeComplexToComplex1dFFT( fft, forward, randomAccess, dim, tempIn, tempOut, scale );
+			computeComplexToComplex1dFFT( fft, forward, randomAccess, lines, new int[] { (int)data.min( 0 ) }, dim, tempIn, tempOut, scale );
 		}
 		
 		return true;
 	}
 
-	final private static < R extends RealType< R >, C extends ComplexType< C > > void computeRealToComplex1dFFT( final FftReal fft, final RandomAccess< R > randomAccessIn, final RandomAccess< C > randomAccessOut, final Interval range, final int dim, final float[] tempIn, final float[] tempOut, final boolean scale )
+	final private static < R extends RealType< R >, C extends ComplexType< C > > void computeRealToComplex1dFFT( final FftReal fft, final RandomAccess< R > randomAccessIn, final FloatLines inLines, final int[] inPosition, final RandomAccess< C > randomAccessOut, final FloatLines outLines, final int[] outPosition, final Interval range, final int dim, final float[] tempIn, final float[] tempOut, final boolean scale )
 	{
 		final int realSize = tempIn.length;
 		final int complexSize = tempOut.length / 2;
@@ -642,12 +653,19 @@ A:						while ( cursorDim.hasNext() )
 		final int complexMax = complexSize - 1;
 		
 		// fill the input array with image data
-		for ( int i = 0; i < realMax; ++i )
+		if ( inLines != null )
+		{
+			inLines.get( inPosition, dim, realSize, tempIn );
+		}
+		else
 		{
-			tempIn[ i ] = randomAccessIn.get().getRealFloat();									
-			randomAccessIn.fwd( dim );
+			for ( int i = 0; i < realMax; ++i )
+			{
+				tempIn[ i ] = randomAccessIn.get().getRealFloat();									
+				randomAccessIn.fwd( dim );
+			}
+			tempIn[ realMax ] = randomAccessIn.get().getRealFloat();
 		}
-		tempIn[ realMax ] = randomAccessIn.get().getRealFloat();
 
 		// compute the fft in dimension dim ( real -> complex )
 		fft.realToComplex( -1, tempIn, tempOut );
@@ -670,7 +688,11 @@ A:						while ( cursorDim.hasNext() )
 		
 		final int complexMax2 = max * 2;
 
-		if ( scale )
+		if ( outLines != null )
+		{
+			outLines.set( outPosition, dim, tempOut, min, max - min + 1, scale ? realSize : 1 );
+		}
+		else if ( scale )
 		{
 			for ( int i = min; i < max; ++i )
 			{
@@ -694,7 +716,7 @@ A:						while ( cursorDim.hasNext() )
 		}
 	}
 
-	final private static < C extends ComplexType< C >, R extends RealType< R > > void computeComplexToReal1dFFT( final FftReal fft, final RandomAccess< C > randomAccessIn, final RandomAccess< R > randomAccessOut, final Interval range, final int dim, final float[] tempIn, final float[] tempOut, final boolean scale )
+	final private static < C extends ComplexType< C >, R extends RealType< R > > void computeComplexToReal1dFFT( final FftReal fft, final RandomAccess< C > randomAccessIn, final FloatLines inLines, final int[] inPosition, final RandomAccess< R > randomAccessOut, final FloatLines outLines, final int[] outPosition, final Interval range, final int dim, final float[] tempIn, final float[] tempOut, final boolean scale )
 	{
 		final int complexSize = tempIn.length / 2;
 		final int realSize = tempOut.length;
@@ -704,16 +726,23 @@ A:						while ( cursorDim.hasNext() )
 		
 		// get the input data
 		// fill the input array with complex image data
-		for ( int i = 0; i < complexMax; ++i )
+		if ( inLines != null )
 		{
-			final int j = i * 2;
-			
-			tempIn[ j ] = randomAccessIn.get().getRealFloat();
-			tempIn[ j + 1 ] = randomAccessIn.get().getImaginaryFloat();
-			randomAccessIn.fwd( 0 );
+			inLines.get( inPosition, dim, complexSize, tempIn );
+		}
+		else
+		{
+			for ( int i = 0; i < complexMax; ++i )
+			{
+				final int j = i * 2;
+				
+				tempIn[ j ] = randomAccessIn.get().getRealFloat();
+				tempIn[ j + 1 ] = randomAccessIn.get().getImaginaryFloat();
+				randomAccessIn.fwd( 0 );
+			}
+			tempIn[ complexMax2 ] = randomAccessIn.get().getRealFloat();
+			tempIn[ complexMax2 + 1 ] = randomAccessIn.get().getImaginaryFloat();
 		}
-		tempIn[ complexMax2 ] = randomAccessIn.get().getRealFloat();
-		tempIn[ complexMax2 + 1 ] = randomAccessIn.get().getImaginaryFloat();
 		
 		// compute the fft in dimension 0 ( complex -> real )
 		fft.complexToReal( 1, tempIn, tempOut );
@@ -734,7 +763,11 @@ A:						while ( cursorDim.hasNext() )
 			max = (int)range.max( dim );			
 		}
 		
-		if ( scale )
+		if ( outLines != null )
+		{
+			outLines.set( outPosition, dim, tempOut, min, max - min + 1, scale ? realSize : 1 );
+		}
+		else if ( scale )
 		{
 			for ( int x = min; x < max; ++x )
 			{
@@ -754,23 +787,30 @@ A:						while ( cursorDim.hasNext() )
 		}
 	}
 	
-	final private static < C extends ComplexType< C > > void computeComplexToComplex1dFFT( final FftComplex fft, final boolean forward, final RandomAccess< C > randomAccess, final int dim, final float[] tempIn, final float[] tempOut, final boolean scale )
+	final private static < C extends ComplexType< C > > void computeComplexToComplex1dFFT( final FftComplex fft, final boolean forward, final RandomAccess< C > randomAccess, final FloatLines lines, final int[] position, final int dim, final float[] tempIn, final float[] tempOut, final boolean scale )
 	{
 		final int size = tempIn.length / 2;
 		final int max = size - 1;
 		final int max2 = max * 2;
 		
 		// get the input line
-		for ( int i = 0; i < max; ++i )
+		if ( lines != null )
 		{
-			final int j = i * 2;
-			
-			tempIn[ j ] = randomAccess.get().getRealFloat();
-			tempIn[ j + 1 ] = randomAccess.get().getImaginaryFloat();
-			randomAccess.fwd( dim );
+			lines.get( position, dim, size, tempIn );
+		}
+		else
+		{
+			for ( int i = 0; i < max; ++i )
+			{
+				final int j = i * 2;
+				
+				tempIn[ j ] = randomAccess.get().getRealFloat();
+				tempIn[ j + 1 ] = randomAccess.get().getImaginaryFloat();
+				randomAccess.fwd( dim );
+			}
+			tempIn[ max2 ] = randomAccess.get().getRealFloat();
+			tempIn[ max2 + 1 ] = randomAccess.get().getImaginaryFloat();
 		}
-		tempIn[ max2 ] = randomAccess.get().getRealFloat();
-		tempIn[ max2 + 1 ] = randomAccess.get().getImaginaryFloat();
 		
 		// compute the fft in dimension dim (complex -> complex)
 		if ( forward )
@@ -778,10 +818,16 @@ A:						while ( cursorDim.hasNext() )
 		else
 			fft.complexToComplex( 1, tempIn, tempOut);
 		
+		// write back result
+		if ( lines != null )
+		{
+			lines.set( position, dim, tempOut, 0, size, scale ? size : 1 );
+			return;
+		}
+		
 		// move the randomAccess back
 		randomAccess.move( -max, dim );
 		
-		// write back result
 		if ( scale )
 		{
 			for ( int i = 0; i < max; ++i )
@@ -0,0 +1,205 @@
+package net.imglib2.algorithm.fft2;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.type.numeric.complex.ComplexFloatType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Direct access to the lines of {@link FloatType} and {@link ComplexFloatType} images that are stored in float arrays
+ * ({@link ArrayImg} and {@link PlanarImg}), used by {@link FFTMethods} to copy lines into the 1d FFT buffers without
+ * going through a {@link net.imglib2.RandomAccess} for every pixel. Lines along dimension 0 are copied in bulk, all other
+ * lines are gathered with a fixed stride.
+ *
+ * @author ImgLib2 developers
+ */
+final class FloatLines
+{
+	// the float arrays, one for an ArrayImg, one per plane for a PlanarImg
+	final float[][] planes;
+
+	// floats per pixel, 1 for FloatType, 2 for ComplexFloatType
+	final int entities;
+
+	// number of dimensions stored within one plane
+	final int planeDimensions;
+
+	// steps in pixels within a plane for d < planeDimensions, steps in planes for d >= planeDimensions
+	final int[] steps;
+
+	private FloatLines( final float[][] planes, final int entities, final long[] dimensions, final int planeDimensions )
+	{
+		this.planes = planes;
+		this.entities = entities;
+		this.planeDimensions = planeDimensions;
+		this.steps = new int[ dimensions.length ];
+
+		int step = 1;
+		for ( int d = 0; d < planeDimensions; ++d )
+		{
+			steps[ d ] = step;
+			step *= dimensions[ d ];
+		}
+
+		step = 1;
+		for ( int d = planeDimensions; d < dimensions.length; ++d )
+		{
+			steps[ d ] = step;
+			step *= dimensions[ d ];
+		}
+	}
+
+	/**
+	 * @param img - the image
+	 * @param complex - whether the lines are complex ({@link ComplexFloatType}) or real ({@link FloatType})
+	 * @return direct access to the lines of the image, or null if it is not a float array backed {@link ArrayImg} or {@link PlanarImg} of the requested type
+	 */
+	static FloatLines wrap( final RandomAccessibleInterval< ? > img, final boolean complex )
+	{
+		if ( !( img instanceof ArrayImg || img instanceof PlanarImg ) )
+			return null;
+
+		final Object type = ( ( Img< ? > ) img ).firstElement();
+
+		if ( complex ? !( type instanceof ComplexFloatType ) : !( type instanceof FloatType ) )
+			return null;
+
+		final int entities = complex ? 2 : 1;
+
+		final long[] dimensions = new long[ img.numDimensions() ];
+		img.dimensions( dimensions );
+
+		if ( img instanceof ArrayImg )
+		{
+			final Object access = ( ( ArrayImg< ?, ? > ) img ).update( null );
+
+			if ( !( access instanceof FloatArray ) )
+				return null;
+
+			return new FloatLines( new float[][] { ( ( FloatArray ) access ).getCurrentStorageArray() }, entities, dimensions, dimensions.length );
+		}
+		else
+		{
+			final PlanarImg< ?, ? > planar = ( PlanarImg< ?, ? > ) img;
+			final float[][] planes = new float[ planar.numSlices() ][];
+
+			for ( int i = 0; i < planes.length; ++i )
+			{
+				final Object access = planar.getPlane( i );
+
+				if ( !( access instanceof FloatArray ) )
+					return null;
+
+				planes[ i ] = ( ( FloatArray ) access ).getCurrentStorageArray();
+			}
+
+			return new FloatLines( planes, entities, dimensions, Math.min( 2, dimensions.length ) );
+		}
+	}
+
+	private int plane( final int[] position )
+	{
+		int p = 0;
+		for ( int d = planeDimensions; d < position.length; ++d )
+			p += position[ d ] * steps[ d ];
+		return p;
+	}
+
+	private int index( final int[] position )
+	{
+		int i = 0;
+		for ( int d = 0; d < planeDimensions; ++d )
+			i += position[ d ] * steps[ d ];
+		return i * entities;
+	}
+
+	/**
+	 * Copy (part of) a line into a buffer.
+	 *
+	 * @param position - the first pixel of the line
+	 * @param dim - the dimension of the line
+	 * @param length - the number of pixels to copy
+	 * @param buffer - the buffer, length * entities floats are written
+	 */
+	void get( final int[] position, final int dim, final int length, final float[] buffer )
+	{
+		final int index = index( position );
+		final int plane = plane( position );
+
+		if ( dim < planeDimensions )
+		{
+			final float[] data = planes[ plane ];
+			final int stride = steps[ dim ] * entities;
+
+			if ( stride == entities )
+				System.arraycopy( data, index, buffer, 0, length * entities );
+			else if ( entities == 1 )
+				for ( int i = 0, j = index; i < length; ++i, j += stride )
+					buffer[ i ] = data[ j ];
+			else
+				for ( int i = 0, j = index; i < 2 * length; i += 2, j += stride )
+				{
+					buffer[ i ] = data[ j ];
+					buffer[ i + 1 ] = data[ j + 1 ];
+				}
+		}
+		else
+		{
+			final int planeStep = steps[ dim ];
+
+			for ( int i = 0, p = plane; i < length * entities; i += entities, p += planeStep )
+				for ( int e = 0; e < entities; ++e )
+					buffer[ i + e ] = planes[ p ][ index + e ];
+		}
+	}
+
+	/**
+	 * Copy (part of) a buffer into a line.
+	 *
+	 * @param position - the first pixel of the line
+	 * @param dim - the dimension of the line
+	 * @param buffer - the buffer
+	 * @param offset - the first pixel in the buffer
+	 * @param length - the number of pixels to copy
+	 * @param divisor - every value is divided by divisor
+	 */
+	void set( final int[] position, final int dim, final float[] buffer, final int offset, final int length, final float divisor )
+	{
+		final int index = index( position );
+		final int plane = plane( position );
+		final int start = offset * entities;
+		final int end = start + length * entities;
+
+		if ( dim < planeDimensions )
+		{
+			final float[] data = planes[ plane ];
+			final int stride = steps[ dim ] * entities;
+
+			if ( stride == entities && divisor == 1 )
+				System.arraycopy( buffer, start, data, index, length * entities );
+			else if ( stride == entities )
+				for ( int i = start, j = index; i < end; ++i, ++j )
+					data[ j ] = buffer[ i ] / divisor;
+			else if ( entities == 1 )
+				for ( int i = start, j = index; i < end; ++i, j += stride )
+					data[ j ] = buffer[ i ] / divisor;
+			else
+				for ( int i = start, j = index; i < end; i += 2, j += stride )
+				{
+					data[ j ] = buffer[ i ] / divisor;
+					data[ j + 1 ] = buffer[ i + 1 ] / divisor;
+				}
+		}
+		else
+		{
+			final int planeStep = steps[ dim ];
+
+			for ( int i = start, p = plane; i < end; i += entities, p += planeStep )
+				for ( int e = 0; e < entities; ++e )
+					planes[ p ][ index + e ] = buffer[ i + e ] / divisor;
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package net.imglib2.algorithm.fft2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.Dimensions;
+import net.imglib2.FinalDimensions;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.blocks.BlockProcessing;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.complex.ComplexFloatType;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+
+/**
+ * Computes the convolution of an image with a kernel block by block using the overlap-save method. The output is divided into blocks,
+ * for each block the input is read from the block plus the kernel border, transformed, multiplied with the kernel FFT and the valid
+ * part is written into the output block. Blocks are processed in parallel, the kernel FFT is computed once per block size and shared
+ * by all blocks through a {@link FFTConvolutionCache}.
+ *
+ * The memory required only depends on the block size and the number of blocks processed in parallel, not on the size of the image,
+ * and the image size is not limited to int-sized lines. The input and output can be any (e.g. cell-based) images.
+ * NOTE: The output must not be the input, as every block reads the input around it.
+ * The result is identical to {@link FFTConvolution} up to rounding.
+ *
+ * @author ImgLib2 developers
+ */
+public class TiledFFTConvolution < R extends RealType< R > > implements Runnable
+{
+	/**
+	 * The default minimal size of a block in every dimension (the actual size is chosen such that the padded block is fast to transform).
+	 */
+	final public static int DEFAULT_BLOCK_SIZE = 256;
+
+	final RandomAccessible< R > img, kernel;
+	final Interval imgInterval, kernelInterval;
+	final RandomAccessibleInterval< R > output;
+
+	ImgFactory< ComplexFloatType > fftFactory = new ArrayImgFactory< ComplexFloatType >();
+	FFTConvolutionCache cache = new FFTConvolutionCache();
+	TaskExecutor executor = TaskExecutor.getDefault();
+	int numParallelBlocks;
+	long[] blockSize;
+
+	/**
+	 * Compute a tiled Fourier space based convolution.
+	 * The image will be extended by mirroring with single boundary, the kernel will be zero-padded.
+	 *
+	 * @param img - the image
+	 * @param kernel - the convolution kernel
+	 * @param output - the result of the convolution, the same size as the image
+	 */
+	public TiledFFTConvolution( final RandomAccessibleInterval< R > img, final RandomAccessibleInterval< R > kernel, final RandomAccessibleInterval< R > output )
+	{
+		this( Views.extendMirrorSingle( img ), img, Views.extendValue( kernel, Util.getTypeFromInterval( kernel ).createVariable() ), kernel, output );
+	}
+
+	/**
+	 * Compute a tiled Fourier space based convolution.
+	 * The input as well as the kernel need to be extended or infinite already as every block is read including the kernel border.
+	 *
+	 * @param img - the input
+	 * @param imgInterval - the input interval (i.e. the area to be convolved)
+	 * @param kernel - the kernel
+	 * @param kernelInterval - the kernel interval
+	 * @param output - the output data+interval, the same size as imgInterval
+	 */
+	public TiledFFTConvolution( final RandomAccessible< R > img, final Interval imgInterval, final RandomAccessible< R > kernel, final Interval kernelInterval, final RandomAccessibleInterval< R > output )
+	{
+		this.img = img;
+		this.imgInterval = imgInterval;
+		this.kernel = kernel;
+		this.kernelInterval = kernelInterval;
+		this.output = output;
+		this.numParallelBlocks = executor.getParallelism();
+		this.blockSize = suggestBlockSize( imgInterval, kernelInterval, DEFAULT_BLOCK_SIZE );
+	}
+
+	/**
+	 * @param blockSize - the size of the output blocks, each block is padded by the kernel size - 1 for the FFT
+	 */
+	public void setBlockSize( final long[] blockSize ) { this.blockSize = blockSize.clone(); }
+	public long[] blockSize() { return blockSize.clone(); }
+
+	/**
+	 * @param numParallelBlocks - the maximal number of blocks processed at the same time, this bounds the memory required
+	 */
+	public void setNumParallelBlocks( final int numParallelBlocks ) { this.numParallelBlocks = numParallelBlocks; }
+	public int numParallelBlocks() { return numParallelBlocks; }
+
+	public void setTaskExecutor( final TaskExecutor executor ) { this.executor = executor; }
+	public void setFFTImgFactory( final ImgFactory< ComplexFloatType > factory ) { this.fftFactory = factory; }
+	public ImgFactory< ComplexFloatType > fftImgFactory() { return fftFactory; }
+
+	/**
+	 * @param cache - holds the kernel FFTs, can be shared with other convolutions using the same kernel
+	 */
+	public void setCache( final FFTConvolutionCache cache ) { this.cache = cache; }
+	public FFTConvolutionCache cache() { return cache; }
+
+	@Override
+	public void run()
+	{
+		final int numDimensions = imgInterval.numDimensions();
+		final long[] offset = new long[ numDimensions ];
+
+		// blocks are computed in output coordinates, offset maps them to input coordinates
+		for ( int d = 0; d < numDimensions; ++d )
+			offset[ d ] = imgInterval.min( d ) - output.min( d );
+
+		final List< Interval > blocks = BlockProcessing.divideIntoBlocks( output, blockSize );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( blocks.size() );
+
+		for ( final Interval block : blocks )
+		{
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final long[] min = new long[ numDimensions ];
+					final long[] max = new long[ numDimensions ];
+
+					for ( int d = 0; d < numDimensions; ++d )
+					{
+						min[ d ] = block.min( d ) + offset[ d ];
+						max[ d ] = block.max( d ) + offset[ d ];
+					}
+
+					final Interval imgBlock = new FinalInterval( min, max );
+					final FFTConvolution< R > convolution = new FFTConvolution< R >( img, imgBlock, kernel, kernelInterval, Views.interval( output, block ), fftFactory );
+					convolution.setCache( cache );
+					convolution.setNumThreads( 1 );
+					convolution.run();
+				}
+			} );
+		}
+
+		executor.run( tasks, Math.max( 1, numParallelBlocks ) );
+	}
+
+	/**
+	 * Suggest a block size of at least minBlockSize (or the image size if it is smaller) in every dimension
+	 * such that the padded block (block size + kernel size - 1) is a size the FFT can compute fast.
+	 *
+	 * @param imgDimensions - the size of the image
+	 * @param kernelDimensions - the size of the kernel
+	 * @param minBlockSize - the minimal block size
+	 * @return the block size
+	 */
+	public static long[] suggestBlockSize( final Dimensions imgDimensions, final Dimensions kernelDimensions, final long minBlockSize )
+	{
+		final int numDimensions = imgDimensions.numDimensions();
+		final long[] blockSize = new long[ numDimensions ];
+
+		for ( int d = 0; d < numDimensions; ++d )
+			blockSize[ d ] = Math.min( minBlockSize, imgDimensions.dimension( d ) );
+
+		final Dimensions padded = FFTConvolutionCache.plan( FinalDimensions.wrap( blockSize ), kernelDimensions ).getPaddedDimensions();
+
+		for ( int d = 0; d < numDimensions; ++d )
+			blockSize[ d ] = Math.max( 1, Math.min( padded.dimension( d ) - kernelDimensions.dimension( d ) + 1, imgDimensions.dimension( d ) ) );
+
+		return blockSize;
+	}
+}
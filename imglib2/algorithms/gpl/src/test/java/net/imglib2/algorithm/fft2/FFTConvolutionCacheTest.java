@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.fft2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.numeric.complex.ComplexFloatType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests sharing kernel FFTs between {@link FFTConvolution FFTConvolutions}
+ * through a {@link FFTConvolutionCache}.
+ *
+ * @author ImgLib2 developers
+ */
+public class FFTConvolutionCacheTest
+{
+	final long[] imgDimensions = new long[] { 23, 17 };
+
+	final long[] kernelDimensions = new long[] { 5, 3 };
+
+	private Img< FloatType > randomImg( final long[] dimensions, final long seed )
+	{
+		final Img< FloatType > img = new ArrayImgFactory< FloatType >().create( dimensions, new FloatType() );
+		final Random random = new Random( seed );
+		for ( final FloatType t : img )
+			t.set( random.nextFloat() );
+		return img;
+	}
+
+	@Test
+	public void testPlan()
+	{
+		final Img< FloatType > img = randomImg( imgDimensions, 1 );
+		final Img< FloatType > kernel = randomImg( kernelDimensions, 2 );
+		assertSame( FFTConvolutionCache.plan( img, kernel ), FFTConvolutionCache.plan( img, kernel ) );
+	}
+
+	@Test
+	public void testSharedKernelSpectrum()
+	{
+		final Img< FloatType > kernel = randomImg( kernelDimensions, 2 );
+		final FFTConvolutionCache cache = new FFTConvolutionCache();
+		final ArrayImgFactory< ComplexFloatType > factory = new ArrayImgFactory< ComplexFloatType >();
+
+		Img< ComplexFloatType > kernelFFT = null;
+		for ( int i = 0; i < 3; ++i )
+		{
+			final Img< FloatType > img = randomImg( imgDimensions, 10 + i );
+			final Img< FloatType > output = img.factory().create( img, new FloatType() );
+			final FFTConvolution< FloatType > convolution = new FFTConvolution< FloatType >( img, kernel, output, factory );
+			convolution.setCache( cache );
+			convolution.run();
+
+			if ( kernelFFT == null )
+				kernelFFT = convolution.kernelFFT();
+			else
+				assertSame( kernelFFT, convolution.kernelFFT() );
+			assertEquals( 1, cache.numSpectra() );
+
+			assertConvolution( img, kernel, output );
+		}
+
+		cache.clear();
+		assertEquals( 0, cache.numSpectra() );
+	}
+
+	/**
+	 * Compare with the convolution computed in image space (mirrored boundary).
+	 */
+	private void assertConvolution( final Img< FloatType > img, final Img< FloatType > kernel, final Img< FloatType > output )
+	{
+		final RandomAccessible< FloatType > extended = Views.extendMirrorSingle( img );
+		final RandomAccess< FloatType > in = extended.randomAccess();
+		final RandomAccess< FloatType > k = kernel.randomAccess();
+		final long[] center = new long[] { kernelDimensions[ 0 ] / 2, kernelDimensions[ 1 ] / 2 };
+		final Cursor< FloatType > c = output.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			double sum = 0;
+			for ( int y = 0; y < kernelDimensions[ 1 ]; ++y )
+				for ( int x = 0; x < kernelDimensions[ 0 ]; ++x )
+				{
+					k.setPosition( x, 0 );
+					k.setPosition( y, 1 );
+					in.setPosition( c.getLongPosition( 0 ) - x + center[ 0 ], 0 );
+					in.setPosition( c.getLongPosition( 1 ) - y + center[ 1 ], 1 );
+					sum += k.get().get() * in.get().get();
+				}
+			assertEquals( sum, c.get().get(), 1e-3 );
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.fft2;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.numeric.complex.ComplexFloatType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Checks that the direct access to float array backed images in {@link FFTMethods} gives the same results as the
+ * {@link RandomAccess} based computation (which is used for views and {@link net.imglib2.img.cell.CellImg CellImgs}).
+ *
+ * @author ImgLib2 developers
+ */
+public class FFTMethodsTest
+{
+	final long[] dimensions = new long[] { 12, 7, 5 };
+
+	@Test
+	public void testArrayImg()
+	{
+		testFactory( new ArrayImgFactory< FloatType >(), new ArrayImgFactory< ComplexFloatType >() );
+	}
+
+	@Test
+	public void testPlanarImg()
+	{
+		testFactory( new PlanarImgFactory< FloatType >(), new PlanarImgFactory< ComplexFloatType >() );
+	}
+
+	private void testFactory( final ImgFactory< FloatType > factory, final ImgFactory< ComplexFloatType > complexFactory )
+	{
+		final Img< FloatType > img = factory.create( dimensions, new FloatType() );
+		final Random random = new Random( 1l );
+		for ( final FloatType t : img )
+			t.set( random.nextFloat() );
+
+		final long[] fftDimensions = new long[] { dimensions[ 0 ] / 2 + 1, dimensions[ 1 ], dimensions[ 2 ] };
+
+		// direct access
+		final Img< ComplexFloatType > fft = complexFactory.create( fftDimensions, new ComplexFloatType() );
+		FFT.realToComplex( img, fft );
+
+		// random access (views and cells are not accessed directly)
+		final Img< ComplexFloatType > expectedFFT = new CellImgFactory< ComplexFloatType >( 3 ).create( fftDimensions, new ComplexFloatType() );
+		FFT.realToComplex( Views.interval( img, img ), expectedFFT );
+
+		assertComplexEquals( expectedFFT, fft );
+
+		final Img< FloatType > inverse = factory.create( dimensions, new FloatType() );
+		FFT.complexToReal( fft, inverse );
+
+		final Img< FloatType > expectedInverse = new CellImgFactory< FloatType >( 3 ).create( dimensions, new FloatType() );
+		FFT.complexToReal( Views.interval( expectedFFT, expectedFFT ), expectedInverse );
+
+		assertRealEquals( expectedInverse, inverse );
+		assertRealEquals( img, inverse );
+	}
+
+	private void assertComplexEquals( final RandomAccessibleInterval< ComplexFloatType > expected, final Img< ComplexFloatType > actual )
+	{
+		final Cursor< ComplexFloatType > c = actual.localizingCursor();
+		final RandomAccess< ComplexFloatType > r = expected.randomAccess();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			r.setPosition( c );
+			assertEquals( r.get().getRealFloat(), c.get().getRealFloat(), 1e-4 );
+			assertEquals( r.get().getImaginaryFloat(), c.get().getImaginaryFloat(), 1e-4 );
+		}
+	}
+
+	private void assertRealEquals( final RandomAccessibleInterval< FloatType > expected, final Img< FloatType > actual )
+	{
+		final Cursor< FloatType > c = actual.localizingCursor();
+		final RandomAccess< FloatType > r = expected.randomAccess();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			r.setPosition( c );
+			assertEquals( r.get().get(), c.get().get(), 1e-4 );
+		}
+	}
+}
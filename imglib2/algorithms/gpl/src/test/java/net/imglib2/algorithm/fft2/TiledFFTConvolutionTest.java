@@ -0,0 +1,120 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.fft2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.Dimensions;
+import net.imglib2.FinalDimensions;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.type.numeric.complex.ComplexFloatType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Compares {@link TiledFFTConvolution} with {@link FFTConvolution}.
+ *
+ * @author ImgLib2 developers
+ */
+public class TiledFFTConvolutionTest
+{
+	final long[] imgDimensions = new long[] { 31, 23, 6 };
+
+	final long[] kernelDimensions = new long[] { 5, 4, 3 };
+
+	private Img< FloatType > randomImg( final long[] dimensions, final long seed )
+	{
+		final Img< FloatType > img = new ArrayImgFactory< FloatType >().create( dimensions, new FloatType() );
+		final Random random = new Random( seed );
+		for ( final FloatType t : img )
+			t.set( random.nextFloat() );
+		return img;
+	}
+
+	@Test
+	public void testTiledEqualsUntiled()
+	{
+		final Img< FloatType > img = randomImg( imgDimensions, 1 );
+		final Img< FloatType > kernel = randomImg( kernelDimensions, 2 );
+
+		final Img< FloatType > expected = img.factory().create( img, new FloatType() );
+		new FFTConvolution< FloatType >( img, kernel, expected, new ArrayImgFactory< ComplexFloatType >() ).run();
+
+		final Img< FloatType > tiled = new CellImgFactory< FloatType >( 8 ).create( imgDimensions, new FloatType() );
+		final TiledFFTConvolution< FloatType > convolution = new TiledFFTConvolution< FloatType >( img, kernel, tiled );
+		convolution.setBlockSize( new long[] { 10, 8, 4 } );
+		convolution.run();
+
+		// two block sizes in every dimension
+		assertEquals( 8, convolution.cache().numSpectra() );
+
+		final Cursor< FloatType > c = tiled.localizingCursor();
+		final RandomAccess< FloatType > r = expected.randomAccess();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			r.setPosition( c );
+			assertEquals( r.get().get(), c.get().get(), 1e-4 );
+		}
+	}
+
+	@Test
+	public void testSuggestBlockSize()
+	{
+		final Img< FloatType > img = randomImg( imgDimensions, 1 );
+		final Img< FloatType > kernel = randomImg( kernelDimensions, 2 );
+		final long[] blockSize = TiledFFTConvolution.suggestBlockSize( img, kernel, 16 );
+		final Dimensions padded = FFTConvolutionCache.plan( FinalDimensions.wrap( blockSize ), kernel ).getPaddedDimensions();
+		for ( int d = 0; d < blockSize.length; ++d )
+		{
+			assertTrue( blockSize[ d ] >= Math.min( 16, imgDimensions[ d ] ) );
+			assertTrue( blockSize[ d ] <= imgDimensions[ d ] );
+
+			// blocks that are not cut by the image need no further padding
+			if ( blockSize[ d ] < imgDimensions[ d ] )
+				assertEquals( blockSize[ d ] + kernelDimensions[ d ] - 1, padded.dimension( d ) );
+		}
+	}
+}
@@ -0,0 +1,347 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.collection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.RealInterval;
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPositionable;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.util.KthElement;
+
+/**
+ * KDTree over point coordinates that are stored in a single flat
+ * {@code double[]}.
+ *
+ * <p>
+ * Unlike {@link KDTree}, no object is allocated per point. The tree is stored
+ * in an implicit balanced layout: the points of a subtree occupy a contiguous
+ * range {@code [i,j]} of node indices, the root of the subtree is the node
+ * {@code (i+j)/2}, and its left and right subtrees are {@code [i,(i+j)/2-1]}
+ * and {@code [(i+j)/2+1,j]}. Subtrees at depth {@code k} are split along
+ * dimension {@code k % n}.
+ * </p>
+ *
+ * <p>
+ * Nodes do not store values. Instead, {@link #getIndex(int)} gives the index
+ * of the point in the list or array from which the tree was built, which can
+ * be used to look up associated values.
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class FlatKDTree implements RealInterval
+{
+	/**
+	 * the number of dimensions.
+	 */
+	final protected int n;
+
+	/**
+	 * the number of nodes in the tree.
+	 */
+	final protected int size;
+
+	/**
+	 * coordinates of the nodes, node {@code i} occupies the elements
+	 * {@code [i*n,(i+1)*n)}.
+	 */
+	final protected double[] positions;
+
+	/**
+	 * for every node, the index of the corresponding point in the original
+	 * list of points.
+	 */
+	final protected int[] indices;
+
+	/**
+	 * minimum of each dimension.
+	 */
+	final protected double[] min;
+
+	/**
+	 * maximum of each dimension.
+	 */
+	final protected double[] max;
+
+	/**
+	 * Construct a tree from point coordinates using the default
+	 * {@link TaskExecutor}.
+	 *
+	 * @param numDimensions
+	 *            number of dimensions of the points.
+	 * @param coordinates
+	 *            flat array of coordinates, point {@code i} occupies the
+	 *            elements {@code [i*numDimensions,(i+1)*numDimensions)}. The
+	 *            array is not modified.
+	 */
+	public FlatKDTree( final int numDimensions, final double[] coordinates )
+	{
+		this( numDimensions, coordinates, TaskExecutor.getDefault() );
+	}
+
+	/**
+	 * Construct a tree from point coordinates. Subtrees are built in parallel
+	 * on the given {@link TaskExecutor}.
+	 *
+	 * @param numDimensions
+	 *            number of dimensions of the points.
+	 * @param coordinates
+	 *            flat array of coordinates, point {@code i} occupies the
+	 *            elements {@code [i*numDimensions,(i+1)*numDimensions)}. The
+	 *            array is not modified.
+	 * @param executor
+	 *            runs the construction of subtrees.
+	 */
+	public FlatKDTree( final int numDimensions, final double[] coordinates, final TaskExecutor executor )
+	{
+		if ( numDimensions < 1 || coordinates.length % numDimensions != 0 )
+			throw new IllegalArgumentException( "Number of coordinates (" + coordinates.length + ") is not a multiple of the number of dimensions (" + numDimensions + ")." );
+
+		n = numDimensions;
+		size = coordinates.length / n;
+		min = new double[ n ];
+		max = new double[ n ];
+
+		indices = new int[ size ];
+		for ( int i = 0; i < size; ++i )
+			indices[ i ] = i;
+
+		if ( size > 0 )
+			build( coordinates, new double[ size ], 0, size - 1, 0, executor );
+
+		positions = new double[ size * n ];
+		for ( int i = 0; i < size; ++i )
+			System.arraycopy( coordinates, indices[ i ] * n, positions, i * n, n );
+		computeBounds();
+	}
+
+	/**
+	 * Construct a tree from a list of points using the default
+	 * {@link TaskExecutor}.
+	 *
+	 * @param points
+	 *            the points, must not be empty. Node indices refer to
+	 *            positions in this list.
+	 */
+	public FlatKDTree( final List< ? extends RealLocalizable > points )
+	{
+		this( points.get( 0 ).numDimensions(), flatten( points ) );
+	}
+
+	private static double[] flatten( final List< ? extends RealLocalizable > points )
+	{
+		final int n = points.get( 0 ).numDimensions();
+		final double[] coordinates = new double[ points.size() * n ];
+		int i = 0;
+		for ( final RealLocalizable p : points )
+			for ( int d = 0; d < n; ++d )
+				coordinates[ i++ ] = p.getDoublePosition( d );
+		return coordinates;
+	}
+
+	/**
+	 * Subtrees with more nodes than this are built in parallel.
+	 */
+	private static final int PARALLEL_BUILD_SIZE = ( int ) TaskExecutor.MIN_ELEMENTS_PER_TASK;
+
+	/**
+	 * Reorder {@link #indices} in {@code [i,j]} such that they form the
+	 * subtree at the given depth.
+	 *
+	 * @param coordinates
+	 *            original point coordinates.
+	 * @param tmp
+	 *            temporary storage for the split coordinates. Subtrees use
+	 *            disjoint ranges, so it can be shared between threads.
+	 */
+	private void build( final double[] coordinates, final double[] tmp, final int i, final int j, final int depth, final TaskExecutor executor )
+	{
+		if ( j < i )
+			return;
+		final int d = depth % n;
+		final int m = ( i + j ) >>> 1;
+		for ( int k = i; k <= j; ++k )
+			tmp[ k ] = coordinates[ indices[ k ] * n + d ];
+		KthElement.kthElement( i, j, m, tmp, indices );
+
+		if ( j - i > PARALLEL_BUILD_SIZE && executor.getParallelism() > 1 )
+		{
+			final ArrayList< Runnable > tasks = new ArrayList< Runnable >( 2 );
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					build( coordinates, tmp, i, m - 1, depth + 1, executor );
+				}
+			} );
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					build( coordinates, tmp, m + 1, j, depth + 1, executor );
+				}
+			} );
+			executor.run( tasks );
+		}
+		else
+		{
+			build( coordinates, tmp, i, m - 1, depth + 1, executor );
+			build( coordinates, tmp, m + 1, j, depth + 1, executor );
+		}
+	}
+
+	private void computeBounds()
+	{
+		for ( int d = 0; d < n; ++d )
+		{
+			min[ d ] = Double.POSITIVE_INFINITY;
+			max[ d ] = Double.NEGATIVE_INFINITY;
+		}
+		for ( int i = 0; i < size; ++i )
+		{
+			for ( int d = 0; d < n; ++d )
+			{
+				final double x = positions[ i * n + d ];
+				if ( x < min[ d ] )
+					min[ d ] = x;
+				if ( x > max[ d ] )
+					max[ d ] = x;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of nodes in the tree.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Get the index of the point stored at the given node, i.e., the index of
+	 * the point in the coordinates array or list from which the tree was
+	 * built.
+	 *
+	 * @param node
+	 *            node index.
+	 */
+	public int getIndex( final int node )
+	{
+		return indices[ node ];
+	}
+
+	/**
+	 * Get a coordinate of the given node.
+	 *
+	 * @param node
+	 *            node index.
+	 * @param d
+	 *            dimension.
+	 */
+	public double getPosition( final int node, final int d )
+	{
+		return positions[ node * n + d ];
+	}
+
+	/**
+	 * Get the flat array of node coordinates. Node {@code i} occupies the
+	 * elements {@code [i*n,(i+1)*n)}. The array must not be modified.
+	 */
+	public double[] getPositions()
+	{
+		return positions;
+	}
+
+	/**
+	 * Get the array of point indices for all nodes, see
+	 * {@link #getIndex(int)}. The array must not be modified.
+	 */
+	public int[] getIndices()
+	{
+		return indices;
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	@Override
+	public double realMin( final int d )
+	{
+		return min[ d ];
+	}
+
+	@Override
+	public void realMin( final double[] m )
+	{
+		for ( int d = 0; d < n; ++d )
+			m[ d ] = min[ d ];
+	}
+
+	@Override
+	public void realMin( final RealPositionable m )
+	{
+		m.setPosition( min );
+	}
+
+	@Override
+	public double realMax( final int d )
+	{
+		return max[ d ];
+	}
+
+	@Override
+	public void realMax( final double[] m )
+	{
+		for ( int d = 0; d < n; ++d )
+			m[ d ] = max[ d ];
+	}
+
+	@Override
+	public void realMax( final RealPositionable m )
+	{
+		m.setPosition( max );
+	}
+}
@@ -58,9 +58,9 @@ public class CompositeXYRandomAccessibleProjector< A > extends AbstractXYProject
 {
 	final protected RandomAccessibleInterval< ARGBType > target;
 
-	private final ArrayList< Converter< A, ARGBType > > converters;
+	protected final ArrayList< Converter< A, ARGBType > > converters;
 
-	private final int dimIndex;
+	protected final int dimIndex;
 
 	private final long positionCount;
 
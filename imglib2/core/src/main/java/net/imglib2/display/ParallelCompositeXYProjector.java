@@ -0,0 +1,223 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+package net.imglib2.display;
+
+import java.util.ArrayList;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converter;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.type.numeric.ARGBType;
+
+/**
+ * A {@link CompositeXYRandomAccessibleProjector} that splits the target into
+ * bands of rows and renders them in parallel. Every band uses its own source
+ * and target {@link RandomAccess} and its own temporary {@link ARGBType}. The
+ * {@link Converter}s are shared by all bands, so their convert() methods must
+ * not modify the converters (which is the case for all converters in this
+ * package).
+ *
+ * A {@link #map()} can be aborted from another thread by {@link #cancel()},
+ * e.g., when a newer rendering request arrives. Bands check for cancellation
+ * after every row. A cancel() stays in effect until {@link #resetCanceled()}
+ * is called, so that it also aborts a map() that has not started yet.
+ *
+ * @author ImgLib2 developers
+ */
+public class ParallelCompositeXYProjector< A > extends CompositeXYRandomAccessibleProjector< A >
+{
+	final protected TaskExecutor executor;
+
+	protected volatile boolean canceled;
+
+	public ParallelCompositeXYProjector( final RandomAccessibleInterval< A > source, final RandomAccessibleInterval< ARGBType > target, final ArrayList< Converter< A, ARGBType > > converters, final int dimIndex )
+	{
+		this( source, target, converters, dimIndex, TaskExecutor.getDefault() );
+	}
+
+	public ParallelCompositeXYProjector( final RandomAccessibleInterval< A > source, final RandomAccessibleInterval< ARGBType > target, final ArrayList< Converter< A, ARGBType > > converters, final int dimIndex, final TaskExecutor executor )
+	{
+		super( source, target, converters, dimIndex );
+		this.executor = executor;
+		canceled = false;
+	}
+
+	/**
+	 * Abort the currently running or next {@link #map()}. Rows that have not
+	 * been rendered yet keep their previous values.
+	 */
+	public void cancel()
+	{
+		canceled = true;
+	}
+
+	/**
+	 * Clear a previous {@link #cancel()}, so that the next {@link #map()}
+	 * renders. Call this when the state that the next map() renders is
+	 * fixed, so that a cancel() for a newer state aborts it.
+	 */
+	public void resetCanceled()
+	{
+		canceled = false;
+	}
+
+	/**
+	 * @return whether {@link #map()} was canceled since the last
+	 *         {@link #resetCanceled()}.
+	 */
+	public boolean isCanceled()
+	{
+		return canceled;
+	}
+
+	@Override
+	public void map()
+	{
+		for ( int d = 2; d < position.length; ++d )
+			min[ d ] = max[ d ] = position[ d ];
+
+		min[ 0 ] = target.min( 0 );
+		min[ 1 ] = target.min( 1 );
+		max[ 0 ] = target.max( 0 );
+		max[ 1 ] = target.max( 1 );
+
+		final int size;
+		final long[] positions;
+		final Converter< A, ARGBType >[] activeConverters;
+		if ( dimIndex < 0 )
+		{
+			// there is only converter[0]
+			// use it to map the current position
+			size = 1;
+			positions = null;
+			activeConverters = currentConverters.clone();
+			activeConverters[ 0 ] = converters.get( 0 );
+		}
+		else
+		{
+			size = updateCurrentArrays();
+			positions = currentPositions.clone();
+			activeConverters = currentConverters.clone();
+
+			min[ dimIndex ] = max[ dimIndex ] = positions[ 0 ];
+			for ( int i = 1; i < size; ++i )
+				if ( positions[ i ] < min[ dimIndex ] )
+					min[ dimIndex ] = positions[ i ];
+				else if ( positions[ i ] > max[ dimIndex ] )
+					max[ dimIndex ] = positions[ i ];
+		}
+
+		final long width = target.dimension( 0 );
+		final long height = target.dimension( 1 );
+		final int numBands = ( int ) Math.min( height, TaskExecutor.suggestNumTasks( width * height * size, executor.getParallelism() ) );
+
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( numBands );
+		for ( int i = 0; i < numBands; ++i )
+		{
+			final long[] bandMin = min.clone();
+			final long[] bandMax = max.clone();
+			bandMin[ 1 ] = min[ 1 ] + height * i / numBands;
+			bandMax[ 1 ] = min[ 1 ] + height * ( i + 1 ) / numBands - 1;
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					mapBand( bandMin, bandMax, size, positions, activeConverters );
+				}
+			} );
+		}
+		executor.run( tasks );
+	}
+
+	/**
+	 * Render the rows bandMin[1] to bandMax[1] of the target, summing the
+	 * converted values at the given positions along {@link #dimIndex}.
+	 */
+	protected void mapBand( final long[] bandMin, final long[] bandMax, final int size, final long[] positions, final Converter< A, ARGBType >[] activeConverters )
+	{
+		final RandomAccess< A > sourceRandomAccess = source.randomAccess( new FinalInterval( bandMin, bandMax ) );
+		final RandomAccess< ARGBType > targetRandomAccess = target.randomAccess();
+		sourceRandomAccess.setPosition( bandMin );
+		if ( positions != null )
+			sourceRandomAccess.setPosition( positions[ 0 ], dimIndex );
+
+		final ARGBType bi = new ARGBType();
+
+		targetRandomAccess.setPosition( bandMin[ 1 ], 1 );
+		while ( targetRandomAccess.getLongPosition( 1 ) <= bandMax[ 1 ] && !canceled )
+		{
+			sourceRandomAccess.setPosition( bandMin[ 0 ], 0 );
+			targetRandomAccess.setPosition( bandMin[ 0 ], 0 );
+			while ( targetRandomAccess.getLongPosition( 0 ) <= bandMax[ 0 ] )
+			{
+				if ( size == 1 )
+					activeConverters[ 0 ].convert( sourceRandomAccess.get(), targetRandomAccess.get() );
+				else
+				{
+					int aSum = 0, rSum = 0, gSum = 0, bSum = 0;
+					for ( int i = 0; i < size; i++ )
+					{
+						sourceRandomAccess.setPosition( positions[ i ], dimIndex );
+						activeConverters[ i ].convert( sourceRandomAccess.get(), bi );
+
+						// accumulate converted result
+						final int value = bi.get();
+						aSum += ARGBType.alpha( value );
+						rSum += ARGBType.red( value );
+						gSum += ARGBType.green( value );
+						bSum += ARGBType.blue( value );
+					}
+					if ( aSum > 255 )
+						aSum = 255;
+					if ( rSum > 255 )
+						rSum = 255;
+					if ( gSum > 255 )
+						gSum = 255;
+					if ( bSum > 255 )
+						bSum = 255;
+					targetRandomAccess.get().set( ARGBType.rgba( rSum, gSum, bSum, aSum ) );
+				}
+				sourceRandomAccess.fwd( 0 );
+				targetRandomAccess.fwd( 0 );
+			}
+			sourceRandomAccess.fwd( 1 );
+			targetRandomAccess.fwd( 1 );
+		}
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+package net.imglib2.display;
+
+import java.util.ArrayList;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converter;
+import net.imglib2.multithreading.TaskExecutor;
+
+/**
+ * A {@link XYRandomAccessibleProjector} that splits the target into bands of
+ * rows and renders them in parallel. Every band uses its own source and target
+ * {@link RandomAccess}. The {@link Converter} is shared by all bands, so its
+ * convert() method must not modify the converter (which is the case for all
+ * converters in this package).
+ *
+ * A {@link #map()} can be aborted from another thread by {@link #cancel()},
+ * e.g., when a newer rendering request arrives. Bands check for cancellation
+ * after every row. A cancel() stays in effect until {@link #resetCanceled()}
+ * is called, so that it also aborts a map() that has not started yet.
+ *
+ * @author ImgLib2 developers
+ */
+public class ParallelXYProjector< A, B > extends XYRandomAccessibleProjector< A, B >
+{
+	final protected TaskExecutor executor;
+
+	protected volatile boolean canceled;
+
+	public ParallelXYProjector( final RandomAccessible< A > source, final RandomAccessibleInterval< B > target, final Converter< A, B > converter )
+	{
+		this( source, target, converter, TaskExecutor.getDefault() );
+	}
+
+	public ParallelXYProjector( final RandomAccessible< A > source, final RandomAccessibleInterval< B > target, final Converter< A, B > converter, final TaskExecutor executor )
+	{
+		super( source, target, converter );
+		this.executor = executor;
+		canceled = false;
+	}
+
+	/**
+	 * Abort the currently running or next {@link #map()}. Rows that have not
+	 * been rendered yet keep their previous values.
+	 */
+	public void cancel()
+	{
+		canceled = true;
+	}
+
+	/**
+	 * Clear a previous {@link #cancel()}, so that the next {@link #map()}
+	 * renders. Call this when the state that the next map() renders is
+	 * fixed, so that a cancel() for a newer state aborts it.
+	 */
+	public void resetCanceled()
+	{
+		canceled = false;
+	}
+
+	/**
+	 * @return whether {@link #map()} was canceled since the last
+	 *         {@link #resetCanceled()}.
+	 */
+	public boolean isCanceled()
+	{
+		return canceled;
+	}
+
+	@Override
+	public void map()
+	{
+		for ( int d = 2; d < position.length; ++d )
+			min[ d ] = max[ d ] = position[ d ];
+
+		min[ 0 ] = target.min( 0 );
+		min[ 1 ] = target.min( 1 );
+		max[ 0 ] = target.max( 0 );
+		max[ 1 ] = target.max( 1 );
+
+		final long width = target.dimension( 0 );
+		final long height = target.dimension( 1 );
+		final int numBands = ( int ) Math.min( height, TaskExecutor.suggestNumTasks( width * height, executor.getParallelism() ) );
+
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( numBands );
+		for ( int i = 0; i < numBands; ++i )
+		{
+			final long[] bandMin = min.clone();
+			final long[] bandMax = max.clone();
+			bandMin[ 1 ] = min[ 1 ] + height * i / numBands;
+			bandMax[ 1 ] = min[ 1 ] + height * ( i + 1 ) / numBands - 1;
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					mapBand( bandMin, bandMax );
+				}
+			} );
+		}
+		executor.run( tasks );
+	}
+
+	/**
+	 * Render the rows bandMin[1] to bandMax[1] of the target.
+	 */
+	protected void mapBand( final long[] bandMin, final long[] bandMax )
+	{
+		final long cr = -( bandMax[ 0 ] - bandMin[ 0 ] + 1 );
+		final long width = bandMax[ 0 ] - bandMin[ 0 ] + 1;
+		final long height = bandMax[ 1 ] - bandMin[ 1 ] + 1;
+
+		final RandomAccess< B > targetRandomAccess = target.randomAccess( new FinalInterval( new long[] { bandMin[ 0 ], bandMin[ 1 ] }, new long[] { bandMax[ 0 ], bandMax[ 1 ] } ) );
+		final RandomAccess< A > sourceRandomAccess = source.randomAccess( new FinalInterval( bandMin, bandMax ) );
+
+		sourceRandomAccess.setPosition( bandMin );
+		targetRandomAccess.setPosition( bandMin[ 0 ], 0 );
+		targetRandomAccess.setPosition( bandMin[ 1 ], 1 );
+		for ( long y = 0; y < height && !canceled; ++y )
+		{
+			for ( long x = 0; x < width; ++x )
+			{
+				converter.convert( sourceRandomAccess.get(), targetRandomAccess.get() );
+				sourceRandomAccess.fwd( 0 );
+				targetRandomAccess.fwd( 0 );
+			}
+			sourceRandomAccess.move( cr, 0 );
+			targetRandomAccess.move( cr, 0 );
+			sourceRandomAccess.fwd( 1 );
+			targetRandomAccess.fwd( 1 );
+		}
+	}
+}
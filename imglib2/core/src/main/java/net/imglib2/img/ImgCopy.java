@@ -0,0 +1,414 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img;
+
+import java.lang.reflect.Array;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.AbstractCell;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.Cells;
+import net.imglib2.img.cell.DiskCell;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.multithreading.Chunk;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.type.Type;
+import net.imglib2.view.Views;
+
+/**
+ * Copy pixel data between images.
+ *
+ * <p>
+ * If source and target are {@link ArrayImg ArrayImgs}, {@link PlanarImg
+ * PlanarImgs} or {@link CellImg CellImgs} with the same dimensions, pixel type
+ * and storage layout, the underlying storage is copied in bulk (i.e., using
+ * {@link System#arraycopy(Object, int, Object, int, int)} per array, plane or
+ * cell). Otherwise pixels are copied one by one. In both cases the work is
+ * split into tasks that are run on a {@link TaskExecutor}.
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class ImgCopy
+{
+	/**
+	 * Copy <em>source</em> to <em>target</em> using the default
+	 * {@link TaskExecutor}.
+	 *
+	 * @param source
+	 *            source image, must be defined on the interval of
+	 *            <em>target</em>.
+	 * @param target
+	 *            target image.
+	 */
+	public static < T extends Type< T > > void copy( final RandomAccessibleInterval< T > source, final RandomAccessibleInterval< T > target )
+	{
+		copy( source, target, TaskExecutor.getDefault() );
+	}
+
+	/**
+	 * Copy <em>source</em> to <em>target</em>.
+	 *
+	 * @param source
+	 *            source image, must be defined on the interval of
+	 *            <em>target</em>.
+	 * @param target
+	 *            target image.
+	 * @param executor
+	 *            runs the copy tasks.
+	 */
+	public static < T extends Type< T > > void copy( final RandomAccessibleInterval< T > source, final RandomAccessibleInterval< T > target, final TaskExecutor executor )
+	{
+		if ( sameLayout( source, target ) )
+		{
+			if ( source instanceof ArrayImg && target instanceof ArrayImg && copyArrayImg( ( ArrayImg< ?, ? > ) source, ( ArrayImg< ?, ? > ) target, executor ) )
+				return;
+			if ( source instanceof PlanarImg && target instanceof PlanarImg && copyPlanarImg( ( PlanarImg< ?, ? > ) source, ( PlanarImg< ?, ? > ) target, executor ) )
+				return;
+			if ( source instanceof CellImg && target instanceof CellImg && copyCellImg( ( CellImg< ?, ?, ? > ) source, ( CellImg< ?, ?, ? > ) target, executor ) )
+				return;
+		}
+		copyPixels( source, target, executor );
+	}
+
+	/**
+	 * Copy pixel by pixel, in chunks of the iteration order of the target.
+	 */
+	private static < T extends Type< T > > void copyPixels( final RandomAccessibleInterval< T > source, final RandomAccessibleInterval< T > target, final TaskExecutor executor )
+	{
+		final IterableInterval< T > targetIterable = Views.iterable( target );
+		final IterableInterval< T > sourceIterable = Views.iterable( Views.interval( source, target ) );
+		final boolean sameIterationOrder = sourceIterable.iterationOrder().equals( targetIterable.iterationOrder() );
+
+		final List< Chunk > chunks = executor.divideIntoChunks( targetIterable.size() );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( chunks.size() );
+		for ( final Chunk chunk : chunks )
+		{
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					long steps = chunk.getLoopSize();
+					if ( sameIterationOrder )
+					{
+						final Cursor< T > s = sourceIterable.cursor();
+						final Cursor< T > t = targetIterable.cursor();
+						s.jumpFwd( chunk.getStartPosition() );
+						t.jumpFwd( chunk.getStartPosition() );
+						while ( steps-- > 0 )
+							t.next().set( s.next() );
+					}
+					else
+					{
+						final RandomAccess< T > s = source.randomAccess( target );
+						final Cursor< T > t = targetIterable.localizingCursor();
+						t.jumpFwd( chunk.getStartPosition() );
+						while ( steps-- > 0 )
+						{
+							t.fwd();
+							s.setPosition( t );
+							t.get().set( s.get() );
+						}
+					}
+				}
+			} );
+		}
+		executor.run( tasks );
+	}
+
+	/**
+	 * Copy the storage array of an {@link ArrayImg} in chunks.
+	 *
+	 * @return false if the storage of source and target is not compatible.
+	 */
+	private static boolean copyArrayImg( final ArrayImg< ?, ? > source, final ArrayImg< ?, ? > target, final TaskExecutor executor )
+	{
+		final Object src = storage( source.update( null ) );
+		final Object dst = storage( target.update( null ) );
+		if ( !canCopyStorage( src, dst ) )
+			return false;
+
+		final List< Chunk > chunks = executor.divideIntoChunks( storageLength( src ) );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( chunks.size() );
+		for ( final Chunk chunk : chunks )
+		{
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final int pos = ( int ) chunk.getStartPosition();
+					copyStorage( src, pos, dst, pos, ( int ) chunk.getLoopSize() );
+				}
+			} );
+		}
+		executor.run( tasks );
+		return true;
+	}
+
+	/**
+	 * Copy the planes of a {@link PlanarImg} in parallel.
+	 *
+	 * @return false if the storage of source and target is not compatible.
+	 */
+	private static boolean copyPlanarImg( final PlanarImg< ?, ? > source, final PlanarImg< ?, ? > target, final TaskExecutor executor )
+	{
+		final int numPlanes = source.numSlices();
+		if ( numPlanes != target.numSlices() || !canCopyStorage( storage( source.getPlane( 0 ) ), storage( target.getPlane( 0 ) ) ) )
+			return false;
+
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( numPlanes );
+		for ( int i = 0; i < numPlanes; ++i )
+		{
+			final int plane = i;
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final Object src = storage( source.getPlane( plane ) );
+					copyStorage( src, 0, storage( target.getPlane( plane ) ), 0, storageLength( src ) );
+				}
+			} );
+		}
+		executor.run( tasks );
+		return true;
+	}
+
+	/**
+	 * Copy the cells of a {@link CellImg} in parallel.
+	 *
+	 * @return false if the cell layout or storage of source and target is not
+	 *         compatible.
+	 */
+	private static boolean copyCellImg( final CellImg< ?, ?, ? > source, final CellImg< ?, ?, ? > target, final TaskExecutor executor )
+	{
+		final Cells< ?, ? > sourceCells = source.getCells();
+		final Cells< ?, ? > targetCells = target.getCells();
+		final int n = source.numDimensions();
+		long numCells = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			final int cellSize = sourceCells.cellDimension( d );
+			if ( cellSize != targetCells.cellDimension( d ) )
+				return false;
+			numCells *= ( source.dimension( d ) + cellSize - 1 ) / cellSize;
+		}
+		if ( numCells == 0 )
+			return true;
+		if ( !canCopyStorage( storage( sourceCells.cursor().next().getData() ), storage( targetCells.cursor().next().getData() ) ) )
+			return false;
+
+		final List< Chunk > chunks = executor.divideIntoChunks( numCells );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( chunks.size() );
+		for ( final Chunk chunk : chunks )
+		{
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final Cursor< ? extends AbstractCell< ? > > s = sourceCells.cursor();
+					final Cursor< ? extends AbstractCell< ? > > t = targetCells.cursor();
+					s.jumpFwd( chunk.getStartPosition() );
+					t.jumpFwd( chunk.getStartPosition() );
+					for ( long i = 0; i < chunk.getLoopSize(); ++i )
+					{
+						final Object src = storage( s.next().getData() );
+						final AbstractCell< ? > cell = t.next();
+						copyStorage( src, 0, storage( cell.getData() ), 0, storageLength( src ) );
+						// the storage array is written directly, which disk cells do not track
+						if ( cell instanceof DiskCell )
+							( ( DiskCell< ? > ) cell ).setDirty( true );
+					}
+				}
+			} );
+		}
+		executor.run( tasks );
+		return true;
+	}
+
+	/**
+	 * Check whether source and target have the same interval and pixel type,
+	 * which is a prerequisite for copying storage in bulk.
+	 */
+	private static boolean sameLayout( final RandomAccessibleInterval< ? > source, final RandomAccessibleInterval< ? > target )
+	{
+		final int n = source.numDimensions();
+		if ( n != target.numDimensions() )
+			return false;
+		for ( int d = 0; d < n; ++d )
+			if ( source.min( d ) != target.min( d ) || source.max( d ) != target.max( d ) )
+				return false;
+		if ( source instanceof NativeImg && target instanceof NativeImg )
+		{
+			final Object sourceType = ( ( NativeImg< ?, ? > ) source ).firstElement();
+			final Object targetType = ( ( NativeImg< ?, ? > ) target ).firstElement();
+			return sourceType.getClass() == targetType.getClass();
+		}
+		return false;
+	}
+
+	private static Object storage( final Object access )
+	{
+		return ( access instanceof ArrayDataAccess ) ? ( ( ArrayDataAccess< ? > ) access ).getCurrentStorageArray() : null;
+	}
+
+	private static int storageLength( final Object storage )
+	{
+		return ( storage instanceof Buffer ) ? ( ( Buffer ) storage ).capacity() : Array.getLength( storage );
+	}
+
+	/**
+	 * Whether two storage arrays (primitive arrays or NIO buffers) hold the
+	 * same primitive type and have the same length.
+	 */
+	private static boolean canCopyStorage( final Object src, final Object dst )
+	{
+		if ( src == null || dst == null )
+			return false;
+		final Class< ? > srcType = elementType( src );
+		return srcType != null && srcType == elementType( dst ) && storageLength( src ) == storageLength( dst );
+	}
+
+	private static Class< ? > elementType( final Object storage )
+	{
+		if ( storage.getClass().isArray() )
+			return storage.getClass().getComponentType().isPrimitive() ? storage.getClass().getComponentType() : null;
+		if ( storage instanceof ByteBuffer )
+			return byte.class;
+		if ( storage instanceof CharBuffer )
+			return char.class;
+		if ( storage instanceof ShortBuffer )
+			return short.class;
+		if ( storage instanceof IntBuffer )
+			return int.class;
+		if ( storage instanceof LongBuffer )
+			return long.class;
+		if ( storage instanceof FloatBuffer )
+			return float.class;
+		if ( storage instanceof DoubleBuffer )
+			return double.class;
+		return null;
+	}
+
+	/**
+	 * Copy <em>length</em> elements between two compatible storage arrays,
+	 * each of which may be a primitive array or an NIO buffer.
+	 */
+	private static void copyStorage( final Object src, final int srcPos, final Object dst, final int dstPos, final int length )
+	{
+		if ( !( src instanceof Buffer ) && !( dst instanceof Buffer ) )
+		{
+			System.arraycopy( src, srcPos, dst, dstPos, length );
+			return;
+		}
+		final Buffer s = slice( src, srcPos, length );
+		final Buffer t = slice( dst, dstPos, length );
+		if ( s instanceof ByteBuffer )
+			( ( ByteBuffer ) t ).put( ( ByteBuffer ) s );
+		else if ( s instanceof CharBuffer )
+			( ( CharBuffer ) t ).put( ( CharBuffer ) s );
+		else if ( s instanceof ShortBuffer )
+			( ( ShortBuffer ) t ).put( ( ShortBuffer ) s );
+		else if ( s instanceof IntBuffer )
+			( ( IntBuffer ) t ).put( ( IntBuffer ) s );
+		else if ( s instanceof LongBuffer )
+			( ( LongBuffer ) t ).put( ( LongBuffer ) s );
+		else if ( s instanceof FloatBuffer )
+			( ( FloatBuffer ) t ).put( ( FloatBuffer ) s );
+		else
+			( ( DoubleBuffer ) t ).put( ( DoubleBuffer ) s );
+	}
+
+	/**
+	 * Wrap a primitive array or duplicate a buffer, such that the result has
+	 * its own position and limit covering the given range.
+	 */
+	private static Buffer slice( final Object storage, final int pos, final int length )
+	{
+		final Buffer b;
+		if ( storage instanceof ByteBuffer )
+			b = ( ( ByteBuffer ) storage ).duplicate();
+		else if ( storage instanceof CharBuffer )
+			b = ( ( CharBuffer ) storage ).duplicate();
+		else if ( storage instanceof ShortBuffer )
+			b = ( ( ShortBuffer ) storage ).duplicate();
+		else if ( storage instanceof IntBuffer )
+			b = ( ( IntBuffer ) storage ).duplicate();
+		else if ( storage instanceof LongBuffer )
+			b = ( ( LongBuffer ) storage ).duplicate();
+		else if ( storage instanceof FloatBuffer )
+			b = ( ( FloatBuffer ) storage ).duplicate();
+		else if ( storage instanceof DoubleBuffer )
+			b = ( ( DoubleBuffer ) storage ).duplicate();
+		else if ( storage instanceof byte[] )
+			b = ByteBuffer.wrap( ( byte[] ) storage );
+		else if ( storage instanceof char[] )
+			b = CharBuffer.wrap( ( char[] ) storage );
+		else if ( storage instanceof short[] )
+			b = ShortBuffer.wrap( ( short[] ) storage );
+		else if ( storage instanceof int[] )
+			b = IntBuffer.wrap( ( int[] ) storage );
+		else if ( storage instanceof long[] )
+			b = LongBuffer.wrap( ( long[] ) storage );
+		else if ( storage instanceof float[] )
+			b = FloatBuffer.wrap( ( float[] ) storage );
+		else
+			b = DoubleBuffer.wrap( ( double[] ) storage );
+		b.clear();
+		b.position( pos );
+		b.limit( pos + length );
+		return b;
+	}
+}
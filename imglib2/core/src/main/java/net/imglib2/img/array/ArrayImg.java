@@ -40,6 +40,7 @@ import net.imglib2.FlatIterationOrder;
 import net.imglib2.Interval;
 import net.imglib2.img.AbstractNativeImg;
 import net.imglib2.img.Img;
+import net.imglib2.img.ImgCopy;
 import net.imglib2.type.NativeType;
 import net.imglib2.util.IntervalIndexer;
 
@@ -117,11 +118,7 @@ public class ArrayImg< T extends NativeType< T >, A > extends AbstractNativeImg<
 	{
 		final ArrayImg< T, ? > copy = factory().create( dimension, firstElement().createVariable() );
 
-		final ArrayCursor< T > source = this.cursor();
-		final ArrayCursor< T > target = copy.cursor();
-
-		while ( source.hasNext() )
-			target.next().set( source.next() );
+		ImgCopy.copy( this, copy );
 
 		return copy;
 	}
@@ -27,6 +27,16 @@
  */
 package net.imglib2.img.array;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+
 import net.imglib2.img.basictypeaccess.array.BitArray;
 import net.imglib2.img.basictypeaccess.array.ByteArray;
 import net.imglib2.img.basictypeaccess.array.DoubleArray;
@@ -34,6 +44,13 @@ import net.imglib2.img.basictypeaccess.array.FloatArray;
 import net.imglib2.img.basictypeaccess.array.IntArray;
 import net.imglib2.img.basictypeaccess.array.LongArray;
 import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.img.basictypeaccess.nio.ByteBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.DoubleBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.FloatBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.IntBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.LongBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.MappedBuffers;
+import net.imglib2.img.basictypeaccess.nio.ShortBufferAccess;
 import net.imglib2.type.Type;
 import net.imglib2.type.logic.BitType;
 import net.imglib2.type.numeric.ARGBType;
@@ -70,6 +87,14 @@ final public class ArrayImgs
 {
 	private ArrayImgs() {}
 	
+	private static long numBytes( final long[] dim, final int entitiesPerPixel, final int bytesPerEntity )
+	{
+		long numPixels = 1;
+		for ( final long d : dim )
+			numPixels *= d;
+		return numPixels * entitiesPerPixel * bytesPerEntity;
+	}
+	
 	/**
 	 * Create an {@link ArrayImg}<{@link UnsignedByteType}, {@link ByteArray}>.
 	 * 
@@ -99,6 +124,45 @@ final public class ArrayImgs
 		return img;
 	}
 	
+	/**
+	 * Creates an {@link ArrayImg}<{@link UnsignedByteType}, {@link ByteBufferAccess}>
+	 * reusing a passed {@link ByteBuffer}, e.g., a view on a memory-mapped
+	 * file (see {@link MappedBuffers}).
+	 * 
+	 * @param buffer
+	 * @param dim
+	 * @return
+	 */
+	final public static ArrayImg< UnsignedByteType, ByteBufferAccess > unsignedBytes( final ByteBuffer buffer, final long... dim )
+	{
+		final ByteBufferAccess access = new ByteBufferAccess( buffer );
+		final ArrayImg< UnsignedByteType, ByteBufferAccess > img = new ArrayImg< UnsignedByteType, ByteBufferAccess >( access, dim, 1 );
+		final UnsignedByteType t = new UnsignedByteType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates an {@link ArrayImg}<{@link UnsignedByteType}, {@link ByteBufferAccess}>
+	 * on a memory-mapped region of a raw file (see
+	 * {@link MappedBuffers#map(File, long, long, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static ArrayImg< UnsignedByteType, ByteBufferAccess > unsignedBytes( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		return unsignedBytes( MappedBuffers.map( file, offset, numBytes( dim, 1, 1 ), order, writable ), dim );
+	}
+	
 	/**
 	 * Create an {@link ArrayImg}<{@link ByteType}, {@link ByteArray}>.
 	 * 
@@ -128,6 +192,45 @@ final public class ArrayImgs
 		return img;
 	}
 	
+	/**
+	 * Creates an {@link ArrayImg}<{@link ByteType}, {@link ByteBufferAccess}>
+	 * reusing a passed {@link ByteBuffer}, e.g., a view on a memory-mapped
+	 * file (see {@link MappedBuffers}).
+	 * 
+	 * @param buffer
+	 * @param dim
+	 * @return
+	 */
+	final public static ArrayImg< ByteType, ByteBufferAccess > bytes( final ByteBuffer buffer, final long... dim )
+	{
+		final ByteBufferAccess access = new ByteBufferAccess( buffer );
+		final ArrayImg< ByteType, ByteBufferAccess > img = new ArrayImg< ByteType, ByteBufferAccess >( access, dim, 1 );
+		final ByteType t = new ByteType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates an {@link ArrayImg}<{@link ByteType}, {@link ByteBufferAccess}>
+	 * on a memory-mapped region of a raw file (see
+	 * {@link MappedBuffers#map(File, long, long, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static ArrayImg< ByteType, ByteBufferAccess > bytes( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		return bytes( MappedBuffers.map( file, offset, numBytes( dim, 1, 1 ), order, writable ), dim );
+	}
+	
 	/**
 	 * Create an {@link ArrayImg}<{@link UnsignedShortType}, {@link ShortArray}>.
 	 * 
@@ -157,6 +260,45 @@ final public class ArrayImgs
 		return img;
 	}
 	
+	/**
+	 * Creates an {@link ArrayImg}<{@link UnsignedShortType}, {@link ShortBufferAccess}>
+	 * reusing a passed {@link ShortBuffer}, e.g., a view on a memory-mapped
+	 * file (see {@link MappedBuffers}).
+	 * 
+	 * @param buffer
+	 * @param dim
+	 * @return
+	 */
+	final public static ArrayImg< UnsignedShortType, ShortBufferAccess > unsignedShorts( final ShortBuffer buffer, final long... dim )
+	{
+		final ShortBufferAccess access = new ShortBufferAccess( buffer );
+		final ArrayImg< UnsignedShortType, ShortBufferAccess > img = new ArrayImg< UnsignedShortType, ShortBufferAccess >( access, dim, 1 );
+		final UnsignedShortType t = new UnsignedShortType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates an {@link ArrayImg}<{@link UnsignedShortType}, {@link ShortBufferAccess}>
+	 * on a memory-mapped region of a raw file (see
+	 * {@link MappedBuffers#map(File, long, long, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static ArrayImg< UnsignedShortType, ShortBufferAccess > unsignedShorts( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		return unsignedShorts( MappedBuffers.map( file, offset, numBytes( dim, 1, 2 ), order, writable ).asShortBuffer(), dim );
+	}
+	
 	/**
 	 * Create an {@link ArrayImg}<{@link ShortType}, {@link ShortArray}>.
 	 * 
@@ -186,6 +328,45 @@ final public class ArrayImgs
 		return img;
 	}
 	
+	/**
+	 * Creates an {@link ArrayImg}<{@link ShortType}, {@link ShortBufferAccess}>
+	 * reusing a passed {@link ShortBuffer}, e.g., a view on a memory-mapped
+	 * file (see {@link MappedBuffers}).
+	 * 
+	 * @param buffer
+	 * @param dim
+	 * @return
+	 */
+	final public static ArrayImg< ShortType, ShortBufferAccess > shorts( final ShortBuffer buffer, final long... dim )
+	{
+		final ShortBufferAccess access = new ShortBufferAccess( buffer );
+		final ArrayImg< ShortType, ShortBufferAccess > img = new ArrayImg< ShortType, ShortBufferAccess >( access, dim, 1 );
+		final ShortType t = new ShortType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates an {@link ArrayImg}<{@link ShortType}, {@link ShortBufferAccess}>
+	 * on a memory-mapped region of a raw file (see
+	 * {@link MappedBuffers#map(File, long, long, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static ArrayImg< ShortType, ShortBufferAccess > shorts( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		return shorts( MappedBuffers.map( file, offset, numBytes( dim, 1, 2 ), order, writable ).asShortBuffer(), dim );
+	}
+	
 	/**
 	 * Create an {@link ArrayImg}<{@link UnsignedIntType}, {@link IntArray}>.
 	 * 
@@ -215,6 +396,45 @@ final public class ArrayImgs
 		return img;
 	}
 	
+	/**
+	 * Creates an {@link ArrayImg}<{@link UnsignedIntType}, {@link IntBufferAccess}>
+	 * reusing a passed {@link IntBuffer}, e.g., a view on a memory-mapped
+	 * file (see {@link MappedBuffers}).
+	 * 
+	 * @param buffer
+	 * @param dim
+	 * @return
+	 */
+	final public static ArrayImg< UnsignedIntType, IntBufferAccess > unsignedInts( final IntBuffer buffer, final long... dim )
+	{
+		final IntBufferAccess access = new IntBufferAccess( buffer );
+		final ArrayImg< UnsignedIntType, IntBufferAccess > img = new ArrayImg< UnsignedIntType, IntBufferAccess >( access, dim, 1 );
+		final UnsignedIntType t = new UnsignedIntType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates an {@link ArrayImg}<{@link UnsignedIntType}, {@link IntBufferAccess}>
+	 * on a memory-mapped region of a raw file (see
+	 * {@link MappedBuffers#map(File, long, long, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static ArrayImg< UnsignedIntType, IntBufferAccess > unsignedInts( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		return unsignedInts( MappedBuffers.map( file, offset, numBytes( dim, 1, 4 ), order, writable ).asIntBuffer(), dim );
+	}
+	
 	/**
 	 * Create an {@link ArrayImg}<{@link IntType}, {@link IntArray}>.
 	 * 
@@ -244,6 +464,45 @@ final public class ArrayImgs
 		return img;
 	}
 	
+	/**
+	 * Creates an {@link ArrayImg}<{@link IntType}, {@link IntBufferAccess}>
+	 * reusing a passed {@link IntBuffer}, e.g., a view on a memory-mapped
+	 * file (see {@link MappedBuffers}).
+	 * 
+	 * @param buffer
+	 * @param dim
+	 * @return
+	 */
+	final public static ArrayImg< IntType, IntBufferAccess > ints( final IntBuffer buffer, final long... dim )
+	{
+		final IntBufferAccess access = new IntBufferAccess( buffer );
+		final ArrayImg< IntType, IntBufferAccess > img = new ArrayImg< IntType, IntBufferAccess >( access, dim, 1 );
+		final IntType t = new IntType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates an {@link ArrayImg}<{@link IntType}, {@link IntBufferAccess}>
+	 * on a memory-mapped region of a raw file (see
+	 * {@link MappedBuffers#map(File, long, long, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static ArrayImg< IntType, IntBufferAccess > ints( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		return ints( MappedBuffers.map( file, offset, numBytes( dim, 1, 4 ), order, writable ).asIntBuffer(), dim );
+	}
+	
 	/**
 	 * Create an {@link ArrayImg}<{@link LongType}, {@link LongArray}>.
 	 * 
@@ -273,6 +532,45 @@ final public class ArrayImgs
 		return img;
 	}
 	
+	/**
+	 * Creates an {@link ArrayImg}<{@link LongType}, {@link LongBufferAccess}>
+	 * reusing a passed {@link LongBuffer}, e.g., a view on a memory-mapped
+	 * file (see {@link MappedBuffers}).
+	 * 
+	 * @param buffer
+	 * @param dim
+	 * @return
+	 */
+	final public static ArrayImg< LongType, LongBufferAccess > longs( final LongBuffer buffer, final long... dim )
+	{
+		final LongBufferAccess access = new LongBufferAccess( buffer );
+		final ArrayImg< LongType, LongBufferAccess > img = new ArrayImg< LongType, LongBufferAccess >( access, dim, 1 );
+		final LongType t = new LongType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates an {@link ArrayImg}<{@link LongType}, {@link LongBufferAccess}>
+	 * on a memory-mapped region of a raw file (see
+	 * {@link MappedBuffers#map(File, long, long, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static ArrayImg< LongType, LongBufferAccess > longs( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		return longs( MappedBuffers.map( file, offset, numBytes( dim, 1, 8 ), order, writable ).asLongBuffer(), dim );
+	}
+	
 	/**
 	 * Create an {@link ArrayImg}<{@link BitType}, {@link BitArray}>.
 	 * 
@@ -314,6 +612,45 @@ final public class ArrayImgs
 		return img;
 	}
 	
+	/**
+	 * Creates an {@link ArrayImg}<{@link FloatType}, {@link FloatBufferAccess}>
+	 * reusing a passed {@link FloatBuffer}, e.g., a view on a memory-mapped
+	 * file (see {@link MappedBuffers}).
+	 * 
+	 * @param buffer
+	 * @param dim
+	 * @return
+	 */
+	final public static ArrayImg< FloatType, FloatBufferAccess > floats( final FloatBuffer buffer, final long... dim )
+	{
+		final FloatBufferAccess access = new FloatBufferAccess( buffer );
+		final ArrayImg< FloatType, FloatBufferAccess > img = new ArrayImg< FloatType, FloatBufferAccess >( access, dim, 1 );
+		final FloatType t = new FloatType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates an {@link ArrayImg}<{@link FloatType}, {@link FloatBufferAccess}>
+	 * on a memory-mapped region of a raw file (see
+	 * {@link MappedBuffers#map(File, long, long, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static ArrayImg< FloatType, FloatBufferAccess > floats( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		return floats( MappedBuffers.map( file, offset, numBytes( dim, 1, 4 ), order, writable ).asFloatBuffer(), dim );
+	}
+	
 	/**
 	 * Create an {@link ArrayImg}<{@link DoubleType}, {@link DoubleArray}>.
 	 * 
@@ -343,6 +680,45 @@ final public class ArrayImgs
 		return img;
 	}
 	
+	/**
+	 * Creates an {@link ArrayImg}<{@link DoubleType}, {@link DoubleBufferAccess}>
+	 * reusing a passed {@link DoubleBuffer}, e.g., a view on a memory-mapped
+	 * file (see {@link MappedBuffers}).
+	 * 
+	 * @param buffer
+	 * @param dim
+	 * @return
+	 */
+	final public static ArrayImg< DoubleType, DoubleBufferAccess > doubles( final DoubleBuffer buffer, final long... dim )
+	{
+		final DoubleBufferAccess access = new DoubleBufferAccess( buffer );
+		final ArrayImg< DoubleType, DoubleBufferAccess > img = new ArrayImg< DoubleType, DoubleBufferAccess >( access, dim, 1 );
+		final DoubleType t = new DoubleType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates an {@link ArrayImg}<{@link DoubleType}, {@link DoubleBufferAccess}>
+	 * on a memory-mapped region of a raw file (see
+	 * {@link MappedBuffers#map(File, long, long, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static ArrayImg< DoubleType, DoubleBufferAccess > doubles( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		return doubles( MappedBuffers.map( file, offset, numBytes( dim, 1, 8 ), order, writable ).asDoubleBuffer(), dim );
+	}
+	
 	/**
 	 * Create an {@link ArrayImg}<{@link ARGBType}, {@link IntArray}>.
 	 * 
@@ -372,6 +748,45 @@ final public class ArrayImgs
 		return img;
 	}
 	
+	/**
+	 * Creates an {@link ArrayImg}<{@link ARGBType}, {@link IntBufferAccess}>
+	 * reusing a passed {@link IntBuffer}, e.g., a view on a memory-mapped
+	 * file (see {@link MappedBuffers}).
+	 * 
+	 * @param buffer
+	 * @param dim
+	 * @return
+	 */
+	final public static ArrayImg< ARGBType, IntBufferAccess > argbs( final IntBuffer buffer, final long... dim )
+	{
+		final IntBufferAccess access = new IntBufferAccess( buffer );
+		final ArrayImg< ARGBType, IntBufferAccess > img = new ArrayImg< ARGBType, IntBufferAccess >( access, dim, 1 );
+		final ARGBType t = new ARGBType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates an {@link ArrayImg}<{@link ARGBType}, {@link IntBufferAccess}>
+	 * on a memory-mapped region of a raw file (see
+	 * {@link MappedBuffers#map(File, long, long, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static ArrayImg< ARGBType, IntBufferAccess > argbs( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		return argbs( MappedBuffers.map( file, offset, numBytes( dim, 1, 4 ), order, writable ).asIntBuffer(), dim );
+	}
+	
 	/**
 	 * Create an {@link ArrayImg}<{@link ComplexFloatType}, {@link FloatArray}>.
 	 * 
@@ -401,6 +816,45 @@ final public class ArrayImgs
 		return img;
 	}
 	
+	/**
+	 * Creates an {@link ArrayImg}<{@link ComplexFloatType}, {@link FloatBufferAccess}>
+	 * reusing a passed {@link FloatBuffer}, e.g., a view on a memory-mapped
+	 * file (see {@link MappedBuffers}).
+	 * 
+	 * @param buffer
+	 * @param dim
+	 * @return
+	 */
+	final public static ArrayImg< ComplexFloatType, FloatBufferAccess > complexFloats( final FloatBuffer buffer, final long... dim )
+	{
+		final FloatBufferAccess access = new FloatBufferAccess( buffer );
+		final ArrayImg< ComplexFloatType, FloatBufferAccess > img = new ArrayImg< ComplexFloatType, FloatBufferAccess >( access, dim, 2 );
+		final ComplexFloatType t = new ComplexFloatType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates an {@link ArrayImg}<{@link ComplexFloatType}, {@link FloatBufferAccess}>
+	 * on a memory-mapped region of a raw file (see
+	 * {@link MappedBuffers#map(File, long, long, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static ArrayImg< ComplexFloatType, FloatBufferAccess > complexFloats( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		return complexFloats( MappedBuffers.map( file, offset, numBytes( dim, 2, 4 ), order, writable ).asFloatBuffer(), dim );
+	}
+	
 	/**
 	 * Create an {@link ArrayImg}<{@link ComplexDoubleType}, {@link DoubleArray}>.
 	 * 
@@ -429,4 +883,43 @@ final public class ArrayImgs
 		img.setLinkedType( t );
 		return img;
 	}
+	
+	/**
+	 * Creates an {@link ArrayImg}<{@link ComplexDoubleType}, {@link DoubleBufferAccess}>
+	 * reusing a passed {@link DoubleBuffer}, e.g., a view on a memory-mapped
+	 * file (see {@link MappedBuffers}).
+	 * 
+	 * @param buffer
+	 * @param dim
+	 * @return
+	 */
+	final public static ArrayImg< ComplexDoubleType, DoubleBufferAccess > complexDoubles( final DoubleBuffer buffer, final long... dim )
+	{
+		final DoubleBufferAccess access = new DoubleBufferAccess( buffer );
+		final ArrayImg< ComplexDoubleType, DoubleBufferAccess > img = new ArrayImg< ComplexDoubleType, DoubleBufferAccess >( access, dim, 2 );
+		final ComplexDoubleType t = new ComplexDoubleType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates an {@link ArrayImg}<{@link ComplexDoubleType}, {@link DoubleBufferAccess}>
+	 * on a memory-mapped region of a raw file (see
+	 * {@link MappedBuffers#map(File, long, long, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static ArrayImg< ComplexDoubleType, DoubleBufferAccess > complexDoubles( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		return complexDoubles( MappedBuffers.map( file, offset, numBytes( dim, 2, 8 ), order, writable ).asDoubleBuffer(), dim );
+	}
 }
@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.basictypeaccess.nio;
+
+import java.nio.FloatBuffer;
+
+import net.imglib2.img.basictypeaccess.FloatAccess;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+
+/**
+ * {@link FloatAccess} backed by a {@link FloatBuffer}. The buffer may be a
+ * direct buffer or a view on a {@link java.nio.MappedByteBuffer} (see
+ * {@link MappedBuffers}), so the data lives outside the Java heap.
+ *
+ * <p>
+ * Values are accessed by absolute index, the position and limit of the buffer
+ * are ignored. {@link #getCurrentStorageArray()} returns the
+ * {@link FloatBuffer}, not a primitive array.
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class FloatBufferAccess implements FloatAccess, ArrayDataAccess< FloatBufferAccess >
+{
+	protected final FloatBuffer data;
+
+	/**
+	 * Create a {@link FloatBufferAccess} on a newly allocated direct buffer
+	 * in native byte order.
+	 *
+	 * @param numEntities
+	 * @throws IllegalArgumentException
+	 *             if the buffer would be larger than
+	 *             {@link Integer#MAX_VALUE} bytes.
+	 */
+	public FloatBufferAccess( final int numEntities )
+	{
+		this( MappedBuffers.allocateDirect( numEntities, 4 ).asFloatBuffer() );
+	}
+
+	public FloatBufferAccess( final FloatBuffer data )
+	{
+		this.data = data;
+	}
+
+	@Override
+	public float getValue( final int index )
+	{
+		return data.get( index );
+	}
+
+	@Override
+	public void setValue( final int index, final float value )
+	{
+		data.put( index, value );
+	}
+
+	@Override
+	public FloatBufferAccess createArray( final int numEntities )
+	{
+		return new FloatBufferAccess( numEntities );
+	}
+
+	@Override
+	public FloatBuffer getCurrentStorageArray()
+	{
+		return data;
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.basictypeaccess.nio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Utility methods to memory-map raw files for use with the
+ * {@link java.nio.Buffer}-backed accesses in this package. Mapped files are
+ * accessed without copying them to the Java heap.
+ *
+ * <p>
+ * A single mapping is limited to {@link Integer#MAX_VALUE} bytes. Larger files
+ * can be mapped plane by plane with
+ * {@link #mapSegments(File, long, long, int, ByteOrder, boolean)} and wrapped
+ * into a {@link net.imglib2.img.planar.PlanarImg}, e.g.
+ * </p>
+ *
+ * <pre>
+ * final ByteBuffer[] planes = MappedBuffers.mapSegments( file, 0, 2 * w * h, d, ByteOrder.BIG_ENDIAN, false );
+ * final ShortBuffer[] shorts = new ShortBuffer[ d ];
+ * for ( int i = 0; i &lt; d; ++i )
+ * 	shorts[ i ] = planes[ i ].asShortBuffer();
+ * final PlanarImg&lt; UnsignedShortType, ShortBufferAccess &gt; img = PlanarImgs.unsignedShorts( shorts, w, h, d );
+ * </pre>
+ *
+ * @author ImgLib2 developers
+ */
+final public class MappedBuffers
+{
+	private MappedBuffers() {}
+
+	/**
+	 * Map a region of a file into memory.
+	 *
+	 * @param file
+	 *            the file to map.
+	 * @param offset
+	 *            position in the file at which the mapped region starts.
+	 * @param size
+	 *            size of the mapped region in bytes, at most
+	 *            {@link Integer#MAX_VALUE}.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether the mapping should be writable. Modifications of a
+	 *            writable mapping are written to the file. If the file is
+	 *            shorter than offset + size, it is extended.
+	 * @return the mapped region.
+	 * @throws IOException
+	 */
+	public static MappedByteBuffer map( final File file, final long offset, final long size, final ByteOrder order, final boolean writable ) throws IOException
+	{
+		return mapSegments( file, offset, size, 1, order, writable )[ 0 ];
+	}
+
+	/**
+	 * Map a sequence of equally sized, consecutive regions of a file into
+	 * memory, e.g., the planes of a raw image stack. The total size of the
+	 * mapped regions is not limited by {@link Integer#MAX_VALUE}.
+	 *
+	 * @param file
+	 *            the file to map.
+	 * @param offset
+	 *            position in the file at which the first region starts.
+	 * @param segmentSize
+	 *            size of each region in bytes, at most
+	 *            {@link Integer#MAX_VALUE}.
+	 * @param numSegments
+	 *            number of regions.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether the mappings should be writable.
+	 * @return the mapped regions.
+	 * @throws IOException
+	 */
+	public static MappedByteBuffer[] mapSegments( final File file, final long offset, final long segmentSize, final int numSegments, final ByteOrder order, final boolean writable ) throws IOException
+	{
+		if ( segmentSize > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "MappedBuffers: cannot map more than " + Integer.MAX_VALUE + " bytes at once." );
+
+		final RandomAccessFile raf = new RandomAccessFile( file, writable ? "rw" : "r" );
+		try
+		{
+			final FileChannel channel = raf.getChannel();
+			final MapMode mode = writable ? MapMode.READ_WRITE : MapMode.READ_ONLY;
+			final MappedByteBuffer[] segments = new MappedByteBuffer[ numSegments ];
+			for ( int i = 0; i < numSegments; ++i )
+			{
+				segments[ i ] = channel.map( mode, offset + i * segmentSize, segmentSize );
+				segments[ i ].order( order );
+			}
+			return segments;
+		}
+		finally
+		{
+			// NB: mappings remain valid after the channel is closed.
+			raf.close();
+		}
+	}
+
+	/**
+	 * Allocate a direct (off-heap) buffer in native byte order.
+	 *
+	 * @param size
+	 *            size in bytes.
+	 * @return the buffer.
+	 */
+	public static ByteBuffer allocateDirect( final int size )
+	{
+		return ByteBuffer.allocateDirect( size ).order( ByteOrder.nativeOrder() );
+	}
+
+	/**
+	 * Allocate a direct (off-heap) buffer in native byte order for
+	 * <em>numEntities</em> entities of <em>bytesPerEntity</em> bytes each.
+	 *
+	 * @param numEntities
+	 *            number of entities.
+	 * @param bytesPerEntity
+	 *            size of an entity in bytes.
+	 * @return the buffer.
+	 * @throws IllegalArgumentException
+	 *             if numEntities is negative or the buffer would be larger
+	 *             than {@link Integer#MAX_VALUE} bytes.
+	 */
+	public static ByteBuffer allocateDirect( final long numEntities, final int bytesPerEntity )
+	{
+		final long size = numEntities * bytesPerEntity;
+		if ( numEntities < 0 || size > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "MappedBuffers: cannot allocate " + numEntities + " entities of " + bytesPerEntity + " bytes in a direct buffer of at most " + Integer.MAX_VALUE + " bytes." );
+		return allocateDirect( ( int ) size );
+	}
+}
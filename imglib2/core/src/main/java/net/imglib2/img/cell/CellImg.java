@@ -38,6 +38,7 @@ package net.imglib2.img.cell;
 
 import net.imglib2.img.AbstractNativeImg;
 import net.imglib2.img.Img;
+import net.imglib2.img.ImgCopy;
 import net.imglib2.img.array.ArrayImg;
 import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
 import net.imglib2.type.NativeType;
@@ -84,6 +85,16 @@ final public class CellImg< T extends NativeType< T >, A extends ArrayDataAccess
 		cells.cellDimensions( cellDims );
 	}
 
+	/**
+	 * Get the {@link Cells} that hold the data of this image.
+	 *
+	 * @return the cells of this image.
+	 */
+	public Cells< A, C > getCells()
+	{
+		return cells;
+	}
+
 	/**
 	 * This interface is implemented by all samplers on the {@link CellImg}. It
 	 * allows the container to ask for the cell the sampler is currently in.
@@ -152,11 +163,7 @@ final public class CellImg< T extends NativeType< T >, A extends ArrayDataAccess
 	{
 		final CellImg< T, ?, ? > copy = factory().create( dimension, firstElement().createVariable() );
 
-		final CellCursor< T, A, C > source = this.cursor();
-		final CellCursor< T, ?, ? > target = copy.cursor();
-
-		while ( source.hasNext() )
-			target.next().set( source.next() );
+		ImgCopy.copy( this, copy );
 
 		return copy;
 	}
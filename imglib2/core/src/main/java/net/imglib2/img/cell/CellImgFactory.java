@@ -39,6 +39,7 @@ package net.imglib2.img.cell;
 import net.imglib2.exception.IncompatibleTypeException;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
 import net.imglib2.img.basictypeaccess.array.BitArray;
 import net.imglib2.img.basictypeaccess.array.ByteArray;
 import net.imglib2.img.basictypeaccess.array.CharArray;
@@ -140,68 +141,65 @@ public class CellImgFactory< T extends NativeType<T> > extends NativeImgFactory<
 		return ( CellImg< T, ?, ? > ) type.createSuitableNativeImg( this, dim );
 	}
 
-	@Override
-	public CellImg< T, BitArray, DefaultCell< BitArray > > createBitInstance( long[] dimensions, int entitiesPerPixel )
+	/**
+	 * Create a {@link CellImg} with basic type arrays created by
+	 * <em>creator</em>. All create...Instance() methods delegate to this, so
+	 * derived factories can override it to provide a different {@link Cells}
+	 * implementation.
+	 */
+	protected < A extends ArrayDataAccess< A > > CellImg< T, A, ? > createInstance( long[] dimensions, final int entitiesPerPixel, final A creator )
 	{
 		dimensions = checkDimensions( dimensions );
-		int[] cellSize = checkCellSize( defaultCellDimensions, dimensions );
-		return new CellImg< T, BitArray, DefaultCell< BitArray > >( this, new ListImgCells< BitArray >( new BitArray( 1 ), entitiesPerPixel, dimensions, cellSize ) );
+		final int[] cellSize = checkCellSize( defaultCellDimensions, dimensions );
+		return new CellImg< T, A, DefaultCell< A > >( this, new ListImgCells< A >( creator, entitiesPerPixel, dimensions, cellSize ) );
 	}
 
 	@Override
-	public CellImg< T, ByteArray, DefaultCell< ByteArray > > createByteInstance( long[] dimensions, int entitiesPerPixel )
+	public CellImg< T, BitArray, ? > createBitInstance( final long[] dimensions, final int entitiesPerPixel )
 	{
-		dimensions = checkDimensions( dimensions );
-		int[] cellSize = checkCellSize( defaultCellDimensions, dimensions );
-		return new CellImg< T, ByteArray, DefaultCell< ByteArray > >( this, new ListImgCells< ByteArray >( new ByteArray( 1 ), entitiesPerPixel, dimensions, cellSize ) );
+		return createInstance( dimensions, entitiesPerPixel, new BitArray( 1 ) );
 	}
 
 	@Override
-	public CellImg< T, CharArray, DefaultCell< CharArray > > createCharInstance( long[] dimensions, int entitiesPerPixel )
+	public CellImg< T, ByteArray, ? > createByteInstance( final long[] dimensions, final int entitiesPerPixel )
 	{
-		dimensions = checkDimensions( dimensions );
-		int[] cellSize = checkCellSize( defaultCellDimensions, dimensions );
-		return new CellImg< T, CharArray, DefaultCell< CharArray > >( this, new ListImgCells< CharArray >( new CharArray( 1 ), entitiesPerPixel, dimensions, cellSize ) );
+		return createInstance( dimensions, entitiesPerPixel, new ByteArray( 1 ) );
 	}
 
 	@Override
-	public CellImg< T, ShortArray, DefaultCell< ShortArray > > createShortInstance( long[] dimensions, int entitiesPerPixel )
+	public CellImg< T, CharArray, ? > createCharInstance( final long[] dimensions, final int entitiesPerPixel )
 	{
-		dimensions = checkDimensions( dimensions );
-		int[] cellSize = checkCellSize( defaultCellDimensions, dimensions );
-		return new CellImg< T, ShortArray, DefaultCell< ShortArray > >( this, new ListImgCells< ShortArray >( new ShortArray( 1 ), entitiesPerPixel, dimensions, cellSize ) );
+		return createInstance( dimensions, entitiesPerPixel, new CharArray( 1 ) );
 	}
 
 	@Override
-	public CellImg< T, IntArray, DefaultCell< IntArray > > createIntInstance( long[] dimensions, int entitiesPerPixel )
+	public CellImg< T, ShortArray, ? > createShortInstance( final long[] dimensions, final int entitiesPerPixel )
 	{
-		dimensions = checkDimensions( dimensions );
-		int[] cellSize = checkCellSize( defaultCellDimensions, dimensions );
-		return new CellImg< T, IntArray, DefaultCell< IntArray > >( this, new ListImgCells< IntArray >( new IntArray( 1 ), entitiesPerPixel, dimensions, cellSize ) );
+		return createInstance( dimensions, entitiesPerPixel, new ShortArray( 1 ) );
 	}
 
 	@Override
-	public CellImg< T, LongArray, DefaultCell< LongArray > > createLongInstance( long[] dimensions, int entitiesPerPixel )
+	public CellImg< T, IntArray, ? > createIntInstance( final long[] dimensions, final int entitiesPerPixel )
 	{
-		dimensions = checkDimensions( dimensions );
-		int[] cellSize = checkCellSize( defaultCellDimensions, dimensions );
-		return new CellImg< T, LongArray, DefaultCell< LongArray > >( this, new ListImgCells< LongArray >( new LongArray( 1 ), entitiesPerPixel, dimensions, cellSize ) );
+		return createInstance( dimensions, entitiesPerPixel, new IntArray( 1 ) );
 	}
 
 	@Override
-	public CellImg< T, FloatArray, DefaultCell< FloatArray > > createFloatInstance( long[] dimensions, int entitiesPerPixel )
+	public CellImg< T, LongArray, ? > createLongInstance( final long[] dimensions, final int entitiesPerPixel )
 	{
-		dimensions = checkDimensions( dimensions );
-		int[] cellSize = checkCellSize( defaultCellDimensions, dimensions );
-		return new CellImg< T, FloatArray, DefaultCell< FloatArray > >( this, new ListImgCells< FloatArray >( new FloatArray( 1 ), entitiesPerPixel, dimensions, cellSize ) );
+		return createInstance( dimensions, entitiesPerPixel, new LongArray( 1 ) );
 	}
 
 	@Override
-	public CellImg< T, DoubleArray, DefaultCell< DoubleArray > > createDoubleInstance( long[] dimensions, int entitiesPerPixel )
+	public CellImg< T, FloatArray, ? > createFloatInstance( final long[] dimensions, final int entitiesPerPixel )
 	{
-		dimensions = checkDimensions( dimensions );
-		int[] cellSize = checkCellSize( defaultCellDimensions, dimensions );
-		return new CellImg< T, DoubleArray, DefaultCell< DoubleArray > >( this, new ListImgCells< DoubleArray >( new DoubleArray( 1 ), entitiesPerPixel, dimensions, cellSize ) );
+		return createInstance( dimensions, entitiesPerPixel, new FloatArray( 1 ) );
+	}
+
+	@Override
+	public CellImg< T, DoubleArray, ? > createDoubleInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		return createInstance( dimensions, entitiesPerPixel, new DoubleArray( 1 ) );
 	}
 
 	@SuppressWarnings( { "unchecked", "rawtypes" } )
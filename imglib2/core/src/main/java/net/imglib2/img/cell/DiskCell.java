@@ -0,0 +1,99 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+
+/**
+ * A cell of a {@link DiskCells} container. In contrast to {@link DefaultCell}
+ * the basic type array is not allocated by the cell itself but loaded from (or
+ * created for) the backing store by {@link DiskCells}.
+ *
+ * @author ImgLib2 developers
+ */
+public final class DiskCell< A extends ArrayDataAccess< A > > extends AbstractCell< A >
+{
+	private final A data;
+
+	/**
+	 * flat index of this cell in the cell grid.
+	 */
+	private final long cellIndex;
+
+	/**
+	 * Whether the data may have been modified since it was last written to
+	 * the backing store.
+	 */
+	private volatile boolean dirty;
+
+	public DiskCell( final A data, final int[] dimensions, final long[] min, final long cellIndex )
+	{
+		super( dimensions, min );
+		this.data = data;
+		this.cellIndex = cellIndex;
+		this.dirty = false;
+	}
+
+	@Override
+	public A getData()
+	{
+		return data;
+	}
+
+	/**
+	 * @return flat index of this cell in the cell grid.
+	 */
+	public long getCellIndex()
+	{
+		return cellIndex;
+	}
+
+	public boolean isDirty()
+	{
+		return dirty;
+	}
+
+	/**
+	 * Mark the cell as modified, e.g., after writing to the array returned by
+	 * {@code getData().getCurrentStorageArray()}, which is not tracked by
+	 * {@link DiskCells}.
+	 */
+	public void setDirty( final boolean dirty )
+	{
+		this.dirty = dirty;
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.type.NativeType;
+
+/**
+ * Factory for {@link CellImg}s whose cells are stored in a file on local disk
+ * and loaded lazily into a memory cache of bounded size (see
+ * {@link DiskCells}). This allows to create images that are larger than the
+ * available heap. All samplers and algorithms working on {@link CellImg}s work
+ * unchanged on these images.
+ *
+ * <p>
+ * Each image is backed by its own temporary file in the given directory, which
+ * is deleted when the {@link DiskCells} of the image are closed (see
+ * {@link #close(CellImg)}), when the image and all its samplers have become
+ * unreachable (see {@link DiskCells#releaseUnreachable()}), or when the
+ * virtual machine exits.
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class DiskCellImgFactory< T extends NativeType< T > > extends CellImgFactory< T >
+{
+	/**
+	 * Default memory budget per image: 256 MB.
+	 */
+	public static final long DEFAULT_MAX_CACHED_BYTES = 256l * 1024 * 1024;
+
+	protected final long maxCachedBytes;
+
+	protected final File directory;
+
+	/**
+	 * @param cellDimensions
+	 *            dimensions of a standard cell.
+	 * @param maxCachedBytes
+	 *            memory budget per image, i.e., the maximum number of bytes of
+	 *            cell data held in memory.
+	 * @param directory
+	 *            directory for the backing files. If null, the default
+	 *            temporary-file directory is used.
+	 */
+	public DiskCellImgFactory( final int[] cellDimensions, final long maxCachedBytes, final File directory )
+	{
+		super( cellDimensions );
+		this.maxCachedBytes = maxCachedBytes;
+		this.directory = directory;
+	}
+
+	public DiskCellImgFactory( final int cellSize, final long maxCachedBytes )
+	{
+		super( cellSize );
+		this.maxCachedBytes = maxCachedBytes;
+		this.directory = null;
+	}
+
+	public DiskCellImgFactory( final int cellSize )
+	{
+		this( cellSize, DEFAULT_MAX_CACHED_BYTES );
+	}
+
+	public DiskCellImgFactory()
+	{
+		this.maxCachedBytes = DEFAULT_MAX_CACHED_BYTES;
+		this.directory = null;
+	}
+
+	public long getMaxCachedBytes()
+	{
+		return maxCachedBytes;
+	}
+
+	public File getDirectory()
+	{
+		return directory;
+	}
+
+	@Override
+	protected < A extends ArrayDataAccess< A > > CellImg< T, A, ? > createInstance( long[] dimensions, final int entitiesPerPixel, final A creator )
+	{
+		dimensions = checkDimensions( dimensions );
+		final int[] cellSize = checkCellSize( defaultCellDimensions, dimensions );
+		try
+		{
+			final File file = File.createTempFile( "imglib2-cells-", ".raw", directory );
+			file.deleteOnExit();
+			return new CellImg< T, A, DiskCell< A > >( this, new DiskCells< A >( creator, entitiesPerPixel, dimensions, cellSize, file, maxCachedBytes, true ) );
+		}
+		catch ( final IOException e )
+		{
+			throw new RuntimeException( e );
+		}
+	}
+
+	/**
+	 * Release the backing file of an image created by a
+	 * {@link DiskCellImgFactory}. The image must not be used afterwards.
+	 *
+	 * @param img
+	 * @throws IOException
+	 */
+	public static void close( final CellImg< ?, ?, ? > img ) throws IOException
+	{
+		if ( img.getCells() instanceof DiskCells )
+			( ( DiskCells< ? > ) img.getCells() ).close();
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Override
+	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
+	{
+		if ( NativeType.class.isInstance( type ) )
+			return new DiskCellImgFactory( defaultCellDimensions, maxCachedBytes, directory );
+		else
+			throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
+	}
+}
@@ -0,0 +1,1191 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import net.imglib2.AbstractCursor;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.array.BitArray;
+import net.imglib2.img.basictypeaccess.array.ByteArray;
+import net.imglib2.img.basictypeaccess.array.CharArray;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * {@link Cells} implementation that keeps its cells in a file on local disk
+ * and holds only a bounded number of them in memory.
+ *
+ * <p>
+ * Cells are loaded lazily when they are first accessed through the
+ * {@link #randomAccess()} or {@link #cursor()} on the cell grid. The number
+ * of cells kept in memory is bounded by a memory budget given in bytes. When
+ * this budget is exceeded, the least recently used cell is evicted and, if it may have been
+ * modified, written back to the backing file. Each cell occupies a fixed-size
+ * slot in the file, so cells that were never touched cost neither memory nor
+ * disk IO.
+ * </p>
+ *
+ * <p>
+ * The samplers of a {@link CellImg} write directly to the basic type array of
+ * the cell they are currently in, without notifying the container. For the
+ * basic type arrays of the standard types (e.g., {@link ByteArray},
+ * {@link FloatArray}) the container creates subclasses that record whether
+ * {@code setValue()} was called, so only cells that were written to are
+ * written back. Writes to the array returned by
+ * {@code getCurrentStorageArray()} are not recorded, code that writes to it
+ * must mark the cell by {@link DiskCell#setDirty(boolean)}. Cells of other
+ * basic type arrays are considered modified whenever they are handed out.
+ * A cell is pinned while a sampler on the cell grid
+ * ({@link #randomAccess()}, {@link #cursor()}) is positioned on it: when it is
+ * evicted, it is kept in memory (beyond the budget) until no live sampler is
+ * on it anymore and only then written back. The memory budget should
+ * therefore be at least as large as the number of samplers that are used on
+ * the image concurrently.
+ * </p>
+ *
+ * <p>
+ * The backing file is released by {@link #close()}. If the container becomes
+ * unreachable without being closed, the file is released (and deleted if
+ * requested) the next time a {@link DiskCells} is created or
+ * {@link #releaseUnreachable()} is called. Modified cells of such a container
+ * are lost unless it was {@link #flush() flushed}.
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class DiskCells< A extends ArrayDataAccess< A > > implements Cells< A, DiskCell< A > >
+{
+	private final A creator;
+	private final int entitiesPerPixel;
+	private final int n;
+	private final long[] dimensions;
+	private final int[] cellDimensions;
+
+	/**
+	 * Number of cells in each dimension.
+	 */
+	private final long[] numCells;
+
+	/**
+	 * Allocation steps of the cell grid.
+	 */
+	private final long[] cellGridSteps;
+
+	/**
+	 * Size of the cells at the max border of the image in each dimension.
+	 */
+	private final int[] borderSize;
+
+	private final long numCellsTotal;
+
+	/**
+	 * Size of a slot in the backing file, i.e., the number of bytes required
+	 * to store a standard cell.
+	 */
+	private final int bytesPerCell;
+
+	private final File file;
+	private final FileChannel channel;
+
+	/**
+	 * Releases the backing file when this container is closed or becomes
+	 * unreachable.
+	 */
+	private final BackingFile backingFile;
+
+	/**
+	 * Buffer for reading and writing cells. Only used while holding the lock
+	 * on {@link #cache}.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * Which cells have a valid slot in the backing file.
+	 */
+	private final BitSet stored;
+
+	private final int maxCachedCells;
+
+	/**
+	 * The cells currently held in memory, in access order.
+	 */
+	private final LinkedHashMap< Long, DiskCell< A > > cache;
+
+	/**
+	 * Cells that have been evicted while a sampler was positioned on them.
+	 * They are written back when no live sampler is on them anymore.
+	 */
+	private final HashMap< Long, DiskCell< A > > evicted;
+
+	/**
+	 * The pins of all live samplers on the cell grid.
+	 */
+	private final WeakHashMap< Pin, Boolean > pins;
+
+	private boolean closed;
+
+	/**
+	 * Create a {@link DiskCells} container backed by <em>file</em>. If the
+	 * file exists, its content is interpreted as the cells of this container
+	 * (each cell in a slot of {@link #getBytesPerCell()} bytes, in flat
+	 * cell-grid order). Otherwise, it is created.
+	 *
+	 * @param creator
+	 *            used to create the basic type arrays of the cells.
+	 * @param entitiesPerPixel
+	 * @param dimensions
+	 *            dimensions of the image.
+	 * @param cellDimensions
+	 *            dimensions of a standard cell.
+	 * @param file
+	 *            backing file.
+	 * @param maxCachedBytes
+	 *            memory budget, i.e., the maximum number of bytes of cell data
+	 *            held in memory. At least one cell is always held in memory.
+	 * @param deleteOnClose
+	 *            whether the backing file should be deleted by
+	 *            {@link #close()}.
+	 * @throws IOException
+	 *             if the backing file cannot be opened.
+	 */
+	public DiskCells( final A creator, final int entitiesPerPixel, final long[] dimensions, final int[] cellDimensions, final File file, final long maxCachedBytes, final boolean deleteOnClose ) throws IOException
+	{
+		this.creator = trackingCreator( creator );
+		this.entitiesPerPixel = entitiesPerPixel;
+		this.n = dimensions.length;
+		this.dimensions = dimensions.clone();
+		this.cellDimensions = cellDimensions.clone();
+
+		numCells = new long[ n ];
+		borderSize = new int[ n ];
+		long total = 1;
+		long pixelsPerCell = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			numCells[ d ] = ( dimensions[ d ] - 1 ) / cellDimensions[ d ] + 1;
+			borderSize[ d ] = ( int ) ( dimensions[ d ] - ( numCells[ d ] - 1 ) * cellDimensions[ d ] );
+			total *= numCells[ d ];
+			pixelsPerCell *= cellDimensions[ d ];
+		}
+		if ( total > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "DiskCells: number of cells (" + total + ") exceeds " + Integer.MAX_VALUE + "." );
+		numCellsTotal = total;
+		cellGridSteps = new long[ n ];
+		IntervalIndexer.createAllocationSteps( numCells, cellGridSteps );
+
+		final Object prototype = creator.createArray( ( int ) ( pixelsPerCell * entitiesPerPixel ) ).getCurrentStorageArray();
+		final long slotSize = ( long ) java.lang.reflect.Array.getLength( prototype ) * bytesPerElement( prototype );
+		if ( slotSize > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "DiskCells: cell size (" + slotSize + " bytes) exceeds " + Integer.MAX_VALUE + " bytes." );
+		bytesPerCell = ( int ) slotSize;
+
+		releaseUnreachable();
+		this.file = file;
+		final long existingLength = file.exists() ? file.length() : 0;
+		final RandomAccessFile randomAccessFile = new RandomAccessFile( file, "rw" );
+		channel = randomAccessFile.getChannel();
+		backingFile = new BackingFile( this, randomAccessFile, file, deleteOnClose );
+		buffer = ByteBuffer.allocate( bytesPerCell ).order( ByteOrder.nativeOrder() );
+
+		stored = new BitSet( ( int ) numCellsTotal );
+		final long numStored = Math.min( numCellsTotal, ( existingLength + bytesPerCell - 1 ) / bytesPerCell );
+		stored.set( 0, ( int ) numStored );
+
+		this.maxCachedCells = ( int ) Math.max( 1, Math.min( Integer.MAX_VALUE, maxCachedBytes / bytesPerCell ) );
+		cache = new LinkedHashMap< Long, DiskCell< A > >( 16, 0.75f, true )
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( final Map.Entry< Long, DiskCell< A > > eldest )
+			{
+				if ( size() > DiskCells.this.maxCachedCells )
+				{
+					evict( eldest.getValue() );
+					return true;
+				}
+				return false;
+			}
+		};
+		evicted = new HashMap< Long, DiskCell< A > >();
+		pins = new WeakHashMap< Pin, Boolean >();
+		closed = false;
+	}
+
+	/**
+	 * The cell a sampler on the cell grid is positioned on. A pin is only
+	 * weakly referenced by the container, so samplers that are no longer used
+	 * release their cell when they are garbage collected.
+	 */
+	private static final class Pin
+	{
+		long cellIndex = -1;
+	}
+
+	/**
+	 * Weak reference to a {@link DiskCells}, holding the resources of its
+	 * backing file.
+	 */
+	private static final class BackingFile extends WeakReference< DiskCells< ? > >
+	{
+		final RandomAccessFile randomAccessFile;
+
+		final File file;
+
+		final boolean deleteOnClose;
+
+		BackingFile( final DiskCells< ? > cells, final RandomAccessFile randomAccessFile, final File file, final boolean deleteOnClose )
+		{
+			super( cells, unreachableQueue );
+			this.randomAccessFile = randomAccessFile;
+			this.file = file;
+			this.deleteOnClose = deleteOnClose;
+			openFiles.add( this );
+		}
+
+		void release() throws IOException
+		{
+			openFiles.remove( this );
+			try
+			{
+				randomAccessFile.close();
+			}
+			finally
+			{
+				if ( deleteOnClose )
+					file.delete();
+			}
+		}
+	}
+
+	private static final ReferenceQueue< DiskCells< ? > > unreachableQueue = new ReferenceQueue< DiskCells< ? > >();
+
+	/**
+	 * Keeps the {@link BackingFile} references reachable until they are
+	 * released.
+	 */
+	private static final Set< BackingFile > openFiles = Collections.synchronizedSet( new HashSet< BackingFile >() );
+
+	/**
+	 * Release the backing files of all {@link DiskCells} that have become
+	 * unreachable without being closed.
+	 */
+	public static void releaseUnreachable()
+	{
+		for ( Object ref = unreachableQueue.poll(); ref != null; ref = unreachableQueue.poll() )
+		{
+			try
+			{
+				( ( BackingFile ) ref ).release();
+			}
+			catch ( final IOException e )
+			{
+				// nothing can be done about it anymore
+			}
+		}
+	}
+
+	/**
+	 * Get the cell with the given flat index in the cell grid, loading it from
+	 * the backing file if it is not in memory.
+	 *
+	 * @param cellIndex
+	 *            flat index of the cell in the cell grid.
+	 * @return the cell.
+	 */
+	public DiskCell< A > get( final long cellIndex )
+	{
+		return get( cellIndex, null );
+	}
+
+	/**
+	 * Get the cell with the given flat index and pin it for a sampler,
+	 * releasing the cell the sampler was on before.
+	 */
+	private DiskCell< A > get( final long cellIndex, final Pin pin )
+	{
+		synchronized ( cache )
+		{
+			if ( closed )
+				throw new IllegalStateException( "DiskCells: backing file " + file + " has been closed." );
+
+			if ( pin != null )
+				pin.cellIndex = cellIndex;
+
+			final Long key = cellIndex;
+			DiskCell< A > cell = cache.get( key );
+			if ( cell == null )
+			{
+				cell = evicted.remove( key );
+				try
+				{
+					writeUnpinned();
+					if ( cell == null )
+						cell = createCell( cellIndex, load( cellIndex ) );
+				}
+				catch ( final IOException e )
+				{
+					throw new RuntimeException( e );
+				}
+				// NB: samplers write directly into the data, unless writes are
+				// tracked we have to assume that it is modified.
+				if ( !( cell.getData() instanceof Tracked ) )
+					cell.setDirty( true );
+				cache.put( key, cell );
+			}
+			return cell;
+		}
+	}
+
+	private Pin createPin()
+	{
+		final Pin pin = new Pin();
+		synchronized ( cache )
+		{
+			pins.put( pin, Boolean.TRUE );
+		}
+		return pin;
+	}
+
+	/**
+	 * @return whether a live sampler is positioned on the cell.
+	 */
+	private boolean isPinned( final long cellIndex )
+	{
+		for ( final Pin pin : pins.keySet() )
+			if ( pin.cellIndex == cellIndex )
+				return true;
+		return false;
+	}
+
+	/**
+	 * Write back and drop the evicted cells that are no longer pinned.
+	 */
+	private void writeUnpinned() throws IOException
+	{
+		final Iterator< DiskCell< A > > it = evicted.values().iterator();
+		while ( it.hasNext() )
+		{
+			final DiskCell< A > cell = it.next();
+			if ( !isPinned( cell.getCellIndex() ) )
+			{
+				writeIfModified( cell );
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Write all modified cells that are currently in memory to the backing
+	 * file.
+	 *
+	 * @throws IOException
+	 */
+	public void flush() throws IOException
+	{
+		synchronized ( cache )
+		{
+			for ( final DiskCell< A > cell : cache.values() )
+				writeIfModified( cell );
+			final Iterator< DiskCell< A > > it = evicted.values().iterator();
+			while ( it.hasNext() )
+			{
+				final DiskCell< A > cell = it.next();
+				writeIfModified( cell );
+				if ( !isPinned( cell.getCellIndex() ) )
+					it.remove();
+			}
+			channel.force( false );
+		}
+	}
+
+	/**
+	 * Release the backing file. Unless the file is to be deleted, all
+	 * modified cells are written to it first. The container must not be used
+	 * afterwards.
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException
+	{
+		synchronized ( cache )
+		{
+			if ( closed )
+				return;
+			if ( !backingFile.deleteOnClose )
+				flush();
+			closed = true;
+			cache.clear();
+			evicted.clear();
+			backingFile.clear();
+			backingFile.release();
+		}
+	}
+
+	public File getFile()
+	{
+		return file;
+	}
+
+	/**
+	 * @return maximum number of cells held in memory.
+	 */
+	public int getMaxCachedCells()
+	{
+		return maxCachedCells;
+	}
+
+	/**
+	 * @return size in bytes of the slot that each cell occupies in the backing
+	 *         file.
+	 */
+	public int getBytesPerCell()
+	{
+		return bytesPerCell;
+	}
+
+	/**
+	 * @return number of cells currently held in memory.
+	 */
+	public int numCachedCells()
+	{
+		synchronized ( cache )
+		{
+			return cache.size();
+		}
+	}
+
+	private DiskCell< A > createCell( final long cellIndex, final A data )
+	{
+		final int[] cellDims = new int[ n ];
+		final long[] cellMin = new long[ n ];
+		IntervalIndexer.indexToPosition( cellIndex, numCells, cellMin );
+		for ( int d = 0; d < n; ++d )
+		{
+			cellDims[ d ] = ( cellMin[ d ] + 1 == numCells[ d ] ) ? borderSize[ d ] : cellDimensions[ d ];
+			cellMin[ d ] *= cellDimensions[ d ];
+		}
+		return new DiskCell< A >( data, cellDims, cellMin, cellIndex );
+	}
+
+	private int numCellEntities( final long cellIndex )
+	{
+		int numPixels = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			final long pos = IntervalIndexer.indexToPosition( cellIndex, numCells, cellGridSteps, d );
+			numPixels *= ( pos + 1 == numCells[ d ] ) ? borderSize[ d ] : cellDimensions[ d ];
+		}
+		return numPixels * entitiesPerPixel;
+	}
+
+	private A load( final long cellIndex ) throws IOException
+	{
+		final A data = creator.createArray( numCellEntities( cellIndex ) );
+		if ( stored.get( ( int ) cellIndex ) )
+		{
+			final Object array = data.getCurrentStorageArray();
+			final int numBytes = java.lang.reflect.Array.getLength( array ) * bytesPerElement( array );
+			buffer.clear();
+			buffer.limit( numBytes );
+			final long offset = cellIndex * bytesPerCell;
+			while ( buffer.hasRemaining() )
+				if ( channel.read( buffer, offset + buffer.position() ) < 0 )
+					break;
+			while ( buffer.hasRemaining() )
+				buffer.put( ( byte ) 0 );
+			buffer.flip();
+			get( buffer, array );
+		}
+		return data;
+	}
+
+	/**
+	 * Write a cell to the backing file if it may have been modified since it
+	 * was last written.
+	 */
+	private void writeIfModified( final DiskCell< A > cell ) throws IOException
+	{
+		final A data = cell.getData();
+		if ( data instanceof Tracked )
+		{
+			final Tracked tracked = ( Tracked ) data;
+			if ( !tracked.isModified() && !cell.isDirty() )
+				return;
+			// NB: reset before writing, so that concurrent writes are not lost
+			tracked.setModified( false );
+			cell.setDirty( false );
+		}
+		else if ( !cell.isDirty() )
+			return;
+		// NB: untracked cells stay dirty, samplers may still write to them
+		write( cell.getCellIndex(), data );
+	}
+
+	private void write( final long cellIndex, final A data ) throws IOException
+	{
+		final Object array = data.getCurrentStorageArray();
+		final int numBytes = java.lang.reflect.Array.getLength( array ) * bytesPerElement( array );
+		buffer.clear();
+		put( buffer, array );
+		buffer.position( 0 );
+		buffer.limit( numBytes );
+		final long offset = cellIndex * bytesPerCell;
+		while ( buffer.hasRemaining() )
+			channel.write( buffer, offset + buffer.position() );
+		stored.set( ( int ) cellIndex );
+	}
+
+	/**
+	 * Write back an evicted cell, or keep it until it is no longer pinned.
+	 */
+	private void evict( final DiskCell< A > cell )
+	{
+		if ( isPinned( cell.getCellIndex() ) )
+		{
+			evicted.put( cell.getCellIndex(), cell );
+			return;
+		}
+		try
+		{
+			writeIfModified( cell );
+		}
+		catch ( final IOException e )
+		{
+			throw new RuntimeException( e );
+		}
+	}
+
+	/**
+	 * A basic type array that records whether it has been written to.
+	 */
+	private interface Tracked
+	{
+		boolean isModified();
+
+		void setModified( boolean modified );
+	}
+
+	/**
+	 * Replace the creator of a standard basic type array by the creator of its
+	 * {@link Tracked} subclass.
+	 */
+	@SuppressWarnings( "unchecked" )
+	private static < A extends ArrayDataAccess< A > > A trackingCreator( final A creator )
+	{
+		if ( creator instanceof Tracked )
+			return creator;
+		final Class< ? > c = creator.getClass();
+		if ( c == BitArray.class )
+			return ( A ) new TrackedBitArray( 1 );
+		else if ( c == ByteArray.class )
+			return ( A ) new TrackedByteArray( 1 );
+		else if ( c == CharArray.class )
+			return ( A ) new TrackedCharArray( 1 );
+		else if ( c == ShortArray.class )
+			return ( A ) new TrackedShortArray( 1 );
+		else if ( c == IntArray.class )
+			return ( A ) new TrackedIntArray( 1 );
+		else if ( c == LongArray.class )
+			return ( A ) new TrackedLongArray( 1 );
+		else if ( c == FloatArray.class )
+			return ( A ) new TrackedFloatArray( 1 );
+		else if ( c == DoubleArray.class )
+			return ( A ) new TrackedDoubleArray( 1 );
+		else
+			return creator;
+	}
+
+	private static final class TrackedBitArray extends BitArray implements Tracked
+	{
+		private boolean modified;
+
+		TrackedBitArray( final int numEntities )
+		{
+			super( numEntities );
+		}
+
+		@Override
+		public void setValue( final int index, final boolean value )
+		{
+			modified = true;
+			super.setValue( index, value );
+		}
+
+		@Override
+		public TrackedBitArray createArray( final int numEntities )
+		{
+			return new TrackedBitArray( numEntities );
+		}
+
+		@Override
+		public boolean isModified()
+		{
+			return modified;
+		}
+
+		@Override
+		public void setModified( final boolean modified )
+		{
+			this.modified = modified;
+		}
+	}
+
+	private static final class TrackedByteArray extends ByteArray implements Tracked
+	{
+		private boolean modified;
+
+		TrackedByteArray( final int numEntities )
+		{
+			super( numEntities );
+		}
+
+		@Override
+		public void setValue( final int index, final byte value )
+		{
+			modified = true;
+			super.setValue( index, value );
+		}
+
+		@Override
+		public TrackedByteArray createArray( final int numEntities )
+		{
+			return new TrackedByteArray( numEntities );
+		}
+
+		@Override
+		public boolean isModified()
+		{
+			return modified;
+		}
+
+		@Override
+		public void setModified( final boolean modified )
+		{
+			this.modified = modified;
+		}
+	}
+
+	private static final class TrackedCharArray extends CharArray implements Tracked
+	{
+		private boolean modified;
+
+		TrackedCharArray( final int numEntities )
+		{
+			super( numEntities );
+		}
+
+		@Override
+		public void setValue( final int index, final char value )
+		{
+			modified = true;
+			super.setValue( index, value );
+		}
+
+		@Override
+		public TrackedCharArray createArray( final int numEntities )
+		{
+			return new TrackedCharArray( numEntities );
+		}
+
+		@Override
+		public boolean isModified()
+		{
+			return modified;
+		}
+
+		@Override
+		public void setModified( final boolean modified )
+		{
+			this.modified = modified;
+		}
+	}
+
+	private static final class TrackedShortArray extends ShortArray implements Tracked
+	{
+		private boolean modified;
+
+		TrackedShortArray( final int numEntities )
+		{
+			super( numEntities );
+		}
+
+		@Override
+		public void setValue( final int index, final short value )
+		{
+			modified = true;
+			super.setValue( index, value );
+		}
+
+		@Override
+		public TrackedShortArray createArray( final int numEntities )
+		{
+			return new TrackedShortArray( numEntities );
+		}
+
+		@Override
+		public boolean isModified()
+		{
+			return modified;
+		}
+
+		@Override
+		public void setModified( final boolean modified )
+		{
+			this.modified = modified;
+		}
+	}
+
+	private static final class TrackedIntArray extends IntArray implements Tracked
+	{
+		private boolean modified;
+
+		TrackedIntArray( final int numEntities )
+		{
+			super( numEntities );
+		}
+
+		@Override
+		public void setValue( final int index, final int value )
+		{
+			modified = true;
+			super.setValue( index, value );
+		}
+
+		@Override
+		public TrackedIntArray createArray( final int numEntities )
+		{
+			return new TrackedIntArray( numEntities );
+		}
+
+		@Override
+		public boolean isModified()
+		{
+			return modified;
+		}
+
+		@Override
+		public void setModified( final boolean modified )
+		{
+			this.modified = modified;
+		}
+	}
+
+	private static final class TrackedLongArray extends LongArray implements Tracked
+	{
+		private boolean modified;
+
+		TrackedLongArray( final int numEntities )
+		{
+			super( numEntities );
+		}
+
+		@Override
+		public void setValue( final int index, final long value )
+		{
+			modified = true;
+			super.setValue( index, value );
+		}
+
+		@Override
+		public TrackedLongArray createArray( final int numEntities )
+		{
+			return new TrackedLongArray( numEntities );
+		}
+
+		@Override
+		public boolean isModified()
+		{
+			return modified;
+		}
+
+		@Override
+		public void setModified( final boolean modified )
+		{
+			this.modified = modified;
+		}
+	}
+
+	private static final class TrackedFloatArray extends FloatArray implements Tracked
+	{
+		private boolean modified;
+
+		TrackedFloatArray( final int numEntities )
+		{
+			super( numEntities );
+		}
+
+		@Override
+		public void setValue( final int index, final float value )
+		{
+			modified = true;
+			super.setValue( index, value );
+		}
+
+		@Override
+		public TrackedFloatArray createArray( final int numEntities )
+		{
+			return new TrackedFloatArray( numEntities );
+		}
+
+		@Override
+		public boolean isModified()
+		{
+			return modified;
+		}
+
+		@Override
+		public void setModified( final boolean modified )
+		{
+			this.modified = modified;
+		}
+	}
+
+	private static final class TrackedDoubleArray extends DoubleArray implements Tracked
+	{
+		private boolean modified;
+
+		TrackedDoubleArray( final int numEntities )
+		{
+			super( numEntities );
+		}
+
+		@Override
+		public void setValue( final int index, final double value )
+		{
+			modified = true;
+			super.setValue( index, value );
+		}
+
+		@Override
+		public TrackedDoubleArray createArray( final int numEntities )
+		{
+			return new TrackedDoubleArray( numEntities );
+		}
+
+		@Override
+		public boolean isModified()
+		{
+			return modified;
+		}
+
+		@Override
+		public void setModified( final boolean modified )
+		{
+			this.modified = modified;
+		}
+	}
+
+	private static int bytesPerElement( final Object array )
+	{
+		if ( array instanceof byte[] )
+			return 1;
+		else if ( array instanceof short[] || array instanceof char[] )
+			return 2;
+		else if ( array instanceof int[] || array instanceof float[] )
+			return 4;
+		else if ( array instanceof long[] || array instanceof double[] )
+			return 8;
+		else
+			throw new IllegalArgumentException( "DiskCells: unsupported storage array " + array.getClass().getCanonicalName() + "." );
+	}
+
+	private static void put( final ByteBuffer buffer, final Object array )
+	{
+		if ( array instanceof byte[] )
+			buffer.put( ( byte[] ) array );
+		else if ( array instanceof short[] )
+			buffer.asShortBuffer().put( ( short[] ) array );
+		else if ( array instanceof char[] )
+			buffer.asCharBuffer().put( ( char[] ) array );
+		else if ( array instanceof int[] )
+			buffer.asIntBuffer().put( ( int[] ) array );
+		else if ( array instanceof float[] )
+			buffer.asFloatBuffer().put( ( float[] ) array );
+		else if ( array instanceof long[] )
+			buffer.asLongBuffer().put( ( long[] ) array );
+		else if ( array instanceof double[] )
+			buffer.asDoubleBuffer().put( ( double[] ) array );
+	}
+
+	private static void get( final ByteBuffer buffer, final Object array )
+	{
+		if ( array instanceof byte[] )
+			buffer.get( ( byte[] ) array );
+		else if ( array instanceof short[] )
+			buffer.asShortBuffer().get( ( short[] ) array );
+		else if ( array instanceof char[] )
+			buffer.asCharBuffer().get( ( char[] ) array );
+		else if ( array instanceof int[] )
+			buffer.asIntBuffer().get( ( int[] ) array );
+		else if ( array instanceof float[] )
+			buffer.asFloatBuffer().get( ( float[] ) array );
+		else if ( array instanceof long[] )
+			buffer.asLongBuffer().get( ( long[] ) array );
+		else if ( array instanceof double[] )
+			buffer.asDoubleBuffer().get( ( double[] ) array );
+	}
+
+	/**
+	 * {@link RandomAccess} on the cell grid. The cell is requested from the
+	 * container only when {@link #get()} is called at a new position.
+	 */
+	public class CellsRandomAccess extends Point implements RandomAccess< DiskCell< A > >
+	{
+		private long currentIndex;
+
+		private DiskCell< A > current;
+
+		private final Pin pin;
+
+		public CellsRandomAccess()
+		{
+			super( DiskCells.this.n );
+			currentIndex = -1;
+			current = null;
+			pin = createPin();
+		}
+
+		protected CellsRandomAccess( final CellsRandomAccess randomAccess )
+		{
+			super( DiskCells.this.n );
+			for ( int d = 0; d < n; ++d )
+				position[ d ] = randomAccess.position[ d ];
+			pin = createPin();
+			currentIndex = -1;
+			current = null;
+		}
+
+		@Override
+		public DiskCell< A > get()
+		{
+			final long i = IntervalIndexer.positionToIndex( position, numCells );
+			if ( i != currentIndex )
+			{
+				current = DiskCells.this.get( i, pin );
+				currentIndex = i;
+			}
+			return current;
+		}
+
+		@Override
+		public CellsRandomAccess copy()
+		{
+			return new CellsRandomAccess( this );
+		}
+
+		@Override
+		public CellsRandomAccess copyRandomAccess()
+		{
+			return copy();
+		}
+	}
+
+	/**
+	 * {@link net.imglib2.Cursor} on the cell grid in flat iteration order. The
+	 * cell is requested from the container only when {@link #get()} is called
+	 * at a new position.
+	 */
+	public class CellsCursor extends AbstractCursor< DiskCell< A > >
+	{
+		private long index;
+
+		private long currentIndex;
+
+		private DiskCell< A > current;
+
+		private final Pin pin;
+
+		public CellsCursor()
+		{
+			super( DiskCells.this.n );
+			pin = createPin();
+			reset();
+		}
+
+		protected CellsCursor( final CellsCursor cursor )
+		{
+			super( DiskCells.this.n );
+			pin = createPin();
+			index = cursor.index;
+			currentIndex = -1;
+			current = null;
+		}
+
+		@Override
+		public DiskCell< A > get()
+		{
+			if ( index != currentIndex )
+			{
+				current = DiskCells.this.get( index, pin );
+				currentIndex = index;
+			}
+			return current;
+		}
+
+		@Override
+		public void fwd()
+		{
+			++index;
+		}
+
+		@Override
+		public void jumpFwd( final long steps )
+		{
+			index += steps;
+		}
+
+		@Override
+		public void reset()
+		{
+			index = -1;
+			currentIndex = -1;
+			current = null;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return index < numCellsTotal - 1;
+		}
+
+		@Override
+		public void localize( final long[] pos )
+		{
+			IntervalIndexer.indexToPosition( index, numCells, pos );
+		}
+
+		@Override
+		public long getLongPosition( final int d )
+		{
+			return IntervalIndexer.indexToPosition( index, numCells, cellGridSteps, d );
+		}
+
+		@Override
+		public CellsCursor copy()
+		{
+			return new CellsCursor( this );
+		}
+
+		@Override
+		public CellsCursor copyCursor()
+		{
+			return copy();
+		}
+	}
+
+	@Override
+	public CellsRandomAccess randomAccess()
+	{
+		return new CellsRandomAccess();
+	}
+
+	@Override
+	public CellsCursor cursor()
+	{
+		return new CellsCursor();
+	}
+
+	@Override
+	public CellsCursor localizingCursor()
+	{
+		return new CellsCursor();
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	@Override
+	public void dimensions( final long[] s )
+	{
+		for ( int i = 0; i < n; ++i )
+			s[ i ] = dimensions[ i ];
+	}
+
+	@Override
+	public long dimension( final int d )
+	{
+		try { return this.dimensions[ d ]; }
+		catch ( final ArrayIndexOutOfBoundsException e ) { return 1; }
+	}
+
+	@Override
+	public void cellDimensions( final int[] s )
+	{
+		for ( int i = 0; i < n; ++i )
+			s[ i ] = cellDimensions[ i ];
+	}
+
+	@Override
+	public int cellDimension( final int d )
+	{
+		try { return this.cellDimensions[ d ]; }
+		catch ( final ArrayIndexOutOfBoundsException e ) { return 1; }
+	}
+
+	@Override
+	public int getEntitiesPerPixel()
+	{
+		return entitiesPerPixel;
+	}
+}
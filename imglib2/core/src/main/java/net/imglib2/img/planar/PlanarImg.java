@@ -40,6 +40,7 @@ import java.util.ArrayList;
 
 import net.imglib2.FlatIterationOrder;
 import net.imglib2.img.AbstractNativeImg;
+import net.imglib2.img.ImgCopy;
 import net.imglib2.img.NativeImg;
 import net.imglib2.img.basictypeaccess.PlanarAccess;
 import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
@@ -276,11 +277,7 @@ public class PlanarImg< T extends NativeType< T >, A extends ArrayDataAccess<A>
 	{
 		final PlanarImg< T, ? > copy = factory().create( dimension, firstElement().createVariable() );
 
-		final PlanarCursor< T > cursor1 = this.cursor();
-		final PlanarCursor< T > cursor2 = copy.cursor();
-
-		while ( cursor1.hasNext() )
-			cursor2.next().set( cursor1.next() );
+		ImgCopy.copy( this, copy );
 
 		return copy;
 	}
@@ -27,6 +27,16 @@
  */
 package net.imglib2.img.planar;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+
 import net.imglib2.img.basictypeaccess.array.BitArray;
 import net.imglib2.img.basictypeaccess.array.ByteArray;
 import net.imglib2.img.basictypeaccess.array.DoubleArray;
@@ -34,6 +44,13 @@ import net.imglib2.img.basictypeaccess.array.FloatArray;
 import net.imglib2.img.basictypeaccess.array.IntArray;
 import net.imglib2.img.basictypeaccess.array.LongArray;
 import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.img.basictypeaccess.nio.ByteBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.DoubleBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.FloatBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.IntBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.LongBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.MappedBuffers;
+import net.imglib2.img.basictypeaccess.nio.ShortBufferAccess;
 import net.imglib2.type.Type;
 import net.imglib2.type.logic.BitType;
 import net.imglib2.type.numeric.ARGBType;
@@ -62,11 +79,37 @@ import net.imglib2.type.numeric.real.FloatType;
  * img = new PlanarImgFactory&lt;MyType&gt;.create(new long[]{100, 200}, new MyType());
  * </pre>
  *
+ * Raw files can be memory-mapped with one mapping per plane, so unlike an
+ * {@link net.imglib2.img.array.ArrayImg} the file may be larger than 2GB as
+ * long as every plane is smaller.
+ *
  * @author Stephan Saalfeld <saalfeld@mpi-cbg.de>
  */
 final public class PlanarImgs
 {
 	private PlanarImgs() {}
+
+	private static void checkNumPlanes( final PlanarImg< ?, ? > img, final int numPlanes )
+	{
+		if ( img.numSlices() != numPlanes )
+			throw new IllegalArgumentException( "PlanarImgs: expected " + img.numSlices() + " planes but got " + numPlanes + "." );
+	}
+	
+	private static long planeBytes( final long[] dim, final int entitiesPerPixel, final int bytesPerEntity )
+	{
+		final long planeSize = dim.length > 1 ? dim[ 0 ] * dim[ 1 ] : dim[ 0 ];
+		return planeSize * entitiesPerPixel * bytesPerEntity;
+	}
+	
+	private static int numPlanes( final long[] dim )
+	{
+		long numPlanes = 1;
+		for ( int d = 2; d < dim.length; ++d )
+			numPlanes *= dim[ d ];
+		if ( numPlanes > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "PlanarImgs: cannot map more than " + Integer.MAX_VALUE + " planes." );
+		return ( int ) numPlanes;
+	}
 	
 	/**
 	 * Create an {@link PlanarImg}<{@link UnsignedByteType}, {@link ByteArray}>.
@@ -80,6 +123,48 @@ final public class PlanarImgs
 		return ( PlanarImg< UnsignedByteType, ByteArray > )new PlanarImgFactory< UnsignedByteType >().create( dim, new UnsignedByteType() );
 	}
 	
+	/**
+	 * Creates a {@link PlanarImg}<{@link UnsignedByteType}, {@link ByteBufferAccess}>
+	 * whose planes are the passed {@link ByteBuffer}s, e.g., views on
+	 * memory-mapped regions of a file (see {@link MappedBuffers}).
+	 * 
+	 * @param planes
+	 * @param dim
+	 * @return
+	 */
+	final public static PlanarImg< UnsignedByteType, ByteBufferAccess > unsignedBytes( final ByteBuffer[] planes, final long... dim )
+	{
+		final PlanarImg< UnsignedByteType, ByteBufferAccess > img = new PlanarImg< UnsignedByteType, ByteBufferAccess >( dim, 1 );
+		checkNumPlanes( img, planes.length );
+		for ( int i = 0; i < planes.length; ++i )
+			img.setPlane( i, new ByteBufferAccess( planes[ i ] ) );
+		final UnsignedByteType t = new UnsignedByteType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates a {@link PlanarImg}<{@link UnsignedByteType}, {@link ByteBufferAccess}>
+	 * whose planes are consecutive memory-mapped regions of a raw file (see
+	 * {@link MappedBuffers#mapSegments(File, long, long, int, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static PlanarImg< UnsignedByteType, ByteBufferAccess > unsignedBytes( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		final ByteBuffer[] planes = MappedBuffers.mapSegments( file, offset, planeBytes( dim, 1, 1 ), numPlanes( dim ), order, writable );
+		return unsignedBytes( planes, dim );
+	}
+	
 	/**
 	 * Create an {@link PlanarImg}<{@link ByteType}, {@link ByteArray}>.
 	 * 
@@ -92,6 +177,48 @@ final public class PlanarImgs
 		return ( PlanarImg< ByteType, ByteArray > )new PlanarImgFactory< ByteType >().create( dim, new ByteType() );
 	}
 	
+	/**
+	 * Creates a {@link PlanarImg}<{@link ByteType}, {@link ByteBufferAccess}>
+	 * whose planes are the passed {@link ByteBuffer}s, e.g., views on
+	 * memory-mapped regions of a file (see {@link MappedBuffers}).
+	 * 
+	 * @param planes
+	 * @param dim
+	 * @return
+	 */
+	final public static PlanarImg< ByteType, ByteBufferAccess > bytes( final ByteBuffer[] planes, final long... dim )
+	{
+		final PlanarImg< ByteType, ByteBufferAccess > img = new PlanarImg< ByteType, ByteBufferAccess >( dim, 1 );
+		checkNumPlanes( img, planes.length );
+		for ( int i = 0; i < planes.length; ++i )
+			img.setPlane( i, new ByteBufferAccess( planes[ i ] ) );
+		final ByteType t = new ByteType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates a {@link PlanarImg}<{@link ByteType}, {@link ByteBufferAccess}>
+	 * whose planes are consecutive memory-mapped regions of a raw file (see
+	 * {@link MappedBuffers#mapSegments(File, long, long, int, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static PlanarImg< ByteType, ByteBufferAccess > bytes( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		final ByteBuffer[] planes = MappedBuffers.mapSegments( file, offset, planeBytes( dim, 1, 1 ), numPlanes( dim ), order, writable );
+		return bytes( planes, dim );
+	}
+	
 	/**
 	 * Create an {@link PlanarImg}<{@link UnsignedShortType}, {@link ShortArray}>.
 	 * 
@@ -104,6 +231,51 @@ final public class PlanarImgs
 		return ( PlanarImg< UnsignedShortType, ShortArray > )new PlanarImgFactory< UnsignedShortType >().create( dim, new UnsignedShortType() );
 	}
 	
+	/**
+	 * Creates a {@link PlanarImg}<{@link UnsignedShortType}, {@link ShortBufferAccess}>
+	 * whose planes are the passed {@link ShortBuffer}s, e.g., views on
+	 * memory-mapped regions of a file (see {@link MappedBuffers}).
+	 * 
+	 * @param planes
+	 * @param dim
+	 * @return
+	 */
+	final public static PlanarImg< UnsignedShortType, ShortBufferAccess > unsignedShorts( final ShortBuffer[] planes, final long... dim )
+	{
+		final PlanarImg< UnsignedShortType, ShortBufferAccess > img = new PlanarImg< UnsignedShortType, ShortBufferAccess >( dim, 1 );
+		checkNumPlanes( img, planes.length );
+		for ( int i = 0; i < planes.length; ++i )
+			img.setPlane( i, new ShortBufferAccess( planes[ i ] ) );
+		final UnsignedShortType t = new UnsignedShortType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates a {@link PlanarImg}<{@link UnsignedShortType}, {@link ShortBufferAccess}>
+	 * whose planes are consecutive memory-mapped regions of a raw file (see
+	 * {@link MappedBuffers#mapSegments(File, long, long, int, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static PlanarImg< UnsignedShortType, ShortBufferAccess > unsignedShorts( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		final ByteBuffer[] segments = MappedBuffers.mapSegments( file, offset, planeBytes( dim, 1, 2 ), numPlanes( dim ), order, writable );
+		final ShortBuffer[] planes = new ShortBuffer[ segments.length ];
+		for ( int i = 0; i < segments.length; ++i )
+			planes[ i ] = segments[ i ].asShortBuffer();
+		return unsignedShorts( planes, dim );
+	}
+	
 	/**
 	 * Create an {@link PlanarImg}<{@link ShortType}, {@link ShortArray}>.
 	 * 
@@ -116,6 +288,51 @@ final public class PlanarImgs
 		return ( PlanarImg< ShortType, ShortArray > )new PlanarImgFactory< ShortType >().create( dim, new ShortType() );
 	}
 	
+	/**
+	 * Creates a {@link PlanarImg}<{@link ShortType}, {@link ShortBufferAccess}>
+	 * whose planes are the passed {@link ShortBuffer}s, e.g., views on
+	 * memory-mapped regions of a file (see {@link MappedBuffers}).
+	 * 
+	 * @param planes
+	 * @param dim
+	 * @return
+	 */
+	final public static PlanarImg< ShortType, ShortBufferAccess > shorts( final ShortBuffer[] planes, final long... dim )
+	{
+		final PlanarImg< ShortType, ShortBufferAccess > img = new PlanarImg< ShortType, ShortBufferAccess >( dim, 1 );
+		checkNumPlanes( img, planes.length );
+		for ( int i = 0; i < planes.length; ++i )
+			img.setPlane( i, new ShortBufferAccess( planes[ i ] ) );
+		final ShortType t = new ShortType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates a {@link PlanarImg}<{@link ShortType}, {@link ShortBufferAccess}>
+	 * whose planes are consecutive memory-mapped regions of a raw file (see
+	 * {@link MappedBuffers#mapSegments(File, long, long, int, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static PlanarImg< ShortType, ShortBufferAccess > shorts( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		final ByteBuffer[] segments = MappedBuffers.mapSegments( file, offset, planeBytes( dim, 1, 2 ), numPlanes( dim ), order, writable );
+		final ShortBuffer[] planes = new ShortBuffer[ segments.length ];
+		for ( int i = 0; i < segments.length; ++i )
+			planes[ i ] = segments[ i ].asShortBuffer();
+		return shorts( planes, dim );
+	}
+	
 	/**
 	 * Create an {@link PlanarImg}<{@link UnsignedIntType}, {@link IntArray}>.
 	 * 
@@ -128,6 +345,51 @@ final public class PlanarImgs
 		return ( PlanarImg< UnsignedIntType, IntArray > )new PlanarImgFactory< UnsignedIntType >().create( dim, new UnsignedIntType() );
 	}
 	
+	/**
+	 * Creates a {@link PlanarImg}<{@link UnsignedIntType}, {@link IntBufferAccess}>
+	 * whose planes are the passed {@link IntBuffer}s, e.g., views on
+	 * memory-mapped regions of a file (see {@link MappedBuffers}).
+	 * 
+	 * @param planes
+	 * @param dim
+	 * @return
+	 */
+	final public static PlanarImg< UnsignedIntType, IntBufferAccess > unsignedInts( final IntBuffer[] planes, final long... dim )
+	{
+		final PlanarImg< UnsignedIntType, IntBufferAccess > img = new PlanarImg< UnsignedIntType, IntBufferAccess >( dim, 1 );
+		checkNumPlanes( img, planes.length );
+		for ( int i = 0; i < planes.length; ++i )
+			img.setPlane( i, new IntBufferAccess( planes[ i ] ) );
+		final UnsignedIntType t = new UnsignedIntType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates a {@link PlanarImg}<{@link UnsignedIntType}, {@link IntBufferAccess}>
+	 * whose planes are consecutive memory-mapped regions of a raw file (see
+	 * {@link MappedBuffers#mapSegments(File, long, long, int, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static PlanarImg< UnsignedIntType, IntBufferAccess > unsignedInts( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		final ByteBuffer[] segments = MappedBuffers.mapSegments( file, offset, planeBytes( dim, 1, 4 ), numPlanes( dim ), order, writable );
+		final IntBuffer[] planes = new IntBuffer[ segments.length ];
+		for ( int i = 0; i < segments.length; ++i )
+			planes[ i ] = segments[ i ].asIntBuffer();
+		return unsignedInts( planes, dim );
+	}
+	
 	/**
 	 * Create an {@link PlanarImg}<{@link IntType}, {@link IntArray}>.
 	 * 
@@ -140,6 +402,51 @@ final public class PlanarImgs
 		return ( PlanarImg< IntType, IntArray > )new PlanarImgFactory< IntType >().create( dim, new IntType() );
 	}
 	
+	/**
+	 * Creates a {@link PlanarImg}<{@link IntType}, {@link IntBufferAccess}>
+	 * whose planes are the passed {@link IntBuffer}s, e.g., views on
+	 * memory-mapped regions of a file (see {@link MappedBuffers}).
+	 * 
+	 * @param planes
+	 * @param dim
+	 * @return
+	 */
+	final public static PlanarImg< IntType, IntBufferAccess > ints( final IntBuffer[] planes, final long... dim )
+	{
+		final PlanarImg< IntType, IntBufferAccess > img = new PlanarImg< IntType, IntBufferAccess >( dim, 1 );
+		checkNumPlanes( img, planes.length );
+		for ( int i = 0; i < planes.length; ++i )
+			img.setPlane( i, new IntBufferAccess( planes[ i ] ) );
+		final IntType t = new IntType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates a {@link PlanarImg}<{@link IntType}, {@link IntBufferAccess}>
+	 * whose planes are consecutive memory-mapped regions of a raw file (see
+	 * {@link MappedBuffers#mapSegments(File, long, long, int, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static PlanarImg< IntType, IntBufferAccess > ints( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		final ByteBuffer[] segments = MappedBuffers.mapSegments( file, offset, planeBytes( dim, 1, 4 ), numPlanes( dim ), order, writable );
+		final IntBuffer[] planes = new IntBuffer[ segments.length ];
+		for ( int i = 0; i < segments.length; ++i )
+			planes[ i ] = segments[ i ].asIntBuffer();
+		return ints( planes, dim );
+	}
+	
 	/**
 	 * Create an {@link PlanarImg}<{@link LongType}, {@link LongArray}>.
 	 * 
@@ -152,6 +459,51 @@ final public class PlanarImgs
 		return ( PlanarImg< LongType, LongArray > )new PlanarImgFactory< LongType >().create( dim, new LongType() );
 	}
 	
+	/**
+	 * Creates a {@link PlanarImg}<{@link LongType}, {@link LongBufferAccess}>
+	 * whose planes are the passed {@link LongBuffer}s, e.g., views on
+	 * memory-mapped regions of a file (see {@link MappedBuffers}).
+	 * 
+	 * @param planes
+	 * @param dim
+	 * @return
+	 */
+	final public static PlanarImg< LongType, LongBufferAccess > longs( final LongBuffer[] planes, final long... dim )
+	{
+		final PlanarImg< LongType, LongBufferAccess > img = new PlanarImg< LongType, LongBufferAccess >( dim, 1 );
+		checkNumPlanes( img, planes.length );
+		for ( int i = 0; i < planes.length; ++i )
+			img.setPlane( i, new LongBufferAccess( planes[ i ] ) );
+		final LongType t = new LongType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates a {@link PlanarImg}<{@link LongType}, {@link LongBufferAccess}>
+	 * whose planes are consecutive memory-mapped regions of a raw file (see
+	 * {@link MappedBuffers#mapSegments(File, long, long, int, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static PlanarImg< LongType, LongBufferAccess > longs( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		final ByteBuffer[] segments = MappedBuffers.mapSegments( file, offset, planeBytes( dim, 1, 8 ), numPlanes( dim ), order, writable );
+		final LongBuffer[] planes = new LongBuffer[ segments.length ];
+		for ( int i = 0; i < segments.length; ++i )
+			planes[ i ] = segments[ i ].asLongBuffer();
+		return longs( planes, dim );
+	}
+	
 	/**
 	 * Create an {@link PlanarImg}<{@link BitType}, {@link BitArray}>.
 	 * 
@@ -176,6 +528,51 @@ final public class PlanarImgs
 		return ( PlanarImg< FloatType, FloatArray > )new PlanarImgFactory< FloatType >().create( dim, new FloatType() );
 	}
 	
+	/**
+	 * Creates a {@link PlanarImg}<{@link FloatType}, {@link FloatBufferAccess}>
+	 * whose planes are the passed {@link FloatBuffer}s, e.g., views on
+	 * memory-mapped regions of a file (see {@link MappedBuffers}).
+	 * 
+	 * @param planes
+	 * @param dim
+	 * @return
+	 */
+	final public static PlanarImg< FloatType, FloatBufferAccess > floats( final FloatBuffer[] planes, final long... dim )
+	{
+		final PlanarImg< FloatType, FloatBufferAccess > img = new PlanarImg< FloatType, FloatBufferAccess >( dim, 1 );
+		checkNumPlanes( img, planes.length );
+		for ( int i = 0; i < planes.length; ++i )
+			img.setPlane( i, new FloatBufferAccess( planes[ i ] ) );
+		final FloatType t = new FloatType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates a {@link PlanarImg}<{@link FloatType}, {@link FloatBufferAccess}>
+	 * whose planes are consecutive memory-mapped regions of a raw file (see
+	 * {@link MappedBuffers#mapSegments(File, long, long, int, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static PlanarImg< FloatType, FloatBufferAccess > floats( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		final ByteBuffer[] segments = MappedBuffers.mapSegments( file, offset, planeBytes( dim, 1, 4 ), numPlanes( dim ), order, writable );
+		final FloatBuffer[] planes = new FloatBuffer[ segments.length ];
+		for ( int i = 0; i < segments.length; ++i )
+			planes[ i ] = segments[ i ].asFloatBuffer();
+		return floats( planes, dim );
+	}
+	
 	/**
 	 * Create an {@link PlanarImg}<{@link DoubleType}, {@link DoubleArray}>.
 	 * 
@@ -188,6 +585,51 @@ final public class PlanarImgs
 		return ( PlanarImg< DoubleType, DoubleArray > )new PlanarImgFactory< DoubleType >().create( dim, new DoubleType() );
 	}
 	
+	/**
+	 * Creates a {@link PlanarImg}<{@link DoubleType}, {@link DoubleBufferAccess}>
+	 * whose planes are the passed {@link DoubleBuffer}s, e.g., views on
+	 * memory-mapped regions of a file (see {@link MappedBuffers}).
+	 * 
+	 * @param planes
+	 * @param dim
+	 * @return
+	 */
+	final public static PlanarImg< DoubleType, DoubleBufferAccess > doubles( final DoubleBuffer[] planes, final long... dim )
+	{
+		final PlanarImg< DoubleType, DoubleBufferAccess > img = new PlanarImg< DoubleType, DoubleBufferAccess >( dim, 1 );
+		checkNumPlanes( img, planes.length );
+		for ( int i = 0; i < planes.length; ++i )
+			img.setPlane( i, new DoubleBufferAccess( planes[ i ] ) );
+		final DoubleType t = new DoubleType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates a {@link PlanarImg}<{@link DoubleType}, {@link DoubleBufferAccess}>
+	 * whose planes are consecutive memory-mapped regions of a raw file (see
+	 * {@link MappedBuffers#mapSegments(File, long, long, int, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static PlanarImg< DoubleType, DoubleBufferAccess > doubles( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		final ByteBuffer[] segments = MappedBuffers.mapSegments( file, offset, planeBytes( dim, 1, 8 ), numPlanes( dim ), order, writable );
+		final DoubleBuffer[] planes = new DoubleBuffer[ segments.length ];
+		for ( int i = 0; i < segments.length; ++i )
+			planes[ i ] = segments[ i ].asDoubleBuffer();
+		return doubles( planes, dim );
+	}
+	
 	/**
 	 * Create an {@link PlanarImg}<{@link ARGBType}, {@link IntArray}>.
 	 * 
@@ -200,6 +642,51 @@ final public class PlanarImgs
 		return ( PlanarImg< ARGBType, IntArray > )new PlanarImgFactory< ARGBType >().create( dim, new ARGBType() );
 	}
 	
+	/**
+	 * Creates a {@link PlanarImg}<{@link ARGBType}, {@link IntBufferAccess}>
+	 * whose planes are the passed {@link IntBuffer}s, e.g., views on
+	 * memory-mapped regions of a file (see {@link MappedBuffers}).
+	 * 
+	 * @param planes
+	 * @param dim
+	 * @return
+	 */
+	final public static PlanarImg< ARGBType, IntBufferAccess > argbs( final IntBuffer[] planes, final long... dim )
+	{
+		final PlanarImg< ARGBType, IntBufferAccess > img = new PlanarImg< ARGBType, IntBufferAccess >( dim, 1 );
+		checkNumPlanes( img, planes.length );
+		for ( int i = 0; i < planes.length; ++i )
+			img.setPlane( i, new IntBufferAccess( planes[ i ] ) );
+		final ARGBType t = new ARGBType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates a {@link PlanarImg}<{@link ARGBType}, {@link IntBufferAccess}>
+	 * whose planes are consecutive memory-mapped regions of a raw file (see
+	 * {@link MappedBuffers#mapSegments(File, long, long, int, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static PlanarImg< ARGBType, IntBufferAccess > argbs( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		final ByteBuffer[] segments = MappedBuffers.mapSegments( file, offset, planeBytes( dim, 1, 4 ), numPlanes( dim ), order, writable );
+		final IntBuffer[] planes = new IntBuffer[ segments.length ];
+		for ( int i = 0; i < segments.length; ++i )
+			planes[ i ] = segments[ i ].asIntBuffer();
+		return argbs( planes, dim );
+	}
+	
 	/**
 	 * Create an {@link PlanarImg}<{@link ComplexFloatType}, {@link FloatArray}>.
 	 * 
@@ -212,6 +699,51 @@ final public class PlanarImgs
 		return ( PlanarImg< ComplexFloatType, FloatArray > )new PlanarImgFactory< ComplexFloatType >().create( dim, new ComplexFloatType() );
 	}
 	
+	/**
+	 * Creates a {@link PlanarImg}<{@link ComplexFloatType}, {@link FloatBufferAccess}>
+	 * whose planes are the passed {@link FloatBuffer}s, e.g., views on
+	 * memory-mapped regions of a file (see {@link MappedBuffers}).
+	 * 
+	 * @param planes
+	 * @param dim
+	 * @return
+	 */
+	final public static PlanarImg< ComplexFloatType, FloatBufferAccess > complexFloats( final FloatBuffer[] planes, final long... dim )
+	{
+		final PlanarImg< ComplexFloatType, FloatBufferAccess > img = new PlanarImg< ComplexFloatType, FloatBufferAccess >( dim, 2 );
+		checkNumPlanes( img, planes.length );
+		for ( int i = 0; i < planes.length; ++i )
+			img.setPlane( i, new FloatBufferAccess( planes[ i ] ) );
+		final ComplexFloatType t = new ComplexFloatType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates a {@link PlanarImg}<{@link ComplexFloatType}, {@link FloatBufferAccess}>
+	 * whose planes are consecutive memory-mapped regions of a raw file (see
+	 * {@link MappedBuffers#mapSegments(File, long, long, int, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static PlanarImg< ComplexFloatType, FloatBufferAccess > complexFloats( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		final ByteBuffer[] segments = MappedBuffers.mapSegments( file, offset, planeBytes( dim, 2, 4 ), numPlanes( dim ), order, writable );
+		final FloatBuffer[] planes = new FloatBuffer[ segments.length ];
+		for ( int i = 0; i < segments.length; ++i )
+			planes[ i ] = segments[ i ].asFloatBuffer();
+		return complexFloats( planes, dim );
+	}
+	
 	/**
 	 * Create an {@link PlanarImg}<{@link ComplexDoubleType}, {@link DoubleArray}>.
 	 * 
@@ -223,4 +755,49 @@ final public class PlanarImgs
 	{
 		return ( PlanarImg< ComplexDoubleType, DoubleArray > )new PlanarImgFactory< ComplexDoubleType >().create( dim, new ComplexDoubleType() );
 	}
+	
+	/**
+	 * Creates a {@link PlanarImg}<{@link ComplexDoubleType}, {@link DoubleBufferAccess}>
+	 * whose planes are the passed {@link DoubleBuffer}s, e.g., views on
+	 * memory-mapped regions of a file (see {@link MappedBuffers}).
+	 * 
+	 * @param planes
+	 * @param dim
+	 * @return
+	 */
+	final public static PlanarImg< ComplexDoubleType, DoubleBufferAccess > complexDoubles( final DoubleBuffer[] planes, final long... dim )
+	{
+		final PlanarImg< ComplexDoubleType, DoubleBufferAccess > img = new PlanarImg< ComplexDoubleType, DoubleBufferAccess >( dim, 2 );
+		checkNumPlanes( img, planes.length );
+		for ( int i = 0; i < planes.length; ++i )
+			img.setPlane( i, new DoubleBufferAccess( planes[ i ] ) );
+		final ComplexDoubleType t = new ComplexDoubleType( img );
+		img.setLinkedType( t );
+		return img;
+	}
+	
+	/**
+	 * Creates a {@link PlanarImg}<{@link ComplexDoubleType}, {@link DoubleBufferAccess}>
+	 * whose planes are consecutive memory-mapped regions of a raw file (see
+	 * {@link MappedBuffers#mapSegments(File, long, long, int, ByteOrder, boolean)}).
+	 * 
+	 * @param file
+	 * @param offset
+	 *            position of the first pixel in the file.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether changes of pixel values are written to the file.
+	 * @param dim
+	 * @return
+	 * @throws IOException
+	 */
+	final public static PlanarImg< ComplexDoubleType, DoubleBufferAccess > complexDoubles( final File file, final long offset, final ByteOrder order, final boolean writable, final long... dim ) throws IOException
+	{
+		final ByteBuffer[] segments = MappedBuffers.mapSegments( file, offset, planeBytes( dim, 2, 8 ), numPlanes( dim ), order, writable );
+		final DoubleBuffer[] planes = new DoubleBuffer[ segments.length ];
+		for ( int i = 0; i < segments.length; ++i )
+			planes[ i ] = segments[ i ].asDoubleBuffer();
+		return complexDoubles( planes, dim );
+	}
 }
@@ -42,6 +42,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import net.imglib2.Cursor;
+import net.imglib2.Interval;
 import net.imglib2.RandomAccess;
 import net.imglib2.roi.AbstractIterableRegionOfInterest;
 import net.imglib2.roi.IterableRegionOfInterest;
@@ -51,6 +52,11 @@ import net.imglib2.roi.RegionOfInterest;
  * A relatively conservative strategy suitable for blobby objects - retain the
  * bounding boxes and raster starts and reconstruct the cursors by scanning.
  * 
+ * For a {@link NativeImgLabeling}, the statistics are computed in parallel
+ * from the index image by {@link LabelingStatistics} and can be updated
+ * incrementally with {@link #update(Interval)}. Its regions of interest iterate
+ * over the runs of a {@link RunLengthIndex} instead of scanning.
+ * 
  * @param <T>
  *            - the type used to label the space
  * @param <L>
@@ -107,6 +113,20 @@ public class DefaultROIStrategy< T extends Comparable< T >, L extends Labeling<
 
 	protected Map< T, LabelStatistics > statistics;
 
+	/**
+	 * The statistics of a {@link NativeImgLabeling}, null for other labelings
+	 * and before the statistics are first computed.
+	 */
+	protected LabelingStatistics< T > labelingStatistics;
+
+	/**
+	 * The runs of the labels of a {@link NativeImgLabeling}, rebuilt when
+	 * regions are requested after the labeling changed.
+	 */
+	protected RunLengthIndex< T > runLengthIndex;
+
+	protected long runLengthGeneration;
+
 	public DefaultROIStrategy( final L labeling )
 	{
 		this.labeling = labeling;
@@ -121,6 +141,17 @@ public class DefaultROIStrategy< T extends Comparable< T >, L extends Labeling<
 		LabelingType< T > type = labeling.firstElement();
 		if ( ( type == null ) || ( type.getGeneration() != generation ) )
 		{
+			// the strategy is created before the storage of the labeling
+			if ( labelingStatistics == null && labeling instanceof NativeImgLabeling )
+				labelingStatistics = createLabelingStatistics();
+
+			if ( labelingStatistics != null )
+			{
+				labelingStatistics.compute();
+				generation = type == null ? Long.MIN_VALUE : type.getGeneration();
+				return;
+			}
+
 			statistics = new HashMap< T, LabelStatistics >();
 			final long[] position = new long[ labeling.numDimensions() ];
 			LabelStatistics last = null;
@@ -151,10 +182,69 @@ public class DefaultROIStrategy< T extends Comparable< T >, L extends Labeling<
 		}
 	}
 
+	@SuppressWarnings( "unchecked" )
+	private LabelingStatistics< T > createLabelingStatistics()
+	{
+		return new LabelingStatistics< T >( ( NativeImgLabeling< T, ? > ) labeling );
+	}
+
+	/**
+	 * @return the run-length index of a {@link NativeImgLabeling}, rebuilt if
+	 *         the labeling changed.
+	 */
+	@SuppressWarnings( "unchecked" )
+	protected synchronized RunLengthIndex< T > getRunLengthIndex()
+	{
+		final LabelingType< T > type = labeling.firstElement();
+		if ( runLengthIndex == null || type == null || type.getGeneration() != runLengthGeneration )
+		{
+			runLengthIndex = new RunLengthIndex< T >( ( NativeImgLabeling< T, ? > ) labeling );
+			runLengthGeneration = type == null ? Long.MIN_VALUE : type.getGeneration();
+		}
+		return runLengthIndex;
+	}
+
+	/**
+	 * Update the statistics after the labeling was changed within an interval.
+	 * For a {@link NativeImgLabeling}, only the part of the labeling around the
+	 * interval is scanned again, otherwise all statistics are recomputed. The
+	 * labeling must not have changed outside of the interval since the
+	 * statistics were last computed.
+	 * 
+	 * @param changed
+	 *            - the interval containing all changed pixels
+	 */
+	public synchronized void update( final Interval changed )
+	{
+		final LabelingType< T > type = labeling.firstElement();
+		if ( labelingStatistics == null || type == null || generation == Long.MIN_VALUE )
+		{
+			computeStatistics();
+			return;
+		}
+		if ( type.getGeneration() != generation )
+		{
+			labelingStatistics.update( changed );
+			generation = type.getGeneration();
+		}
+	}
+
+	/**
+	 * @return the statistics (including centroids) of a
+	 *         {@link NativeImgLabeling}, null for other labelings.
+	 */
+	public LabelingStatistics< T > getLabelingStatistics()
+	{
+		computeStatistics();
+		return labelingStatistics;
+	}
+
 	@Override
 	public boolean getExtents( final T label, final long[] minExtents, final long[] maxExtents )
 	{
 		computeStatistics();
+		if ( labelingStatistics != null )
+			return labelingStatistics.getExtents( label, minExtents, maxExtents );
 		final LabelStatistics stats = statistics.get( label );
 		if ( stats == null )
 		{
@@ -172,6 +262,8 @@ public class DefaultROIStrategy< T extends Comparable< T >, L extends Labeling<
 	public boolean getRasterStart( final T label, final long[] start )
 	{
 		computeStatistics();
+		if ( labelingStatistics != null )
+			return labelingStatistics.getRasterStart( label, start );
 		final LabelStatistics stats = statistics.get( label );
 		if ( stats == null )
 		{
@@ -186,6 +278,8 @@ public class DefaultROIStrategy< T extends Comparable< T >, L extends Labeling<
 	public long getArea( final T label )
 	{
 		computeStatistics();
+		if ( labelingStatistics != null )
+			return labelingStatistics.getArea( label );
 		final LabelStatistics stats = statistics.get( label );
 		if ( stats == null ) { return 0; }
 		return stats.getArea();
@@ -195,6 +289,8 @@ public class DefaultROIStrategy< T extends Comparable< T >, L extends Labeling<
 	public Collection< T > getLabels()
 	{
 		computeStatistics();
+		if ( labelingStatistics != null )
+			return labelingStatistics.getLabels();
 		return statistics.keySet();
 	}
 
@@ -215,7 +311,7 @@ public class DefaultROIStrategy< T extends Comparable< T >, L extends Labeling<
 
 		final RandomAccess< LabelingType< T >> randomAccess;
 
-		final LabelStatistics labelStats;
+		final long area;
 
 		final long[] min;
 
@@ -232,17 +328,18 @@ public class DefaultROIStrategy< T extends Comparable< T >, L extends Labeling<
 			super( labeling.numDimensions() );
 			this.label = label;
 			randomAccess = new LabelingOutOfBoundsRandomAccess< T >( labeling );
-			computeStatistics();
-			labelStats = statistics.get( label );
 			min = new long[ labeling.numDimensions() ];
 			max = new long[ labeling.numDimensions() ];
 			firstRaster = new long[ labeling.numDimensions() ];
-			labelStats.getExtents( min, max );
-			labelStats.getRasterStart( firstRaster );
+			synchronized ( DefaultROIStrategy.this )
+			{
+				getExtents( label, min, max );
+				getRasterStart( label, firstRaster );
+				area = getArea( label );
+			}
 			real_min = new double[ labeling.numDimensions() ];
 			real_max = new double[ labeling.numDimensions() ];
 
-			labelStats.getExtents( min, max );
 			for ( int i = 0; i < labeling.numDimensions(); i++ )
 			{
 				real_min[ i ] = min[ i ];
@@ -253,7 +350,7 @@ public class DefaultROIStrategy< T extends Comparable< T >, L extends Labeling<
 		@Override
 		protected long size()
 		{
-			return labelStats.getArea();
+			return area;
 		}
 
 		@Override
@@ -333,12 +430,14 @@ public class DefaultROIStrategy< T extends Comparable< T >, L extends Labeling<
 	@Override
 	public RegionOfInterest createRegionOfInterest( final T label )
 	{
-		return new DefaultRegionOfInterest( label );
+		return createIterableRegionOfInterest( label );
 	}
 
 	@Override
 	public IterableRegionOfInterest createIterableRegionOfInterest( final T label )
 	{
+		if ( labeling instanceof NativeImgLabeling )
+			return getRunLengthIndex().createIterableRegionOfInterest( label );
 		return new DefaultRegionOfInterest( label );
 	}
 
@@ -37,16 +37,17 @@ package net.imglib2.labeling;
 
 
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.imglib2.type.numeric.IntegerType;
 
@@ -63,6 +64,10 @@ import net.imglib2.type.numeric.IntegerType;
  * caller first interns { "Foo", "Bar" } and then requests the mapping of the
  * returned object.
  * 
+ * The mapping can be used by several threads at once. Looking up lists that
+ * were interned before and {@link #listAtIndex(int)} do not lock, only adding
+ * a new list does.
+ * 
  * @param <T>
  * @param <N>
  * 
@@ -266,9 +271,44 @@ public class LabelingMapping< T extends Comparable< T >>
 		}
 	}
 
-	protected Map< List< T >, InternedList< T >> internedLists = new HashMap< List< T >, InternedList< T >>();
+	/**
+	 * Interned lists by content. Lookups are lock-free, new lists are added
+	 * while holding the lock of this mapping.
+	 */
+	protected Map< List< T >, InternedList< T >> internedLists = new ConcurrentHashMap< List< T >, InternedList< T >>();
+
+	/**
+	 * Interned single-label lists by label, to look up single labels without
+	 * creating a list.
+	 */
+	protected final ConcurrentHashMap< T, InternedList< T >> internedLabels = new ConcurrentHashMap< T, InternedList< T >>();
+
+	/**
+	 * Interned lists by index. The array is replaced when it grows and is
+	 * republished after every insertion, so it can be read without locking.
+	 */
+	@SuppressWarnings( { "rawtypes", "unchecked" } )
+	private volatile InternedList< T >[] listArray = new InternedList[ 16 ];
+
+	/**
+	 * A read-only view of the interned lists by index.
+	 */
+	protected final List< InternedList< T >> listsByIndex = new AbstractList< InternedList< T >>()
+	{
+		@Override
+		public InternedList< T > get( final int index )
+		{
+			return ( InternedList< T > ) listAtIndex( index );
+		}
+
+		@Override
+		public int size()
+		{
+			return numLists;
+		}
+	};
 
-	protected List< InternedList< T >> listsByIndex = new ArrayList< InternedList< T >>();
+	private volatile int numLists = 0;
 
 	public List< T > emptyList()
 	{
@@ -281,43 +321,102 @@ public class LabelingMapping< T extends Comparable< T >>
 	 * @param src
 	 * @return
 	 */
-	public synchronized List< T > intern( final List< T > src )
+	public List< T > intern( final List< T > src )
 	{
 		return internImpl( src );
 	}
 
-	private InternedList< T > internImpl( List< T > src )
+	private InternedList< T > internImpl( final List< T > src )
 	{
-
-		InternedList< T > interned;
-
 		if ( src instanceof InternedList )
 		{
-			interned = ( InternedList< T > ) src;
+			final InternedList< T > interned = ( InternedList< T > ) src;
 			if ( interned.owner == this ) { return interned; }
 		}
-		if ( src.size() != 0 )
+
+		final List< T > key;
+		if ( isSorted( src ) )
+			key = src;
+		else
 		{
-			final List< T > copy = new ArrayList< T >( src );
-			Collections.sort( copy );
-			src = copy;
+			key = new ArrayList< T >( src );
+			Collections.sort( key );
 		}
 
-		interned = internedLists.get( src );
+		final InternedList< T > interned = internedLists.get( key );
+		if ( interned != null )
+			return interned;
+
+		return add( key );
+	}
+
+	/**
+	 * Add a new interned list for the sorted list <em>key</em>, unless another
+	 * thread did so in the meantime.
+	 */
+	private synchronized InternedList< T > add( final List< T > key )
+	{
+		InternedList< T > interned = internedLists.get( key );
 
 		if ( interned == null )
 		{
-			final int intIndex = listsByIndex.size();
+			final int intIndex = numLists;
 
 			if ( intIndex > maxNumLabels )
 				throw new AssertionError( String.format( "Too many labels (or types of multiply-labeled pixels): %d maximum", intIndex ) );
 
-			interned = new InternedList< T >( src, intIndex, this );
-			listsByIndex.add( interned );
-			internedLists.put( src, interned );
+			interned = new InternedList< T >( new ArrayList< T >( key ), intIndex, this );
 
+			InternedList< T >[] lists = listArray;
+			if ( intIndex == lists.length )
+				lists = Arrays.copyOf( lists, 2 * lists.length );
+			lists[ intIndex ] = interned;
+
+			// publish the list by index before it can be found by content
+			listArray = lists;
+			numLists = intIndex + 1;
+			internedLists.put( interned.value, interned );
+		}
+
+		return interned;
+	}
+
+	private static < T extends Comparable< T >> boolean isSorted( final List< T > list )
+	{
+		final Iterator< T > i = list.iterator();
+		if ( !i.hasNext() )
+			return true;
+		T previous = i.next();
+		while ( i.hasNext() )
+		{
+			final T current = i.next();
+			if ( previous.compareTo( current ) > 0 )
+				return false;
+			previous = current;
 		}
+		return true;
+	}
+
+	/**
+	 * Return the canonical list containing only the given label. This does not
+	 * create a list if the label was interned before.
+	 * 
+	 * @param label
+	 * @return
+	 */
+	public List< T > internLabel( final T label )
+	{
+		return internLabelImpl( label );
+	}
 
+	private InternedList< T > internLabelImpl( final T label )
+	{
+		InternedList< T > interned = internedLabels.get( label );
+		if ( interned == null )
+		{
+			interned = internImpl( Collections.singletonList( label ) );
+			internedLabels.putIfAbsent( label, interned );
+		}
 		return interned;
 	}
 
@@ -337,9 +436,32 @@ public class LabelingMapping< T extends Comparable< T >>
 		return indexOf( intern( key ) );
 	}
 
+	/**
+	 * @param label
+	 * @return the index of the list containing only the given label.
+	 */
+	public int indexOfLabel( final T label )
+	{
+		return internLabelImpl( label ).index;
+	}
+
 	public final List< T > listAtIndex( final int index )
 	{
-		return listsByIndex.get( index );
+		final InternedList< T >[] lists = listArray;
+		if ( index < lists.length )
+		{
+			final InternedList< T > interned = lists[ index ];
+			if ( interned != null )
+				return interned;
+		}
+
+		// the list was added by another thread and is not yet visible to this one
+		synchronized ( this )
+		{
+			if ( index < 0 || index >= numLists )
+				throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + numLists );
+			return listArray[ index ];
+		}
 	}
 
 	/**
@@ -349,7 +471,7 @@ public class LabelingMapping< T extends Comparable< T >>
 	 */
 	public int numLists()
 	{
-		return listsByIndex.size();
+		return numLists;
 	}
 
 	/**
@@ -358,8 +480,11 @@ public class LabelingMapping< T extends Comparable< T >>
 	public List< T > getLabels()
 	{
 		final HashSet< T > result = new HashSet< T >();
-		for ( final InternedList< T > instance : listsByIndex )
+		final int n = numLists;
+		final InternedList< T >[] lists = listArray;
+		for ( int i = 0; i < n; ++i )
 		{
+			final InternedList< T > instance = lists[ i ];
 			for ( final T label : instance )
 			{
 				result.add( label );
@@ -0,0 +1,716 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.labeling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+
+/**
+ * Per-label statistics of a labeling that is stored as an image of indices
+ * into a {@link LabelingMapping}: area, bounding box, raster start and
+ * centroid of every label and, if an intensity image is given, the sum and
+ * sum of squares of the intensities and the intensity-weighted centroid.
+ * 
+ * The index image is divided into slabs along the last dimension which are
+ * scanned in parallel. Every slab keeps its own compact accumulators (one
+ * entry per index occurring in the slab), which are merged into primitive
+ * arrays indexed by the mapping's integer index and from there into the
+ * per-label statistics. When only a part of the labeling changes,
+ * {@link #update(Interval)} rescans just the slabs intersecting the changed
+ * interval.
+ * 
+ * @param <T>
+ *            - the type used to label the space
+ * 
+ * @author ImgLib2 developers
+ */
+public class LabelingStatistics< T extends Comparable< T >>
+{
+	/**
+	 * The default minimal number of pixels per slab.
+	 */
+	final public static long DEFAULT_SLAB_SIZE = 64 * 1024;
+
+	final protected RandomAccessibleInterval< ? extends IntegerType< ? >> indices;
+
+	final protected RandomAccessibleInterval< ? extends RealType< ? >> intensity;
+
+	final protected LabelingMapping< T > mapping;
+
+	final protected int n;
+
+	final protected long slabHeight;
+
+	/**
+	 * The accumulators of every slab, null if the slab was not scanned yet.
+	 */
+	final protected Slab[] slabs;
+
+	/**
+	 * The statistics of every index of the mapping.
+	 */
+	final protected Accumulator indexStatistics;
+
+	/**
+	 * The statistics of every label, labels are mapped to slots by
+	 * {@link #labelSlots}.
+	 */
+	final protected Accumulator labelStatistics;
+
+	final protected HashMap< T, Integer > labelSlots = new HashMap< T, Integer >();
+
+	final protected ArrayList< T > labels = new ArrayList< T >();
+
+	protected int numIndices = 0;
+
+	protected TaskExecutor executor = TaskExecutor.getDefault();
+
+	/**
+	 * @param labeling
+	 *            - the labeling
+	 */
+	public LabelingStatistics( final NativeImgLabeling< T, ? > labeling )
+	{
+		this( labeling.getStorageImg(), labeling.getMapping(), null );
+	}
+
+	/**
+	 * @param labeling
+	 *            - the labeling
+	 * @param intensity
+	 *            - the intensities, must cover the labeling
+	 */
+	public LabelingStatistics( final NativeImgLabeling< T, ? > labeling, final RandomAccessibleInterval< ? extends RealType< ? >> intensity )
+	{
+		this( labeling.getStorageImg(), labeling.getMapping(), intensity );
+	}
+
+	/**
+	 * @param indices
+	 *            - the index image of the labeling
+	 * @param mapping
+	 *            - maps the indices to lists of labels
+	 * @param intensity
+	 *            - the intensities, must cover the index image, may be null
+	 */
+	public LabelingStatistics( final RandomAccessibleInterval< ? extends IntegerType< ? >> indices, final LabelingMapping< T > mapping, final RandomAccessibleInterval< ? extends RealType< ? >> intensity )
+	{
+		this.indices = indices;
+		this.mapping = mapping;
+		this.intensity = intensity;
+		this.n = indices.numDimensions();
+
+		final long height = indices.dimension( n - 1 );
+		final long hyperplane = Math.max( 1, numPixels( indices ) / height );
+		slabHeight = Math.max( 1, ( DEFAULT_SLAB_SIZE + hyperplane - 1 ) / hyperplane );
+		slabs = new Slab[ ( int ) ( ( height + slabHeight - 1 ) / slabHeight ) ];
+
+		indexStatistics = new Accumulator( n, intensity != null );
+		labelStatistics = new Accumulator( n, intensity != null );
+	}
+
+	public void setTaskExecutor( final TaskExecutor executor )
+	{
+		this.executor = executor;
+	}
+
+	/**
+	 * @return whether intensity moments are computed.
+	 */
+	public boolean hasIntensity()
+	{
+		return intensity != null;
+	}
+
+	/**
+	 * Compute the statistics of the whole labeling.
+	 */
+	public synchronized void compute()
+	{
+		final int[] all = new int[ slabs.length ];
+		for ( int s = 0; s < all.length; ++s )
+			all[ s ] = s;
+		scan( all );
+
+		numIndices = mapping.numLists();
+		for ( final Slab slab : slabs )
+			for ( int j = 0; j < slab.count; ++j )
+				numIndices = Math.max( numIndices, slab.indices[ j ] + 1 );
+
+		indexStatistics.ensureCapacity( numIndices );
+		for ( int i = 0; i < numIndices; ++i )
+			indexStatistics.clear( i );
+
+		for ( final Slab slab : slabs )
+			for ( int j = 0; j < slab.count; ++j )
+			{
+				final int i = slab.indices[ j ];
+				indexStatistics.addMoments( i, slab, j, 1 );
+				indexStatistics.addExtents( i, slab, j );
+			}
+
+		aggregateLabels();
+	}
+
+	/**
+	 * Update the statistics after the labeling changed within an interval.
+	 * Only the slabs intersecting the interval are rescanned. The statistics
+	 * must have been {@link #compute() computed} before and the labeling must
+	 * not have changed outside of the interval since then.
+	 * 
+	 * @param changed
+	 *            - the interval containing all changed pixels
+	 */
+	public synchronized void update( final Interval changed )
+	{
+		if ( slabs.length > 0 && slabs[ 0 ] == null )
+		{
+			compute();
+			return;
+		}
+
+		final long offset = indices.min( n - 1 );
+		final long lastPosition = changed.max( n - 1 ) - offset;
+		if ( lastPosition < 0 )
+			return;
+		final long first = Math.max( 0, changed.min( n - 1 ) - offset ) / slabHeight;
+		final long last = Math.min( slabs.length - 1, lastPosition / slabHeight );
+		if ( last < first )
+			return;
+
+		final int[] changedSlabs = new int[ ( int ) ( last - first + 1 ) ];
+		final Slab[] old = new Slab[ changedSlabs.length ];
+		for ( int k = 0; k < changedSlabs.length; ++k )
+		{
+			changedSlabs[ k ] = ( int ) first + k;
+			old[ k ] = slabs[ changedSlabs[ k ] ];
+		}
+		scan( changedSlabs );
+
+		int newNumIndices = Math.max( numIndices, mapping.numLists() );
+		for ( final int s : changedSlabs )
+			for ( int j = 0; j < slabs[ s ].count; ++j )
+				newNumIndices = Math.max( newNumIndices, slabs[ s ].indices[ j ] + 1 );
+		indexStatistics.ensureCapacity( newNumIndices );
+		for ( int i = numIndices; i < newNumIndices; ++i )
+			indexStatistics.clear( i );
+		numIndices = newNumIndices;
+
+		// sums can be updated by subtracting the old and adding the new
+		// contribution, the extents of all affected indices are merged again
+		final boolean[] dirty = new boolean[ numIndices ];
+		for ( int k = 0; k < changedSlabs.length; ++k )
+		{
+			final Slab before = old[ k ];
+			if ( before != null )
+				for ( int j = 0; j < before.count; ++j )
+				{
+					indexStatistics.addMoments( before.indices[ j ], before, j, -1 );
+					dirty[ before.indices[ j ] ] = true;
+				}
+			final Slab after = slabs[ changedSlabs[ k ] ];
+			for ( int j = 0; j < after.count; ++j )
+			{
+				indexStatistics.addMoments( after.indices[ j ], after, j, 1 );
+				dirty[ after.indices[ j ] ] = true;
+			}
+		}
+
+		for ( int i = 0; i < numIndices; ++i )
+			if ( dirty[ i ] )
+				indexStatistics.clearExtents( i );
+
+		for ( final Slab slab : slabs )
+			if ( slab != null )
+				for ( int j = 0; j < slab.count; ++j )
+				{
+					final int i = slab.indices[ j ];
+					if ( dirty[ i ] )
+						indexStatistics.addExtents( i, slab, j );
+				}
+
+		aggregateLabels();
+	}
+
+	/**
+	 * @return the labels that occur in the labeling.
+	 */
+	public synchronized Collection< T > getLabels()
+	{
+		return Collections.unmodifiableList( new ArrayList< T >( labels ) );
+	}
+
+	/**
+	 * @return the number of pixels labeled with the label.
+	 */
+	public synchronized long getArea( final T label )
+	{
+		final Integer slot = labelSlots.get( label );
+		return slot == null ? 0 : labelStatistics.area[ slot ];
+	}
+
+	/**
+	 * Get the bounding box of a label.
+	 * 
+	 * @param label
+	 * @param minExtents
+	 *            - the minimum, may be null
+	 * @param maxExtents
+	 *            - the maximum (inclusive), may be null
+	 * @return false if the label does not occur
+	 */
+	public synchronized boolean getExtents( final T label, final long[] minExtents, final long[] maxExtents )
+	{
+		final Integer slot = labelSlots.get( label );
+		if ( slot == null )
+		{
+			if ( minExtents != null )
+				Arrays.fill( minExtents, 0 );
+			if ( maxExtents != null )
+				Arrays.fill( maxExtents, 0 );
+			return false;
+		}
+		if ( minExtents != null )
+			System.arraycopy( labelStatistics.min, slot * n, minExtents, 0, n );
+		if ( maxExtents != null )
+			System.arraycopy( labelStatistics.max, slot * n, maxExtents, 0, n );
+		return true;
+	}
+
+	/**
+	 * Get the raster start of a label, the smallest position labeled with it
+	 * comparing dimension 0 first.
+	 * 
+	 * @return false if the label does not occur
+	 */
+	public synchronized boolean getRasterStart( final T label, final long[] start )
+	{
+		final Integer slot = labelSlots.get( label );
+		if ( slot == null )
+		{
+			Arrays.fill( start, 0 );
+			return false;
+		}
+		System.arraycopy( labelStatistics.raster, slot * n, start, 0, n );
+		return true;
+	}
+
+	/**
+	 * @return false if the label does not occur
+	 */
+	public synchronized boolean getCentroid( final T label, final double[] centroid )
+	{
+		final Integer slot = labelSlots.get( label );
+		if ( slot == null )
+		{
+			Arrays.fill( centroid, 0 );
+			return false;
+		}
+		for ( int d = 0; d < n; ++d )
+			centroid[ d ] = labelStatistics.sum[ slot * n + d ] / labelStatistics.area[ slot ];
+		return true;
+	}
+
+	/**
+	 * @return the sum of the intensities of the pixels labeled with the label.
+	 */
+	public synchronized double getIntensitySum( final T label )
+	{
+		checkIntensity();
+		final Integer slot = labelSlots.get( label );
+		return slot == null ? 0 : labelStatistics.sumI[ slot ];
+	}
+
+	/**
+	 * @return the mean intensity of the pixels labeled with the label.
+	 */
+	public synchronized double getMeanIntensity( final T label )
+	{
+		checkIntensity();
+		final Integer slot = labelSlots.get( label );
+		return slot == null ? 0 : labelStatistics.sumI[ slot ] / labelStatistics.area[ slot ];
+	}
+
+	/**
+	 * @return the (population) variance of the intensities of the pixels
+	 *         labeled with the label.
+	 */
+	public synchronized double getIntensityVariance( final T label )
+	{
+		checkIntensity();
+		final Integer slot = labelSlots.get( label );
+		if ( slot == null )
+			return 0;
+		final double mean = labelStatistics.sumI[ slot ] / labelStatistics.area[ slot ];
+		return Math.max( 0, labelStatistics.sumI2[ slot ] / labelStatistics.area[ slot ] - mean * mean );
+	}
+
+	/**
+	 * @return false if the label does not occur
+	 */
+	public synchronized boolean getWeightedCentroid( final T label, final double[] centroid )
+	{
+		checkIntensity();
+		final Integer slot = labelSlots.get( label );
+		if ( slot == null )
+		{
+			Arrays.fill( centroid, 0 );
+			return false;
+		}
+		for ( int d = 0; d < n; ++d )
+			centroid[ d ] = labelStatistics.sumIPos[ slot * n + d ] / labelStatistics.sumI[ slot ];
+		return true;
+	}
+
+	protected void checkIntensity()
+	{
+		if ( intensity == null )
+			throw new IllegalStateException( "No intensity image given." );
+	}
+
+	/**
+	 * Scan the given slabs in parallel. Every task scans a contiguous range of
+	 * slabs and reuses one lookup table from index to accumulator slot.
+	 */
+	protected void scan( final int[] slabIndices )
+	{
+		final long pixelsPerSlab = numPixels( indices ) / indices.dimension( n - 1 ) * slabHeight;
+		final int numTasks = Math.min( slabIndices.length, TaskExecutor.suggestNumTasks( pixelsPerSlab * slabIndices.length, executor.getParallelism() ) );
+		final int numLists = mapping.numLists();
+
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( numTasks );
+		for ( int t = 0; t < numTasks; ++t )
+		{
+			final int from = ( int ) ( ( long ) slabIndices.length * t / numTasks );
+			final int to = ( int ) ( ( long ) slabIndices.length * ( t + 1 ) / numTasks );
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					int[] slots = new int[ numLists ];
+					Arrays.fill( slots, -1 );
+					for ( int k = from; k < to; ++k )
+					{
+						final Slab slab = new Slab( n, intensity != null );
+						slots = scanSlab( slabIndices[ k ], slab, slots );
+						slabs[ slabIndices[ k ] ] = slab;
+					}
+				}
+			} );
+		}
+		executor.run( tasks );
+	}
+
+	/**
+	 * Accumulate the statistics of one slab.
+	 * 
+	 * @param slots
+	 *            - maps indices to accumulator slots, all -1
+	 * @return the slots, enlarged if an index did not fit, all -1 again
+	 */
+	protected int[] scanSlab( final int s, final Slab slab, int[] slots )
+	{
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		indices.min( min );
+		indices.max( max );
+		min[ n - 1 ] += s * slabHeight;
+		max[ n - 1 ] = Math.min( max[ n - 1 ], min[ n - 1 ] + slabHeight - 1 );
+		final FinalInterval interval = new FinalInterval( min, max );
+
+		final Cursor< ? extends IntegerType< ? >> c = Views.flatIterable( Views.interval( indices, interval ) ).localizingCursor();
+		final Cursor< ? extends RealType< ? >> ci = intensity == null ? null : Views.flatIterable( Views.interval( intensity, interval ) ).cursor();
+		final long[] position = new long[ n ];
+
+		int lastIndex = -1;
+		int lastSlot = -1;
+		while ( c.hasNext() )
+		{
+			final int index = c.next().getInteger();
+			final double value = ci == null ? 0 : ci.next().getRealDouble();
+			if ( index == 0 )
+				continue;
+
+			if ( index != lastIndex )
+			{
+				if ( index >= slots.length )
+				{
+					final int oldLength = slots.length;
+					slots = Arrays.copyOf( slots, Math.max( index + 1, 2 * oldLength ) );
+					Arrays.fill( slots, oldLength, slots.length, -1 );
+				}
+				if ( slots[ index ] < 0 )
+					slots[ index ] = slab.add( index );
+				lastIndex = index;
+				lastSlot = slots[ index ];
+			}
+
+			c.localize( position );
+			slab.add( lastSlot, position, value );
+		}
+
+		for ( int j = 0; j < slab.count; ++j )
+			slots[ slab.indices[ j ] ] = -1;
+
+		return slots;
+	}
+
+	/**
+	 * Combine the statistics of all indices into the statistics of the labels.
+	 */
+	protected void aggregateLabels()
+	{
+		labelSlots.clear();
+		labels.clear();
+
+		for ( int i = 1; i < numIndices; ++i )
+		{
+			if ( indexStatistics.area[ i ] == 0 )
+				continue;
+
+			for ( final T label : mapping.listAtIndex( i ) )
+			{
+				Integer slot = labelSlots.get( label );
+				if ( slot == null )
+				{
+					slot = labels.size();
+					labelSlots.put( label, slot );
+					labels.add( label );
+					labelStatistics.ensureCapacity( slot + 1 );
+					labelStatistics.clear( slot );
+				}
+				labelStatistics.addMoments( slot, indexStatistics, i, 1 );
+				labelStatistics.addExtents( slot, indexStatistics, i );
+			}
+		}
+	}
+
+	protected static long numPixels( final Interval interval )
+	{
+		long size = 1;
+		for ( int d = 0; d < interval.numDimensions(); ++d )
+			size *= interval.dimension( d );
+		return size;
+	}
+
+	/**
+	 * Primitive arrays of statistics, n entries per slot for the
+	 * position-dependent ones.
+	 */
+	protected static class Accumulator
+	{
+		final int n;
+
+		final boolean intensity;
+
+		long[] area = new long[ 0 ];
+
+		long[] min = new long[ 0 ];
+
+		long[] max = new long[ 0 ];
+
+		long[] raster = new long[ 0 ];
+
+		double[] sum = new double[ 0 ];
+
+		double[] sumI = new double[ 0 ];
+
+		double[] sumI2 = new double[ 0 ];
+
+		double[] sumIPos = new double[ 0 ];
+
+		Accumulator( final int n, final boolean intensity )
+		{
+			this.n = n;
+			this.intensity = intensity;
+		}
+
+		void ensureCapacity( final int slots )
+		{
+			if ( slots <= area.length )
+				return;
+			final int capacity = Math.max( slots, 2 * area.length );
+			area = Arrays.copyOf( area, capacity );
+			min = Arrays.copyOf( min, capacity * n );
+			max = Arrays.copyOf( max, capacity * n );
+			raster = Arrays.copyOf( raster, capacity * n );
+			sum = Arrays.copyOf( sum, capacity * n );
+			if ( intensity )
+			{
+				sumI = Arrays.copyOf( sumI, capacity );
+				sumI2 = Arrays.copyOf( sumI2, capacity );
+				sumIPos = Arrays.copyOf( sumIPos, capacity * n );
+			}
+		}
+
+		void clear( final int k )
+		{
+			area[ k ] = 0;
+			Arrays.fill( sum, k * n, k * n + n, 0 );
+			if ( intensity )
+			{
+				sumI[ k ] = 0;
+				sumI2[ k ] = 0;
+				Arrays.fill( sumIPos, k * n, k * n + n, 0 );
+			}
+			clearExtents( k );
+		}
+
+		void clearExtents( final int k )
+		{
+			Arrays.fill( min, k * n, k * n + n, Long.MAX_VALUE );
+			Arrays.fill( max, k * n, k * n + n, Long.MIN_VALUE );
+			Arrays.fill( raster, k * n, k * n + n, Long.MAX_VALUE );
+		}
+
+		void add( final int k, final long[] position, final double value )
+		{
+			++area[ k ];
+			final int o = k * n;
+			for ( int d = 0; d < n; ++d )
+			{
+				final long p = position[ d ];
+				if ( p < min[ o + d ] )
+					min[ o + d ] = p;
+				if ( p > max[ o + d ] )
+					max[ o + d ] = p;
+				sum[ o + d ] += p;
+			}
+			if ( isBefore( position, 0, raster, o ) )
+				System.arraycopy( position, 0, raster, o, n );
+			if ( intensity )
+			{
+				sumI[ k ] += value;
+				sumI2[ k ] += value * value;
+				for ( int d = 0; d < n; ++d )
+					sumIPos[ o + d ] += value * position[ d ];
+			}
+		}
+
+		/**
+		 * Add (sign = 1) or subtract (sign = -1) the area and sums of slot j
+		 * of another accumulator to slot k.
+		 */
+		void addMoments( final int k, final Accumulator other, final int j, final int sign )
+		{
+			area[ k ] += sign * other.area[ j ];
+			for ( int d = 0; d < n; ++d )
+				sum[ k * n + d ] += sign * other.sum[ j * n + d ];
+			if ( intensity )
+			{
+				sumI[ k ] += sign * other.sumI[ j ];
+				sumI2[ k ] += sign * other.sumI2[ j ];
+				for ( int d = 0; d < n; ++d )
+					sumIPos[ k * n + d ] += sign * other.sumIPos[ j * n + d ];
+			}
+		}
+
+		/**
+		 * Extend the bounding box and raster start of slot k by those of slot
+		 * j of another accumulator.
+		 */
+		void addExtents( final int k, final Accumulator other, final int j )
+		{
+			for ( int d = 0; d < n; ++d )
+			{
+				min[ k * n + d ] = Math.min( min[ k * n + d ], other.min[ j * n + d ] );
+				max[ k * n + d ] = Math.max( max[ k * n + d ], other.max[ j * n + d ] );
+			}
+			if ( isBefore( other.raster, j * n, raster, k * n ) )
+				System.arraycopy( other.raster, j * n, raster, k * n, n );
+		}
+
+		/**
+		 * @return whether position a precedes position b, comparing dimension 0
+		 *         first.
+		 */
+		boolean isBefore( final long[] a, final int oa, final long[] b, final int ob )
+		{
+			for ( int d = 0; d < n; ++d )
+			{
+				if ( a[ oa + d ] < b[ ob + d ] )
+					return true;
+				else if ( a[ oa + d ] > b[ ob + d ] )
+					return false;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * The accumulators of one slab, one slot for every index occurring in the
+	 * slab.
+	 */
+	protected static class Slab extends Accumulator
+	{
+		int[] indices = new int[ 0 ];
+
+		int count = 0;
+
+		Slab( final int n, final boolean intensity )
+		{
+			super( n, intensity );
+		}
+
+		/**
+		 * @return the slot for the index
+		 */
+		int add( final int index )
+		{
+			ensureCapacity( count + 1 );
+			if ( indices.length < area.length )
+				indices = Arrays.copyOf( indices, area.length );
+			indices[ count ] = index;
+			clear( count );
+			return count++;
+		}
+	}
+}
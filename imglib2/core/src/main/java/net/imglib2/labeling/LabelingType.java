@@ -39,6 +39,7 @@ package net.imglib2.labeling;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.imglib2.type.Type;
 import net.imglib2.type.numeric.IntegerType;
@@ -56,7 +57,7 @@ import net.imglib2.type.numeric.integer.IntType;
  */
 public class LabelingType< T extends Comparable< T >> implements Type< LabelingType< T >>
 {
-	final protected long[] generation;
+	final protected AtomicLong generation;
 
 	protected final LabelingMapping< T > mapping;
 
@@ -72,7 +73,7 @@ public class LabelingType< T extends Comparable< T >> implements Type< LabelingT
 	 * @param generation
 	 *            Generation of the type
 	 */
-	protected LabelingType( final IntegerType< ? > type, final LabelingMapping< T > mapping, final long[] generation )
+	protected LabelingType( final IntegerType< ? > type, final LabelingMapping< T > mapping, final AtomicLong generation )
 	{
 		this.type = type;
 		this.mapping = mapping;
@@ -84,7 +85,7 @@ public class LabelingType< T extends Comparable< T >> implements Type< LabelingT
 	{
 		this.type = type;
 		this.mapping = mapping;
-		generation = new long[ 1 ];
+		generation = new AtomicLong();
 	}
 
 	// this is the constructor if you want it to be a variable
@@ -92,7 +93,7 @@ public class LabelingType< T extends Comparable< T >> implements Type< LabelingT
 	{
 
 		mapping = new LabelingMapping< T >( new IntType() );
-		generation = new long[ 1 ];
+		generation = new AtomicLong();
 
 		this.type = new IntType();
 		setLabeling( value );
@@ -128,10 +129,7 @@ public class LabelingType< T extends Comparable< T >> implements Type< LabelingT
 	public void setLabeling( final List< T > labeling )
 	{
 		this.type.setInteger( mapping.indexOf( labeling ) );
-		synchronized ( generation )
-		{
-			generation[ 0 ]++;
-		}
+		generation.incrementAndGet();
 	}
 
 	public void setLabeling( final T[] labeling )
@@ -147,9 +145,8 @@ public class LabelingType< T extends Comparable< T >> implements Type< LabelingT
 	 */
 	public void setLabel( final T label )
 	{
-		final List< T > labeling = new ArrayList< T >( 1 );
-		labeling.add( label );
-		setLabeling( labeling );
+		this.type.setInteger( mapping.indexOfLabel( label ) );
+		generation.incrementAndGet();
 	}
 
 	/**
@@ -175,9 +172,7 @@ public class LabelingType< T extends Comparable< T >> implements Type< LabelingT
 	 */
 	public List< T > intern( final T label )
 	{
-		final List< T > labeling = new ArrayList< T >( 1 );
-		labeling.add( label );
-		return intern( labeling );
+		return mapping.internLabel( label );
 	}
 
 	// @Override
@@ -230,7 +225,7 @@ public class LabelingType< T extends Comparable< T >> implements Type< LabelingT
 	 */
 	long getGeneration()
 	{
-		return generation[ 0 ];
+		return generation.get();
 	}
 
 	public LabelingMapping< T > getMapping()
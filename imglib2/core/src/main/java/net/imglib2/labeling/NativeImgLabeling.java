@@ -38,6 +38,7 @@ package net.imglib2.labeling;
 
 
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.imglib2.Cursor;
 import net.imglib2.Interval;
@@ -61,7 +62,7 @@ import net.imglib2.type.numeric.IntegerType;
 public class NativeImgLabeling< T extends Comparable< T >, I extends IntegerType< I >> extends AbstractNativeLabeling< T >
 {
 
-	protected final long[] generation;
+	protected final AtomicLong generation;
 
 	protected final Img< I > img;
 
@@ -69,7 +70,7 @@ public class NativeImgLabeling< T extends Comparable< T >, I extends IntegerType
 	{
 		super( dimensions( img ), new DefaultROIStrategyFactory< T >(), new LabelingMapping< T >( img.firstElement().createVariable() ) );
 		this.img = img;
-		this.generation = new long[ 1 ];
+		this.generation = new AtomicLong();
 	}
 
 	private static long[] dimensions( final Interval i )
@@ -94,7 +95,7 @@ public class NativeImgLabeling< T extends Comparable< T >, I extends IntegerType
 	{
 		super( dimensions( img ), strategyFactory, new LabelingMapping< T >( img.firstElement().createVariable() ) );
 		this.img = img;
-		this.generation = new long[ 1 ];
+		this.generation = new AtomicLong();
 	}
 
 	@Override
@@ -131,6 +132,16 @@ public class NativeImgLabeling< T extends Comparable< T >, I extends IntegerType
 		return img;
 	}
 
+	/**
+	 * Increment the generation of the labeling. Call this after writing label
+	 * indices to the storage image directly, so that cached statistics and
+	 * regions of interest are recomputed.
+	 */
+	public void incrementGeneration()
+	{
+		generation.incrementAndGet();
+	}
+
 	@Override
 	public Labeling< T > copy()
 	{
@@ -0,0 +1,566 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.labeling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.roi.AbstractIterableRegionOfInterest;
+import net.imglib2.roi.IterableRegionOfInterest;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.view.Views;
+
+/**
+ * A run-length encoding of every label of a labeling that is stored as an
+ * image of indices into a {@link LabelingMapping}. For every label, the runs
+ * of consecutive pixels along dimension 0 are stored as (start, end) pairs of
+ * flat indices in iteration order. The index is built in one pass over the
+ * index image and backs {@link IterableRegionOfInterest regions of interest}
+ * whose cursors visit the runs directly instead of scanning the bounding box,
+ * so iterating all objects is linear in their total size.
+ * 
+ * The index is a snapshot, it has to be rebuilt after the labeling changed.
+ * 
+ * @param <T>
+ *            - the type used to label the space
+ * 
+ * @author ImgLib2 developers
+ */
+public class RunLengthIndex< T extends Comparable< T >>
+{
+	final protected int n;
+
+	final protected long[] min;
+
+	final protected long[] dimensions;
+
+	/**
+	 * steps[ d ] is the difference of flat indices of neighboring pixels in
+	 * dimension d.
+	 */
+	final protected long[] steps;
+
+	final protected HashMap< T, Integer > labelSlots = new HashMap< T, Integer >();
+
+	final protected ArrayList< T > labels = new ArrayList< T >();
+
+	/**
+	 * The runs of every label slot, (start, end) pairs of flat indices, end
+	 * exclusive.
+	 */
+	protected long[][] runs = new long[ 16 ][];
+
+	protected int[] numRuns = new int[ 16 ];
+
+	protected long[] areas = new long[ 16 ];
+
+	/**
+	 * Flat indices of the bounding box of every label slot, n entries per
+	 * slot.
+	 */
+	protected long[] minima = new long[ 0 ];
+
+	protected long[] maxima = new long[ 0 ];
+
+	/**
+	 * @param labeling
+	 *            - the labeling
+	 */
+	public RunLengthIndex( final NativeImgLabeling< T, ? > labeling )
+	{
+		this( labeling.getStorageImg(), labeling.getMapping() );
+	}
+
+	/**
+	 * @param indices
+	 *            - the index image of the labeling
+	 * @param mapping
+	 *            - maps the indices to lists of labels
+	 */
+	public RunLengthIndex( final RandomAccessibleInterval< ? extends IntegerType< ? >> indices, final LabelingMapping< T > mapping )
+	{
+		n = indices.numDimensions();
+		min = new long[ n ];
+		dimensions = new long[ n ];
+		steps = new long[ n ];
+		indices.min( min );
+		indices.dimensions( dimensions );
+		steps[ 0 ] = 1;
+		for ( int d = 1; d < n; ++d )
+			steps[ d ] = steps[ d - 1 ] * dimensions[ d - 1 ];
+		build( indices, mapping );
+	}
+
+	/**
+	 * Scan the index image in flat iteration order. Whenever the index
+	 * changes, the runs of labels that are not in the new list are closed and
+	 * the runs of labels that are not in the old list are opened. All runs are
+	 * closed at the end of every row.
+	 */
+	protected void build( final RandomAccessibleInterval< ? extends IntegerType< ? >> indices, final LabelingMapping< T > mapping )
+	{
+		final long rowLength = dimensions[ 0 ];
+		final int[] none = new int[ 0 ];
+		int[][] slotsOfIndex = new int[ mapping.numLists() ][];
+		long[] openStart = new long[ 16 ];
+
+		final Cursor< ? extends IntegerType< ? >> c = Views.flatIterable( indices ).cursor();
+		int previous = 0;
+		int[] open = none;
+		long x = 0;
+		long flat = 0;
+		while ( c.hasNext() )
+		{
+			final int index = c.next().getInteger();
+
+			if ( x == rowLength )
+			{
+				for ( final int slot : open )
+					addRun( slot, openStart[ slot ], flat );
+				previous = 0;
+				open = none;
+				x = 0;
+			}
+
+			if ( index != previous )
+			{
+				if ( index >= slotsOfIndex.length )
+					slotsOfIndex = Arrays.copyOf( slotsOfIndex, Math.max( index + 1, 2 * slotsOfIndex.length ) );
+				int[] current = slotsOfIndex[ index ];
+				if ( current == null )
+				{
+					current = slots( mapping.listAtIndex( index ) );
+					slotsOfIndex[ index ] = current;
+					if ( labels.size() > openStart.length )
+						openStart = Arrays.copyOf( openStart, Math.max( labels.size(), 2 * openStart.length ) );
+				}
+
+				// both slot arrays are sorted
+				int i = 0, j = 0;
+				while ( i < open.length || j < current.length )
+				{
+					if ( j == current.length || ( i < open.length && open[ i ] < current[ j ] ) )
+						addRun( open[ i++ ], openStart[ open[ i - 1 ] ], flat );
+					else if ( i == open.length || current[ j ] < open[ i ] )
+						openStart[ current[ j++ ] ] = flat;
+					else
+					{
+						++i;
+						++j;
+					}
+				}
+				previous = index;
+				open = current;
+			}
+
+			++x;
+			++flat;
+		}
+		for ( final int slot : open )
+			addRun( slot, openStart[ slot ], flat );
+
+		computeExtents();
+	}
+
+	/**
+	 * @return the sorted slots of the labels of a list, new labels get new
+	 *         slots.
+	 */
+	protected int[] slots( final Collection< T > list )
+	{
+		final int[] slots = new int[ list.size() ];
+		int k = 0;
+		for ( final T label : list )
+		{
+			Integer slot = labelSlots.get( label );
+			if ( slot == null )
+			{
+				slot = labels.size();
+				labelSlots.put( label, slot );
+				labels.add( label );
+				if ( slot >= runs.length )
+				{
+					final int capacity = 2 * runs.length;
+					runs = Arrays.copyOf( runs, capacity );
+					numRuns = Arrays.copyOf( numRuns, capacity );
+					areas = Arrays.copyOf( areas, capacity );
+				}
+			}
+			slots[ k++ ] = slot;
+		}
+		Arrays.sort( slots );
+		return slots;
+	}
+
+	protected void addRun( final int slot, final long start, final long end )
+	{
+		long[] r = runs[ slot ];
+		final int k = 2 * numRuns[ slot ];
+		if ( r == null )
+		{
+			r = new long[ 4 ];
+			runs[ slot ] = r;
+		}
+		else if ( k == r.length )
+		{
+			r = Arrays.copyOf( r, 2 * r.length );
+			runs[ slot ] = r;
+		}
+		r[ k ] = start;
+		r[ k + 1 ] = end;
+		++numRuns[ slot ];
+		areas[ slot ] += end - start;
+	}
+
+	protected void computeExtents()
+	{
+		final int numLabels = labels.size();
+		minima = new long[ numLabels * n ];
+		maxima = new long[ numLabels * n ];
+		Arrays.fill( minima, Long.MAX_VALUE );
+		Arrays.fill( maxima, Long.MIN_VALUE );
+		final long[] position = new long[ n ];
+		for ( int slot = 0; slot < numLabels; ++slot )
+		{
+			final long[] r = runs[ slot ];
+			final int o = slot * n;
+			for ( int k = 0; k < 2 * numRuns[ slot ]; k += 2 )
+			{
+				toPosition( r[ k ], position );
+				for ( int d = 0; d < n; ++d )
+				{
+					minima[ o + d ] = Math.min( minima[ o + d ], position[ d ] );
+					maxima[ o + d ] = Math.max( maxima[ o + d ], position[ d ] );
+				}
+				// the last pixel of the run
+				final long last = position[ 0 ] + r[ k + 1 ] - r[ k ] - 1;
+				maxima[ o ] = Math.max( maxima[ o ], last );
+			}
+		}
+	}
+
+	protected void toPosition( long flat, final long[] position )
+	{
+		for ( int d = 0; d < n - 1; ++d )
+		{
+			final long next = flat / dimensions[ d ];
+			position[ d ] = flat - next * dimensions[ d ] + min[ d ];
+			flat = next;
+		}
+		position[ n - 1 ] = flat + min[ n - 1 ];
+	}
+
+	/**
+	 * @return the flat index of a position, position[ 0 ] may be one beyond
+	 *         the end of its row.
+	 */
+	protected long toFlat( final long[] position )
+	{
+		long flat = 0;
+		for ( int d = 0; d < n; ++d )
+			flat += ( position[ d ] - min[ d ] ) * steps[ d ];
+		return flat;
+	}
+
+	/**
+	 * @return the labels that occur in the labeling.
+	 */
+	public Collection< T > getLabels()
+	{
+		return Collections.unmodifiableList( labels );
+	}
+
+	/**
+	 * @return the number of pixels labeled with the label.
+	 */
+	public long getArea( final T label )
+	{
+		final Integer slot = labelSlots.get( label );
+		return slot == null ? 0 : areas[ slot ];
+	}
+
+	/**
+	 * @return the number of runs of the label.
+	 */
+	public int getNumRuns( final T label )
+	{
+		final Integer slot = labelSlots.get( label );
+		return slot == null ? 0 : numRuns[ slot ];
+	}
+
+	/**
+	 * Create a region of interest that iterates over the runs of a label.
+	 * 
+	 * @param label
+	 * @return the region, empty if the label does not occur
+	 */
+	public IterableRegionOfInterest createIterableRegionOfInterest( final T label )
+	{
+		final Integer slot = labelSlots.get( label );
+		return new RunLengthRegionOfInterest( slot == null ? -1 : slot );
+	}
+
+	/**
+	 * A region of interest whose rasters are the runs of one label. The run
+	 * following a position is found by binary search over the run starts,
+	 * starting with a check of the run after the previously returned one.
+	 */
+	class RunLengthRegionOfInterest extends AbstractIterableRegionOfInterest
+	{
+		final long[] labelRuns;
+
+		final int count;
+
+		final long area;
+
+		final long[] roiMin;
+
+		final long[] roiMax;
+
+		/**
+		 * The run returned last, only used as a hint.
+		 */
+		int lastRun = -1;
+
+		RunLengthRegionOfInterest( final int slot )
+		{
+			super( n );
+			roiMin = new long[ n ];
+			roiMax = new long[ n ];
+			if ( slot < 0 )
+			{
+				labelRuns = new long[ 0 ];
+				count = 0;
+				area = 0;
+			}
+			else
+			{
+				labelRuns = runs[ slot ];
+				count = numRuns[ slot ];
+				area = areas[ slot ];
+				System.arraycopy( minima, slot * n, roiMin, 0, n );
+				System.arraycopy( maxima, slot * n, roiMax, 0, n );
+			}
+		}
+
+		@Override
+		protected long size()
+		{
+			return area;
+		}
+
+		@Override
+		protected void getExtrema( final long[] minima, final long[] maxima )
+		{
+			System.arraycopy( roiMin, 0, minima, 0, n );
+			System.arraycopy( roiMax, 0, maxima, 0, n );
+		}
+
+		/**
+		 * @return the first run ending after the flat index, count if there is
+		 *         none.
+		 */
+		int runAfter( final long flat )
+		{
+			final int hint = lastRun + 1;
+			if ( hint > 0 && hint < count && labelRuns[ 2 * hint - 1 ] <= flat && labelRuns[ 2 * hint + 1 ] > flat )
+				return hint;
+
+			int lo = 0, hi = count;
+			while ( lo < hi )
+			{
+				final int mid = ( lo + hi ) >>> 1;
+				if ( labelRuns[ 2 * mid + 1 ] <= flat )
+					lo = mid + 1;
+				else
+					hi = mid;
+			}
+			return lo;
+		}
+
+		@Override
+		public boolean contains( final double[] position )
+		{
+			final long[] p = new long[ n ];
+			for ( int d = 0; d < n; ++d )
+			{
+				p[ d ] = ( long ) position[ d ];
+				if ( p[ d ] < min[ d ] || p[ d ] >= min[ d ] + dimensions[ d ] )
+					return false;
+			}
+			final long flat = toFlat( p );
+			final int run = runAfter( flat );
+			return run < count && labelRuns[ 2 * run ] <= flat;
+		}
+
+		@Override
+		protected boolean nextRaster( final long[] position, final long[] end )
+		{
+			final int run;
+			// cursors start before the first row
+			if ( position[ n - 1 ] < min[ n - 1 ] )
+				run = 0;
+			else
+				run = runFrom( position );
+			if ( run >= count )
+				return false;
+
+			lastRun = run;
+			toPosition( labelRuns[ 2 * run ], position );
+			System.arraycopy( position, 0, end, 0, n );
+			end[ 0 ] += labelRuns[ 2 * run + 1 ] - labelRuns[ 2 * run ];
+			return true;
+		}
+
+		/**
+		 * Rows outside of the interval are skipped by binary search instead of
+		 * visiting and rejecting their runs one by one.
+		 */
+		@Override
+		protected boolean nextRaster( final long[] position, final long[] end, final Interval interval )
+		{
+			int run;
+			// cursors start before the first row
+			if ( position[ n - 1 ] < min[ n - 1 ] )
+			{
+				for ( int d = 0; d < n; ++d )
+					position[ d ] = interval.min( d );
+				run = runAfter( toFlat( position ) );
+			}
+			else
+				run = runFrom( position );
+
+			while ( run < count )
+			{
+				toPosition( labelRuns[ 2 * run ], position );
+				if ( !nextRowInInterval( position, interval ) )
+					return false;
+				final long flat = toFlat( position );
+				if ( flat > labelRuns[ 2 * run ] )
+				{
+					// the row of the run is outside of the interval
+					run = runAfter( flat );
+					continue;
+				}
+				final long x1 = position[ 0 ] + labelRuns[ 2 * run + 1 ] - labelRuns[ 2 * run ];
+				if ( x1 <= interval.min( 0 ) || position[ 0 ] > interval.max( 0 ) )
+				{
+					++run;
+					continue;
+				}
+				lastRun = run;
+				System.arraycopy( position, 0, end, 0, n );
+				position[ 0 ] = Math.max( position[ 0 ], interval.min( 0 ) );
+				end[ 0 ] = Math.min( x1, interval.max( 0 ) + 1 );
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * @return the first run starting at or after the end of the raster
+		 *         that ended at the position.
+		 */
+		int runFrom( final long[] position )
+		{
+			final long flat = toFlat( position );
+			final int r = runAfter( flat );
+			if ( r >= count )
+				return r;
+			// continue after a run if the position was moved into it or to its
+			// start, the latter happens when the raster starting there was
+			// rejected. A position at the end of a row has the flat index of
+			// the start of the next row.
+			final long start = labelRuns[ 2 * r ];
+			if ( start < flat || ( start == flat && position[ 0 ] < min[ 0 ] + dimensions[ 0 ] ) )
+				return r + 1;
+			return r;
+		}
+
+		/**
+		 * Move a row position (dimensions 1 to n-1) to the first row at or
+		 * after it that lies within the interval, position[ 0 ] is set to the
+		 * start of the interval if the row changed.
+		 * 
+		 * @return false if there is no such row.
+		 */
+		boolean nextRowInInterval( final long[] position, final Interval interval )
+		{
+			for ( int d = n - 1; d > 0; --d )
+			{
+				if ( position[ d ] < interval.min( d ) )
+				{
+					for ( int e = d; e >= 0; --e )
+						position[ e ] = interval.min( e );
+					return true;
+				}
+				if ( position[ d ] > interval.max( d ) )
+				{
+					// carry into the next higher dimension
+					int e = d + 1;
+					while ( e < n && position[ e ] == interval.max( e ) )
+						++e;
+					if ( e == n )
+						return false;
+					++position[ e ];
+					for ( --e; e >= 0; --e )
+						position[ e ] = interval.min( e );
+					return true;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public void move( final double displacement, final int d )
+		{
+			throw new UnsupportedOperationException( "Cannot move a labeled region" );
+		}
+
+		@Override
+		public void move( final double[] displacement )
+		{
+			throw new UnsupportedOperationException( "Cannot move a labeled region" );
+		}
+	}
+}
@@ -37,6 +37,7 @@
 
 package net.imglib2.multithreading;
 
+import java.util.Arrays;
 import java.util.Vector;
 
 /**
@@ -95,16 +96,19 @@ public class SimpleMultiThreading
         return chunks;
 	}
 
+	/**
+	 * Run one copy of <em>run</em> per available processor on the shared
+	 * {@link TaskExecutor} and wait until all are finished.
+	 */
 	public static void startTask(Runnable run)
 	{
-		Thread[] threads = newThreads();
-
-		for (int ithread = 0; ithread < threads.length; ++ithread)
-			threads[ithread] = new Thread(run);
-
-		startAndJoin(threads);
+		startTask(run, newThreads().length);
 	}
 
+	/**
+	 * Run <em>numThreads</em> copies of <em>run</em> on the shared
+	 * {@link TaskExecutor} and wait until all are finished.
+	 */
 	public static void startTask(Runnable run, int numThreads)
 	{
 		if ( 1 == numThreads )
@@ -112,13 +116,8 @@ public class SimpleMultiThreading
 			run.run();
 			return;
 		}
-		
-		Thread[] threads = newThreads(numThreads);
 
-		for (int ithread = 0; ithread < threads.length; ++ithread)
-			threads[ithread] = new Thread(run);
-
-		startAndJoin(threads);
+		TaskExecutor.getDefault().runCopies(run, numThreads);
 	}
 
 	public static Thread[] newThreads()
@@ -132,6 +131,12 @@ public class SimpleMultiThreading
 	  return new Thread[numThreads];
 	}
 
+	/**
+	 * Run the given (not started) threads and wait until all are finished.
+	 * The threads are not actually started, instead their {@link Thread#run()}
+	 * methods are executed by the shared {@link TaskExecutor}, which avoids the
+	 * cost of creating new threads for every call.
+	 */
 	public static void startAndJoin(Thread[] threads)
 	{
 		if ( 1 == threads.length )
@@ -139,21 +144,8 @@ public class SimpleMultiThreading
 			threads[0].run();
 			return;
 		}
-		
-		for (int ithread = 0; ithread < threads.length; ++ithread)
-		{
-			threads[ithread].setPriority(Thread.NORM_PRIORITY);
-			threads[ithread].start();
-		}
 
-		try
-		{
-			for (int ithread = 0; ithread < threads.length; ++ithread)
-				threads[ithread].join();
-		} catch (InterruptedException ie)
-		{
-			throw new RuntimeException(ie);
-		}
+		TaskExecutor.getDefault().run(Arrays.asList(threads), threads.length);
 	}
 
 	public static void start(Thread[] threads)
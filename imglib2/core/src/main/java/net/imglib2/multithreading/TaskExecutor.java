@@ -0,0 +1,323 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.multithreading;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs lists of tasks in parallel on a long-lived {@link ExecutorService}
+ * instead of spawning new {@link Thread}s for every invocation.
+ *
+ * <p>
+ * By default, all algorithms share the {@link #getDefault() default}
+ * {@link TaskExecutor}, a pool of daemon threads with one thread per
+ * available processor. The default can be replaced with
+ * {@link #setDefault(TaskExecutor)}, and algorithms that accept a
+ * {@link TaskExecutor} can be given a different one per call.
+ * </p>
+ *
+ * <p>
+ * The thread calling {@link #run(List, int)} takes part in the computation:
+ * tasks are handed out one at a time to the caller and to the pool threads
+ * that have joined, and the caller only waits for tasks that have already been
+ * started. Therefore, nested parallel calls from within a task cannot
+ * dead-lock, even if all pool threads are busy.
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class TaskExecutor
+{
+	/**
+	 * Tasks smaller than this (in number of processed elements) are not worth
+	 * the overhead of handing them to another thread.
+	 */
+	public static final long MIN_ELEMENTS_PER_TASK = 16 * 1024;
+
+	/**
+	 * How many tasks to create per thread, to balance the load if tasks take
+	 * different amounts of time.
+	 */
+	public static final int TASKS_PER_THREAD = 4;
+
+	private static TaskExecutor defaultExecutor = null;
+
+	private final ExecutorService service;
+
+	private final int parallelism;
+
+	/**
+	 * Create a {@link TaskExecutor} running tasks on the given
+	 * {@link ExecutorService}.
+	 *
+	 * @param service
+	 *            the service running the tasks.
+	 * @param parallelism
+	 *            the number of threads of the service.
+	 */
+	public TaskExecutor( final ExecutorService service, final int parallelism )
+	{
+		this.service = service;
+		this.parallelism = Math.max( 1, parallelism );
+	}
+
+	/**
+	 * Create a {@link TaskExecutor} with its own pool of <em>numThreads</em>
+	 * daemon threads.
+	 *
+	 * @param numThreads
+	 */
+	public TaskExecutor( final int numThreads )
+	{
+		this( Executors.newFixedThreadPool( Math.max( 1, numThreads ), new DaemonThreadFactory() ), numThreads );
+	}
+
+	/**
+	 * Get the shared {@link TaskExecutor}. Unless set otherwise, this has one
+	 * thread per available processor.
+	 *
+	 * @return the shared {@link TaskExecutor}.
+	 */
+	public static synchronized TaskExecutor getDefault()
+	{
+		if ( defaultExecutor == null )
+			defaultExecutor = new TaskExecutor( Runtime.getRuntime().availableProcessors() );
+		return defaultExecutor;
+	}
+
+	/**
+	 * Replace the shared {@link TaskExecutor}. The previous default is not shut
+	 * down.
+	 *
+	 * @param executor
+	 */
+	public static synchronized void setDefault( final TaskExecutor executor )
+	{
+		defaultExecutor = executor;
+	}
+
+	/**
+	 * @return the number of threads of the underlying {@link ExecutorService}.
+	 */
+	public int getParallelism()
+	{
+		return parallelism;
+	}
+
+	public ExecutorService getExecutorService()
+	{
+		return service;
+	}
+
+	/**
+	 * Run all tasks, using at most {@link #getParallelism()} threads, and wait
+	 * until they are finished.
+	 *
+	 * @param tasks
+	 */
+	public void run( final List< ? extends Runnable > tasks )
+	{
+		run( tasks, parallelism );
+	}
+
+	/**
+	 * Run all tasks, using at most <em>maxThreads</em> threads (including the
+	 * calling thread), and wait until they are finished. If a task throws an
+	 * exception, the remaining tasks that have not yet started are skipped and
+	 * the exception is re-thrown in the calling thread.
+	 *
+	 * @param tasks
+	 * @param maxThreads
+	 *            maximum number of tasks executed concurrently.
+	 */
+	public void run( final List< ? extends Runnable > tasks, final int maxThreads )
+	{
+		final Job job = new Job( tasks.toArray( new Runnable[ tasks.size() ] ) );
+		final int numWorkers = Math.min( Math.min( tasks.size(), maxThreads ) - 1, parallelism );
+		try
+		{
+			for ( int i = 0; i < numWorkers; ++i )
+				service.execute( job );
+		}
+		catch ( final RejectedExecutionException e )
+		{
+			// NB: the calling thread will run the remaining tasks.
+		}
+		job.run();
+		job.await();
+	}
+
+	/**
+	 * Run <em>numCopies</em> instances of the same {@link Runnable}
+	 * concurrently and wait until they are finished. This is intended for
+	 * tasks that fetch their share of the work from a shared counter.
+	 *
+	 * @param task
+	 * @param numCopies
+	 */
+	public void runCopies( final Runnable task, final int numCopies )
+	{
+		final Runnable[] tasks = new Runnable[ numCopies ];
+		Arrays.fill( tasks, task );
+		run( Arrays.asList( tasks ), numCopies );
+	}
+
+	/**
+	 * Suggest into how many tasks a computation over <em>numElements</em>
+	 * elements should be split. Small computations are split into fewer tasks
+	 * such that each task processes at least {@link #MIN_ELEMENTS_PER_TASK}
+	 * elements. Large computations are split into {@link #TASKS_PER_THREAD}
+	 * tasks per thread.
+	 *
+	 * @param numElements
+	 *            total number of elements to process.
+	 * @param maxThreads
+	 *            maximum number of threads to be used.
+	 * @return suggested number of tasks, at least 1.
+	 */
+	public static int suggestNumTasks( final long numElements, final int maxThreads )
+	{
+		if ( maxThreads <= 1 )
+			return 1;
+		final long bySize = numElements / MIN_ELEMENTS_PER_TASK;
+		return ( int ) Math.max( 1, Math.min( bySize, ( long ) maxThreads * TASKS_PER_THREAD ) );
+	}
+
+	/**
+	 * Divide a computation over <em>numElements</em> elements into chunks,
+	 * with the number of chunks chosen by
+	 * {@link #suggestNumTasks(long, int)}.
+	 *
+	 * @param numElements
+	 * @return the chunks.
+	 */
+	public List< Chunk > divideIntoChunks( final long numElements )
+	{
+		return SimpleMultiThreading.divideIntoChunks( numElements, suggestNumTasks( numElements, parallelism ) );
+	}
+
+	/**
+	 * A set of tasks that is processed by the calling thread and all workers
+	 * that joined. Each task is claimed by exactly one thread.
+	 */
+	private static final class Job implements Runnable
+	{
+		private final Runnable[] tasks;
+
+		private final AtomicInteger next;
+
+		private final CountDownLatch done;
+
+		private final AtomicReference< Throwable > error;
+
+		Job( final Runnable[] tasks )
+		{
+			this.tasks = tasks;
+			next = new AtomicInteger( 0 );
+			done = new CountDownLatch( tasks.length );
+			error = new AtomicReference< Throwable >();
+		}
+
+		@Override
+		public void run()
+		{
+			for ( int i = next.getAndIncrement(); i < tasks.length; i = next.getAndIncrement() )
+			{
+				try
+				{
+					if ( error.get() == null )
+						tasks[ i ].run();
+				}
+				catch ( final Throwable t )
+				{
+					error.compareAndSet( null, t );
+				}
+				finally
+				{
+					done.countDown();
+				}
+			}
+		}
+
+		void await()
+		{
+			try
+			{
+				done.await();
+			}
+			catch ( final InterruptedException e )
+			{
+				Thread.currentThread().interrupt();
+				throw new RuntimeException( e );
+			}
+
+			final Throwable t = error.get();
+			if ( t instanceof RuntimeException )
+				throw ( RuntimeException ) t;
+			else if ( t instanceof Error )
+				throw ( Error ) t;
+			else if ( t != null )
+				throw new RuntimeException( t );
+		}
+	}
+
+	private static final class DaemonThreadFactory implements ThreadFactory
+	{
+		private static final AtomicInteger poolNumber = new AtomicInteger( 1 );
+
+		private final AtomicInteger threadNumber = new AtomicInteger( 1 );
+
+		private final String namePrefix = "imglib2-task-executor-" + poolNumber.getAndIncrement() + "-thread-";
+
+		@Override
+		public Thread newThread( final Runnable r )
+		{
+			final Thread t = new Thread( r, namePrefix + threadNumber.getAndIncrement() );
+			t.setDaemon( true );
+			t.setPriority( Thread.NORM_PRIORITY );
+			return t;
+		}
+	}
+}
@@ -0,0 +1,285 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+package net.imglib2.neighborsearch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.RealLocalizable;
+import net.imglib2.collection.FlatKDTree;
+import net.imglib2.multithreading.Chunk;
+import net.imglib2.multithreading.SimpleMultiThreading;
+import net.imglib2.multithreading.TaskExecutor;
+
+/**
+ * k-nearest-neighbor search on a {@link FlatKDTree}. Results are node
+ * indices and squared distances in primitive arrays, sorted by increasing
+ * distance. Use {@link FlatKDTree#getIndex(int)} to map nodes to points.
+ *
+ * <p>
+ * An instance is not thread-safe. Use one instance per thread, or
+ * {@link #search(FlatKDTree, double[], int, int[], double[], TaskExecutor)}
+ * to search for many reference points in parallel.
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class KNearestNeighborSearchOnFlatKDTree
+{
+	protected final FlatKDTree tree;
+
+	protected final int n;
+
+	protected final double[] positions;
+
+	protected final double[] pos;
+
+	protected final int k;
+
+	protected final int[] bestNodes;
+
+	protected final double[] bestSquDistances;
+
+	public KNearestNeighborSearchOnFlatKDTree( final FlatKDTree tree, final int k )
+	{
+		this.tree = tree;
+		this.n = tree.numDimensions();
+		this.positions = tree.getPositions();
+		this.pos = new double[ n ];
+		this.k = k;
+		this.bestNodes = new int[ k ];
+		this.bestSquDistances = new double[ k ];
+		for ( int i = 0; i < k; ++i )
+		{
+			bestNodes[ i ] = -1;
+			bestSquDistances[ i ] = Double.MAX_VALUE;
+		}
+	}
+
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	public int getK()
+	{
+		return k;
+	}
+
+	/**
+	 * Search the k nearest neighbors of the reference point.
+	 */
+	public void search( final RealLocalizable reference )
+	{
+		reference.localize( pos );
+		search();
+	}
+
+	/**
+	 * Search the k nearest neighbors of the reference point.
+	 *
+	 * @param reference
+	 *            coordinates of the reference point.
+	 */
+	public void search( final double[] reference )
+	{
+		System.arraycopy( reference, 0, pos, 0, n );
+		search();
+	}
+
+	protected void search()
+	{
+		for ( int i = 0; i < k; ++i )
+		{
+			bestNodes[ i ] = -1;
+			bestSquDistances[ i ] = Double.MAX_VALUE;
+		}
+		if ( k > 0 && tree.size() > 0 )
+			searchNode( 0, tree.size() - 1, 0 );
+	}
+
+	protected void searchNode( final int i, final int j, final int d )
+	{
+		final int current = ( i + j ) >>> 1;
+		final int offset = current * n;
+
+		// consider the current node
+		double squDistance = 0;
+		for ( int e = 0; e < n; ++e )
+		{
+			final double diff = positions[ offset + e ] - pos[ e ];
+			squDistance += diff * diff;
+		}
+		if ( squDistance < bestSquDistances[ k - 1 ] )
+		{
+			int l = k - 1;
+			for ( int m = l - 1; l > 0 && squDistance < bestSquDistances[ m ]; --l, --m )
+			{
+				bestSquDistances[ l ] = bestSquDistances[ m ];
+				bestNodes[ l ] = bestNodes[ m ];
+			}
+			bestSquDistances[ l ] = squDistance;
+			bestNodes[ l ] = current;
+		}
+
+		final double axisDiff = pos[ d ] - positions[ offset + d ];
+		final double axisSquDistance = axisDiff * axisDiff;
+		final boolean leftIsNearBranch = axisDiff < 0;
+		final int nextd = d + 1 == n ? 0 : d + 1;
+
+		// search the near branch
+		if ( leftIsNearBranch )
+		{
+			if ( i < current )
+				searchNode( i, current - 1, nextd );
+			if ( current < j && axisSquDistance <= bestSquDistances[ k - 1 ] )
+				searchNode( current + 1, j, nextd );
+		}
+		else
+		{
+			if ( current < j )
+				searchNode( current + 1, j, nextd );
+			if ( i < current && axisSquDistance <= bestSquDistances[ k - 1 ] )
+				searchNode( i, current - 1, nextd );
+		}
+	}
+
+	/**
+	 * Get the node index of the i-th nearest neighbor, or -1 if the tree
+	 * has less than i+1 nodes.
+	 */
+	public int getNode( final int i )
+	{
+		return bestNodes[ i ];
+	}
+
+	/**
+	 * Get the point index (see {@link FlatKDTree#getIndex(int)}) of the i-th
+	 * nearest neighbor, or -1 if the tree has less than i+1 nodes.
+	 */
+	public int getIndex( final int i )
+	{
+		return bestNodes[ i ] < 0 ? -1 : tree.getIndex( bestNodes[ i ] );
+	}
+
+	public double getSquareDistance( final int i )
+	{
+		return bestSquDistances[ i ];
+	}
+
+	public double getDistance( final int i )
+	{
+		return Math.sqrt( bestSquDistances[ i ] );
+	}
+
+	/**
+	 * Search the k nearest neighbors of many reference points in parallel.
+	 *
+	 * @param tree
+	 *            the tree to search.
+	 * @param references
+	 *            flat array of reference coordinates, reference {@code r}
+	 *            occupies the elements {@code [r*n,(r+1)*n)}.
+	 * @param k
+	 *            number of neighbors per reference point.
+	 * @param indices
+	 *            receives the point indices (see
+	 *            {@link FlatKDTree#getIndex(int)}) of the neighbors. The
+	 *            neighbors of reference {@code r} are stored at
+	 *            {@code [r*k,(r+1)*k)}, sorted by increasing distance. Missing
+	 *            neighbors (if the tree has less than k nodes) are -1.
+	 * @param squDistances
+	 *            receives the squared distances of the neighbors, in the same
+	 *            layout as <em>indices</em>. May be null.
+	 * @param executor
+	 *            runs the searches.
+	 */
+	public static void search( final FlatKDTree tree, final double[] references, final int k, final int[] indices, final double[] squDistances, final TaskExecutor executor )
+	{
+		final int n = tree.numDimensions();
+		final int numReferences = references.length / n;
+		final List< Chunk > chunks = divideReferences( numReferences, executor );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( chunks.size() );
+		for ( final Chunk chunk : chunks )
+		{
+			final int start = ( int ) chunk.getStartPosition();
+			final int end = start + ( int ) chunk.getLoopSize();
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final KNearestNeighborSearchOnFlatKDTree search = new KNearestNeighborSearchOnFlatKDTree( tree, k );
+					final double[] reference = new double[ n ];
+					for ( int r = start; r < end; ++r )
+					{
+						System.arraycopy( references, r * n, reference, 0, n );
+						search.search( reference );
+						for ( int i = 0; i < k; ++i )
+						{
+							indices[ r * k + i ] = search.getIndex( i );
+							if ( squDistances != null )
+								squDistances[ r * k + i ] = search.getSquareDistance( i );
+						}
+					}
+				}
+			} );
+		}
+		executor.run( tasks );
+	}
+
+	/**
+	 * Search the k nearest neighbors of many reference points in parallel
+	 * using the default {@link TaskExecutor}.
+	 *
+	 * @see #search(FlatKDTree, double[], int, int[], double[], TaskExecutor)
+	 */
+	public static void search( final FlatKDTree tree, final double[] references, final int k, final int[] indices, final double[] squDistances )
+	{
+		search( tree, references, k, indices, squDistances, TaskExecutor.getDefault() );
+	}
+
+	/**
+	 * Divide reference points into chunks for parallel search. Every search
+	 * is relatively expensive, so chunks are only limited by the number of
+	 * tasks per thread.
+	 */
+	static List< Chunk > divideReferences( final int numReferences, final TaskExecutor executor )
+	{
+		final int numTasks = ( int ) Math.max( 1, Math.min( numReferences, ( long ) executor.getParallelism() * TaskExecutor.TASKS_PER_THREAD ) );
+		return SimpleMultiThreading.divideIntoChunks( numReferences, numTasks );
+	}
+}
@@ -0,0 +1,369 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+package net.imglib2.neighborsearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.RealLocalizable;
+import net.imglib2.collection.FlatKDTree;
+import net.imglib2.multithreading.Chunk;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.util.Partition;
+
+/**
+ * Radius neighbor search on a {@link FlatKDTree}. Results are node indices
+ * and squared distances in primitive arrays. Use
+ * {@link FlatKDTree#getIndex(int)} to map nodes to points.
+ *
+ * <p>
+ * An instance is not thread-safe. Use one instance per thread, or
+ * {@link #search(FlatKDTree, double[], double, boolean, TaskExecutor)} to
+ * search for many reference points in parallel.
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class RadiusNeighborSearchOnFlatKDTree
+{
+	protected final FlatKDTree tree;
+
+	protected final int n;
+
+	protected final double[] positions;
+
+	protected final double[] pos;
+
+	protected int numNeighbors;
+
+	protected int[] nodes;
+
+	protected double[] squDistances;
+
+	private final int[] bounds = new int[ 2 ];
+
+	public RadiusNeighborSearchOnFlatKDTree( final FlatKDTree tree )
+	{
+		this.tree = tree;
+		this.n = tree.numDimensions();
+		this.positions = tree.getPositions();
+		this.pos = new double[ n ];
+		this.numNeighbors = 0;
+		this.nodes = new int[ 16 ];
+		this.squDistances = new double[ 16 ];
+	}
+
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	/**
+	 * Search all neighbors within the given radius of the reference point.
+	 *
+	 * @param reference
+	 *            the reference point.
+	 * @param radius
+	 *            search radius.
+	 * @param sortResults
+	 *            whether the neighbors should be sorted by increasing
+	 *            distance.
+	 */
+	public void search( final RealLocalizable reference, final double radius, final boolean sortResults )
+	{
+		reference.localize( pos );
+		search( radius, sortResults );
+	}
+
+	/**
+	 * Search all neighbors within the given radius of the reference point.
+	 *
+	 * @param reference
+	 *            coordinates of the reference point.
+	 * @param radius
+	 *            search radius.
+	 * @param sortResults
+	 *            whether the neighbors should be sorted by increasing
+	 *            distance.
+	 */
+	public void search( final double[] reference, final double radius, final boolean sortResults )
+	{
+		System.arraycopy( reference, 0, pos, 0, n );
+		search( radius, sortResults );
+	}
+
+	protected void search( final double radius, final boolean sortResults )
+	{
+		assert radius >= 0;
+		numNeighbors = 0;
+		if ( tree.size() > 0 )
+			searchNode( 0, tree.size() - 1, 0, radius * radius );
+		if ( sortResults )
+			sort( 0, numNeighbors - 1 );
+	}
+
+	protected void searchNode( final int i, final int j, final int d, final double squRadius )
+	{
+		final int current = ( i + j ) >>> 1;
+		final int offset = current * n;
+
+		// consider the current node
+		double squDistance = 0;
+		for ( int e = 0; e < n; ++e )
+		{
+			final double diff = positions[ offset + e ] - pos[ e ];
+			squDistance += diff * diff;
+		}
+		if ( squDistance <= squRadius )
+		{
+			if ( numNeighbors == nodes.length )
+			{
+				nodes = Arrays.copyOf( nodes, 2 * numNeighbors );
+				squDistances = Arrays.copyOf( squDistances, 2 * numNeighbors );
+			}
+			nodes[ numNeighbors ] = current;
+			squDistances[ numNeighbors ] = squDistance;
+			++numNeighbors;
+		}
+
+		final double axisDiff = pos[ d ] - positions[ offset + d ];
+		final boolean searchBoth = axisDiff * axisDiff <= squRadius;
+		final int nextd = d + 1 == n ? 0 : d + 1;
+
+		if ( i < current && ( axisDiff < 0 || searchBoth ) )
+			searchNode( i, current - 1, nextd, squRadius );
+		if ( current < j && ( axisDiff >= 0 || searchBoth ) )
+			searchNode( current + 1, j, nextd, squRadius );
+	}
+
+	/**
+	 * Sort neighbors {@code [i,j]} by distance. Runs of equal distances are
+	 * split off by three-way partitioning, and only the smaller part is sorted
+	 * recursively, so the recursion depth is logarithmic.
+	 */
+	private void sort( int i, int j )
+	{
+		while ( i < j )
+		{
+			Partition.partitionSubListThreeWay( i, j, squDistances, nodes, bounds );
+			final int lt = bounds[ 0 ];
+			final int gt = bounds[ 1 ];
+			if ( lt - i < j - gt )
+			{
+				sort( i, lt - 1 );
+				i = gt + 1;
+			}
+			else
+			{
+				sort( gt + 1, j );
+				j = lt - 1;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of neighbors found by the last search.
+	 */
+	public int numNeighbors()
+	{
+		return numNeighbors;
+	}
+
+	/**
+	 * Get the node index of the i-th neighbor.
+	 */
+	public int getNode( final int i )
+	{
+		return nodes[ i ];
+	}
+
+	/**
+	 * Get the point index (see {@link FlatKDTree#getIndex(int)}) of the i-th
+	 * neighbor.
+	 */
+	public int getIndex( final int i )
+	{
+		return tree.getIndex( nodes[ i ] );
+	}
+
+	public double getSquareDistance( final int i )
+	{
+		return squDistances[ i ];
+	}
+
+	public double getDistance( final int i )
+	{
+		return Math.sqrt( squDistances[ i ] );
+	}
+
+	/**
+	 * Neighbors of many reference points, stored in primitive arrays. The
+	 * neighbors of reference {@code r} are stored at
+	 * {@code [offsets[r], offsets[r+1])} in {@link #indices} and
+	 * {@link #squDistances}.
+	 */
+	public static class Neighbors
+	{
+		/**
+		 * start of the neighbors of each reference, and total number of
+		 * neighbors at the end (length is the number of references + 1).
+		 */
+		public final int[] offsets;
+
+		/**
+		 * point indices (see {@link FlatKDTree#getIndex(int)}) of the
+		 * neighbors.
+		 */
+		public final int[] indices;
+
+		/**
+		 * squared distances of the neighbors.
+		 */
+		public final double[] squDistances;
+
+		public Neighbors( final int[] offsets, final int[] indices, final double[] squDistances )
+		{
+			this.offsets = offsets;
+			this.indices = indices;
+			this.squDistances = squDistances;
+		}
+
+		/**
+		 * @return the number of neighbors of reference {@code r}.
+		 */
+		public int numNeighbors( final int r )
+		{
+			return offsets[ r + 1 ] - offsets[ r ];
+		}
+	}
+
+	/**
+	 * Search the neighbors within a given radius of many reference points in
+	 * parallel.
+	 *
+	 * @param tree
+	 *            the tree to search.
+	 * @param references
+	 *            flat array of reference coordinates, reference {@code r}
+	 *            occupies the elements {@code [r*n,(r+1)*n)}.
+	 * @param radius
+	 *            search radius.
+	 * @param sortResults
+	 *            whether the neighbors of each reference should be sorted by
+	 *            increasing distance.
+	 * @param executor
+	 *            runs the searches.
+	 * @return the neighbors of all references.
+	 */
+	public static Neighbors search( final FlatKDTree tree, final double[] references, final double radius, final boolean sortResults, final TaskExecutor executor )
+	{
+		final int n = tree.numDimensions();
+		final int numReferences = references.length / n;
+		final int[] offsets = new int[ numReferences + 1 ];
+		final List< Chunk > chunks = KNearestNeighborSearchOnFlatKDTree.divideReferences( numReferences, executor );
+		final int numChunks = chunks.size();
+		final int[][] chunkIndices = new int[ numChunks ][];
+		final double[][] chunkSquDistances = new double[ numChunks ][];
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( numChunks );
+		for ( int c = 0; c < numChunks; ++c )
+		{
+			final int chunkIndex = c;
+			final int start = ( int ) chunks.get( c ).getStartPosition();
+			final int end = start + ( int ) chunks.get( c ).getLoopSize();
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final RadiusNeighborSearchOnFlatKDTree search = new RadiusNeighborSearchOnFlatKDTree( tree );
+					final double[] reference = new double[ n ];
+					int[] indices = new int[ 16 ];
+					double[] squDistances = new double[ 16 ];
+					int size = 0;
+					for ( int r = start; r < end; ++r )
+					{
+						System.arraycopy( references, r * n, reference, 0, n );
+						search.search( reference, radius, sortResults );
+						final int num = search.numNeighbors();
+						if ( size + num > indices.length )
+						{
+							final int capacity = Math.max( 2 * indices.length, size + num );
+							indices = Arrays.copyOf( indices, capacity );
+							squDistances = Arrays.copyOf( squDistances, capacity );
+						}
+						for ( int i = 0; i < num; ++i )
+						{
+							indices[ size + i ] = search.getIndex( i );
+							squDistances[ size + i ] = search.getSquareDistance( i );
+						}
+						size += num;
+						// number of neighbors for now, turned into offsets later
+						offsets[ r + 1 ] = num;
+					}
+					chunkIndices[ chunkIndex ] = Arrays.copyOf( indices, size );
+					chunkSquDistances[ chunkIndex ] = Arrays.copyOf( squDistances, size );
+				}
+			} );
+		}
+		executor.run( tasks );
+
+		for ( int r = 0; r < numReferences; ++r )
+			offsets[ r + 1 ] += offsets[ r ];
+		final int[] indices = new int[ offsets[ numReferences ] ];
+		final double[] squDistances = new double[ offsets[ numReferences ] ];
+		int o = 0;
+		for ( int c = 0; c < numChunks; ++c )
+		{
+			final int size = chunkIndices[ c ].length;
+			System.arraycopy( chunkIndices[ c ], 0, indices, o, size );
+			System.arraycopy( chunkSquDistances[ c ], 0, squDistances, o, size );
+			o += size;
+		}
+		return new Neighbors( offsets, indices, squDistances );
+	}
+
+	/**
+	 * Search the neighbors within a given radius of many reference points in
+	 * parallel using the default {@link TaskExecutor}.
+	 *
+	 * @see #search(FlatKDTree, double[], double, boolean, TaskExecutor)
+	 */
+	public static Neighbors search( final FlatKDTree tree, final double[] references, final double radius, final boolean sortResults )
+	{
+		return search( tree, references, radius, sortResults, TaskExecutor.getDefault() );
+	}
+}
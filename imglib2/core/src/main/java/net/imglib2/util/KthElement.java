@@ -342,6 +342,74 @@ public class KthElement
 		kthElement( 0, values.length - 1, k, values );
 	}
 
+	/**
+	 * Partition a subarray of {@code values} such that the k-th smallest value
+	 * is at position {@code k}, elements before the k-th are smaller or equal
+	 * and elements after the k-th are larger or equal.
+	 * 
+	 * <p>
+	 * The {@code permutation} array is permuted in the same way as the array.
+	 * Usually, this will be an array of indices, so that the partition
+	 * operation can be mirrored in another array.
+	 * </p>
+	 * 
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param k
+	 *            index for k-th smallest value. i <= k <= j.
+	 * @param values
+	 *            array
+	 * @param permutation
+	 *            elements of this array are permuted in the same way as the elements in the values array
+	 */
+	public static void kthElement( int i, int j, int k, double[] values, final int[] permutation )
+	{
+		// three-way partitioning, so that many equal values do not lead to
+		// quadratic running time
+		final int[] bounds = new int[ 2 ];
+		while ( i < j )
+		{
+			Partition.partitionSubListThreeWay( i, j, values, permutation, bounds );
+			if ( bounds[ 0 ] > k )
+			{
+				// partition lower part
+				j = bounds[ 0 ] - 1;
+			}
+			else if ( bounds[ 1 ] < k )
+			{
+				// partition upper part
+				i = bounds[ 1 ] + 1;
+			}
+			else
+				return;
+		}
+	}
+
+	/**
+	 * Partition an array of {@code values} such that the k-th smallest value is
+	 * at position {@code k}, elements before the k-th are smaller or equal and
+	 * elements after the k-th are larger or equal.
+	 * 
+	 * <p>
+	 * The {@code permutation} array is permuted in the same way as the array.
+	 * Usually, this will be an array of indices, so that the partition
+	 * operation can be mirrored in another array.
+	 * </p>
+	 * 
+	 * @param k
+	 *            index for k-th smallest value. 0 <= k < values.length.
+	 * @param values
+	 *            array
+	 * @param permutation
+	 *            elements of this array are permuted in the same way as the elements in the values array
+	 */
+	public static void kthElement( int k, double[] values, final int[] permutation )
+	{
+		kthElement( 0, values.length - 1, k, values, permutation );
+	}
+
 	/**
 	 * Partition a subarray of {@code values} such that the k-th smallest value
 	 * is at position {@code k}, elements before the k-th are smaller or equal
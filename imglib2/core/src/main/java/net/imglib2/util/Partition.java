@@ -454,6 +454,151 @@ public class Partition
 		return i;
 	}
 
+	/**
+	 * Partition a subarray of {@code values}.
+	 * 
+	 * The element at index {@code j} is taken as the pivot value. The elements
+	 * {@code [i,j]} are reordered, such that all elements before the pivot are
+	 * smaller and all elements after the pivot are equal or larger than the
+	 * pivot. The index of the pivot element is returned.
+	 * 
+	 * <p>
+	 * The {@code permutation} array is permuted in the same way as the array.
+	 * Usually, this will be an array of indices, so that the partition
+	 * operation can be mirrored in another array.
+	 * </p>
+	 * 
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param values
+	 *            array
+	 * @param permutation
+	 *            elements of this array are permuted in the same way as the elements in the values array
+	 * @return index of pivot element
+	 */
+	public static int partitionSubList( int i, int j, double[] values, final int[] permutation )
+	{
+		final int pivotIndex = j;
+		final int permutationPivot = permutation[ j ];
+		double pivot = values[ j-- ];
+
+		A: while ( true )
+		{
+			// move i forward while < pivot (and not at j)
+			while ( i <= j )
+			{
+				double ti = values[ i ];
+				if ( ti >= pivot )
+					break;
+				++i;
+			}
+			// now [i] is the place where the next value < pivot is to be
+			// inserted
+
+			if ( i > j )
+				break;
+
+			// move j backward while >= pivot (and not at i)
+			while ( true )
+			{
+				double tj = values[ j ];
+				if ( tj < pivot )
+				{
+					// swap [j] with [i]
+					final int indicesTmp = permutation[ i ];
+					permutation[ i ] = permutation[ j ];
+					permutation[ j ] = indicesTmp;
+					double tmp = values[ i ];
+					values[ i ] = values[ j ];
+					values[ j ] = tmp;
+					++i;
+					--j;
+					break;
+				}
+				else if ( j == i )
+				{
+					break A;
+				}
+				--j;
+			}
+		}
+
+		// we are done. put the pivot element here.
+		if ( i != pivotIndex )
+		{
+			values[ pivotIndex ] = values[ i ];
+			values[ i ] = pivot;
+			permutation[ pivotIndex ] = permutation[ i ];
+			permutation[ i ] = permutationPivot;
+		}
+		return i;
+	}
+
+	/**
+	 * Partition a subarray of {@code values} into three parts.
+	 * 
+	 * The median of the elements at {@code i}, {@code (i+j)/2} and {@code j} is
+	 * taken as the pivot value. The elements {@code [i,j]} are reordered, such
+	 * that the elements {@code [i,bounds[0])} are smaller than the pivot, the
+	 * elements {@code [bounds[0],bounds[1]]} are equal to the pivot, and the
+	 * elements {@code (bounds[1],j]} are larger than the pivot. Unlike
+	 * {@link #partitionSubList(int, int, double[], int[])}, this takes linear
+	 * time if many values are equal and does not degrade on sorted input.
+	 * 
+	 * <p>
+	 * The {@code permutation} array is permuted in the same way as the array.
+	 * Usually, this will be an array of indices, so that the partition
+	 * operation can be mirrored in another array.
+	 * </p>
+	 * 
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param values
+	 *            array
+	 * @param permutation
+	 *            elements of this array are permuted in the same way as the elements in the values array
+	 * @param bounds
+	 *            receives the indices of the first and the last element that
+	 *            is equal to the pivot.
+	 */
+	public static void partitionSubListThreeWay( final int i, final int j, final double[] values, final int[] permutation, final int[] bounds )
+	{
+		final double a = values[ i ];
+		final double b = values[ ( i + j ) >>> 1 ];
+		final double c = values[ j ];
+		final double pivot = a < b ? ( b < c ? b : ( a < c ? c : a ) ) : ( a < c ? a : ( b < c ? c : b ) );
+
+		int lt = i;
+		int gt = j;
+		int k = i;
+		while ( k <= gt )
+		{
+			final double v = values[ k ];
+			if ( v < pivot )
+				swap( values, permutation, lt++, k++ );
+			else if ( v > pivot )
+				swap( values, permutation, k, gt-- );
+			else
+				++k;
+		}
+		bounds[ 0 ] = lt;
+		bounds[ 1 ] = gt;
+	}
+
+	private static void swap( final double[] values, final int[] permutation, final int i, final int j )
+	{
+		final double v = values[ i ];
+		values[ i ] = values[ j ];
+		values[ j ] = v;
+		final int p = permutation[ i ];
+		permutation[ i ] = permutation[ j ];
+		permutation[ j ] = p;
+	}
+
 	/**
 	 * Partition a subarray of {@code values}.
 	 * 
@@ -0,0 +1,210 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+package net.imglib2.display;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import net.imglib2.converter.Converter;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ParallelXYProjector} and
+ * {@link ParallelCompositeXYProjector}.
+ *
+ * @author ImgLib2 developers
+ */
+public class ParallelXYProjectorTest
+{
+	final int width = 301;
+
+	final int height = 257;
+
+	final int channels = 3;
+
+	final TaskExecutor executor = new TaskExecutor( 4 );
+
+	private ArrayImg< UnsignedShortType, ShortArray > createSource()
+	{
+		final ArrayImg< UnsignedShortType, ShortArray > img = ArrayImgs.unsignedShorts( width, height, channels, 2 );
+		final short[] data = img.update( null ).getCurrentStorageArray();
+		final Random random = new Random( 1 );
+		for ( int i = 0; i < data.length; ++i )
+			data[ i ] = ( short ) random.nextInt( 1000 );
+		return img;
+	}
+
+	private ArrayList< Converter< UnsignedShortType, ARGBType > > createConverters()
+	{
+		final ArrayList< Converter< UnsignedShortType, ARGBType > > converters = new ArrayList< Converter< UnsignedShortType, ARGBType > >();
+		for ( int c = 0; c < channels; ++c )
+		{
+			final int shift = 16 - 8 * c;
+			converters.add( new Converter< UnsignedShortType, ARGBType >()
+			{
+				@Override
+				public void convert( final UnsignedShortType input, final ARGBType output )
+				{
+					output.set( 0x40000000 | ( ( input.get() * 255 / 1000 ) << shift ) );
+				}
+			} );
+		}
+		return converters;
+	}
+
+	@Test
+	public void testXYProjector()
+	{
+		final ArrayImg< UnsignedShortType, ShortArray > source = createSource();
+		final ARGBScreenImage expected = new ARGBScreenImage( width, height );
+		final ARGBScreenImage actual = new ARGBScreenImage( width, height );
+
+		final XYRandomAccessibleProjector< UnsignedShortType, ARGBType > serial = new XYRandomAccessibleProjector< UnsignedShortType, ARGBType >( source, expected, new RealARGBConverter< UnsignedShortType >( 0, 1000 ) );
+		final ParallelXYProjector< UnsignedShortType, ARGBType > parallel = new ParallelXYProjector< UnsignedShortType, ARGBType >( source, actual, new RealARGBConverter< UnsignedShortType >( 0, 1000 ), executor );
+		for ( final long[] pos : new long[][] { { 0, 0, 1, 0 }, { 0, 0, 2, 1 } } )
+		{
+			serial.setPosition( pos );
+			parallel.setPosition( pos );
+			serial.map();
+			parallel.map();
+			assertFalse( parallel.isCanceled() );
+			assertArrayEquals( expected.getData(), actual.getData() );
+		}
+	}
+
+	@Test
+	public void testCompositeXYProjector()
+	{
+		final ArrayImg< UnsignedShortType, ShortArray > source = createSource();
+		final ARGBScreenImage expected = new ARGBScreenImage( width, height );
+		final ARGBScreenImage actual = new ARGBScreenImage( width, height );
+
+		final CompositeXYRandomAccessibleProjector< UnsignedShortType > serial = new CompositeXYRandomAccessibleProjector< UnsignedShortType >( source, expected, createConverters(), 2 );
+		final ParallelCompositeXYProjector< UnsignedShortType > parallel = new ParallelCompositeXYProjector< UnsignedShortType >( source, actual, createConverters(), 2, executor );
+		serial.setPosition( 1, 3 );
+		parallel.setPosition( 1, 3 );
+
+		// single channel
+		serial.map();
+		parallel.map();
+		assertArrayEquals( expected.getData(), actual.getData() );
+
+		// all channels
+		serial.setComposite( true );
+		parallel.setComposite( true );
+		serial.map();
+		parallel.map();
+		assertArrayEquals( expected.getData(), actual.getData() );
+
+		// two channels
+		serial.setComposite( 1, false );
+		parallel.setComposite( 1, false );
+		serial.map();
+		parallel.map();
+		assertArrayEquals( expected.getData(), actual.getData() );
+	}
+
+	@SuppressWarnings( "unchecked" )
+	@Test
+	public void testCancel()
+	{
+		final ArrayImg< UnsignedShortType, ShortArray > source = createSource();
+		final ArrayImg< ARGBType, IntArray > target = ArrayImgs.argbs( width, height );
+		final ParallelXYProjector< UnsignedShortType, ARGBType >[] projector = new ParallelXYProjector[ 1 ];
+		final Converter< UnsignedShortType, ARGBType > converter = new Converter< UnsignedShortType, ARGBType >()
+		{
+			@Override
+			public void convert( final UnsignedShortType input, final ARGBType output )
+			{
+				// a newer request arrives while rendering
+				projector[ 0 ].cancel();
+				output.set( 1 );
+			}
+		};
+		projector[ 0 ] = new ParallelXYProjector< UnsignedShortType, ARGBType >( source, target, converter, new TaskExecutor( 1 ) );
+		projector[ 0 ].map();
+		assertTrue( projector[ 0 ].isCanceled() );
+
+		// only the first row has been rendered
+		final int[] data = target.update( null ).getCurrentStorageArray();
+		for ( int i = 0; i < data.length; ++i )
+			assertTrue( data[ i ] == ( i < width ? 1 : 0 ) );
+	}
+
+	@Test
+	public void testCancelBeforeMap()
+	{
+		final ArrayImg< UnsignedShortType, ShortArray > source = createSource();
+		final ArrayImg< ARGBType, IntArray > target = ArrayImgs.argbs( width, height );
+		final Converter< UnsignedShortType, ARGBType > converter = new Converter< UnsignedShortType, ARGBType >()
+		{
+			@Override
+			public void convert( final UnsignedShortType input, final ARGBType output )
+			{
+				output.set( 1 );
+			}
+		};
+		final ParallelXYProjector< UnsignedShortType, ARGBType > projector = new ParallelXYProjector< UnsignedShortType, ARGBType >( source, target, converter, new TaskExecutor( 2 ) );
+		assertFalse( projector.isCanceled() );
+
+		// a cancel() that arrives before map() aborts it
+		projector.cancel();
+		projector.map();
+		assertTrue( projector.isCanceled() );
+		final int[] data = target.update( null ).getCurrentStorageArray();
+		for ( int i = 0; i < data.length; ++i )
+			assertTrue( data[ i ] == 0 );
+
+		// until the projector is re-armed
+		projector.resetCanceled();
+		projector.map();
+		assertFalse( projector.isCanceled() );
+		for ( int i = 0; i < data.length; ++i )
+			assertTrue( data[ i ] == 1 );
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+package net.imglib2.img;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.IntBuffer;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.view.Views;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ImgCopy} and the copy() methods of native images.
+ *
+ * @author ImgLib2 developers
+ */
+public class ImgCopyTest
+{
+	long[] dimensions;
+
+	int numValues;
+
+	int[] intData;
+
+	@Before
+	public void createSourceData()
+	{
+		dimensions = new long[] { 48, 17, 102 };
+
+		numValues = 1;
+		for ( int d = 0; d < dimensions.length; ++d )
+			numValues *= dimensions[ d ];
+
+		intData = new int[ numValues ];
+		final Random random = new Random( 0 );
+		for ( int i = 0; i < numValues; ++i )
+			intData[ i ] = random.nextInt();
+	}
+
+	Img< IntType > fill( final Img< IntType > img )
+	{
+		final long[] pos = new long[ dimensions.length ];
+		final RandomAccess< IntType > a = img.randomAccess();
+		for ( int i = 0; i < numValues; ++i )
+		{
+			IntervalIndexer.indexToPosition( i, dimensions, pos );
+			a.setPosition( pos );
+			a.get().set( intData[ i ] );
+		}
+		return img;
+	}
+
+	int[] getImgAsInts( final RandomAccessibleInterval< IntType > img )
+	{
+		final RandomAccess< IntType > a = img.randomAccess();
+		final int N = numValues;
+		final int[] data = new int[ N ];
+		final long[] pos = new long[ img.numDimensions() ];
+		for ( int i = 0; i < N; ++i )
+		{
+			IntervalIndexer.indexToPosition( i, dimensions, pos );
+			a.setPosition( pos );
+			data[ i ] = a.get().get();
+		}
+		return data;
+	}
+
+	@Test
+	public void testArrayImgCopy()
+	{
+		final Img< IntType > img = fill( new ArrayImgFactory< IntType >().create( dimensions, new IntType() ) );
+		assertArrayEquals( intData, getImgAsInts( img.copy() ) );
+	}
+
+	@Test
+	public void testPlanarImgCopy()
+	{
+		final Img< IntType > img = fill( new PlanarImgFactory< IntType >().create( dimensions, new IntType() ) );
+		assertArrayEquals( intData, getImgAsInts( img.copy() ) );
+	}
+
+	@Test
+	public void testCellImgCopy()
+	{
+		final Img< IntType > img = fill( new CellImgFactory< IntType >( new int[] { 10, 7, 13 } ).create( dimensions, new IntType() ) );
+		assertArrayEquals( intData, getImgAsInts( img.copy() ) );
+	}
+
+	@Test
+	public void testCopyBetweenCellSizes()
+	{
+		final Img< IntType > source = fill( new CellImgFactory< IntType >( 10 ).create( dimensions, new IntType() ) );
+		final Img< IntType > target = new CellImgFactory< IntType >( new int[] { 2, 7, 4 } ).create( dimensions, new IntType() );
+		ImgCopy.copy( source, target, new TaskExecutor( 3 ) );
+		assertArrayEquals( intData, getImgAsInts( target ) );
+	}
+
+	@Test
+	public void testCopyBetweenContainers()
+	{
+		final Img< IntType > source = fill( new ArrayImgFactory< IntType >().create( dimensions, new IntType() ) );
+		final Img< IntType > cellImg = new CellImgFactory< IntType >( 10 ).create( dimensions, new IntType() );
+		final Img< IntType > planarImg = new PlanarImgFactory< IntType >().create( dimensions, new IntType() );
+		ImgCopy.copy( source, cellImg );
+		ImgCopy.copy( cellImg, planarImg );
+		assertArrayEquals( intData, getImgAsInts( planarImg ) );
+	}
+
+	@Test
+	public void testCopyBufferImg()
+	{
+		final IntBuffer buffer = IntBuffer.allocate( numValues );
+		final Img< IntType > source = fill( ArrayImgs.ints( buffer, dimensions ) );
+		final Img< IntType > target = new ArrayImgFactory< IntType >().create( dimensions, new IntType() );
+		ImgCopy.copy( source, target );
+		assertArrayEquals( intData, getImgAsInts( target ) );
+
+		final Img< IntType > target2 = ArrayImgs.ints( IntBuffer.allocate( numValues ), dimensions );
+		ImgCopy.copy( target, target2 );
+		assertArrayEquals( intData, getImgAsInts( target2 ) );
+	}
+
+	@Test
+	public void testCopyToInterval()
+	{
+		final Img< IntType > source = fill( new ArrayImgFactory< IntType >().create( dimensions, new IntType() ) );
+		final Img< IntType > target = new ArrayImgFactory< IntType >().create( dimensions, new IntType() );
+		final long[] min = new long[] { 3, 4, 5 };
+		final long[] max = new long[] { 20, 10, 60 };
+		ImgCopy.copy( source, Views.interval( target, min, max ) );
+
+		final RandomAccess< IntType > s = source.randomAccess();
+		final Cursor< IntType > t = target.localizingCursor();
+		while ( t.hasNext() )
+		{
+			t.fwd();
+			s.setPosition( t );
+			boolean inside = true;
+			for ( int d = 0; d < 3; ++d )
+				inside &= t.getLongPosition( d ) >= min[ d ] && t.getLongPosition( d ) <= max[ d ];
+			assertEquals( inside ? s.get().get() : 0, t.get().get() );
+		}
+	}
+
+	@Test
+	public void testBitImgCopy()
+	{
+		final Img< BitType > img = new ArrayImgFactory< BitType >().create( new long[] { 101, 33 }, new BitType() );
+		final Random random = new Random( 1 );
+		for ( final BitType t : img )
+			t.set( random.nextBoolean() );
+		final Img< BitType > copy = img.copy();
+		final Cursor< BitType > c1 = img.cursor();
+		final Cursor< BitType > c2 = copy.cursor();
+		while ( c1.hasNext() )
+			assertEquals( c1.next().get(), c2.next().get() );
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.basictypeaccess.nio;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.img.planar.PlanarImgs;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link java.nio.Buffer}-backed accesses and
+ * {@link MappedBuffers}.
+ *
+ * @author ImgLib2 developers
+ */
+public class MappedBuffersTest
+{
+	final long[] dimensions = new long[] { 31, 20, 5 };
+
+	int numValues;
+
+	File file;
+
+	@Before
+	public void writeRawFile() throws IOException
+	{
+		numValues = ( int ) ( dimensions[ 0 ] * dimensions[ 1 ] * dimensions[ 2 ] );
+		file = File.createTempFile( "imglib2-mapped-test", ".raw" );
+		final DataOutputStream out = new DataOutputStream( new FileOutputStream( file ) );
+		for ( int i = 0; i < numValues; ++i )
+			out.writeShort( i );
+		out.close();
+	}
+
+	@After
+	public void deleteRawFile()
+	{
+		file.delete();
+	}
+
+	@Test
+	public void testMapArrayImg() throws IOException
+	{
+		final MappedByteBuffer buffer = MappedBuffers.map( file, 0, 2 * numValues, ByteOrder.BIG_ENDIAN, false );
+		final ArrayImg< UnsignedShortType, ShortBufferAccess > img = ArrayImgs.unsignedShorts( buffer.asShortBuffer(), dimensions );
+		int i = 0;
+		for ( final UnsignedShortType t : img )
+			assertEquals( i++, t.get() );
+		assertEquals( numValues, i );
+	}
+
+	@Test
+	public void testMapPlanarImg() throws IOException
+	{
+		final int bytesPerPlane = 2 * ( int ) ( dimensions[ 0 ] * dimensions[ 1 ] );
+		final MappedByteBuffer[] segments = MappedBuffers.mapSegments( file, 0, bytesPerPlane, ( int ) dimensions[ 2 ], ByteOrder.BIG_ENDIAN, true );
+		final ShortBuffer[] planes = new ShortBuffer[ segments.length ];
+		for ( int z = 0; z < segments.length; ++z )
+			planes[ z ] = segments[ z ].asShortBuffer();
+		final PlanarImg< UnsignedShortType, ShortBufferAccess > img = PlanarImgs.unsignedShorts( planes, dimensions );
+
+		final RandomAccess< UnsignedShortType > a = img.randomAccess();
+		a.setPosition( new long[] { 3, 7, 4 } );
+		final int index = 3 + 7 * 31 + 4 * 31 * 20;
+		assertEquals( index, a.get().get() );
+
+		// modifications are written through to the file
+		a.get().set( 12345 );
+		segments[ 4 ].force();
+		final MappedByteBuffer check = MappedBuffers.map( file, 2 * index, 2, ByteOrder.BIG_ENDIAN, false );
+		assertEquals( 12345, check.getShort( 0 ) );
+	}
+
+	@Test
+	public void testMapFileFactories() throws IOException
+	{
+		// skip the first plane
+		final long offset = 2 * dimensions[ 0 ] * dimensions[ 1 ];
+		final long[] dims = new long[] { dimensions[ 0 ], dimensions[ 1 ], dimensions[ 2 ] - 1 };
+		final ArrayImg< UnsignedShortType, ShortBufferAccess > array = ArrayImgs.unsignedShorts( file, offset, ByteOrder.BIG_ENDIAN, false, dims );
+		final PlanarImg< UnsignedShortType, ShortBufferAccess > planar = PlanarImgs.unsignedShorts( file, offset, ByteOrder.BIG_ENDIAN, false, dims );
+
+		final Cursor< UnsignedShortType > c = array.cursor();
+		final RandomAccess< UnsignedShortType > a = planar.randomAccess();
+		int i = ( int ) offset / 2;
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			a.setPosition( c );
+			assertEquals( i, c.get().get() );
+			assertEquals( i, a.get().get() );
+			++i;
+		}
+		assertEquals( numValues, i );
+	}
+
+	@Test
+	public void testDirectBufferAccess()
+	{
+		final FloatBufferAccess access = new FloatBufferAccess( 100 );
+		final ArrayImg< FloatType, FloatBufferAccess > img = new ArrayImg< FloatType, FloatBufferAccess >( access, new long[] { 10, 10 }, 1 );
+		img.setLinkedType( new FloatType( img ) );
+
+		float v = 0;
+		for ( final FloatType t : img )
+			t.set( v++ );
+
+		final Cursor< FloatType > c = img.cursor();
+		for ( int i = 0; i < 100; ++i )
+			assertEquals( i, c.next().get(), 0 );
+		assertEquals( 99, access.getCurrentStorageArray().get( 99 ), 0 );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testDirectBufferAccessTooLarge()
+	{
+		// 4 * (2^30 + 1) bytes overflow an int
+		new FloatBufferAccess( ( 1 << 30 ) + 1 );
+	}
+}
@@ -0,0 +1,259 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.IntervalIndexer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link DiskCells} and {@link DiskCellImgFactory}.
+ *
+ * @author ImgLib2 developers
+ */
+public class DiskCellsTest
+{
+	long[] dimensions;
+
+	int numValues;
+
+	int[] intData;
+
+	@Before
+	public void createSourceData()
+	{
+		dimensions = new long[] { 48, 17, 102 };
+
+		numValues = 1;
+		for ( int d = 0; d < dimensions.length; ++d )
+			numValues *= dimensions[ d ];
+
+		intData = new int[ numValues ];
+		final Random random = new Random( 0 );
+		for ( int i = 0; i < numValues; ++i )
+			intData[ i ] = random.nextInt();
+	}
+
+	void fillWithRandomAccess( final Img< IntType > img )
+	{
+		final long[] pos = new long[ dimensions.length ];
+		final RandomAccess< IntType > a = img.randomAccess();
+		for ( int i = 0; i < numValues; ++i )
+		{
+			IntervalIndexer.indexToPosition( i, dimensions, pos );
+			a.setPosition( pos );
+			a.get().set( intData[ i ] );
+		}
+	}
+
+	int[] getImgAsInts( final Img< IntType > img )
+	{
+		final int[] data = new int[ numValues ];
+		final long[] pos = new long[ dimensions.length ];
+		final Cursor< IntType > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( pos );
+			data[ ( int ) IntervalIndexer.positionToIndex( pos, dimensions ) ] = c.get().get();
+		}
+		return data;
+	}
+
+	@Test
+	public void testWriteAndReadWithEviction()
+	{
+		// budget of 4 cells of 10x10x10 ints
+		final long budget = 4 * 1000 * 4;
+		final CellImg< IntType, ?, ? > img = new DiskCellImgFactory< IntType >( 10, budget ).create( dimensions, new IntType() );
+		final DiskCells< ? > cells = ( DiskCells< ? > ) img.getCells();
+		assertEquals( 4, cells.getMaxCachedCells() );
+
+		fillWithRandomAccess( img );
+		assertTrue( cells.numCachedCells() <= 4 );
+
+		assertArrayEquals( intData, getImgAsInts( img ) );
+		assertTrue( cells.numCachedCells() <= 4 );
+	}
+
+	@Test
+	public void testCopy()
+	{
+		final CellImg< IntType, ?, ? > img = new DiskCellImgFactory< IntType >( new int[] { 7, 3, 20 }, 10000, null ).create( dimensions, new IntType() );
+		fillWithRandomAccess( img );
+		final CellImg< IntType, ?, ? > copy = img.copy();
+		assertTrue( copy.getCells() instanceof DiskCells );
+		assertArrayEquals( intData, getImgAsInts( copy ) );
+	}
+
+	@Test
+	public void testReopenBackingFile() throws IOException
+	{
+		final File file = File.createTempFile( "imglib2-cells-test", ".raw" );
+		file.delete();
+		try
+		{
+			final long[] dim = new long[] { 30, 25 };
+			final int[] cellDim = new int[] { 8, 8 };
+			final DiskCells< FloatArray > cells = new DiskCells< FloatArray >( new FloatArray( 1 ), 1, dim, cellDim, file, 2 * 64 * 4, false );
+			final CellImg< FloatType, FloatArray, DiskCell< FloatArray > > img = new CellImg< FloatType, FloatArray, DiskCell< FloatArray > >( new DiskCellImgFactory< FloatType >(), cells );
+			final FloatType linkedType = new FloatType( img );
+			img.setLinkedType( linkedType );
+
+			float v = 0;
+			for ( final FloatType t : img )
+				t.set( v++ );
+			cells.close();
+
+			final DiskCells< FloatArray > cells2 = new DiskCells< FloatArray >( new FloatArray( 1 ), 1, dim, cellDim, file, 2 * 64 * 4, false );
+			final CellImg< FloatType, FloatArray, DiskCell< FloatArray > > img2 = new CellImg< FloatType, FloatArray, DiskCell< FloatArray > >( new DiskCellImgFactory< FloatType >(), cells2 );
+			img2.setLinkedType( new FloatType( img2 ) );
+
+			v = 0;
+			for ( final FloatType t : img2 )
+				assertEquals( v++, t.get(), 0 );
+			cells2.close();
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testReadOnlyAccessDoesNotWrite() throws IOException
+	{
+		final File file = File.createTempFile( "imglib2-cells-test", ".raw" );
+		file.delete();
+		try
+		{
+			// budget of a single 8x8 cell
+			final long[] dim = new long[] { 30, 25 };
+			final int[] cellDim = new int[] { 8, 8 };
+			final DiskCells< FloatArray > cells = new DiskCells< FloatArray >( new FloatArray( 1 ), 1, dim, cellDim, file, 64 * 4, false );
+			final CellImg< FloatType, FloatArray, DiskCell< FloatArray > > img = new CellImg< FloatType, FloatArray, DiskCell< FloatArray > >( new DiskCellImgFactory< FloatType >(), cells );
+			img.setLinkedType( new FloatType( img ) );
+
+			// evicted cells that were only read are not written back
+			for ( final FloatType t : img )
+				assertEquals( 0, t.get(), 0 );
+			cells.flush();
+			assertEquals( 0, file.length() );
+
+			// only the modified cell (index 10 in the 4x4 cell grid) is written
+			final RandomAccess< FloatType > a = img.randomAccess();
+			a.setPosition( new long[] { 20, 20 } );
+			a.get().set( 1 );
+			cells.flush();
+			assertEquals( 11 * cells.getBytesPerCell(), file.length() );
+			cells.close();
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testWritesThroughEvictedCell() throws IOException
+	{
+		// budget of a single 10x10 cell
+		final long[] dim = new long[] { 30, 10 };
+		final CellImg< IntType, ?, ? > img = new DiskCellImgFactory< IntType >( 10, 10 * 10 * 4 ).create( dim, new IntType() );
+		final RandomAccess< IntType > w = img.randomAccess();
+		final RandomAccess< IntType > r = img.randomAccess();
+
+		w.setPosition( new long[] { 0, 0 } );
+		w.get().set( 1 );
+
+		// evicts cell 0 while w is still on it
+		r.setPosition( new long[] { 15, 0 } );
+		r.get().get();
+
+		w.setPosition( new long[] { 1, 0 } );
+		w.get().set( 2 );
+		w.setPosition( new long[] { 25, 0 } );
+		w.get().set( 3 );
+		System.gc();
+
+		r.setPosition( new long[] { 0, 0 } );
+		assertEquals( 1, r.get().get() );
+		r.setPosition( new long[] { 1, 0 } );
+		assertEquals( 2, r.get().get() );
+		r.setPosition( new long[] { 25, 0 } );
+		assertEquals( 3, r.get().get() );
+
+		final File file = ( ( DiskCells< ? > ) img.getCells() ).getFile();
+		DiskCellImgFactory.close( img );
+		assertFalse( file.exists() );
+	}
+
+	@Test
+	public void testReleaseUnreachable() throws IOException, InterruptedException
+	{
+		final File file = File.createTempFile( "imglib2-cells-test", ".raw" );
+		DiskCells< FloatArray > cells = new DiskCells< FloatArray >( new FloatArray( 1 ), 1, new long[] { 10, 10 }, new int[] { 5, 5 }, file, 1000, true );
+		cells.get( 0 );
+		assertTrue( file.exists() );
+
+		// the file is released once the container is unreachable
+		cells = null;
+		for ( int i = 0; i < 50 && file.exists(); ++i )
+		{
+			System.gc();
+			Thread.sleep( 20 );
+			DiskCells.releaseUnreachable();
+		}
+		assertFalse( file.exists() );
+	}
+}
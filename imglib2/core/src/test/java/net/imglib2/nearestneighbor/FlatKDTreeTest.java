@@ -0,0 +1,207 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+package net.imglib2.nearestneighbor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import net.imglib2.collection.FlatKDTree;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.neighborsearch.KNearestNeighborSearchOnFlatKDTree;
+import net.imglib2.neighborsearch.RadiusNeighborSearchOnFlatKDTree;
+
+import org.junit.Test;
+
+/**
+ * Compare searches on {@link FlatKDTree} with exhaustive search.
+ *
+ * @author ImgLib2 developers
+ */
+public class FlatKDTreeTest
+{
+	final int n = 3;
+
+	final Random rnd = new Random( 435435435 );
+
+	double[] randomCoordinates( final int numPoints )
+	{
+		final double[] coordinates = new double[ numPoints * n ];
+		for ( int i = 0; i < coordinates.length; ++i )
+			coordinates[ i ] = rnd.nextDouble() * 100 - 50;
+		return coordinates;
+	}
+
+	double[] exhaustiveSquDistances( final double[] coordinates, final double[] references, final int r )
+	{
+		final int numPoints = coordinates.length / n;
+		final double[] squDistances = new double[ numPoints ];
+		for ( int i = 0; i < numPoints; ++i )
+		{
+			double sum = 0;
+			for ( int d = 0; d < n; ++d )
+			{
+				final double diff = coordinates[ i * n + d ] - references[ r * n + d ];
+				sum += diff * diff;
+			}
+			squDistances[ i ] = sum;
+		}
+		return squDistances;
+	}
+
+	@Test
+	public void testTreeLayout()
+	{
+		final double[] coordinates = randomCoordinates( 1000 );
+		final FlatKDTree tree = new FlatKDTree( n, coordinates );
+		assertEquals( 1000, tree.size() );
+		checkSubtree( tree, 0, tree.size() - 1, 0 );
+		for ( int node = 0; node < tree.size(); ++node )
+			for ( int d = 0; d < n; ++d )
+				assertEquals( coordinates[ tree.getIndex( node ) * n + d ], tree.getPosition( node, d ), 0 );
+	}
+
+	void checkSubtree( final FlatKDTree tree, final int i, final int j, final int depth )
+	{
+		if ( j < i )
+			return;
+		final int m = ( i + j ) >>> 1;
+		final int d = depth % n;
+		for ( int k = i; k < m; ++k )
+			assertTrue( tree.getPosition( k, d ) <= tree.getPosition( m, d ) );
+		for ( int k = m + 1; k <= j; ++k )
+			assertTrue( tree.getPosition( k, d ) >= tree.getPosition( m, d ) );
+		checkSubtree( tree, i, m - 1, depth + 1 );
+		checkSubtree( tree, m + 1, j, depth + 1 );
+	}
+
+	@Test
+	public void testParallelBuildOfSortedCoordinates()
+	{
+		final int numPoints = 100000;
+		final double[] coordinates = new double[ numPoints * n ];
+		for ( int i = 0; i < numPoints; ++i )
+			for ( int d = 0; d < n; ++d )
+				coordinates[ i * n + d ] = i;
+		final FlatKDTree tree = new FlatKDTree( n, coordinates, new TaskExecutor( 4 ) );
+		checkSubtree( tree, 0, tree.size() - 1, 0 );
+	}
+
+	@Test
+	public void testManyEqualCoordinates()
+	{
+		final int numPoints = 100000;
+		final double[] coordinates = new double[ numPoints * n ];
+		for ( int i = 0; i < numPoints; ++i )
+			coordinates[ i * n ] = i % 2;
+		final FlatKDTree tree = new FlatKDTree( n, coordinates, new TaskExecutor( 4 ) );
+		checkSubtree( tree, 0, tree.size() - 1, 0 );
+
+		final RadiusNeighborSearchOnFlatKDTree search = new RadiusNeighborSearchOnFlatKDTree( tree );
+		search.search( new double[ n ], 2, true );
+		assertEquals( numPoints, search.numNeighbors() );
+		for ( int i = 0; i < numPoints; ++i )
+		{
+			assertEquals( i < numPoints / 2 ? 0 : 1, search.getSquareDistance( i ), 0 );
+			assertEquals( search.getSquareDistance( i ), coordinates[ search.getIndex( i ) * n ], 0 );
+		}
+	}
+
+	@Test
+	public void testKNearestNeighbors()
+	{
+		final double[] coordinates = randomCoordinates( 5000 );
+		final FlatKDTree tree = new FlatKDTree( n, coordinates );
+		final int numReferences = 200;
+		final double[] references = randomCoordinates( numReferences );
+		final int k = 7;
+		final int[] indices = new int[ numReferences * k ];
+		final double[] squDistances = new double[ numReferences * k ];
+		KNearestNeighborSearchOnFlatKDTree.search( tree, references, k, indices, squDistances, new TaskExecutor( 3 ) );
+
+		for ( int r = 0; r < numReferences; ++r )
+		{
+			final double[] expected = exhaustiveSquDistances( coordinates, references, r );
+			final double[] sorted = expected.clone();
+			Arrays.sort( sorted );
+			for ( int i = 0; i < k; ++i )
+			{
+				assertEquals( sorted[ i ], squDistances[ r * k + i ], 0 );
+				assertEquals( expected[ indices[ r * k + i ] ], squDistances[ r * k + i ], 0 );
+			}
+		}
+	}
+
+	@Test
+	public void testKNearestNeighborsSmallTree()
+	{
+		final FlatKDTree tree = new FlatKDTree( n, new double[] { 1, 1, 1, 2, 2, 2 } );
+		final KNearestNeighborSearchOnFlatKDTree search = new KNearestNeighborSearchOnFlatKDTree( tree, 3 );
+		search.search( new double[] { 0, 0, 0 } );
+		assertEquals( 0, search.getIndex( 0 ) );
+		assertEquals( 1, search.getIndex( 1 ) );
+		assertEquals( -1, search.getIndex( 2 ) );
+	}
+
+	@Test
+	public void testRadiusNeighbors()
+	{
+		final double[] coordinates = randomCoordinates( 5000 );
+		final FlatKDTree tree = new FlatKDTree( n, coordinates );
+		final int numReferences = 200;
+		final double[] references = randomCoordinates( numReferences );
+		final double radius = 12;
+		final RadiusNeighborSearchOnFlatKDTree.Neighbors neighbors = RadiusNeighborSearchOnFlatKDTree.search( tree, references, radius, true, new TaskExecutor( 3 ) );
+
+		for ( int r = 0; r < numReferences; ++r )
+		{
+			final double[] expected = exhaustiveSquDistances( coordinates, references, r );
+			int count = 0;
+			for ( final double squDistance : expected )
+				if ( squDistance <= radius * radius )
+					++count;
+			assertEquals( count, neighbors.numNeighbors( r ) );
+			for ( int i = neighbors.offsets[ r ]; i < neighbors.offsets[ r + 1 ]; ++i )
+			{
+				assertEquals( expected[ neighbors.indices[ i ] ], neighbors.squDistances[ i ], 0 );
+				if ( i > neighbors.offsets[ r ] )
+					assertTrue( neighbors.squDistances[ i - 1 ] <= neighbors.squDistances[ i ] );
+			}
+		}
+	}
+}
@@ -615,4 +615,36 @@ public class KthElementTest
 		for( int p = 0; p < permutation.length; ++p )
 			assertTrue( values.get( p ).equals( origvalues.get( permutation[ p ] ) ) );
 	}
+
+	@Test
+	public void testMedianDoubleWithPermutation()
+	{
+		double[] values = new double[] { 2, -1, 1, 100, 123, 12, 3.5, 1 };
+		double[] origValues = values.clone();
+		double[] sortedValues = values.clone();
+		int[] permutation = new int[ values.length ];
+		for ( int p = 0; p < permutation.length; ++p )
+			permutation[ p ] = p;
+
+		final int i = 1;
+		final int j = 6;
+		int k = i + ( j - i ) / 2;
+		KthElement.kthElement( i, j, k, values, permutation );
+		Arrays.sort( sortedValues, i, j + 1 );
+
+		// the elements at the k-th positions should be equal
+		assertEquals( values[ k ], sortedValues[ k ], 0 );
+
+		// the elements before the k-th should be equal or smaller than the k-th
+		for ( int p = i; p < k; ++p )
+			assertTrue( values[ p ] <= values[ k ] );
+
+		// the elements after the k-th should be equal or greater than the k-th
+		for ( int p = k + 1; p <= j; ++p )
+			assertTrue( values[ p ] >= values[ k ] );
+
+		// the permutation should map to the original positions of the values
+		for ( int p = 0; p < values.length; ++p )
+			assertEquals( origValues[ permutation[ p ] ], values[ p ], 0 );
+	}
 }
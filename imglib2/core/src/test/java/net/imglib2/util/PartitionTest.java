@@ -467,4 +467,37 @@ public class PartitionTest
 			assertTrue( values.get( k ).equals( origvalues.get( permutation[ k ] ) ) );
 	}
 
+	@Test
+	public void testPartitionDoubleThreeWayWithPermutation()
+	{
+		double[] values = new double[] { 2, -1, 1, 2, 100, 2, 12, 2, 1, 2 };
+		double[] origValues = values.clone();
+		int[] permutation = new int[ values.length ];
+		for ( int k = 0; k < permutation.length; ++k )
+			permutation[ k ] = k;
+
+		final int i = 1;
+		final int j = 8;
+		int[] bounds = new int[ 2 ];
+		Partition.partitionSubListThreeWay( i, j, values, permutation, bounds );
+
+		// the median of [1]=-1, [4]=100 and [8]=1 is the pivot
+		double pivot = 1;
+		for ( int k = i; k < bounds[ 0 ]; ++k )
+			assertTrue( values[ k ] < pivot );
+		for ( int k = bounds[ 0 ]; k <= bounds[ 1 ]; ++k )
+			assertEquals( pivot, values[ k ], 0 );
+		for ( int k = bounds[ 1 ] + 1; k <= j; ++k )
+			assertTrue( values[ k ] > pivot );
+		assertEquals( 2, bounds[ 0 ] );
+		assertEquals( 3, bounds[ 1 ] );
+
+		// elements outside [i,j] are untouched and the permutation maps to the
+		// original positions of the values
+		for ( int k = 0; k < values.length; ++k )
+			assertEquals( origValues[ permutation[ k ] ], values[ k ], 0 );
+		assertEquals( 0, permutation[ 0 ] );
+		assertEquals( 9, permutation[ 9 ] );
+	}
+
 }
@@ -0,0 +1,123 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package tests.labeling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import net.imglib2.labeling.LabelingMapping;
+import net.imglib2.type.numeric.integer.IntType;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LabelingMapping}.
+ * 
+ * @author ImgLib2 developers
+ */
+public class LabelingMappingTest
+{
+	@Test
+	public void testIntern()
+	{
+		final LabelingMapping< String > mapping = new LabelingMapping< String >( new IntType() );
+		final List< String > ab = mapping.intern( Arrays.asList( "b", "a" ) );
+		assertEquals( Arrays.asList( "a", "b" ), ab );
+		assertSame( ab, mapping.intern( Arrays.asList( "a", "b" ) ) );
+		assertSame( ab, mapping.listAtIndex( mapping.indexOf( ab ) ) );
+		assertSame( mapping.emptyList(), mapping.listAtIndex( 0 ) );
+		assertEquals( 2, mapping.numLists() );
+	}
+
+	@Test
+	public void testInternLabel()
+	{
+		final LabelingMapping< Integer > mapping = new LabelingMapping< Integer >( new IntType() );
+		final List< Integer > list = mapping.intern( Arrays.asList( 5 ) );
+		assertSame( list, mapping.internLabel( 5 ) );
+		assertEquals( mapping.indexOf( list ), mapping.indexOfLabel( 5 ) );
+
+		final List< Integer > label = mapping.internLabel( 7 );
+		assertSame( label, mapping.intern( new ArrayList< Integer >( Arrays.asList( 7 ) ) ) );
+		assertSame( label, mapping.listAtIndex( mapping.indexOfLabel( 7 ) ) );
+	}
+
+	@Test
+	public void testConcurrentIntern() throws InterruptedException
+	{
+		final LabelingMapping< Integer > mapping = new LabelingMapping< Integer >( new IntType() );
+		final int numLabels = 2000;
+		final Thread[] threads = new Thread[ 4 ];
+		final int[][] indices = new int[ threads.length ][ numLabels ];
+		for ( int t = 0; t < threads.length; ++t )
+		{
+			final int[] myIndices = indices[ t ];
+			threads[ t ] = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					for ( int i = 0; i < numLabels; ++i )
+					{
+						myIndices[ i ] = i % 2 == 0 ? mapping.indexOfLabel( i ) : mapping.indexOf( Arrays.asList( i ) );
+						assertEquals( Arrays.asList( i ), mapping.listAtIndex( myIndices[ i ] ) );
+					}
+				}
+			};
+			threads[ t ].start();
+		}
+		for ( final Thread thread : threads )
+			thread.join();
+
+		// every label was interned once, all threads got the same index
+		assertEquals( numLabels + 1, mapping.numLists() );
+		final HashSet< Integer > distinct = new HashSet< Integer >();
+		for ( int i = 0; i < numLabels; ++i )
+		{
+			for ( int t = 1; t < threads.length; ++t )
+				assertEquals( indices[ 0 ][ i ], indices[ t ][ i ] );
+			distinct.add( indices[ 0 ][ i ] );
+			assertEquals( Arrays.asList( i ), mapping.listAtIndex( indices[ 0 ][ i ] ) );
+		}
+		assertEquals( numLabels, distinct.size() );
+	}
+}
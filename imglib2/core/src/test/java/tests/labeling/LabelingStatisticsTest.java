@@ -0,0 +1,228 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package tests.labeling;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.Img;
+import net.imglib2.labeling.LabelingStatistics;
+import net.imglib2.labeling.LabelingType;
+import net.imglib2.labeling.NativeImgLabeling;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LabelingStatistics}, compared to statistics computed pixel
+ * by pixel.
+ * 
+ * @author ImgLib2 developers
+ */
+public class LabelingStatisticsTest
+{
+	final long[] dimensions = new long[] { 300, 500 };
+
+	private NativeImgLabeling< Integer, IntType > createLabeling()
+	{
+		return new NativeImgLabeling< Integer, IntType >( new ArrayImgFactory< IntType >().create( dimensions, new IntType() ) );
+	}
+
+	/**
+	 * Label random rectangles, some of them overlapping.
+	 */
+	private void labelRectangles( final NativeImgLabeling< Integer, IntType > labeling, final FinalInterval region, final int firstLabel, final int numLabels, final Random random )
+	{
+		final RandomAccess< LabelingType< Integer >> ra = labeling.randomAccess();
+		for ( int l = firstLabel; l < firstLabel + numLabels; ++l )
+		{
+			final long x0 = region.min( 0 ) + random.nextInt( ( int ) region.dimension( 0 ) - 10 );
+			final long y0 = region.min( 1 ) + random.nextInt( ( int ) region.dimension( 1 ) - 10 );
+			final long w = 1 + random.nextInt( 10 );
+			final long h = 1 + random.nextInt( 10 );
+			for ( long y = y0; y < y0 + h; ++y )
+				for ( long x = x0; x < x0 + w; ++x )
+				{
+					ra.setPosition( new long[] { x, y } );
+					final List< Integer > current = ra.get().getLabeling();
+					if ( random.nextInt( 4 ) == 0 && !current.isEmpty() && !current.contains( l ) )
+					{
+						final ArrayList< Integer > overlap = new ArrayList< Integer >( current );
+						overlap.add( l );
+						ra.get().setLabeling( overlap );
+					}
+					else
+						ra.get().setLabel( l );
+				}
+		}
+	}
+
+	private Img< FloatType > createIntensity( final Random random )
+	{
+		final Img< FloatType > intensity = new ArrayImgFactory< FloatType >().create( dimensions, new FloatType() );
+		for ( final FloatType t : intensity )
+			t.set( random.nextFloat() );
+		return intensity;
+	}
+
+	/**
+	 * Compare to area, extents, raster start, centroid and intensity moments
+	 * computed pixel by pixel.
+	 */
+	private void check( final NativeImgLabeling< Integer, IntType > labeling, final Img< FloatType > intensity, final LabelingStatistics< Integer > statistics )
+	{
+		final HashMap< Integer, double[] > expected = new HashMap< Integer, double[] >();
+		final Cursor< LabelingType< Integer >> c = labeling.localizingCursor();
+		final Cursor< FloatType > ci = intensity.cursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			ci.fwd();
+			final double v = ci.get().get();
+			for ( final Integer label : c.get().getLabeling() )
+			{
+				double[] e = expected.get( label );
+				if ( e == null )
+				{
+					// area, minx, miny, maxx, maxy, sumx, sumy, sumI, sumI2, sumIx, sumIy, rasterx, rastery
+					e = new double[] { 0, Double.MAX_VALUE, Double.MAX_VALUE, -1, -1, 0, 0, 0, 0, 0, 0, c.getLongPosition( 0 ), c.getLongPosition( 1 ) };
+					expected.put( label, e );
+				}
+				final double x = c.getLongPosition( 0 ), y = c.getLongPosition( 1 );
+				e[ 0 ] += 1;
+				e[ 1 ] = Math.min( e[ 1 ], x );
+				e[ 2 ] = Math.min( e[ 2 ], y );
+				e[ 3 ] = Math.max( e[ 3 ], x );
+				e[ 4 ] = Math.max( e[ 4 ], y );
+				e[ 5 ] += x;
+				e[ 6 ] += y;
+				e[ 7 ] += v;
+				e[ 8 ] += v * v;
+				e[ 9 ] += v * x;
+				e[ 10 ] += v * y;
+				if ( x < e[ 11 ] || ( x == e[ 11 ] && y < e[ 12 ] ) )
+				{
+					e[ 11 ] = x;
+					e[ 12 ] = y;
+				}
+			}
+		}
+
+		assertEquals( expected.keySet(), new HashSet< Integer >( statistics.getLabels() ) );
+		final long[] min = new long[ 2 ], max = new long[ 2 ], start = new long[ 2 ];
+		final double[] centroid = new double[ 2 ], weighted = new double[ 2 ];
+		for ( final Integer label : expected.keySet() )
+		{
+			final double[] e = expected.get( label );
+			assertEquals( ( long ) e[ 0 ], statistics.getArea( label ) );
+			statistics.getExtents( label, min, max );
+			assertArrayEquals( new long[] { ( long ) e[ 1 ], ( long ) e[ 2 ] }, min );
+			assertArrayEquals( new long[] { ( long ) e[ 3 ], ( long ) e[ 4 ] }, max );
+			statistics.getRasterStart( label, start );
+			assertArrayEquals( new long[] { ( long ) e[ 11 ], ( long ) e[ 12 ] }, start );
+			statistics.getCentroid( label, centroid );
+			assertArrayEquals( new double[] { e[ 5 ] / e[ 0 ], e[ 6 ] / e[ 0 ] }, centroid, 1e-6 );
+			assertEquals( e[ 7 ], statistics.getIntensitySum( label ), 1e-3 );
+			assertEquals( e[ 8 ] / e[ 0 ] - e[ 7 ] * e[ 7 ] / e[ 0 ] / e[ 0 ], statistics.getIntensityVariance( label ), 1e-4 );
+			statistics.getWeightedCentroid( label, weighted );
+			assertArrayEquals( new double[] { e[ 9 ] / e[ 7 ], e[ 10 ] / e[ 7 ] }, weighted, 1e-3 );
+		}
+	}
+
+	@Test
+	public void testCompute()
+	{
+		final Random random = new Random( 42 );
+		final NativeImgLabeling< Integer, IntType > labeling = createLabeling();
+		labelRectangles( labeling, new FinalInterval( dimensions ), 1, 2000, random );
+		final Img< FloatType > intensity = createIntensity( random );
+
+		final LabelingStatistics< Integer > statistics = new LabelingStatistics< Integer >( labeling, intensity );
+		statistics.setTaskExecutor( new TaskExecutor( 4 ) );
+		statistics.compute();
+		check( labeling, intensity, statistics );
+
+		assertEquals( 0, statistics.getArea( -1 ) );
+		assertFalse( statistics.getExtents( -1, new long[ 2 ], new long[ 2 ] ) );
+	}
+
+	@Test
+	public void testUpdate()
+	{
+		final Random random = new Random( 7 );
+		final NativeImgLabeling< Integer, IntType > labeling = createLabeling();
+		labelRectangles( labeling, new FinalInterval( dimensions ), 1, 2000, random );
+		final Img< FloatType > intensity = createIntensity( random );
+
+		final LabelingStatistics< Integer > statistics = new LabelingStatistics< Integer >( labeling, intensity );
+		statistics.setTaskExecutor( new TaskExecutor( 4 ) );
+		statistics.compute();
+
+		// relabel existing objects and add new ones near the bottom
+		final FinalInterval changed = new FinalInterval( new long[] { 0, 400 }, new long[] { 299, 499 } );
+		labelRectangles( labeling, changed, 500, 300, random );
+		labelRectangles( labeling, changed, 3000, 50, random );
+		statistics.update( changed );
+		check( labeling, intensity, statistics );
+
+		// remove all labels within a region
+		final FinalInterval cleared = new FinalInterval( new long[] { 0, 0 }, new long[] { 299, 99 } );
+		final Cursor< LabelingType< Integer >> c = labeling.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			if ( c.getLongPosition( 1 ) <= 99 )
+				c.get().setLabeling( Arrays.< Integer >asList() );
+		}
+		statistics.update( cleared );
+		check( labeling, intensity, statistics );
+	}
+}
@@ -0,0 +1,279 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package tests.labeling;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.labeling.LabelingType;
+import net.imglib2.labeling.NativeImgLabeling;
+import net.imglib2.labeling.RunLengthIndex;
+import net.imglib2.roi.IterableRegionOfInterest;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link RunLengthIndex}, compared to iterating the labeling.
+ * 
+ * @author ImgLib2 developers
+ */
+public class RunLengthIndexTest
+{
+	/**
+	 * Label random boxes, some pixels get two labels.
+	 */
+	private NativeImgLabeling< Integer, IntType > createLabeling( final long[] dimensions, final int numLabels, final Random random )
+	{
+		final NativeImgLabeling< Integer, IntType > labeling = new NativeImgLabeling< Integer, IntType >( new ArrayImgFactory< IntType >().create( dimensions, new IntType() ) );
+		final RandomAccess< LabelingType< Integer >> ra = labeling.randomAccess();
+		final int n = dimensions.length;
+		final long[] min = new long[ n ], size = new long[ n ], position = new long[ n ];
+		for ( int l = 1; l <= numLabels; ++l )
+		{
+			long count = 1;
+			for ( int d = 0; d < n; ++d )
+			{
+				size[ d ] = 1 + random.nextInt( 8 );
+				min[ d ] = random.nextInt( ( int ) ( dimensions[ d ] - size[ d ] + 1 ) );
+				count *= size[ d ];
+			}
+			for ( long i = 0; i < count; ++i )
+			{
+				long k = i;
+				for ( int d = 0; d < n; ++d )
+				{
+					position[ d ] = min[ d ] + k % size[ d ];
+					k /= size[ d ];
+				}
+				ra.setPosition( position );
+				final List< Integer > current = ra.get().getLabeling();
+				if ( random.nextInt( 3 ) == 0 && !current.isEmpty() )
+				{
+					final ArrayList< Integer > overlap = new ArrayList< Integer >( current );
+					if ( !overlap.contains( l ) )
+						overlap.add( l );
+					ra.get().setLabeling( overlap );
+				}
+				else
+					ra.get().setLabel( l );
+			}
+		}
+		return labeling;
+	}
+
+	private void check( final NativeImgLabeling< Integer, IntType > labeling )
+	{
+		final int n = labeling.numDimensions();
+
+		// the positions of every label in flat iteration order
+		final HashMap< Integer, ArrayList< long[] >> expected = new HashMap< Integer, ArrayList< long[] >>();
+		final Cursor< LabelingType< Integer >> c = labeling.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			for ( final Integer label : c.get().getLabeling() )
+			{
+				ArrayList< long[] > positions = expected.get( label );
+				if ( positions == null )
+				{
+					positions = new ArrayList< long[] >();
+					expected.put( label, positions );
+				}
+				final long[] position = new long[ n ];
+				c.localize( position );
+				positions.add( position );
+			}
+		}
+
+		final RunLengthIndex< Integer > index = new RunLengthIndex< Integer >( labeling );
+		assertEquals( expected.size(), index.getLabels().size() );
+		final Img< IntType > img = labeling.getStorageImg();
+		final long[] position = new long[ n ], min = new long[ n ], max = new long[ n ];
+		final double[] realPosition = new double[ n ];
+		for ( final Integer label : expected.keySet() )
+		{
+			final ArrayList< long[] > positions = expected.get( label );
+			assertEquals( positions.size(), index.getArea( label ) );
+
+			final IterableRegionOfInterest roi = index.createIterableRegionOfInterest( label );
+			final Cursor< IntType > rc = roi.getIterableIntervalOverROI( img ).localizingCursor();
+			int i = 0;
+			while ( rc.hasNext() )
+			{
+				rc.fwd();
+				rc.localize( position );
+				assertArrayEquals( positions.get( i++ ), position );
+				for ( int d = 0; d < n; ++d )
+					realPosition[ d ] = position[ d ];
+				assertTrue( roi.contains( realPosition ) );
+				assertTrue( labeling.getMapping().listAtIndex( rc.get().get() ).contains( label ) );
+			}
+			assertEquals( positions.size(), i );
+
+			// the same pixels as the scanning regions of other labelings
+			labeling.getExtents( label, min, max );
+			for ( int d = 0; d < n; ++d )
+			{
+				assertEquals( min[ d ], roi.realMin( d ), 0 );
+				assertEquals( max[ d ], roi.realMax( d ), 0 );
+			}
+
+			// jump to the middle of the label
+			final Cursor< IntType > jc = roi.getIterableIntervalOverROI( img ).cursor();
+			jc.fwd();
+			jc.jumpFwd( positions.size() / 2 );
+			jc.localize( position );
+			assertArrayEquals( positions.get( positions.size() / 2 ), position );
+		}
+
+		final Integer missing = -1;
+		assertEquals( 0, index.getArea( missing ) );
+		assertFalse( index.createIterableRegionOfInterest( missing ).getIterableIntervalOverROI( img ).cursor().hasNext() );
+	}
+
+	@Test
+	public void test2D()
+	{
+		check( createLabeling( new long[] { 97, 64 }, 300, new Random( 1 ) ) );
+	}
+
+	@Test
+	public void test3D()
+	{
+		check( createLabeling( new long[] { 20, 17, 13 }, 200, new Random( 2 ) ) );
+	}
+
+	/**
+	 * Iterate the regions over crops of the labeling, the runs of rows outside
+	 * of the crop are skipped.
+	 */
+	private void checkCropped( final NativeImgLabeling< Integer, IntType > labeling, final Random random )
+	{
+		final int n = labeling.numDimensions();
+		final RunLengthIndex< Integer > index = new RunLengthIndex< Integer >( labeling );
+		final long[] min = new long[ n ], max = new long[ n ], position = new long[ n ], expected = new long[ n ];
+		for ( int k = 0; k < 20; ++k )
+		{
+			for ( int d = 0; d < n; ++d )
+			{
+				min[ d ] = random.nextInt( ( int ) labeling.dimension( d ) );
+				max[ d ] = min[ d ] + random.nextInt( ( int ) ( labeling.dimension( d ) - min[ d ] ) );
+			}
+			final FinalInterval crop = new FinalInterval( min, max );
+			for ( final Integer label : index.getLabels() )
+			{
+				final Cursor< LabelingType< Integer >> c = Views.iterable( Views.interval( labeling, crop ) ).localizingCursor();
+				final Cursor< LabelingType< Integer >> rc = index.createIterableRegionOfInterest( label ).getIterableIntervalOverROI( Views.interval( labeling, crop ) ).localizingCursor();
+				while ( c.hasNext() )
+				{
+					c.fwd();
+					if ( !c.get().getLabeling().contains( label ) )
+						continue;
+					c.localize( expected );
+					assertTrue( rc.hasNext() );
+					rc.fwd();
+					rc.localize( position );
+					assertArrayEquals( expected, position );
+				}
+				assertFalse( rc.hasNext() );
+			}
+		}
+	}
+
+	private long count( final Cursor< ? > c )
+	{
+		long count = 0;
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			++count;
+		}
+		return count;
+	}
+
+	@Test
+	public void testCropped()
+	{
+		// a label on the rows 0 to 3, cropped to the rows 2 to 7
+		final NativeImgLabeling< Integer, IntType > labeling = new NativeImgLabeling< Integer, IntType >( new ArrayImgFactory< IntType >().create( new long[] { 8, 8 }, new IntType() ) );
+		final Cursor< LabelingType< Integer >> c = labeling.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			if ( c.getLongPosition( 1 ) < 4 )
+				c.get().setLabel( 1 );
+		}
+		final RunLengthIndex< Integer > index = new RunLengthIndex< Integer >( labeling );
+		final IterableRegionOfInterest roi = index.createIterableRegionOfInterest( 1 );
+		assertEquals( 16, count( roi.getIterableIntervalOverROI( Views.interval( labeling, new long[] { 0, 2 }, new long[] { 7, 7 } ) ).cursor() ) );
+		assertEquals( 8, count( roi.getIterableIntervalOverROI( Views.interval( labeling, new long[] { 2, 1 }, new long[] { 5, 2 } ) ).cursor() ) );
+		assertEquals( 0, count( roi.getIterableIntervalOverROI( Views.interval( labeling, new long[] { 0, 4 }, new long[] { 7, 7 } ) ).cursor() ) );
+
+		checkCropped( createLabeling( new long[] { 31, 23 }, 40, new Random( 4 ) ), new Random( 5 ) );
+		checkCropped( createLabeling( new long[] { 13, 11, 9 }, 30, new Random( 6 ) ), new Random( 7 ) );
+	}
+
+	@Test
+	public void testStrategy()
+	{
+		// regions of a native labeling iterate over the runs and follow changes
+		final NativeImgLabeling< Integer, IntType > labeling = createLabeling( new long[] { 50, 40 }, 50, new Random( 3 ) );
+		final RandomAccess< LabelingType< Integer >> ra = labeling.randomAccess();
+		ra.setPosition( new long[] { 49, 39 } );
+		ra.get().setLabel( 1000 );
+		final Cursor< LabelingType< Integer >> c = labeling.getIterableRegionOfInterest( 1000 ).getIterableIntervalOverROI( labeling ).localizingCursor();
+		assertTrue( c.hasNext() );
+		c.fwd();
+		assertEquals( 49, c.getLongPosition( 0 ) );
+		assertEquals( 39, c.getLongPosition( 1 ) );
+		assertFalse( c.hasNext() );
+	}
+}
@@ -40,6 +40,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import loci.common.DataTools;
 import loci.common.StatusEvent;
@@ -68,17 +69,23 @@ import net.imglib2.img.ImgPlus;
 import net.imglib2.img.array.ArrayImg;
 import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.img.basictypeaccess.PlanarAccess;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.AbstractCell;
 import net.imglib2.img.cell.CellImg;
 import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.cell.Cells;
+import net.imglib2.img.cell.DiskCell;
 import net.imglib2.img.planar.PlanarImg;
 import net.imglib2.img.planar.PlanarImgFactory;
 import net.imglib2.meta.Axes;
 import net.imglib2.meta.AxisType;
+import net.imglib2.multithreading.TaskExecutor;
 import net.imglib2.type.NativeType;
 import net.imglib2.type.Type;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.DoubleType;
 import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.IntervalIndexer;
 import ome.xml.model.primitives.PositiveFloat;
 
 /**
@@ -95,6 +102,9 @@ public class ImgOpener implements StatusReporter {
 	private final List<StatusListener> listeners =
 		new ArrayList<StatusListener>();
 
+	/** Number of planes decoded concurrently, each by its own reader. */
+	private int numThreads = 1;
+
 	// -- static methods --
 	
 	/**
@@ -318,7 +328,7 @@ public class ImgOpener implements StatusReporter {
 			final IFormatReader r = initializeReader(id, computeMinMax);
 			final T type = ImgIOUtils.makeType(r.getPixelType());
 			final ImgFactory<T> imgFactoryT = imgFactory.imgFactory(type);
-			return openImg(r, imgFactoryT, type, computeMinMax);
+			return openImg(r, imgFactoryT, type, computeMinMax, true);
 		}
 		catch (final FormatException e) {
 			throw new ImgIOException(e);
@@ -366,7 +376,7 @@ public class ImgOpener implements StatusReporter {
 	{
 		try {
 			final IFormatReader r = initializeReader(id, computeMinMax);
-			return openImg(r, imgFactory, type, computeMinMax);
+			return openImg(r, imgFactory, type, computeMinMax, true);
 		}
 		catch (final FormatException e) {
 			throw new ImgIOException(e);
@@ -416,31 +426,34 @@ public class ImgOpener implements StatusReporter {
 		final IFormatReader r, final ImgFactory<T> imgFactory, final T type,
 		final boolean computeMinMax) throws ImgIOException
 	{
-		// create image and read metadata
-		final long[] dimLengths = getDimLengths(r);
-		final Img<T> img = imgFactory.create(dimLengths, type);
-		final ImgPlus<T> imgPlus = makeImgPlus(img, r);
+		// the caller's reader configuration cannot be duplicated; read serially
+		return openImg(r, imgFactory, type, computeMinMax, false);
+	}
 
-		// read pixels
-		final long startTime = System.currentTimeMillis();
-		final String id = r.getCurrentFile();
-		final int planeCount = r.getImageCount();
-		try {
-			readPlanes(r, type, imgPlus, computeMinMax);
-		}
-		catch (final FormatException e) {
-			throw new ImgIOException(e);
-		}
-		catch (final IOException e) {
-			throw new ImgIOException(e);
-		}
-		imgPlus.setSource(id);
-		final long endTime = System.currentTimeMillis();
-		final float time = (endTime - startTime) / 1000f;
-		notifyListeners(new StatusEvent(planeCount, planeCount, id + ": read " +
-			planeCount + " planes in " + time + "s"));
+	// -- ImgOpener methods --
 
-		return imgPlus;
+	/**
+	 * Sets the number of planes that are read and decoded concurrently. With
+	 * more than one thread, additional readers are opened on the same source
+	 * (one per thread), which pays off for large, compressed, multi-plane
+	 * files where decoding is CPU bound. Planes are decoded on the shared
+	 * {@link TaskExecutor}. The default is one thread.
+	 * <p>
+	 * This only applies when opening a source by its id. An
+	 * {@link IFormatReader} passed to {@link #openImg(IFormatReader, ImgFactory,
+	 * RealType, boolean)} may be wrapped or configured in ways that cannot be
+	 * duplicated, so its planes are always read by that reader alone.
+	 * </p>
+	 */
+	public void setNumThreads(final int numThreads) {
+		if (numThreads < 1) throw new IllegalArgumentException(
+			"numThreads must be at least 1");
+		this.numThreads = numThreads;
+	}
+
+	/** Gets the number of planes that are read and decoded concurrently. */
+	public int getNumThreads() {
+		return numThreads;
 	}
 
 	// -- StatusReporter methods --
@@ -554,6 +567,45 @@ public class ImgOpener implements StatusReporter {
 		return createReader(id, computeMinMax);
 	}
 
+	/**
+	 * Reads in an {@link ImgPlus} from the given initialized
+	 * {@link IFormatReader}. If {@code parallel} is set, planes are read by up
+	 * to {@link #getNumThreads()} readers; only do so for readers created by
+	 * {@link #createReader}, since the additional readers are configured the
+	 * same way.
+	 */
+	private <T extends RealType<T> & NativeType<T>> ImgPlus<T> openImg(
+		final IFormatReader r, final ImgFactory<T> imgFactory, final T type,
+		final boolean computeMinMax, final boolean parallel)
+		throws ImgIOException
+	{
+		// create image and read metadata
+		final long[] dimLengths = getDimLengths(r);
+		final Img<T> img = imgFactory.create(dimLengths, type);
+		final ImgPlus<T> imgPlus = makeImgPlus(img, r);
+
+		// read pixels
+		final long startTime = System.currentTimeMillis();
+		final String id = r.getCurrentFile();
+		final int planeCount = r.getImageCount();
+		try {
+			readPlanes(r, type, imgPlus, computeMinMax, parallel);
+		}
+		catch (final FormatException e) {
+			throw new ImgIOException(e);
+		}
+		catch (final IOException e) {
+			throw new ImgIOException(e);
+		}
+		imgPlus.setSource(id);
+		final long endTime = System.currentTimeMillis();
+		final float time = (endTime - startTime) / 1000f;
+		notifyListeners(new StatusEvent(planeCount, planeCount, id + ": read " +
+			planeCount + " planes in " + time + "s"));
+
+		return imgPlus;
+	}
+
 	/** Compiles an N-dimensional list of axis types from the given reader. */
 	private AxisType[] getDimTypes(final IFormatReader r) {
 		final int sizeX = r.getSizeX();
@@ -716,11 +768,12 @@ public class ImgOpener implements StatusReporter {
 
 	/**
 	 * Reads planes from the given initialized {@link IFormatReader} into the
-	 * specified {@link Img}.
+	 * specified {@link Img}. If {@code parallel} is set, additional readers
+	 * are created with {@link #createReader} on the same source.
 	 */
 	private <T extends RealType<T>> void readPlanes(final IFormatReader r,
-		final T type, final ImgPlus<T> imgPlus, final boolean computeMinMax)
-		throws FormatException, IOException
+		final T type, final ImgPlus<T> imgPlus, final boolean computeMinMax,
+		final boolean parallel) throws FormatException, IOException
 	{
 		// TODO - create better container types; either:
 		// 1) an array container type using one byte array per plane
@@ -746,24 +799,85 @@ public class ImgOpener implements StatusReporter {
 		// populate planes
 		final int planeCount = r.getImageCount();
 		final boolean isPlanar = planarAccess != null && compatibleTypes;
+		final boolean isBulk =
+			!isPlanar && compatibleTypes && isBulkContainer(imgPlus.getImg());
 		imgPlus.initializeColorTables(planeCount);
 
-		byte[] plane = null;
-		for (int no = 0; no < planeCount; no++) {
-			notifyListeners(new StatusEvent(no, planeCount, "Reading plane " +
-				(no + 1) + "/" + planeCount));
-			if (plane == null) plane = r.openBytes(no);
-			else r.openBytes(no, plane);
-			if (isPlanar) populatePlane(r, no, plane, planarAccess);
-			else populatePlane(r, no, plane, imgPlus);
-
-			// store color table
-			final byte[][] lut8 = r.get8BitLookupTable();
-			if (lut8 != null) imgPlus.setColorTable(new ColorTable8(lut8), no);
-			final short[][] lut16 = r.get16BitLookupTable();
-			if (lut16 != null) imgPlus.setColorTable(new ColorTable16(lut16), no);
-		}
-		if (computeMinMax) populateMinMax(r, imgPlus);
+		final int numReaders =
+			parallel ? Math.max(1, Math.min(numThreads, planeCount)) : 1;
+		final IFormatReader[] readers = new IFormatReader[numReaders];
+		readers[0] = r;
+		final int[] planeReaders = new int[planeCount];
+		try {
+			for (int i = 1; i < numReaders; i++) {
+				readers[i] = createReader(r.getCurrentFile(), computeMinMax);
+				readers[i].setSeries(r.getSeries());
+			}
+
+			final AtomicInteger nextPlane = new AtomicInteger();
+			final Exception[] failure = new Exception[1];
+			final ArrayList<Runnable> tasks = new ArrayList<Runnable>(numReaders);
+			for (int i = 0; i < numReaders; i++) {
+				final int readerIndex = i;
+				tasks.add(new Runnable() {
+
+					@Override
+					public void run() {
+						final IFormatReader reader = readers[readerIndex];
+						byte[] plane = null;
+						try {
+							for (int no = nextPlane.getAndIncrement(); no < planeCount &&
+								failure[0] == null; no = nextPlane.getAndIncrement())
+							{
+								notifyListeners(new StatusEvent(no, planeCount,
+									"Reading plane " + (no + 1) + "/" + planeCount));
+								if (plane == null) plane = reader.openBytes(no);
+								else reader.openBytes(no, plane);
+								planeReaders[no] = readerIndex;
+								if (isPlanar) populatePlane(reader, no, plane, planarAccess);
+								else if (isBulk) populatePlaneBulk(reader, no, plane, imgPlus);
+								else populatePlane(reader, no, plane, imgPlus);
+
+								// store color table
+								final byte[][] lut8 = reader.get8BitLookupTable();
+								final short[][] lut16 = reader.get16BitLookupTable();
+								synchronized (imgPlus) {
+									if (lut8 != null) imgPlus.setColorTable(new ColorTable8(lut8),
+										no);
+									if (lut16 != null) imgPlus.setColorTable(
+										new ColorTable16(lut16), no);
+								}
+							}
+						}
+						catch (final Exception e) {
+							synchronized (failure) {
+								if (failure[0] == null) failure[0] = e;
+							}
+						}
+					}
+				});
+			}
+			if (numReaders == 1) tasks.get(0).run();
+			else TaskExecutor.getDefault().run(tasks, numReaders);
+
+			if (failure[0] instanceof FormatException) {
+				throw (FormatException) failure[0];
+			}
+			if (failure[0] instanceof IOException) throw (IOException) failure[0];
+			if (failure[0] instanceof RuntimeException) {
+				throw (RuntimeException) failure[0];
+			}
+			if (failure[0] != null) throw new FormatException(failure[0]);
+
+			if (computeMinMax) {
+				if (numReaders == 1) populateMinMax(r, imgPlus);
+				else populateMinMax(readers, planeReaders, imgPlus);
+			}
+		}
+		finally {
+			for (int i = 1; i < numReaders; i++)
+				if (readers[i] != null) readers[i].close();
+		}
 		r.close();
 	}
 
@@ -829,6 +943,102 @@ public class ImgOpener implements StatusReporter {
 		}
 	}
 
+	/**
+	 * Whether planes can be copied directly into the primitive storage of the
+	 * given {@link Img}, i.e., whether it is an {@link ArrayImg} or a
+	 * {@link CellImg} with one storage element per pixel.
+	 */
+	private boolean isBulkContainer(final Img<?> img) {
+		if (img instanceof ArrayImg) {
+			return ((ArrayImg<?, ?>) img).update(null) instanceof ArrayDataAccess &&
+				img.size() <= Integer.MAX_VALUE;
+		}
+		if (img instanceof CellImg) {
+			return ((CellImg<?, ?, ?>) img).getCells().getEntitiesPerPixel() == 1;
+		}
+		return false;
+	}
+
+	/**
+	 * Converts the plane into the primitive array type of the container and
+	 * copies it row by row into the storage of an {@link ArrayImg} or into the
+	 * cells of a {@link CellImg}. Falls back to
+	 * {@link #populatePlane(IFormatReader, int, byte[], ImgPlus)} if the
+	 * decoded array type does not match the storage.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private <T extends RealType<T>> void populatePlaneBulk(
+		final IFormatReader r, final int no, final byte[] plane,
+		final ImgPlus<T> imgPlus)
+	{
+		final int pixelType = r.getPixelType();
+		final int bpp = FormatTools.getBytesPerPixel(pixelType);
+		final boolean fp = FormatTools.isFloatingPoint(pixelType);
+		final boolean little = r.isLittleEndian();
+		final Object planeArray = DataTools.makeDataArray(plane, bpp, fp, little);
+
+		final Img<T> img = imgPlus.getImg();
+		final long[] dimLengths = new long[img.numDimensions()];
+		img.dimensions(dimLengths);
+		final long[] pos = new long[dimLengths.length];
+		getPosition(r, no, pos);
+
+		final int sX = (int) dimLengths[0];
+		final int sY = dimLengths.length > 1 ? (int) dimLengths[1] : 1;
+
+		if (img instanceof ArrayImg) {
+			final Object storage =
+				((ArrayDataAccess) ((ArrayImg) img).update(null))
+					.getCurrentStorageArray();
+			if (storage.getClass() != planeArray.getClass()) {
+				populatePlane(r, no, plane, imgPlus);
+				return;
+			}
+			final int offset = (int) IntervalIndexer.positionToIndex(pos, dimLengths);
+			System.arraycopy(planeArray, 0, storage, offset, sX * sY);
+		}
+		else {
+			final Cells<?, ? extends AbstractCell<?>> cells =
+				((CellImg) img).getCells();
+			final int[] cellDims = new int[dimLengths.length];
+			cells.cellDimensions(cellDims);
+			final long[] gridPos = new long[dimLengths.length];
+			for (int d = 2; d < gridPos.length; d++)
+				gridPos[d] = pos[d] / cellDims[d];
+			final long[] cellPos = new long[dimLengths.length];
+
+			final RandomAccess<? extends AbstractCell<?>> cellAccess =
+				cells.randomAccess();
+			for (int gy = 0; gy * (long) cellDims[1] < sY; gy++) {
+				for (int gx = 0; gx * (long) cellDims[0] < sX; gx++) {
+					gridPos[0] = gx;
+					if (gridPos.length > 1) gridPos[1] = gy;
+					cellAccess.setPosition(gridPos);
+					final AbstractCell<?> cell = cellAccess.get();
+					final Object storage = cell.getData().getCurrentStorageArray();
+					if (storage.getClass() != planeArray.getClass()) {
+						populatePlane(r, no, plane, imgPlus);
+						return;
+					}
+					// offset of the plane within the cell
+					for (int d = 2; d < cellPos.length; d++)
+						cellPos[d] = pos[d] - cell.min(d);
+					final int cellOffset = cell.localPositionToIndex(cellPos);
+					final int minX = (int) cell.min(0);
+					final int minY = cellPos.length > 1 ? (int) cell.min(1) : 0;
+					final int w = cell.dimension(0);
+					final int h = cellPos.length > 1 ? cell.dimension(1) : 1;
+					for (int y = 0; y < h; y++) {
+						System.arraycopy(planeArray, (minY + y) * sX + minX, storage,
+							cellOffset + y * w, w);
+					}
+					// disk cells do not track writes to the storage array
+					if (cell instanceof DiskCell) ((DiskCell<?>) cell).setDirty(true);
+				}
+			}
+		}
+	}
+
 	private void populateMinMax(final IFormatReader r, final ImgPlus<?> imgPlus)
 		throws FormatException, IOException
 	{
@@ -844,6 +1054,49 @@ public class ImgOpener implements StatusReporter {
 		}
 	}
 
+	/**
+	 * Populates the channel minimum and maximum from the per-plane values
+	 * computed by the {@link MinMaxCalculator}s of several readers, where
+	 * plane <code>no</code> was read by <code>readers[planeReaders[no]]</code>.
+	 */
+	private void populateMinMax(final IFormatReader[] readers,
+		final int[] planeReaders, final ImgPlus<?> imgPlus)
+		throws FormatException, IOException
+	{
+		final IFormatReader r = readers[0];
+		final int sizeC = r.getSizeC();
+		final double[] min = new double[sizeC];
+		final double[] max = new double[sizeC];
+		for (int c = 0; c < sizeC; c++) {
+			min[c] = Double.NaN;
+			max[c] = Double.NaN;
+		}
+		final MinMaxCalculator[] minMaxCalcs =
+			new MinMaxCalculator[readers.length];
+		for (int i = 0; i < readers.length; i++) {
+			minMaxCalcs[i] =
+				(MinMaxCalculator) ((ReaderWrapper) readers[i]).unwrap(
+					MinMaxCalculator.class, null);
+		}
+		for (int no = 0; no < planeReaders.length; no++) {
+			final MinMaxCalculator minMaxCalc = minMaxCalcs[planeReaders[no]];
+			final Double[] planeMin = minMaxCalc.getPlaneMinimum(no);
+			final Double[] planeMax = minMaxCalc.getPlaneMaximum(no);
+			if (planeMin == null || planeMax == null) continue;
+			final int c = r.getZCTCoords(no)[1];
+			for (final Double value : planeMin) {
+				if (value != null && !(value >= min[c])) min[c] = value;
+			}
+			for (final Double value : planeMax) {
+				if (value != null && !(value <= max[c])) max[c] = value;
+			}
+		}
+		for (int c = 0; c < sizeC; c++) {
+			imgPlus.setChannelMinimum(c, min[c]);
+			imgPlus.setChannelMaximum(c, max[c]);
+		}
+	}
+
 	/** Copies the current dimensional position into the given array. */
 	private void
 		getPosition(final IFormatReader r, final int no, final long[] pos)
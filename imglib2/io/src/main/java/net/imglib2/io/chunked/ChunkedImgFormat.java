@@ -0,0 +1,282 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.io.chunked;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import net.imglib2.io.ImgIOException;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Constants and helpers shared by {@link ChunkedImgWriter} and
+ * {@link ChunkedImgReader}.
+ * <p>
+ * A chunked image file consists of a header, a block index and the blocks.
+ * All values are big-endian.
+ * </p>
+ * <ul>
+ * <li>header: magic (int), version (int), type code (int), number of
+ * dimensions n (int), dimensions (n longs), block size (n ints)</li>
+ * <li>block index: for every block in flat order of the block grid, the file
+ * offset (long) and the compressed length (int) of the block</li>
+ * <li>blocks: the pixels of each block in flat order, deflate compressed
+ * independently of each other. Blocks at the upper border of the image are
+ * truncated to the image, just like the cells of a CellImg.</li>
+ * </ul>
+ * 
+ * @author ImgLib2 developers
+ */
+final class ChunkedImgFormat {
+
+	// -- Constants --
+
+	/** "IL2C" */
+	public static final int MAGIC = 0x494c3243;
+
+	public static final int VERSION = 1;
+
+	/** Bytes per entry in the block index. */
+	public static final int INDEX_ENTRY_SIZE = 8 + 4;
+
+	private static final Class<?>[] TYPES = { UnsignedByteType.class,
+		ByteType.class, UnsignedShortType.class, ShortType.class,
+		UnsignedIntType.class, IntType.class, LongType.class, FloatType.class,
+		DoubleType.class };
+
+	private ChunkedImgFormat() {
+		// NB: prevent instantiation of utility class.
+	}
+
+	// -- Header --
+
+	/** Size of the header in bytes for n dimensions. */
+	public static long headerSize(final int n) {
+		return 4 * 4 + 8 * n + 4 * n;
+	}
+
+	public static void writeHeader(final DataOutput out, final int typeCode,
+		final long[] dimensions, final int[] blockSize) throws IOException
+	{
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(typeCode);
+		out.writeInt(dimensions.length);
+		for (final long d : dimensions)
+			out.writeLong(d);
+		for (final int b : blockSize)
+			out.writeInt(b);
+	}
+
+	// -- Types --
+
+	/** Returns the type code for the given type. */
+	public static int typeCode(final NativeType<?> type) throws ImgIOException {
+		for (int i = 0; i < TYPES.length; i++)
+			if (TYPES[i] == type.getClass()) return i;
+		throw new ImgIOException("Unsupported type for chunked images: " +
+			type.getClass().getName());
+	}
+
+	/** Creates a type instance for the given type code. */
+	@SuppressWarnings("unchecked")
+	public static <T extends NativeType<T>> T makeType(final int typeCode)
+		throws ImgIOException
+	{
+		if (typeCode < 0 || typeCode >= TYPES.length) {
+			throw new ImgIOException("Unknown type code: " + typeCode);
+		}
+		try {
+			return (T) TYPES[typeCode].newInstance();
+		}
+		catch (final InstantiationException e) {
+			throw new ImgIOException(e);
+		}
+		catch (final IllegalAccessException e) {
+			throw new ImgIOException(e);
+		}
+	}
+
+	// -- Block grid --
+
+	/** Computes the number of blocks along each dimension. */
+	public static long[] gridDimensions(final long[] dimensions,
+		final int[] blockSize)
+	{
+		final long[] grid = new long[dimensions.length];
+		for (int d = 0; d < grid.length; d++)
+			grid[d] = (dimensions[d] + blockSize[d] - 1) / blockSize[d];
+		return grid;
+	}
+
+	/**
+	 * Computes min and (truncated) dimensions of the block at the given grid
+	 * position.
+	 */
+	public static void blockInterval(final long[] gridPosition,
+		final long[] dimensions, final int[] blockSize, final long[] blockMin,
+		final int[] blockDims)
+	{
+		for (int d = 0; d < dimensions.length; d++) {
+			blockMin[d] = gridPosition[d] * blockSize[d];
+			blockDims[d] = (int) Math.min(blockSize[d], dimensions[d] - blockMin[d]);
+		}
+	}
+
+	// -- Compression --
+
+	public static int bytesPerElement(final Object array) {
+		if (array instanceof byte[]) return 1;
+		if (array instanceof short[]) return 2;
+		if (array instanceof int[] || array instanceof float[]) return 4;
+		if (array instanceof long[] || array instanceof double[]) return 8;
+		throw new IllegalArgumentException("Unsupported storage array: " +
+			array.getClass().getCanonicalName());
+	}
+
+	/** Serializes and deflates the first numElements of a primitive array. */
+	public static byte[] compress(final Object array, final int numElements,
+		final int level)
+	{
+		final ByteBuffer buffer =
+			ByteBuffer.allocate(numElements * bytesPerElement(array));
+		put(buffer, array, numElements);
+
+		final Deflater deflater = new Deflater(level);
+		try {
+			deflater.setInput(buffer.array());
+			deflater.finish();
+			byte[] out = new byte[Math.max(64, buffer.capacity() / 2)];
+			int length = 0;
+			while (!deflater.finished()) {
+				if (length == out.length) {
+					final byte[] larger = new byte[2 * out.length];
+					System.arraycopy(out, 0, larger, 0, length);
+					out = larger;
+				}
+				length += deflater.deflate(out, length, out.length - length);
+			}
+			final byte[] compressed = new byte[length];
+			System.arraycopy(out, 0, compressed, 0, length);
+			return compressed;
+		}
+		finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Inflates a block into the first numElements of the given primitive
+	 * array.
+	 */
+	public static void decompress(final byte[] compressed, final Object array,
+		final int numElements) throws ImgIOException
+	{
+		final byte[] bytes = new byte[numElements * bytesPerElement(array)];
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			int length = 0;
+			while (length < bytes.length && !inflater.finished()) {
+				final int n = inflater.inflate(bytes, length, bytes.length - length);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += n;
+			}
+			if (length != bytes.length) {
+				throw new ImgIOException("Corrupt block: expected " + bytes.length +
+					" bytes, got " + length);
+			}
+		}
+		catch (final DataFormatException e) {
+			throw new ImgIOException(e);
+		}
+		finally {
+			inflater.end();
+		}
+		get(ByteBuffer.wrap(bytes), array, numElements);
+	}
+
+	// -- Helper methods --
+
+	private static void put(final ByteBuffer buffer, final Object array,
+		final int n)
+	{
+		if (array instanceof byte[]) buffer.put((byte[]) array, 0, n);
+		else if (array instanceof short[]) buffer.asShortBuffer().put(
+			(short[]) array, 0, n);
+		else if (array instanceof int[]) buffer.asIntBuffer().put((int[]) array,
+			0, n);
+		else if (array instanceof float[]) buffer.asFloatBuffer().put(
+			(float[]) array, 0, n);
+		else if (array instanceof long[]) buffer.asLongBuffer().put(
+			(long[]) array, 0, n);
+		else if (array instanceof double[]) buffer.asDoubleBuffer().put(
+			(double[]) array, 0, n);
+	}
+
+	private static void get(final ByteBuffer buffer, final Object array,
+		final int n)
+	{
+		if (array instanceof byte[]) buffer.get((byte[]) array, 0, n);
+		else if (array instanceof short[]) buffer.asShortBuffer().get(
+			(short[]) array, 0, n);
+		else if (array instanceof int[]) buffer.asIntBuffer().get((int[]) array,
+			0, n);
+		else if (array instanceof float[]) buffer.asFloatBuffer().get(
+			(float[]) array, 0, n);
+		else if (array instanceof long[]) buffer.asLongBuffer().get(
+			(long[]) array, 0, n);
+		else if (array instanceof double[]) buffer.asDoubleBuffer().get(
+			(double[]) array, 0, n);
+	}
+
+}
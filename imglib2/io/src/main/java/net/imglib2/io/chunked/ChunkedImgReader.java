@@ -0,0 +1,379 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.io.chunked;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.AbstractCell;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.io.ImgIOException;
+import net.imglib2.iterator.IntervalIterator;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * Reads images written by {@link ChunkedImgWriter}. The header and block
+ * index are read when the file is opened. Blocks are read and decompressed on
+ * demand, so reading an {@link Interval} touches only the blocks it overlaps.
+ * A whole image can be read into a {@link CellImg} whose cells are the blocks.
+ * <p>
+ * Reads from the file are synchronized, decompression runs in parallel.
+ * </p>
+ * 
+ * @author ImgLib2 developers
+ */
+public class ChunkedImgReader<T extends NativeType<T>> {
+
+	// -- Fields --
+
+	private final RandomAccessFile file;
+
+	private final T type;
+
+	private final long[] dimensions;
+
+	private final int[] blockSize;
+
+	private final long[] gridDimensions;
+
+	private final long[] blockOffsets;
+
+	private final int[] blockLengths;
+
+	private TaskExecutor executor = TaskExecutor.getDefault();
+
+	// -- Constructor --
+
+	private ChunkedImgReader(final RandomAccessFile file) throws IOException,
+		ImgIOException
+	{
+		this.file = file;
+		if (file.readInt() != ChunkedImgFormat.MAGIC) throw new ImgIOException(
+			"Not a chunked image file");
+		final int version = file.readInt();
+		if (version != ChunkedImgFormat.VERSION) throw new ImgIOException(
+			"Unsupported chunked image version: " + version);
+		type = ChunkedImgFormat.<T> makeType(file.readInt());
+		final int n = file.readInt();
+		dimensions = new long[n];
+		for (int d = 0; d < n; d++)
+			dimensions[d] = file.readLong();
+		blockSize = new int[n];
+		for (int d = 0; d < n; d++)
+			blockSize[d] = file.readInt();
+		gridDimensions = ChunkedImgFormat.gridDimensions(dimensions, blockSize);
+		long numBlocks = 1;
+		for (final long g : gridDimensions)
+			numBlocks *= g;
+		blockOffsets = new long[(int) numBlocks];
+		blockLengths = new int[(int) numBlocks];
+		for (int i = 0; i < numBlocks; i++) {
+			blockOffsets[i] = file.readLong();
+			blockLengths[i] = file.readInt();
+		}
+	}
+
+	// -- Static methods --
+
+	/**
+	 * Opens a chunked image file. The {@link NativeType} T is defined by the
+	 * file.
+	 * 
+	 * @throws ImgIOException if the file cannot be read or is not a chunked
+	 *           image file.
+	 */
+	public static <T extends NativeType<T>> ChunkedImgReader<T> open(
+		final File file) throws ImgIOException
+	{
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(file, "r");
+			return new ChunkedImgReader<T>(raf);
+		}
+		catch (final IOException e) {
+			close(raf);
+			throw new ImgIOException(e);
+		}
+		catch (final ImgIOException e) {
+			close(raf);
+			throw e;
+		}
+	}
+
+	// -- ChunkedImgReader methods --
+
+	/** Sets the {@link TaskExecutor} used to decompress blocks in parallel. */
+	public void setTaskExecutor(final TaskExecutor executor) {
+		this.executor = executor;
+	}
+
+	public T getType() {
+		return type.createVariable();
+	}
+
+	public int numDimensions() {
+		return dimensions.length;
+	}
+
+	public void dimensions(final long[] dims) {
+		System.arraycopy(dimensions, 0, dims, 0, dimensions.length);
+	}
+
+	public void blockSize(final int[] size) {
+		System.arraycopy(blockSize, 0, size, 0, blockSize.length);
+	}
+
+	/**
+	 * Reads and decompresses the block at the given position of the block
+	 * grid into a new primitive array (e.g., short[] for
+	 * {@link net.imglib2.type.numeric.integer.UnsignedShortType}).
+	 */
+	public Object readBlock(final long[] gridPosition) throws ImgIOException {
+		final long[] blockMin = new long[dimensions.length];
+		final int[] blockDims = new int[dimensions.length];
+		ChunkedImgFormat.blockInterval(gridPosition, dimensions, blockSize,
+			blockMin, blockDims);
+		final long[] arrayDims = new long[dimensions.length];
+		for (int d = 0; d < arrayDims.length; d++)
+			arrayDims[d] = blockDims[d];
+		final ArrayImg<T, ?> block =
+			new ArrayImgFactory<T>().create(arrayDims, type);
+		final Object data =
+			((ArrayDataAccess<?>) block.update(null)).getCurrentStorageArray();
+		readBlock(gridPosition, data, numElements(blockDims));
+		return data;
+	}
+
+	/**
+	 * Reads the whole image into a {@link CellImg} whose cells are the blocks
+	 * of the file. Blocks are decompressed in parallel directly into the cell
+	 * arrays.
+	 */
+	public CellImg<T, ?, ?> readCellImg() throws ImgIOException {
+		final CellImg<T, ?, ?> img =
+			new CellImgFactory<T>(blockSize).create(dimensions, type);
+		final ArrayList<AbstractCell<?>> cells = new ArrayList<AbstractCell<?>>();
+		final Cursor<? extends AbstractCell<?>> cursor =
+			img.getCells().localizingCursor();
+		while (cursor.hasNext())
+			cells.add(cursor.next());
+
+		final ImgIOException[] failure = new ImgIOException[1];
+		final ArrayList<Runnable> tasks = new ArrayList<Runnable>(cells.size());
+		for (final AbstractCell<?> cell : cells) {
+			tasks.add(new Runnable() {
+
+				@Override
+				public void run() {
+					final long[] gridPosition = new long[dimensions.length];
+					for (int d = 0; d < gridPosition.length; d++)
+						gridPosition[d] = cell.min(d) / blockSize[d];
+					try {
+						readBlock(gridPosition, cell.getData().getCurrentStorageArray(),
+							(int) cell.size());
+					}
+					catch (final ImgIOException e) {
+						synchronized (failure) {
+							failure[0] = e;
+						}
+					}
+				}
+			});
+		}
+		executor.run(tasks);
+		if (failure[0] != null) throw failure[0];
+		return img;
+	}
+
+	/**
+	 * Reads the given interval of the image into a new {@link Img}, reading
+	 * only the blocks that overlap the interval. The minimum of the interval
+	 * is mapped to the origin of the result.
+	 */
+	public Img<T> read(final Interval interval) throws ImgIOException {
+		final int n = dimensions.length;
+		if (interval.numDimensions() != n) throw new ImgIOException(
+			"interval has wrong number of dimensions");
+		final long[] min = new long[n];
+		final long[] max = new long[n];
+		final long[] targetDims = new long[n];
+		final long[] gridMin = new long[n];
+		final long[] gridSize = new long[n];
+		for (int d = 0; d < n; d++) {
+			min[d] = interval.min(d);
+			max[d] = interval.max(d);
+			if (min[d] < 0 || max[d] >= dimensions[d]) throw new ImgIOException(
+				"interval exceeds the image");
+			targetDims[d] = max[d] - min[d] + 1;
+			gridMin[d] = min[d] / blockSize[d];
+			gridSize[d] = max[d] / blockSize[d] - gridMin[d] + 1;
+		}
+		final ArrayImg<T, ?> img =
+			new ArrayImgFactory<T>().create(targetDims, type);
+		final Object target =
+			((ArrayDataAccess<?>) img.update(null)).getCurrentStorageArray();
+
+		final IntervalIterator gridIterator = new IntervalIterator(gridSize);
+		final ImgIOException[] failure = new ImgIOException[1];
+		final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+		while (gridIterator.hasNext()) {
+			gridIterator.fwd();
+			final long[] gridPosition = new long[n];
+			gridIterator.localize(gridPosition);
+			for (int d = 0; d < n; d++)
+				gridPosition[d] += gridMin[d];
+			tasks.add(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						copyBlock(gridPosition, min, max, target, targetDims);
+					}
+					catch (final ImgIOException e) {
+						synchronized (failure) {
+							failure[0] = e;
+						}
+					}
+				}
+			});
+		}
+		executor.run(tasks);
+		if (failure[0] != null) throw failure[0];
+		return img;
+	}
+
+	/** Closes the underlying file. */
+	public void close() {
+		close(file);
+	}
+
+	// -- Helper methods --
+
+	/** Reads a block and decompresses it into the given array. */
+	private void readBlock(final long[] gridPosition, final Object data,
+		final int numElements) throws ImgIOException
+	{
+		final int i =
+			(int) IntervalIndexer.positionToIndex(gridPosition, gridDimensions);
+		final byte[] compressed = new byte[blockLengths[i]];
+		try {
+			synchronized (file) {
+				file.seek(blockOffsets[i]);
+				file.readFully(compressed);
+			}
+		}
+		catch (final IOException e) {
+			throw new ImgIOException(e);
+		}
+		ChunkedImgFormat.decompress(compressed, data, numElements);
+	}
+
+	/**
+	 * Copies the part of the given block that overlaps [min, max] into the
+	 * target array (of an image with dimensions targetDims and origin min).
+	 * Copies runs along dimension 0.
+	 */
+	private void copyBlock(final long[] gridPosition, final long[] min,
+		final long[] max, final Object target, final long[] targetDims)
+		throws ImgIOException
+	{
+		final int n = dimensions.length;
+		final long[] blockMin = new long[n];
+		final int[] blockDims = new int[n];
+		ChunkedImgFormat.blockInterval(gridPosition, dimensions, blockSize,
+			blockMin, blockDims);
+		final Object block = readBlock(gridPosition);
+
+		// overlap of block and interval, relative to the block
+		final long[] overlapMin = new long[n];
+		final long[] overlapSize = new long[n];
+		for (int d = 0; d < n; d++) {
+			final long from = Math.max(min[d], blockMin[d]);
+			final long to = Math.min(max[d], blockMin[d] + blockDims[d] - 1);
+			overlapMin[d] = from - blockMin[d];
+			overlapSize[d] = to - from + 1;
+		}
+		final int runLength = (int) overlapSize[0];
+		overlapSize[0] = 1;
+
+		final IntervalIterator runs = new IntervalIterator(overlapSize);
+		final long[] blockPos = new long[n];
+		final long[] targetPos = new long[n];
+		while (runs.hasNext()) {
+			runs.fwd();
+			runs.localize(blockPos);
+			for (int d = 0; d < n; d++) {
+				blockPos[d] += overlapMin[d];
+				targetPos[d] = blockMin[d] + blockPos[d] - min[d];
+			}
+			final int sourceIndex =
+				IntervalIndexer.positionToIndex(blockPos, blockDims);
+			final int targetIndex =
+				(int) IntervalIndexer.positionToIndex(targetPos, targetDims);
+			System.arraycopy(block, sourceIndex, target, targetIndex, runLength);
+		}
+	}
+
+	private static int numElements(final int[] dims) {
+		int n = 1;
+		for (final int d : dims)
+			n *= d;
+		return n;
+	}
+
+	private static void close(final RandomAccessFile file) {
+		if (file == null) return;
+		try {
+			file.close();
+		}
+		catch (final IOException e) {
+			// NB: ignore
+		}
+	}
+
+}
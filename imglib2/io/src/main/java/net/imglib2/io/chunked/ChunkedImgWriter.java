@@ -0,0 +1,270 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.io.chunked;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.zip.Deflater;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.AbstractCell;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.io.ImgIOException;
+import net.imglib2.iterator.IntervalIterator;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+
+/**
+ * Writes a {@link RandomAccessibleInterval} to a single file of
+ * independently compressed blocks (see {@link ChunkedImgReader}). Blocks are
+ * compressed in parallel. If the source is a {@link CellImg} whose cells have
+ * the block size, the cell arrays are compressed directly.
+ * 
+ * @author ImgLib2 developers
+ */
+public class ChunkedImgWriter {
+
+	// -- Fields --
+
+	private final int[] blockSize;
+
+	private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+	private TaskExecutor executor = TaskExecutor.getDefault();
+
+	// -- Constructor --
+
+	/**
+	 * @param blockSize The size of the blocks in each dimension. It should
+	 *          match the cell size of {@link CellImg}s that are read from the
+	 *          file later.
+	 */
+	public ChunkedImgWriter(final int[] blockSize) {
+		for (final int b : blockSize)
+			if (b < 1) throw new IllegalArgumentException(
+				"block size must be positive");
+		this.blockSize = blockSize.clone();
+	}
+
+	// -- ChunkedImgWriter methods --
+
+	/** Sets the deflate compression level (0-9, or -1 for the default). */
+	public void setCompressionLevel(final int compressionLevel) {
+		this.compressionLevel = compressionLevel;
+	}
+
+	/** Sets the {@link TaskExecutor} used to compress blocks in parallel. */
+	public void setTaskExecutor(final TaskExecutor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Writes the source to the given file. The source minimum is mapped to the
+	 * origin of the stored image.
+	 * 
+	 * @throws ImgIOException if the type is not supported or writing fails.
+	 */
+	public <T extends NativeType<T>> void write(
+		final RandomAccessibleInterval<T> source, final File file)
+		throws ImgIOException
+	{
+		final int n = source.numDimensions();
+		if (blockSize.length != n) throw new ImgIOException(
+			"block size has wrong number of dimensions");
+		final T type = Util.getTypeFromInterval(source).createVariable();
+		final int typeCode = ChunkedImgFormat.typeCode(type);
+		final long[] dimensions = new long[n];
+		source.dimensions(dimensions);
+		final long[] sourceMin = new long[n];
+		source.min(sourceMin);
+		final long[] grid = ChunkedImgFormat.gridDimensions(dimensions, blockSize);
+		final long numBlocksL = numElements(grid);
+		if (numBlocksL > Integer.MAX_VALUE) throw new ImgIOException(
+			"too many blocks");
+		final int numBlocks = (int) numBlocksL;
+		final CellImg<T, ?, ?> cellImg = matchingCellImg(source);
+
+		final long indexOffset = ChunkedImgFormat.headerSize(n);
+		final long[] offsets = new long[numBlocks];
+		final int[] lengths = new int[numBlocks];
+
+		RandomAccessFile out = null;
+		try {
+			out = new RandomAccessFile(file, "rw");
+			out.setLength(0);
+			ChunkedImgFormat.writeHeader(out, typeCode, dimensions, blockSize);
+			long position =
+				indexOffset + (long) numBlocks * ChunkedImgFormat.INDEX_ENTRY_SIZE;
+			out.seek(position);
+
+			// compress a batch of blocks in parallel, then append them in order
+			final int batchSize =
+				Math.max(1, executor.getParallelism() * TaskExecutor.TASKS_PER_THREAD);
+			final byte[][] compressed = new byte[batchSize][];
+			final IntervalIterator gridIterator = new IntervalIterator(grid);
+			final long[][] gridPositions = new long[batchSize][n];
+			int block = 0;
+			while (block < numBlocks) {
+				final int count = Math.min(batchSize, numBlocks - block);
+				final ArrayList<Runnable> tasks = new ArrayList<Runnable>(count);
+				for (int i = 0; i < count; i++) {
+					gridIterator.fwd();
+					gridIterator.localize(gridPositions[i]);
+					final long[] gridPosition = gridPositions[i];
+					final int slot = i;
+					tasks.add(new Runnable() {
+
+						@Override
+						public void run() {
+							compressed[slot] =
+								compressBlock(source, cellImg, type, sourceMin, gridPosition,
+									dimensions);
+						}
+					});
+				}
+				executor.run(tasks);
+				for (int i = 0; i < count; i++) {
+					offsets[block + i] = position;
+					lengths[block + i] = compressed[i].length;
+					out.write(compressed[i]);
+					position += compressed[i].length;
+					compressed[i] = null;
+				}
+				block += count;
+			}
+
+			out.seek(indexOffset);
+			for (int i = 0; i < numBlocks; i++) {
+				out.writeLong(offsets[i]);
+				out.writeInt(lengths[i]);
+			}
+		}
+		catch (final IOException e) {
+			throw new ImgIOException(e);
+		}
+		finally {
+			if (out != null) {
+				try {
+					out.close();
+				}
+				catch (final IOException e) {
+					// NB: ignore
+				}
+			}
+		}
+	}
+
+	// -- Helper methods --
+
+	private <T extends NativeType<T>> byte[] compressBlock(
+		final RandomAccessibleInterval<T> source, final CellImg<T, ?, ?> cellImg,
+		final T type, final long[] sourceMin, final long[] gridPosition,
+		final long[] dimensions)
+	{
+		final int n = dimensions.length;
+		final long[] blockMin = new long[n];
+		final int[] blockDims = new int[n];
+		ChunkedImgFormat.blockInterval(gridPosition, dimensions, blockSize,
+			blockMin, blockDims);
+		int numElements = 1;
+		for (final int d : blockDims)
+			numElements *= d;
+
+		if (cellImg != null) {
+			final RandomAccess<? extends AbstractCell<?>> cellAccess =
+				cellImg.getCells().randomAccess();
+			cellAccess.setPosition(gridPosition);
+			final Object data =
+				cellAccess.get().getData().getCurrentStorageArray();
+			return ChunkedImgFormat.compress(data, numElements, compressionLevel);
+		}
+
+		final long[] min = new long[n];
+		final long[] max = new long[n];
+		final long[] arrayDims = new long[n];
+		for (int d = 0; d < n; d++) {
+			min[d] = sourceMin[d] + blockMin[d];
+			max[d] = min[d] + blockDims[d] - 1;
+			arrayDims[d] = blockDims[d];
+		}
+		final ArrayImg<T, ?> block =
+			new ArrayImgFactory<T>().create(arrayDims, type);
+		final Cursor<T> in =
+			Views.flatIterable(Views.interval(source, min, max)).cursor();
+		final Cursor<T> out = block.cursor();
+		while (out.hasNext())
+			out.next().set(in.next());
+		final Object data =
+			((ArrayDataAccess<?>) block.update(null)).getCurrentStorageArray();
+		return ChunkedImgFormat.compress(data, numElements, compressionLevel);
+	}
+
+	/**
+	 * Returns the source as a {@link CellImg} if its cells can be compressed
+	 * directly, or null otherwise.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T extends NativeType<T>> CellImg<T, ?, ?> matchingCellImg(
+		final RandomAccessibleInterval<T> source)
+	{
+		if (!(source instanceof CellImg)) return null;
+		final CellImg<T, ?, ?> cellImg = (CellImg<T, ?, ?>) source;
+		if (cellImg.getCells().getEntitiesPerPixel() != 1) return null;
+		final int[] cellDims = new int[blockSize.length];
+		cellImg.getCells().cellDimensions(cellDims);
+		for (int d = 0; d < cellDims.length; d++)
+			if (cellDims[d] != blockSize[d]) return null;
+		return cellImg;
+	}
+
+	private static long numElements(final long[] dimensions) {
+		long n = 1;
+		for (final long d : dimensions)
+			n *= d;
+		return n;
+	}
+
+}
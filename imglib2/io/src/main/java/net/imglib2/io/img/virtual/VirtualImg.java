@@ -73,23 +73,25 @@ public class VirtualImg<T extends NativeType<T> & RealType<T>> extends
 	private final T type;
 	private final boolean bytesOnly;
 
-	// TODO
-	// The reader gets shared among all copy()'s and randomAccess()'s and
-	// cursor()'s, etc. so there might be threading issues. Unless we enforce
-	// that only one user of the reader can be defined. Maybe reader is
-	// already thread safe. Investigate.
+	// NOTE
+	// The reader and the plane cache get shared among all copy()'s and
+	// randomAccess()'s and cursor()'s, etc. The cache synchronizes all
+	// reads on the reader, so concurrent accessors are safe.
+
+	private final VirtualPlaneCache cache;
 
 	// Note - this constructor is clumsy and error prone. so we're making it
 	// private and only invoking (always correctly) through the create() method.
 
 	private VirtualImg(final long[] dims, final IFormatReader reader,
-		final T type, final boolean bytesOnly)
+		final T type, final boolean bytesOnly, final VirtualPlaneCache cache)
 	{
 		super(dims);
 		this.dims = dims.clone();
 		this.reader = reader;
 		this.type = type.copy();
 		this.bytesOnly = bytesOnly;
+		this.cache = cache;
 		checkDimensions();
 	}
 
@@ -107,6 +109,25 @@ public class VirtualImg<T extends NativeType<T> & RealType<T>> extends
 	 */
 	public static VirtualImg<? extends RealType<?>> create(final String fileName,
 		final boolean bytesOnly) throws ImgIOException
+	{
+		return create(fileName, bytesOnly, new VirtualImgFactory<UnsignedByteType>());
+	}
+
+	/**
+	 * Factory method for creating VirtualImgs from file names
+	 * 
+	 * @param fileName - name of the file that contains data of interest
+	 * @param bytesOnly - a boolean that delineates whether data is to be accessed
+	 *          a byte at a time or in the actual backing primitive type one at a
+	 *          time.
+	 * @param factory - the VirtualImgFactory that defines the plane cache size
+	 *          and the number of planes to prefetch
+	 * @return a VirtualImg that gives read only access to data a plane at a time
+	 * @throws ImgIOException
+	 */
+	public static VirtualImg<? extends RealType<?>> create(final String fileName,
+		final boolean bytesOnly, final VirtualImgFactory<?> factory)
+		throws ImgIOException
 	{
 		IFormatReader rdr = null;
 		try {
@@ -121,12 +142,20 @@ public class VirtualImg<T extends NativeType<T> & RealType<T>> extends
 
 		final long[] dimensions = ImgOpener.getDimLengths(rdr);
 
+		int numPlanes = 1;
+		for (int i = 2; i < dimensions.length; i++)
+			numPlanes *= dimensions[i];
+
+		final VirtualPlaneCache cache =
+			new VirtualPlaneCache(rdr, bytesOnly, numPlanes, factory.getCacheSize(),
+				factory.getPrefetchPlanes());
+
 		if (bytesOnly) {
 			dimensions[0] *= FormatTools.getBytesPerPixel(rdr.getPixelType());
-			return byteTypedVirtualImg(dimensions, rdr);
+			return byteTypedVirtualImg(dimensions, rdr, cache);
 		}
 
-		return correctlyTypedVirtualImg(dimensions, rdr);
+		return correctlyTypedVirtualImg(dimensions, rdr, cache);
 	}
 
 	public VirtualRandomAccess<T> randomAccess() {
@@ -148,11 +177,12 @@ public class VirtualImg<T extends NativeType<T> & RealType<T>> extends
 	}
 
 	public ImgFactory<T> factory() {
-		return new VirtualImgFactory<T>();
+		return new VirtualImgFactory<T>(cache.getCacheSize(), cache
+			.getPrefetchPlanes());
 	}
 
 	public Img<T> copy() {
-		return new VirtualImg<T>(dims, reader, type, bytesOnly);
+		return new VirtualImg<T>(dims, reader, type, bytesOnly, cache);
 	}
 
 	public T getType() {
@@ -167,6 +197,23 @@ public class VirtualImg<T extends NativeType<T> & RealType<T>> extends
 		return bytesOnly;
 	}
 
+	public VirtualPlaneCache getPlaneCache() {
+		return cache;
+	}
+
+	/**
+	 * Stops reading ahead, drops the cached planes and closes the reader. The
+	 * reader and cache are shared with all copies of this VirtualImg, so they
+	 * can no longer read planes either.
+	 */
+	public void close() throws IOException {
+		cache.close();
+		// the cache synchronizes all reads on the reader
+		synchronized (reader) {
+			reader.close();
+		}
+	}
+
 	// -- private helpers --
 
 	private void checkDimensions() {
@@ -178,54 +225,58 @@ public class VirtualImg<T extends NativeType<T> & RealType<T>> extends
 	}
 
 	private static VirtualImg<? extends RealType<?>> byteTypedVirtualImg(
-		final long[] dimensions, final IFormatReader rdr)
+		final long[] dimensions, final IFormatReader rdr,
+		final VirtualPlaneCache cache)
 	{
 		return new VirtualImg<UnsignedByteType>(dimensions, rdr,
-			new UnsignedByteType(), true);
+			new UnsignedByteType(), true, cache);
 	}
 
 	private static VirtualImg<? extends RealType<?>> correctlyTypedVirtualImg(
-		final long[] dimensions, final IFormatReader rdr)
+		final long[] dimensions, final IFormatReader rdr,
+		final VirtualPlaneCache cache)
 	{
 		switch (rdr.getPixelType()) {
 
 			case FormatTools.UINT8:
 
 				return new VirtualImg<UnsignedByteType>(dimensions, rdr,
-					new UnsignedByteType(), false);
+					new UnsignedByteType(), false, cache);
 
 			case FormatTools.INT8:
 
-				return new VirtualImg<ByteType>(dimensions, rdr, new ByteType(), false);
+				return new VirtualImg<ByteType>(dimensions, rdr, new ByteType(), false,
+					cache);
 
 			case FormatTools.UINT16:
 
 				return new VirtualImg<UnsignedShortType>(dimensions, rdr,
-					new UnsignedShortType(), false);
+					new UnsignedShortType(), false, cache);
 
 			case FormatTools.INT16:
 
 				return new VirtualImg<ShortType>(dimensions, rdr, new ShortType(),
-					false);
+					false, cache);
 
 			case FormatTools.UINT32:
 
 				return new VirtualImg<UnsignedIntType>(dimensions, rdr,
-					new UnsignedIntType(), false);
+					new UnsignedIntType(), false, cache);
 
 			case FormatTools.INT32:
 
-				return new VirtualImg<IntType>(dimensions, rdr, new IntType(), false);
+				return new VirtualImg<IntType>(dimensions, rdr, new IntType(), false,
+					cache);
 
 			case FormatTools.FLOAT:
 
 				return new VirtualImg<FloatType>(dimensions, rdr, new FloatType(),
-					false);
+					false, cache);
 
 			case FormatTools.DOUBLE:
 
 				return new VirtualImg<DoubleType>(dimensions, rdr, new DoubleType(),
-					false);
+					false, cache);
 
 				// TODO - add LONG case here when supported by Bio-Formats
 
@@ -43,8 +43,10 @@ import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.RealType;
 
 /**
- * Dummy implementation of an ImgFactory for VirtualImgs. Does not actually do
- * anything. Needed by VirtualImg to satisfy the Img contract.
+ * Dummy implementation of an ImgFactory for VirtualImgs. Does not actually
+ * create images. Needed by VirtualImg to satisfy the Img contract. It defines
+ * the plane cache settings of VirtualImgs opened with
+ * {@link VirtualImg#create(String, boolean, VirtualImgFactory)}.
  * 
  * @author Barry DeZonia
  */
@@ -52,6 +54,47 @@ public class VirtualImgFactory<T extends NativeType<T> & RealType<T>> extends
 	ImgFactory<T>
 {
 
+	// -- constants --
+
+	/** The default number of planes kept in memory. */
+	public static final int DEFAULT_CACHE_SIZE = 4;
+
+	/** The default number of planes read ahead (no prefetching). */
+	public static final int DEFAULT_PREFETCH_PLANES = 0;
+
+	// -- instance variables --
+
+	private final int cacheSize;
+	private final int prefetchPlanes;
+
+	// -- constructors --
+
+	public VirtualImgFactory() {
+		this(DEFAULT_CACHE_SIZE, DEFAULT_PREFETCH_PLANES);
+	}
+
+	/**
+	 * @param cacheSize - the maximum number of planes kept in memory
+	 * @param prefetchPlanes - the number of planes to read ahead in the
+	 *          background. Zero disables prefetching.
+	 */
+	public VirtualImgFactory(final int cacheSize, final int prefetchPlanes) {
+		if (cacheSize < 1) throw new IllegalArgumentException(
+			"cache size must be at least one plane");
+		this.cacheSize = cacheSize;
+		this.prefetchPlanes = prefetchPlanes;
+	}
+
+	// -- public interface --
+
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	public int getPrefetchPlanes() {
+		return prefetchPlanes;
+	}
+
 	@Override
 	public Img<T> create(final long[] dim, final T type) {
 		throw new UnsupportedOperationException(
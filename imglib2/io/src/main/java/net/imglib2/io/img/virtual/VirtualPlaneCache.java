@@ -0,0 +1,277 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.io.img.virtual;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import loci.common.DataTools;
+import loci.formats.FormatTools;
+import loci.formats.IFormatReader;
+
+/**
+ * This class caches planes read from the IFormatReader of a VirtualImg. Up to
+ * a given number of decoded planes are kept in memory and the least recently
+ * used plane is evicted when the cache is full. Optionally, a background
+ * thread reads ahead the planes following a loaded plane (in the order a
+ * VirtualCursor visits them). The background thread is shared by all caches
+ * and terminates when it has been idle for a few seconds, so it does not keep
+ * a cache or its reader reachable.
+ * <p>
+ * One cache is shared by all the accessors of a VirtualImg (and its copies).
+ * All reads from the shared reader are synchronized on the reader, so
+ * concurrent VirtualRandomAccess and VirtualCursor instances are safe. Cached
+ * planes are shared as well: data values changed through get() are visible to
+ * the other accessors until the plane is evicted. As before, changes are never
+ * saved to disk.
+ * 
+ * @author Barry DeZonia
+ */
+public class VirtualPlaneCache {
+
+	// -- static variables --
+
+	private static final ThreadPoolExecutor PREFETCHER = new ThreadPoolExecutor(
+		1, 1, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+		new ThreadFactory() {
+
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread thread = new Thread(r, "VirtualPlaneCache-prefetch");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+	static {
+		PREFETCHER.allowCoreThreadTimeOut(true);
+	}
+
+	// -- instance variables --
+
+	private final IFormatReader reader;
+	private final boolean bytesOnly;
+	private final int numPlanes;
+	private final int cacheSize;
+	private final int prefetchPlanes;
+	private final Map<Integer, Object> planes;
+	private final Set<Integer> pending;
+	private volatile boolean closed;
+
+	// -- constructor --
+
+	/**
+	 * Create a VirtualPlaneCache for the given reader.
+	 * 
+	 * @param reader - the IFormatReader to load planes from
+	 * @param bytesOnly - a flag which defines whether planes passed around as
+	 *          byte[]'s only or as other primitive array types (int[]'s, etc.).
+	 * @param numPlanes - the total number of planes in the image
+	 * @param cacheSize - the maximum number of planes kept in memory (at least
+	 *          one)
+	 * @param prefetchPlanes - the number of planes to read ahead in the
+	 *          background after a plane was loaded. Zero disables prefetching.
+	 */
+	public VirtualPlaneCache(final IFormatReader reader,
+		final boolean bytesOnly, final int numPlanes, final int cacheSize,
+		final int prefetchPlanes)
+	{
+		if (cacheSize < 1) throw new IllegalArgumentException(
+			"cache size must be at least one plane");
+		this.reader = reader;
+		this.bytesOnly = bytesOnly;
+		this.numPlanes = numPlanes;
+		this.cacheSize = cacheSize;
+		// never prefetch so far ahead that prefetched planes evict each other
+		this.prefetchPlanes = Math.max(0, Math.min(prefetchPlanes, cacheSize - 1));
+		this.planes = new LinkedHashMap<Integer, Object>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+				final Map.Entry<Integer, Object> eldest)
+			{
+				return size() > cacheSize;
+			}
+		};
+		this.pending = new HashSet<Integer>();
+		this.closed = false;
+	}
+
+	// -- public interface --
+
+	/**
+	 * Returns the plane with the given index as a primitive array (byte[] or,
+	 * if not bytesOnly, an array of the pixel type). Reads the plane from the
+	 * reader if it is not cached.
+	 */
+	public Object getPlane(final int planeNum) {
+		final Integer key = planeNum;
+		Object plane;
+		synchronized (planes) {
+			while (pending.contains(key)) {
+				try {
+					planes.wait();
+				}
+				catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+			plane = planes.get(key);
+			if (plane == null) pending.add(key);
+		}
+		if (plane == null) {
+			try {
+				plane = readPlane(planeNum);
+			}
+			finally {
+				finishPending(key, plane);
+			}
+		}
+		prefetch(planeNum);
+		return plane;
+	}
+
+	/**
+	 * Returns the maximum number of planes kept in memory.
+	 */
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	/**
+	 * Returns the number of planes read ahead in the background.
+	 */
+	public int getPrefetchPlanes() {
+		return prefetchPlanes;
+	}
+
+	/**
+	 * Removes all planes from the cache.
+	 */
+	public void clear() {
+		synchronized (planes) {
+			planes.clear();
+		}
+	}
+
+	/**
+	 * Stops reading ahead and removes all planes from the cache. Prefetches
+	 * that are already queued are skipped. The reader is not closed; see
+	 * {@link VirtualImg#close()}.
+	 */
+	public void close() {
+		closed = true;
+		clear();
+	}
+
+	// -- private helpers --
+
+	private void finishPending(final Integer key, final Object plane) {
+		synchronized (planes) {
+			if (plane != null && !closed) planes.put(key, plane);
+			pending.remove(key);
+			planes.notifyAll();
+		}
+	}
+
+	private void prefetch(final int planeNum) {
+		if (prefetchPlanes == 0 || closed) return;
+		final int last = Math.min(numPlanes - 1, planeNum + prefetchPlanes);
+		for (int p = planeNum + 1; p <= last; p++) {
+			final Integer key = p;
+			synchronized (planes) {
+				// containsKey() does not change the LRU order
+				if (planes.containsKey(key) || pending.contains(key)) continue;
+				pending.add(key);
+			}
+			PREFETCHER.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					Object plane = null;
+					try {
+						if (!closed) plane = readPlane(key);
+					}
+					catch (final IllegalArgumentException e) {
+						// leave it to getPlane() to report the failure
+					}
+					finally {
+						finishPending(key, plane);
+					}
+				}
+			});
+		}
+	}
+
+	private Object readPlane(final int planeNum) {
+		final byte[] planeBytes;
+		final int pixelType;
+		final boolean littleEndian;
+		// IFormatReaders are not thread safe
+		synchronized (reader) {
+			try {
+				planeBytes = reader.openBytes(planeNum);
+			}
+			catch (final Exception e) {
+				throw new IllegalArgumentException("cannot load plane " + planeNum);
+			}
+			pixelType = reader.getPixelType();
+			littleEndian = reader.isLittleEndian();
+		}
+		if (bytesOnly) return planeBytes;
+		return typeConvert(planeBytes, pixelType, littleEndian);
+	}
+
+	private static Object typeConvert(final byte[] bytes, final int pixelType,
+		final boolean littleEndian)
+	{
+		final int bytesPerPix = FormatTools.getBytesPerPixel(pixelType);
+		final boolean floating = FormatTools.isFloatingPoint(pixelType);
+
+		return DataTools.makeDataArray(bytes, bytesPerPix, floating, littleEndian);
+	}
+
+}
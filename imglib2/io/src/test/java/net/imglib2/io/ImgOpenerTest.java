@@ -0,0 +1,174 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+
+package net.imglib2.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.URL;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.ImgPlus;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+
+import org.junit.Test;
+
+/**
+ * Tests that reading planes with several threads into different containers
+ * gives the same result as reading them with a single thread.
+ * 
+ * @author ImgLib2 developers
+ */
+public class ImgOpenerTest {
+
+	/** 20 x 30 x 10 pixels with value x + 2y + 3z. */
+	private String testImage() {
+		final URL url = getClass().getResource("img/virtual/TestImage.tif");
+		return url.getFile();
+	}
+
+	/** 37 x 23 pixels, 5 z-slices and 3 channels of generated data. */
+	private static final String MULTI_CHANNEL =
+		"multi&sizeX=37&sizeY=23&sizeZ=5&sizeC=3&pixelType=uint16.fake";
+
+	/** The type of the factory is ignored, the file defines the type. */
+	private static ImgPlus<? extends RealType<?>> open(final String id,
+		final ImgFactory<?> factory, final int numThreads) throws Exception
+	{
+		final ImgOpener opener = new ImgOpener();
+		opener.setNumThreads(numThreads);
+		return opener.openImg(id, factory, true);
+	}
+
+	private static void assertSamePixels(
+		final ImgPlus<? extends RealType<?>> expected,
+		final ImgPlus<? extends RealType<?>> actual)
+	{
+		assertEquals(expected.numDimensions(), actual.numDimensions());
+		for (int d = 0; d < expected.numDimensions(); d++) {
+			assertEquals(expected.dimension(d), actual.dimension(d));
+		}
+		final Cursor<? extends RealType<?>> cursor = expected.localizingCursor();
+		final RandomAccess<? extends RealType<?>> access = actual.randomAccess();
+		while (cursor.hasNext()) {
+			cursor.fwd();
+			access.setPosition(cursor);
+			assertEquals(cursor.get().getRealDouble(), access.get()
+				.getRealDouble(), 0);
+		}
+	}
+
+	private static void assertSameMinMax(final ImgPlus<?> expected,
+		final ImgPlus<?> actual, final int numChannels)
+	{
+		for (int c = 0; c < numChannels; c++) {
+			assertEquals(expected.getChannelMinimum(c), actual
+				.getChannelMinimum(c), 0);
+			assertEquals(expected.getChannelMaximum(c), actual
+				.getChannelMaximum(c), 0);
+		}
+	}
+
+	private final ImgFactory<UnsignedShortType> planarFactory =
+		new PlanarImgFactory<UnsignedShortType>();
+
+	private final ImgFactory<UnsignedShortType> arrayFactory =
+		new ArrayImgFactory<UnsignedShortType>();
+
+	@Test
+	public void testArrayImg() throws Exception {
+		final ImgPlus<? extends RealType<?>> single =
+			open(testImage(), planarFactory, 1);
+		final ImgPlus<? extends RealType<?>> multi =
+			open(testImage(), arrayFactory, 4);
+		assertSamePixels(single, multi);
+
+		// the pixel values are known
+		final RandomAccess<? extends RealType<?>> access = multi.randomAccess();
+		final long[] pos = new long[3];
+		for (pos[2] = 0; pos[2] < 10; pos[2]++) {
+			for (pos[1] = 0; pos[1] < 30; pos[1]++) {
+				for (pos[0] = 0; pos[0] < 20; pos[0]++) {
+					access.setPosition(pos);
+					assertEquals(pos[0] + 2 * pos[1] + 3 * pos[2], access.get()
+						.getRealDouble(), 0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testCellImgWithEdgeCells() throws Exception {
+		// cells that do not divide the image and are deeper than one plane
+		final ImgFactory<UnsignedShortType> cellFactory =
+			new CellImgFactory<UnsignedShortType>(new int[] { 7, 11, 3 });
+		final ImgPlus<? extends RealType<?>> planar =
+			open(testImage(), planarFactory, 1);
+		final ImgPlus<? extends RealType<?>> single =
+			open(testImage(), cellFactory, 1);
+		final ImgPlus<? extends RealType<?>> multi =
+			open(testImage(), cellFactory, 4);
+		assertSamePixels(planar, single);
+		assertSamePixels(planar, multi);
+	}
+
+	@Test
+	public void testChannelMinMax() throws Exception {
+		final ImgFactory<UnsignedShortType> cellFactory =
+			new CellImgFactory<UnsignedShortType>(new int[] { 8, 8, 2, 2 });
+		final ImgPlus<? extends RealType<?>> single =
+			open(MULTI_CHANNEL, arrayFactory, 1);
+		final ImgPlus<? extends RealType<?>> multi =
+			open(MULTI_CHANNEL, arrayFactory, 3);
+		final ImgPlus<? extends RealType<?>> cells =
+			open(MULTI_CHANNEL, cellFactory, 4);
+		assertSamePixels(single, multi);
+		assertSamePixels(single, cells);
+		assertSameMinMax(single, multi, 3);
+		assertSameMinMax(single, cells, 3);
+
+		final ImgPlus<?> tif = open(testImage(), arrayFactory, 3);
+		assertEquals(0, tif.getChannelMinimum(0), 0);
+		assertEquals(19 + 2 * 29 + 3 * 9, tif.getChannelMaximum(0), 0);
+	}
+}
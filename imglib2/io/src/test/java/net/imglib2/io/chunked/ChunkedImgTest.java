@@ -0,0 +1,156 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.io.chunked;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ChunkedImgWriter} and {@link ChunkedImgReader}.
+ * 
+ * @author ImgLib2 developers
+ */
+public class ChunkedImgTest {
+
+	private final long[] dims = { 37, 21, 9 };
+
+	private final int[] blockSize = { 16, 8, 4 };
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		final Img<UnsignedShortType> img =
+			new ArrayImgFactory<UnsignedShortType>().create(dims,
+				new UnsignedShortType());
+		fill(img);
+		final File file = File.createTempFile("chunked", ".il2c");
+		file.deleteOnExit();
+		new ChunkedImgWriter(blockSize).write(img, file);
+
+		final ChunkedImgReader<UnsignedShortType> reader =
+			ChunkedImgReader.open(file);
+		try {
+			assertEquals(3, reader.numDimensions());
+			final long[] readDims = new long[3];
+			reader.dimensions(readDims);
+			for (int d = 0; d < 3; d++)
+				assertEquals(dims[d], readDims[d]);
+
+			final CellImg<UnsignedShortType, ?, ?> cells = reader.readCellImg();
+			assertSame(img, cells, new long[3]);
+
+			final long[] min = { 5, 3, 2 };
+			final Img<UnsignedShortType> part =
+				reader.read(new FinalInterval(min, new long[] { 30, 17, 6 }));
+			assertEquals(26, part.dimension(0));
+			assertSame(img, part, min);
+		}
+		finally {
+			reader.close();
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testCellImgSource() throws Exception {
+		final Img<FloatType> img =
+			new CellImgFactory<FloatType>(blockSize).create(dims, new FloatType());
+		fill(img);
+		final File file = File.createTempFile("chunked", ".il2c");
+		file.deleteOnExit();
+		final ChunkedImgWriter writer = new ChunkedImgWriter(blockSize);
+		writer.setCompressionLevel(9);
+		writer.write(img, file);
+
+		final ChunkedImgReader<FloatType> reader = ChunkedImgReader.open(file);
+		try {
+			assertSame(img, reader.readCellImg(), new long[3]);
+			final long[] min = { 16, 8, 4 };
+			assertSame(img, reader.read(new FinalInterval(min, new long[] { 31,
+				15, 7 })), min);
+		}
+		finally {
+			reader.close();
+			file.delete();
+		}
+	}
+
+	// -- Helper methods --
+
+	private <T extends RealType<T>> void fill(
+		final Img<T> img)
+	{
+		final Cursor<T> c = img.localizingCursor();
+		while (c.hasNext()) {
+			c.fwd();
+			c.get().setReal(
+				c.getIntPosition(0) + 40 * c.getIntPosition(1) + 900 *
+					c.getIntPosition(2));
+		}
+	}
+
+	/** Checks that each pixel of part equals the pixel of img at min + pos. */
+	private <T extends RealType<T>> void assertSame(
+		final Img<T> img, final Img<T> part, final long[] min)
+	{
+		final RandomAccess<T> ra = img.randomAccess();
+		final long[] pos = new long[min.length];
+		final Cursor<T> c = part.localizingCursor();
+		while (c.hasNext()) {
+			c.fwd();
+			c.localize(pos);
+			for (int d = 0; d < pos.length; d++)
+				pos[d] += min[d];
+			ra.setPosition(pos);
+			assertEquals(ra.get().getRealDouble(), c.get().getRealDouble(), 0);
+		}
+	}
+
+}
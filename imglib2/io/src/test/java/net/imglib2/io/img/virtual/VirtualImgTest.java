@@ -37,13 +37,16 @@
 package net.imglib2.io.img.virtual;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
 import java.net.URL;
 
 import net.imglib2.img.ImgFactory;
 import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
 
 import org.junit.Test;
 
@@ -144,4 +147,63 @@ public class VirtualImgTest {
 		assertNotNull(accessor.getCurrentPlane());
 	}
 
+	@Test
+	public void testPlaneCache() throws InterruptedException, IOException {
+
+		// open image with a small cache and prefetching
+
+		VirtualImg<?> image = null;
+		try {
+			final URL fileURL = getClass().getResource("TestImage.tif");
+			image =
+				VirtualImg.create(fileURL.getFile(), false,
+					new VirtualImgFactory<UnsignedByteType>(2, 1));
+		}
+		catch (final Exception e) {
+			throw new IllegalArgumentException(e.getMessage());
+		}
+		assertNotNull(image);
+		assertEquals(2, image.getPlaneCache().getCacheSize());
+		assertEquals(1, image.getPlaneCache().getPrefetchPlanes());
+
+		// access the image concurrently, alternating between planes
+
+		final VirtualImg<?> img = image;
+		final boolean[] failed = new boolean[2];
+		final Thread[] threads = new Thread[2];
+		for (int t = 0; t < threads.length; t++) {
+			final int id = t;
+			threads[t] = new Thread() {
+
+				@Override
+				public void run() {
+					final VirtualRandomAccess<? extends RealType<?>> accessor =
+						img.randomAccess();
+					final long[] pos = new long[3];
+					for (int x = 0; x < 20; x++) {
+						for (int y = 0; y < 30; y++) {
+							for (int z = id; z < 10; z += 3) {
+								pos[0] = x;
+								pos[1] = y;
+								pos[2] = z;
+								accessor.setPosition(pos);
+								if (accessor.get().getRealDouble() != x + 2 * y + 3 * z) {
+									failed[id] = true;
+								}
+							}
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (final Thread thread : threads)
+			thread.join();
+		assertFalse(failed[0]);
+		assertFalse(failed[1]);
+
+		// closing stops reading ahead and releases the reader
+		image.close();
+	}
+
 }
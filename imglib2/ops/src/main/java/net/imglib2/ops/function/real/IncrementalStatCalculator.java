@@ -0,0 +1,815 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+
+package net.imglib2.ops.function.real;
+
+import java.util.Arrays;
+
+import net.imglib2.ops.function.Function;
+import net.imglib2.ops.pointset.HyperVolumePointSet;
+import net.imglib2.ops.pointset.PointSet;
+import net.imglib2.ops.pointset.PointSetIterator;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+
+// NOTE:
+//   A StatCalculator gathers all samples of its region again every time it is
+// reset. When a region slides over an image point by point nearly all of
+// those samples were already seen at the previous point. This class keeps the
+// samples of the last region in running sums and an order statistic structure
+// and, when the same HyperVolumePointSet has merely been translated, only
+// removes the samples that left the region and adds the ones that entered it.
+// For an r^d neighborhood moving one step that is O(r^(d-1)) function
+// evaluations instead of O(r^d) evaluations plus a sort.
+//   Only HyperVolumePointSets are updated incrementally because for them a
+// translation is guaranteed to move every point. Other PointSets (such as a
+// ConditionalPointSet) can change shape when translated and are always
+// gathered from scratch.
+//   The samples of a hypervolume are also kept in a buffer indexed by their
+// position modulo the extent of the region, so the samples that leave the
+// region are removed with the value they were added with, even if the data
+// underneath has changed since. Samples that stay in the region are not
+// looked at again; callers that change data inside the region between two
+// resets must call invalidate(). A reset to the very same position always
+// gathers all samples again.
+//   Non-finite samples (NaN and +/-Infinity) are counted separately and kept
+// out of the running sums, which could never recover from them. While one is
+// in the region the moments are computed from the samples of the order
+// structure instead, which gives the same results as a StatCalculator.
+
+/**
+ * An IncrementalStatCalculator computes the same statistics as a
+ * {@link StatCalculator} for the moment and order based measures. It is meant
+ * for use with a region that slides through a space, such as the neighborhood
+ * {@link PointSet} handed out by a
+ * {@link net.imglib2.ops.input.PointSetInputIterator}.
+ * 
+ * @author ImgLib2 developers
+ */
+public class IncrementalStatCalculator<T extends RealType<T>> {
+
+	// -- constants --
+	
+	/**
+	 * The largest value range of an integer type that is tracked with a
+	 * histogram. Larger ranges (and real types) use a sorted array.
+	 */
+	public static final long MAX_HISTOGRAM_RANGE = 1 << 16;
+	
+	// -- instance variables --
+	
+	private Function<long[],T> func;
+	private PointSet region;
+	private final T tmp;
+	private final long[] lastMin;
+	private final long[] lastMax;
+	private boolean valid;
+	private final long[] pos;
+	private final long[] boxMin;
+	private final long[] boxMax;
+	
+	private long n;
+	private long nonFinite;
+	private double shift;
+	private double s1, s2, s3, s4;
+	private final OrderStatistics order;
+	private final long[] extent;
+	private final long[] strides;
+	private double[] samples;
+	
+	// -- constructor --
+
+	/**
+	 * Create an IncrementalStatCalculator upon a region of a function.
+	 * @param func
+	 * The {@link Function} to gather samples from
+	 * @param region
+	 * The {@link PointSet} region over which to gather samples
+	 */
+	public IncrementalStatCalculator(Function<long[],T> func, PointSet region) {
+		final int numDims = region.numDimensions();
+		this.tmp = func.createOutput();
+		this.lastMin = new long[numDims];
+		this.lastMax = new long[numDims];
+		this.pos = new long[numDims];
+		this.boxMin = new long[numDims];
+		this.boxMax = new long[numDims];
+		this.extent = new long[numDims];
+		this.strides = new long[numDims];
+		this.order = createOrderStatistics(tmp);
+		this.func = func;
+		this.region = region;
+		rebuild();
+	}
+
+	// -- public api --
+
+	/**
+	 * Resets the calculator to work with a new function and/or region. If the
+	 * function is unchanged and the region is the same
+	 * {@link HyperVolumePointSet} as before, only translated, just the samples
+	 * that left or entered the region are processed. Otherwise all samples are
+	 * gathered again.
+	 * 
+	 * @param newFunc
+	 * The new {@link Function} to use for obtaining sample values
+	 * @param newRegion
+	 * The new {@link PointSet} region over which to gather samples
+	 */
+	public void reset(Function<long[],T> newFunc, PointSet newRegion) {
+		if (valid && newFunc == func && newRegion == region &&
+			region instanceof HyperVolumePointSet && slide())
+		{
+			return;
+		}
+		func = newFunc;
+		region = newRegion;
+		rebuild();
+	}
+
+	/**
+	 * Forgets the samples of the current region so that the next call to
+	 * {@link #reset(Function, PointSet)} gathers all of them again. Call this
+	 * when the data underlying the function has changed.
+	 */
+	public void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * Computes an alpha trimmed mean upon the current region of the current
+	 * function.
+	 * 
+	 * @param halfTrimSize
+	 * The number of samples to ignore from each end of the data
+	 * @return
+	 * The measured value
+	 */
+	public double alphaTrimmedMean(int halfTrimSize) {
+		final int trimSize = halfTrimSize * 2;
+		if (n <= trimSize)
+			throw new IllegalArgumentException(
+				"number of samples must be greater than number of trimmed values");
+		final int count = (int) n;
+		double sum = 0;
+		for (int i = halfTrimSize; i < count - halfTrimSize; i++) {
+			sum += order.get(i);
+		}
+		return sum / (count - trimSize);
+	}
+
+	/**
+	 * Computes the arithmetic mean (or average) upon the current region of the
+	 * current function.
+	 * 
+	 * @return
+	 * The measured value
+	 */
+	public double arithmeticMean() {
+		return shift + powerSum(1) / n;
+	}
+
+	/**
+	 * Computes the maximum value upon the current region of the
+	 * current function.
+	 * 
+	 * @return
+	 * The measured value
+	 */
+	public double max() {
+		if (n == 0) return Double.NEGATIVE_INFINITY;
+		return order.get((int) n - 1);
+	}
+
+	/**
+	 * Computes the median upon the current region of the current
+	 * function.
+	 * 
+	 * @return
+	 * The measured value
+	 */
+	public double median() {
+		if (n <= 0)
+			throw new IllegalArgumentException(
+				"number of samples must be greater than 0");
+		final int numElements = (int) n;
+
+		// odd number of elements
+		if ((numElements % 2) == 1)
+			return order.get(numElements/2);
+		
+		// else an even number of elements
+		double value1 = order.get((numElements/2) - 1); 
+		double value2 = order.get((numElements/2));
+		return (value1 + value2) / 2;
+	}
+
+	/**
+	 * Computes the midpoint value upon the current region of the
+	 * current function. Midpoint = (min + max) / 2;
+	 * 
+	 * @return
+	 * The measured value
+	 */
+	public double midpoint() {
+		return (min() + max()) / 2;
+	}
+
+	/**
+	 * Computes the minimum value upon the current region of the
+	 * current function.
+	 * 
+	 * @return
+	 * The measured value
+	 */
+	public double min() {
+		if (n == 0) return Double.POSITIVE_INFINITY;
+		// NaN sorts last but, as with Math.min(), wins over every other value
+		if (nonFinite > 0 && Double.isNaN(order.get((int) n - 1)))
+			return Double.NaN;
+		return order.get(0);
+	}
+
+	/**
+	 * Computes the value of the given rank (0 = minimum, size-1 = maximum)
+	 * upon the current region of the current function. This is the building
+	 * block for percentile filters.
+	 * 
+	 * @param rank
+	 * The index of the value in the sorted samples
+	 * @return
+	 * The measured value
+	 */
+	public double orderStatistic(int rank) {
+		if (rank < 0 || rank >= n)
+			throw new IllegalArgumentException("rank out of range: " + rank);
+		return order.get(rank);
+	}
+
+	/**
+	 * Computes the (biased) kurtosis value upon the current region of the
+	 * current function.
+	 * 
+	 * @return
+	 * The measured value
+	 */
+	public double populationKurtosis() {
+		final double m2 = centralMoment2();
+		return centralMoment4() / (m2 * m2);
+	}
+
+	/**
+	 * Computes the (biased) kurtosis excess value upon the current region of the
+	 * current function.
+	 * 
+	 * @return
+	 * The measured value
+	 */
+	public double populationKurtosisExcess() {
+		return populationKurtosis() - 3;
+	}
+
+	/**
+	 * Computes the (biased) skew value upon the current region of the
+	 * current function.
+	 * 
+	 * @return
+	 * The measured value
+	 */
+	public double populationSkew() {
+		return centralMoment3() / Math.pow(centralMoment2(), 1.5);
+	}
+
+	/**
+	 * Computes the (biased) standard deviation upon the current region of the
+	 * current function.
+	 * 
+	 * @return
+	 * The measured value
+	 */
+	public double populationStdDev() {
+		return Math.sqrt(populationVariance());
+	}
+
+	/**
+	 * Computes the (biased) variance upon the current region of the
+	 * current function.
+	 * 
+	 * @return
+	 * The measured value
+	 */
+	public double populationVariance() {
+		return sumOfSquaredDeviations() / n;
+	}
+
+	/**
+	 * Computes the (unbiased) kurtosis value upon the current region of the
+	 * current function.
+	 * 
+	 * @return
+	 * The measured value
+	 */
+	public double sampleKurtosis() {
+		double num = n;
+		double biasedValue = populationKurtosis();
+		double unbiasedValue = biasedValue * (num+1) + 6;
+		unbiasedValue *= (num-1) / ((num-2) * (num-3));
+		return unbiasedValue;
+	}
+
+	/**
+	 * Computes the (unbiased) kurtosis excess value upon the current region of
+	 * the current function.
+	 * 
+	 * @return
+	 * The measured value
+	 */
+	public double sampleKurtosisExcess() {
+		return sampleKurtosis() - 3;
+	}
+
+	/**
+	 * Computes the (unbiased) skew value upon the current region of the
+	 * current function.
+	 * 
+	 * @return
+	 * The measured value
+	 */
+	public double sampleSkew() {
+		double num = n;
+		double biasedValue = populationSkew();
+		return biasedValue * Math.sqrt(num * (num-1)) / (num-2);
+	}
+
+	/**
+	 * Computes the (unbiased) standard deviation upon the current region of the
+	 * current function.
+	 * 
+	 * @return
+	 * The measured value
+	 */
+	public double sampleStdDev() {
+		return Math.sqrt(sampleVariance());
+	}
+
+	/**
+	 * Computes the (unbiased) variance upon the current region of the
+	 * current function.
+	 * 
+	 * @return
+	 * The measured value
+	 */
+	public double sampleVariance() {
+		return sumOfSquaredDeviations() / (n-1);
+	}
+
+	/**
+	 * Computes the sum of all the values of the current region of the
+	 * current function.
+	 * 
+	 * @return
+	 * The measured value
+	 */
+	public double sum() {
+		return shift * n + powerSum(1);
+	}
+
+	/**
+	 * Computes the sum of squared deviations of the values of the current region
+	 * of the current function.
+	 * 
+	 * @return
+	 * The measured value
+	 */
+	public double sumOfSquaredDeviations() {
+		return centralMoment2() * n;
+	}
+
+	// -- private helpers --
+
+	// The running sums are kept relative to a shift (the first finite sample of
+	// the last rebuild) to avoid cancellation when the variance is small
+	// compared to the mean.
+
+	private double centralMoment2() {
+		final double mu = powerSum(1) / n;
+		return Math.max(0, powerSum(2) / n - mu * mu);
+	}
+
+	private double centralMoment3() {
+		final double mu = powerSum(1) / n;
+		return powerSum(3) / n - 3 * mu * powerSum(2) / n + 2 * mu * mu * mu;
+	}
+
+	private double centralMoment4() {
+		final double mu = powerSum(1) / n;
+		final double mu2 = mu * mu;
+		return powerSum(4) / n - 4 * mu * powerSum(3) / n + 6 * mu2 *
+			powerSum(2) / n - 3 * mu2 * mu2;
+	}
+
+	/**
+	 * Returns the sum of the given power of the shifted samples. While a
+	 * non-finite sample is in the region the sum is recomputed from all samples
+	 * so that it is NaN or infinite exactly as a direct summation would be.
+	 */
+	private double powerSum(int power) {
+		if (nonFinite == 0) {
+			switch (power) {
+				case 1: return s1;
+				case 2: return s2;
+				case 3: return s3;
+				default: return s4;
+			}
+		}
+		final int count = (int) n;
+		double sum = 0;
+		for (int i = 0; i < count; i++) {
+			final double v = order.get(i) - shift;
+			double term = v;
+			for (int p = 1; p < power; p++)
+				term *= v;
+			sum += term;
+		}
+		return sum;
+	}
+
+	private void rebuild() {
+		n = 0;
+		nonFinite = 0;
+		s1 = s2 = s3 = s4 = 0;
+		shift = 0;
+		order.clear();
+		final boolean buffered = allocateSamples();
+		final PointSetIterator iter = region.iterator();
+		boolean first = true;
+		while (iter.hasNext()) {
+			final long[] point = iter.next();
+			func.compute(point, tmp);
+			final double value = tmp.getRealDouble();
+			if (first && !isNonFinite(value)) {
+				shift = value;
+				first = false;
+			}
+			add(value);
+			if (buffered) samples[sampleIndex(point)] = value;
+		}
+		rememberBounds();
+	}
+
+	/**
+	 * Sizes the sample buffer for the current region. Returns false (and drops
+	 * the buffer) if the region cannot be slid or is too large to buffer.
+	 */
+	private boolean allocateSamples() {
+		if (!(region instanceof HyperVolumePointSet)) {
+			samples = null;
+			return false;
+		}
+		long size = 1;
+		for (int i = 0; i < extent.length; i++) {
+			extent[i] = region.max(i) - region.min(i) + 1;
+			strides[i] = size;
+			size *= extent[i];
+			if (size > Integer.MAX_VALUE) {
+				samples = null;
+				return false;
+			}
+		}
+		if (samples == null || samples.length != size)
+			samples = new double[(int) size];
+		return true;
+	}
+
+	/**
+	 * Returns the index of a point in the sample buffer. The coordinates are
+	 * wrapped by the extent of the region, so a point that enters the region
+	 * reuses the slot of a point that left it in the same step.
+	 */
+	private int sampleIndex(long[] point) {
+		long index = 0;
+		for (int i = 0; i < extent.length; i++) {
+			long c = point[i] % extent[i];
+			if (c < 0) c += extent[i];
+			index += c * strides[i];
+		}
+		return (int) index;
+	}
+
+	/**
+	 * Updates the samples after the (hypervolume) region has been translated.
+	 * Returns false if the region changed shape or moved so far that gathering
+	 * all samples again is cheaper.
+	 */
+	private boolean slide() {
+		if (samples == null) return false;
+		final int numDims = lastMin.length;
+		long overlap = 1;
+		long size = 1;
+		for (int i = 0; i < numDims; i++) {
+			final long min = region.min(i);
+			final long max = region.max(i);
+			if (max - min != lastMax[i] - lastMin[i]) return false;
+			final long common =
+				Math.min(max, lastMax[i]) - Math.max(min, lastMin[i]) + 1;
+			if (common <= 0) return false;
+			overlap *= common;
+			size *= max - min + 1;
+		}
+		// every non-overlapping sample is processed twice (leave and enter)
+		// the same position is regathered as the data may have changed
+		if (overlap == size || 2 * (size - overlap) >= size) return false;
+		final long[] newMin = new long[numDims];
+		final long[] newMax = new long[numDims];
+		region.min(newMin);
+		region.max(newMax);
+		visitDifference(lastMin, lastMax, newMin, newMax, false);
+		visitDifference(newMin, newMax, lastMin, lastMax, true);
+		rememberBounds();
+		return true;
+	}
+
+	/**
+	 * Adds (or removes) the samples of the box a that are not in box b. The
+	 * difference is decomposed into one box per dimension.
+	 */
+	private void visitDifference(long[] aMin, long[] aMax, long[] bMin,
+		long[] bMax, boolean adding)
+	{
+		final int numDims = aMin.length;
+		for (int d = 0; d < numDims; d++) {
+			for (int i = 0; i < numDims; i++) {
+				if (i < d) {
+					boxMin[i] = Math.max(aMin[i], bMin[i]);
+					boxMax[i] = Math.min(aMax[i], bMax[i]);
+				}
+				else {
+					boxMin[i] = aMin[i];
+					boxMax[i] = aMax[i];
+				}
+			}
+			// the part below b
+			boxMax[d] = Math.min(aMax[d], bMin[d] - 1);
+			visitBox(adding);
+			// the part above b
+			boxMin[d] = Math.max(aMin[d], bMax[d] + 1);
+			boxMax[d] = aMax[d];
+			visitBox(adding);
+		}
+	}
+
+	private void visitBox(boolean adding) {
+		final int numDims = pos.length;
+		for (int i = 0; i < numDims; i++) {
+			if (boxMin[i] > boxMax[i]) return;
+			pos[i] = boxMin[i];
+		}
+		while (true) {
+			final int index = sampleIndex(pos);
+			if (adding) {
+				func.compute(pos, tmp);
+				final double value = tmp.getRealDouble();
+				samples[index] = value;
+				add(value);
+			}
+			else remove(samples[index]);
+			int i = 0;
+			while (i < numDims && pos[i] == boxMax[i]) {
+				pos[i] = boxMin[i];
+				i++;
+			}
+			if (i == numDims) return;
+			pos[i]++;
+		}
+	}
+
+	private void add(double value) {
+		n++;
+		order.add(value);
+		if (isNonFinite(value)) {
+			nonFinite++;
+			return;
+		}
+		final double v = value - shift;
+		final double v2 = v * v;
+		s1 += v;
+		s2 += v2;
+		s3 += v2 * v;
+		s4 += v2 * v2;
+	}
+
+	private void remove(double value) {
+		n--;
+		order.remove(value);
+		if (isNonFinite(value)) {
+			nonFinite--;
+			return;
+		}
+		final double v = value - shift;
+		final double v2 = v * v;
+		s1 -= v;
+		s2 -= v2;
+		s3 -= v2 * v;
+		s4 -= v2 * v2;
+	}
+
+	private static boolean isNonFinite(double value) {
+		return Double.isNaN(value) || Double.isInfinite(value);
+	}
+
+	private void rememberBounds() {
+		region.min(lastMin);
+		region.max(lastMax);
+		valid = true;
+	}
+
+	private static OrderStatistics createOrderStatistics(RealType<?> type) {
+		if (type instanceof IntegerType) {
+			final double min = type.getMinValue();
+			final double range = type.getMaxValue() - min + 1;
+			if (range <= MAX_HISTOGRAM_RANGE)
+				return new Histogram((long) min, (int) range);
+		}
+		return new SortedValues();
+	}
+
+	// -- order statistic structures --
+
+	private interface OrderStatistics {
+
+		void clear();
+
+		void add(double value);
+
+		void remove(double value);
+
+		/** Returns the value of the given rank (0 = smallest). */
+		double get(int rank);
+	}
+
+	/**
+	 * Counts integer values in a two level histogram. Finding a rank walks the
+	 * coarse bins first and then the fine bins of one coarse bin.
+	 */
+	private static class Histogram implements OrderStatistics {
+
+		private static final int BITS = 8;
+		private final long offset;
+		private final int[] counts;
+		private final int[] coarseCounts;
+
+		public Histogram(long offset, int range) {
+			this.offset = offset;
+			this.counts = new int[range];
+			this.coarseCounts = new int[((range - 1) >> BITS) + 1];
+		}
+
+		@Override
+		public void clear() {
+			Arrays.fill(counts, 0);
+			Arrays.fill(coarseCounts, 0);
+		}
+
+		@Override
+		public void add(double value) {
+			final int bin = (int) ((long) value - offset);
+			counts[bin]++;
+			coarseCounts[bin >> BITS]++;
+		}
+
+		@Override
+		public void remove(double value) {
+			final int bin = (int) ((long) value - offset);
+			counts[bin]--;
+			coarseCounts[bin >> BITS]--;
+		}
+
+		@Override
+		public double get(int rank) {
+			int remaining = rank;
+			int coarse = 0;
+			while (remaining >= coarseCounts[coarse]) {
+				remaining -= coarseCounts[coarse];
+				coarse++;
+			}
+			int bin = coarse << BITS;
+			while (remaining >= counts[bin]) {
+				remaining -= counts[bin];
+				bin++;
+			}
+			return bin + offset;
+		}
+	}
+
+	/**
+	 * Keeps real values in a sorted primitive array. The values that enter and
+	 * leave it are collected until a rank is requested and then sorted and
+	 * merged with the array in a single pass, so a region step of k samples
+	 * costs O(k log k + size) rather than a shift of the tail per sample.
+	 * Values are ordered like {@link Arrays#sort(double[])} orders them.
+	 */
+	private static class SortedValues implements OrderStatistics {
+
+		private double[] values = new double[0];
+		private double[] merged = new double[0];
+		private int size = 0;
+		private double[] added = new double[16];
+		private int numAdded = 0;
+		private double[] removed = new double[16];
+		private int numRemoved = 0;
+
+		@Override
+		public void clear() {
+			size = 0;
+			numAdded = 0;
+			numRemoved = 0;
+		}
+
+		@Override
+		public void add(double value) {
+			if (numAdded == added.length) added = Arrays.copyOf(added, numAdded * 2);
+			added[numAdded++] = value;
+		}
+
+		@Override
+		public void remove(double value) {
+			// a pending value has to be merged before it can be removed
+			if (numAdded > 0) merge();
+			if (numRemoved == removed.length)
+				removed = Arrays.copyOf(removed, numRemoved * 2);
+			removed[numRemoved++] = value;
+		}
+
+		@Override
+		public double get(int rank) {
+			if (numAdded > 0 || numRemoved > 0) merge();
+			return values[rank];
+		}
+
+		private void merge() {
+			Arrays.sort(added, 0, numAdded);
+			Arrays.sort(removed, 0, numRemoved);
+			final int newSize = size - numRemoved + numAdded;
+			if (merged.length < newSize) merged = new double[Math.max(newSize, 2 * merged.length)];
+			int r = 0, a = 0, m = 0;
+			for (int i = 0; i < size; i++) {
+				final double value = values[i];
+				if (r < numRemoved) {
+					final int c = Double.compare(value, removed[r]);
+					if (c == 0) {
+						r++;
+						continue;
+					}
+					if (c > 0) break;
+				}
+				while (a < numAdded && Double.compare(added[a], value) < 0)
+					merged[m++] = added[a++];
+				merged[m++] = value;
+			}
+			if (r < numRemoved)
+				throw new IllegalStateException("value was not sampled: " + removed[r]);
+			while (a < numAdded)
+				merged[m++] = added[a++];
+			final double[] swap = values;
+			values = merged;
+			merged = swap;
+			size = newSize;
+			numAdded = 0;
+			numRemoved = 0;
+		}
+	}
+}
@@ -58,29 +58,54 @@ public class RealAlphaTrimmedMeanFunction<T extends RealType<T>>
 	
 	private final Function<long[],T> otherFunc;
 	private final int halfTrimSize;
+	private final boolean incremental;
 	private StatCalculator<T> calculator;
+	private IncrementalStatCalculator<T> incrementalCalculator;
 	
 	// -- constructor --
 	
 	public RealAlphaTrimmedMeanFunction(Function<long[],T> otherFunc, int halfTrimSize)
+	{
+		this(otherFunc, halfTrimSize, false);
+	}
+
+	/**
+	 * Creates the function. An incremental function keeps the samples of the
+	 * last region and, when the next region is the same
+	 * {@link net.imglib2.ops.pointset.HyperVolumePointSet} translated (as
+	 * when it slides over an image), only gathers the samples that entered
+	 * it. Call {@link #reset()} after changing the data of otherFunc.
+	 */
+	public RealAlphaTrimmedMeanFunction(Function<long[],T> otherFunc, int halfTrimSize, boolean incremental)
 	{
 		this.otherFunc = otherFunc;
 		this.halfTrimSize = halfTrimSize;
+		this.incremental = incremental;
 		this.calculator = null;
+		this.incrementalCalculator = null;
 	}
 	
 	// -- Function methods --
 	
 	@Override
 	public RealAlphaTrimmedMeanFunction<T> copy() {
-		return new RealAlphaTrimmedMeanFunction<T>(otherFunc.copy(), halfTrimSize);
+		return new RealAlphaTrimmedMeanFunction<T>(otherFunc.copy(), halfTrimSize, incremental);
 	}
 
 	@Override
 	public void compute(PointSet input, T output) {
-		if (calculator == null) calculator = new StatCalculator<T>(otherFunc, input);
-		else calculator.reset(otherFunc, input);
-		double value = calculator.alphaTrimmedMean(halfTrimSize);
+		double value;
+		if (incremental) {
+			if (incrementalCalculator == null)
+				incrementalCalculator = new IncrementalStatCalculator<T>(otherFunc, input);
+			else incrementalCalculator.reset(otherFunc, input);
+			value = incrementalCalculator.alphaTrimmedMean(halfTrimSize);
+		}
+		else {
+			if (calculator == null) calculator = new StatCalculator<T>(otherFunc, input);
+			else calculator.reset(otherFunc, input);
+			value = calculator.alphaTrimmedMean(halfTrimSize);
+		}
 		output.setReal(value);
 	}
 
@@ -89,4 +114,15 @@ public class RealAlphaTrimmedMeanFunction<T extends RealType<T>>
 		return otherFunc.createOutput();
 	}
 
+	// -- public api --
+
+	/**
+	 * Forgets the samples an incremental function kept from the last region,
+	 * so the next computation gathers all of them again. Call this when the
+	 * data underlying otherFunc has changed.
+	 */
+	public void reset() {
+		if (incrementalCalculator != null) incrementalCalculator.invalidate();
+	}
+
 }
@@ -53,28 +53,53 @@ public class RealMedianFunction<T extends RealType<T>>
 	// -- instance variables --
 	
 	private final Function<long[],T> otherFunc;
+	private final boolean incremental;
 	private StatCalculator<T> calculator;
+	private IncrementalStatCalculator<T> incrementalCalculator;
 	
 	// -- constructor --
 	
 	public RealMedianFunction(Function<long[],T> otherFunc)
+	{
+		this(otherFunc, false);
+	}
+
+	/**
+	 * Creates the function. An incremental function keeps the samples of the
+	 * last region and, when the next region is the same
+	 * {@link net.imglib2.ops.pointset.HyperVolumePointSet} translated (as
+	 * when it slides over an image), only gathers the samples that entered
+	 * it. Call {@link #reset()} after changing the data of otherFunc.
+	 */
+	public RealMedianFunction(Function<long[],T> otherFunc, boolean incremental)
 	{
 		this.otherFunc = otherFunc;
+		this.incremental = incremental;
 		this.calculator = null;
+		this.incrementalCalculator = null;
 	}
 	
 	// -- Function methods --
 	
 	@Override
 	public RealMedianFunction<T> copy() {
-		return new RealMedianFunction<T>(otherFunc.copy());
+		return new RealMedianFunction<T>(otherFunc.copy(), incremental);
 	}
 
 	@Override
 	public void compute(PointSet input, T output) {
-		if (calculator == null) calculator = new StatCalculator<T>(otherFunc, input);
-		else calculator.reset(otherFunc, input);
-		double value = calculator.median();
+		double value;
+		if (incremental) {
+			if (incrementalCalculator == null)
+				incrementalCalculator = new IncrementalStatCalculator<T>(otherFunc, input);
+			else incrementalCalculator.reset(otherFunc, input);
+			value = incrementalCalculator.median();
+		}
+		else {
+			if (calculator == null) calculator = new StatCalculator<T>(otherFunc, input);
+			else calculator.reset(otherFunc, input);
+			value = calculator.median();
+		}
 		output.setReal(value);
 	}
 
@@ -83,4 +108,15 @@ public class RealMedianFunction<T extends RealType<T>>
 		return otherFunc.createOutput();
 	}
 
+	// -- public api --
+
+	/**
+	 * Forgets the samples an incremental function kept from the last region,
+	 * so the next computation gathers all of them again. Call this when the
+	 * data underlying otherFunc has changed.
+	 */
+	public void reset() {
+		if (incrementalCalculator != null) incrementalCalculator.invalidate();
+	}
+
 }
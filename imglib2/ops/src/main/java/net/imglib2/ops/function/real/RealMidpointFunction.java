@@ -55,28 +55,53 @@ public class RealMidpointFunction<T extends RealType<T>>
 	// -- instance variables --
 	
 	private final Function<long[],T> otherFunc;
+	private final boolean incremental;
 	private StatCalculator<T> calculator;
+	private IncrementalStatCalculator<T> incrementalCalculator;
 	
 	// -- constructor --
 	
 	public RealMidpointFunction(Function<long[],T> otherFunc)
+	{
+		this(otherFunc, false);
+	}
+
+	/**
+	 * Creates the function. An incremental function keeps the samples of the
+	 * last region and, when the next region is the same
+	 * {@link net.imglib2.ops.pointset.HyperVolumePointSet} translated (as
+	 * when it slides over an image), only gathers the samples that entered
+	 * it. Call {@link #reset()} after changing the data of otherFunc.
+	 */
+	public RealMidpointFunction(Function<long[],T> otherFunc, boolean incremental)
 	{
 		this.otherFunc = otherFunc;
+		this.incremental = incremental;
 		this.calculator = null;
+		this.incrementalCalculator = null;
 	}
 
 	// -- Function methods --
 	
 	@Override
 	public RealMidpointFunction<T> copy() {
-		return new RealMidpointFunction<T>(otherFunc.copy());
+		return new RealMidpointFunction<T>(otherFunc.copy(), incremental);
 	}
 
 	@Override
 	public void compute(PointSet input, T output) {
-		if (calculator == null) calculator = new StatCalculator<T>(otherFunc, input);
-		else calculator.reset(otherFunc, input);
-		double value = calculator.midpoint();
+		double value;
+		if (incremental) {
+			if (incrementalCalculator == null)
+				incrementalCalculator = new IncrementalStatCalculator<T>(otherFunc, input);
+			else incrementalCalculator.reset(otherFunc, input);
+			value = incrementalCalculator.midpoint();
+		}
+		else {
+			if (calculator == null) calculator = new StatCalculator<T>(otherFunc, input);
+			else calculator.reset(otherFunc, input);
+			value = calculator.midpoint();
+		}
 		output.setReal(value);
 	}
 
@@ -85,4 +110,15 @@ public class RealMidpointFunction<T extends RealType<T>>
 		return otherFunc.createOutput();
 	}
 
+	// -- public api --
+
+	/**
+	 * Forgets the samples an incremental function kept from the last region,
+	 * so the next computation gathers all of them again. Call this when the
+	 * data underlying otherFunc has changed.
+	 */
+	public void reset() {
+		if (incrementalCalculator != null) incrementalCalculator.invalidate();
+	}
+
 }
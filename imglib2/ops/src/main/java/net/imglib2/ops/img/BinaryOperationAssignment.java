@@ -38,8 +38,13 @@ package net.imglib2.ops.img;
 
 import net.imglib2.Cursor;
 import net.imglib2.IterableInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.BitArray;
 import net.imglib2.ops.operation.BinaryOperation;
+import net.imglib2.ops.operation.bool.binary.BinaryAndNot;
+import net.imglib2.ops.operation.bool.binary.BinaryXor;
 import net.imglib2.type.Type;
+import net.imglib2.type.logic.BitType;
 
 /**
  * @author Christian Dietz (University of Konstanz)
@@ -60,6 +65,9 @@ public final class BinaryOperationAssignment< I extends Type< I >, V extends Typ
 
 		if ( !input1.iterationOrder().equals( input2.iterationOrder() ) || !input1.iterationOrder().equals( output.iterationOrder() ) ) { throw new IllegalArgumentException( "Intervals are not compatible" ); }
 
+		if ( computePacked( input1, input2, output ) )
+			return output;
+
 		Cursor< I > c1 = input1.cursor();
 		Cursor< V > c2 = input2.cursor();
 		Cursor< O > resC = output.cursor();
@@ -74,6 +82,28 @@ public final class BinaryOperationAssignment< I extends Type< I >, V extends Typ
 		return output;
 	}
 
+	/**
+	 * Boolean operations on packed {@link BitType} images are computed word-wise by {@link PackedBitOps}.
+	 *
+	 * @return whether the operation was computed
+	 */
+	@SuppressWarnings( "unchecked" )
+	private boolean computePacked( final IterableInterval< I > input1, final IterableInterval< V > input2, final IterableInterval< O > output )
+	{
+		if ( !( m_op.getClass() == BinaryXor.class || m_op.getClass() == BinaryAndNot.class ) || !PackedBitOps.isPacked( input1 ) || !PackedBitOps.isPacked( input2 ) || !PackedBitOps.isPacked( output ) )
+			return false;
+
+		final ArrayImg< BitType, BitArray > a = ( ArrayImg< BitType, BitArray > ) input1;
+		final ArrayImg< BitType, BitArray > b = ( ArrayImg< BitType, BitArray > ) input2;
+		final ArrayImg< BitType, BitArray > out = ( ArrayImg< BitType, BitArray > ) output;
+
+		if ( m_op.getClass() == BinaryXor.class )
+			new PackedBitOps().xor( a, b, out );
+		else
+			new PackedBitOps().andNot( a, b, out );
+		return true;
+	}
+
 	@Override
 	public BinaryOperation< IterableInterval< I >, IterableInterval< V >, IterableInterval< O >> copy()
 	{
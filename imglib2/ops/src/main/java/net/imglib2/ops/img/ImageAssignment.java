@@ -39,11 +39,10 @@ package net.imglib2.ops.img;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import net.imglib2.RandomAccess;
 import net.imglib2.img.Img;
+import net.imglib2.multithreading.TaskExecutor;
 import net.imglib2.ops.condition.Condition;
 import net.imglib2.ops.function.Function;
 import net.imglib2.ops.input.InputIterator;
@@ -84,8 +83,8 @@ public class ImageAssignment
 {
 	// -- instance variables --
 
-	private ExecutorService executor;
-	private boolean assigning;
+	private final TaskExecutor executor;
+	private volatile boolean aborted;
 	private List<Runnable> tasks;
 	
 	// -- constructor --
@@ -113,8 +112,33 @@ public class ImageAssignment
 		Condition<INPUT> condition,
 		InputIteratorFactory<INPUT> factory)
 	{
-		this.assigning = false;
-		this.executor = null;
+		this(img, origin, span, function, condition, factory,
+			TaskExecutor.getDefault());
+	}
+
+	/**
+	 * Constructor. As above but runs the assignment on the given
+	 * {@link TaskExecutor} instead of the shared default one.
+	 * 
+	 * @param img - the Img<OUTPUT> to assign data values to
+	 * @param origin - the origin of the region to assign within the Img<OUTPUT>
+	 * @param span - the extents of the region to assign within the Img<OUTPUT>
+	 * @param function - the Function<INPUT,INTERMEDIATE> to evaluate at each point of the region
+	 * @param condition - the condition that must be satisfied
+	 * @param factory - a factory for generating an input space
+	 * @param executor - the TaskExecutor that runs the assignment tasks
+	 */
+	public ImageAssignment(
+		Img<OUTPUT> img,
+		long[] origin,
+		long[] span,
+		Function<INPUT,INTERMEDIATE> function,
+		Condition<INPUT> condition,
+		InputIteratorFactory<INPUT> factory,
+		TaskExecutor executor)
+	{
+		this.aborted = false;
+		this.executor = executor;
 		this.tasks = null;
 		setupTasks(img, origin, span, function, condition, factory);
 	}
@@ -123,59 +147,20 @@ public class ImageAssignment
 
 	/**
 	 * Assign pixels using input variables specified in constructor. Can be
-	 * aborted using abort().
+	 * aborted using abort(). Returns once all tasks have finished or were
+	 * aborted.
 	 */
 	public void assign() {
-		synchronized(this) {
-			assigning = true;
-			executor = Executors.newFixedThreadPool(tasks.size());
-			for (Runnable task : tasks)
-				executor.submit(task);
-		}
-		boolean terminated = true;
-		synchronized (this) {
-			// TODO - does this shutdown() call return immediately or wait until
-			// everything is complete. If it waits then this synchronized block will
-			// keep abort() from being able to work.
-			executor.shutdown();
-			terminated = executor.isTerminated();
-			if (terminated) executor = null;
-		}
-		while (!terminated) {
-			try { Thread.sleep(100); } catch (Exception e) { /* do nothing */ }
-			synchronized (this) {
-				terminated = executor.isTerminated();
-				if (terminated) executor = null;
-			}
-		}
-		synchronized (this) {
-			assigning = false;
-		}
+		aborted = false;
+		executor.run(tasks);
 	}
 
 	/**
 	 * Aborts an in progress assignment. Has no effect if not currently
-	 * running an assign() operation.
+	 * running an assign() operation. Running tasks stop at the next pixel.
 	 */
 	public void abort() {
-		// TODO - this method maybe ineffective. See TODO note in assign().
-		boolean terminated = true;
-		synchronized (this) {
-			if (!assigning) return;
-			if (executor != null) {
-				executor.shutdownNow();
-				terminated = executor.isTerminated();
-			}
-		}
-		while (!terminated) {
-			try { Thread.sleep(100); } catch (Exception e) { /* do nothing */ }
-			synchronized (this) {
-				if (executor == null)
-					terminated = true;
-				else
-					terminated = executor.isTerminated();
-			}
-		}
+		aborted = true;
 	}
 
 	// -- private helpers --
@@ -190,9 +175,9 @@ public class ImageAssignment
 	{
 		tasks = new ArrayList<Runnable>();
 		int axis = chooseBestAxis(span);
-		int numThreads = chooseNumThreads(span,axis);
-		long length = span[axis] / numThreads;
-		if (span[axis] % numThreads > 0) length++;
+		int numTasks = chooseNumTasks(span,axis);
+		long length = span[axis] / numTasks;
+		if (span[axis] % numTasks > 0) length++;
 		long startOffset = 0;
 		while (startOffset < span[axis]) {
 			if (startOffset + length > span[axis]) length = span[axis] - startOffset;
@@ -220,17 +205,15 @@ public class ImageAssignment
 	}
 
 	/**
-	 * Determines how many threads to use
+	 * Determines how many tasks to split the region into
 	 */
-	private int chooseNumThreads(long[] span, int axis) {
-		int maxThreads = Runtime.getRuntime().availableProcessors();
-		if (maxThreads == 1) return 1;
-		long numElements = numElements(span);
-		if (numElements < 10000L) return 1;
+	private int chooseNumTasks(long[] span, int axis) {
+		int numTasks =
+			TaskExecutor.suggestNumTasks(numElements(span), executor.getParallelism());
 		long axisSize = span[axis];
-		if (axisSize < maxThreads)
-			return (int) axisSize;
-		return maxThreads;
+		if (axisSize < numTasks)
+			return (int) Math.max(1, axisSize);
+		return numTasks;
 	}
 
 	/**
@@ -244,7 +227,7 @@ public class ImageAssignment
 		return numElems;
 	}
 
-	/** Creates a Runnable task that can be submitted to the thread executor.
+	/** Creates a Runnable task that can be submitted to the task executor.
 	 * The task assigns values to a subset of the output region.
 	 */
 	private Runnable task(
@@ -317,7 +300,7 @@ public class ImageAssignment
 			final RandomAccess<U> accessor = img.randomAccess();
 			final V output = function.createOutput();
 			INPUT input = null;
-			while (iter.hasNext()) {
+			while (!aborted && iter.hasNext()) {
 				input = iter.next(input);
 				boolean proceed = (condition == null) || (condition.isTrue(input));
 				if (proceed) {
@@ -0,0 +1,522 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.ops.img;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.BitArray;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.type.logic.BitType;
+
+/**
+ * Binary image operations on the packed words of {@link BitType}
+ * {@link ArrayImg ArrayImgs}, which store 32 pixels per int in a
+ * {@link BitArray}. Every operation processes whole words instead of single
+ * pixels.
+ *
+ * <p>
+ * Operations are parallelized on a {@link TaskExecutor}. Each task writes a
+ * disjoint range of words of the output, so no two threads ever modify the same
+ * word. Pixels outside of the image are treated as false, like
+ * {@link net.imglib2.view.Views#extendValue} with false. For code that needs to
+ * set single bits of a packed image from several threads, see
+ * {@link ConcurrentWriter}.
+ *
+ * <p>
+ * All images passed to one operation must have the same dimensions. Unless
+ * noted otherwise, the output may be one of the inputs.
+ *
+ * @author ImgLib2 developers
+ */
+public final class PackedBitOps
+{
+	private final TaskExecutor executor;
+
+	public PackedBitOps()
+	{
+		this( TaskExecutor.getDefault() );
+	}
+
+	/**
+	 * @param executor - runs the parallel parts of the operations
+	 */
+	public PackedBitOps( final TaskExecutor executor )
+	{
+		this.executor = executor;
+	}
+
+	/**
+	 * @return whether img is a {@link BitType} {@link ArrayImg} backed by a {@link BitArray}
+	 */
+	public static boolean isPacked( final Object img )
+	{
+		return img instanceof ArrayImg && ( ( ArrayImg< ?, ? > ) img ).update( null ) instanceof BitArray;
+	}
+
+	/**
+	 * out = a AND b
+	 */
+	public void and( final ArrayImg< BitType, BitArray > a, final ArrayImg< BitType, BitArray > b, final ArrayImg< BitType, BitArray > out )
+	{
+		combine( a, b, out, AND );
+	}
+
+	/**
+	 * out = a OR b
+	 */
+	public void or( final ArrayImg< BitType, BitArray > a, final ArrayImg< BitType, BitArray > b, final ArrayImg< BitType, BitArray > out )
+	{
+		combine( a, b, out, OR );
+	}
+
+	/**
+	 * out = a XOR b
+	 */
+	public void xor( final ArrayImg< BitType, BitArray > a, final ArrayImg< BitType, BitArray > b, final ArrayImg< BitType, BitArray > out )
+	{
+		combine( a, b, out, XOR );
+	}
+
+	/**
+	 * out = a AND NOT b
+	 */
+	public void andNot( final ArrayImg< BitType, BitArray > a, final ArrayImg< BitType, BitArray > b, final ArrayImg< BitType, BitArray > out )
+	{
+		combine( a, b, out, AND_NOT );
+	}
+
+	/**
+	 * out = NOT a
+	 */
+	public void not( final ArrayImg< BitType, BitArray > a, final ArrayImg< BitType, BitArray > out )
+	{
+		checkDimensions( a, out );
+		final int[] src = words( a );
+		final int[] dst = words( out );
+		forEachWordRange( src.length, new WordRange()
+		{
+			@Override
+			public void run( final int from, final int to )
+			{
+				for ( int w = from; w < to; ++w )
+					dst[ w ] = ~src[ w ];
+			}
+		} );
+		clearTail( dst, ( int ) out.size() );
+	}
+
+	/**
+	 * @return the number of true pixels.
+	 */
+	public long count( final ArrayImg< BitType, BitArray > img )
+	{
+		final int[] src = words( img );
+		final AtomicLong count = new AtomicLong();
+		forEachWordRange( src.length, new WordRange()
+		{
+			@Override
+			public void run( final int from, final int to )
+			{
+				long c = 0;
+				for ( int w = from; w < to; ++w )
+					c += Integer.bitCount( src[ w ] );
+				count.addAndGet( c );
+			}
+		} );
+		return count.get();
+	}
+
+	/**
+	 * Shift the image by <em>offset</em> pixels along dimension <em>d</em>,
+	 * that is out(x) = in(x - offset * e_d). Pixels shifted in from outside are
+	 * false.
+	 */
+	public void shift( final ArrayImg< BitType, BitArray > in, final ArrayImg< BitType, BitArray > out, final int d, final long offset )
+	{
+		checkDimensions( in, out );
+		final long[] dims = dimensions( in );
+		final int[] dst = words( out );
+		final int[] src = words( in ) == dst ? dst.clone() : words( in );
+		shiftCombine( src, dst, dims, d, offset, SET );
+	}
+
+	/**
+	 * Dilate with a box of size 2 * radius[d] + 1 in every dimension d. The box
+	 * is applied separably, each dimension costs O(log radius) passes over the
+	 * words.
+	 */
+	public void dilateBox( final ArrayImg< BitType, BitArray > in, final ArrayImg< BitType, BitArray > out, final int[] radius )
+	{
+		box( in, out, radius, OR );
+	}
+
+	/**
+	 * Erode with a box of size 2 * radius[d] + 1 in every dimension d. The box
+	 * is applied separably, each dimension costs O(log radius) passes over the
+	 * words.
+	 */
+	public void erodeBox( final ArrayImg< BitType, BitArray > in, final ArrayImg< BitType, BitArray > out, final int[] radius )
+	{
+		box( in, out, radius, AND );
+	}
+
+	/**
+	 * Dilate with the cross of the center pixel and its 2n direct neighbors.
+	 */
+	public void dilateCross( final ArrayImg< BitType, BitArray > in, final ArrayImg< BitType, BitArray > out )
+	{
+		cross( in, out, OR );
+	}
+
+	/**
+	 * Erode with the cross of the center pixel and its 2n direct neighbors.
+	 */
+	public void erodeCross( final ArrayImg< BitType, BitArray > in, final ArrayImg< BitType, BitArray > out )
+	{
+		cross( in, out, AND );
+	}
+
+	/**
+	 * Sets single pixels of a packed image from several threads. Pixels that
+	 * share a word are updated under a common lock, so concurrent writes to
+	 * neighboring pixels are not lost (as they may be with
+	 * {@link BitArray#setValue(int, boolean)}).
+	 */
+	public static final class ConcurrentWriter
+	{
+		private static final int NUM_LOCKS = 64;
+
+		private final int[] words;
+
+		private final Object[] locks;
+
+		public ConcurrentWriter( final ArrayImg< BitType, BitArray > img )
+		{
+			this.words = words( img );
+			this.locks = new Object[ NUM_LOCKS ];
+			for ( int i = 0; i < NUM_LOCKS; ++i )
+				locks[ i ] = new Object();
+		}
+
+		/**
+		 * @param index - the flat index of the pixel
+		 * @param value - the new value
+		 */
+		public void set( final int index, final boolean value )
+		{
+			final int w = index >>> 5;
+			final int bit = 1 << ( index & 31 );
+			synchronized ( locks[ w & ( NUM_LOCKS - 1 ) ] )
+			{
+				if ( value )
+					words[ w ] |= bit;
+				else
+					words[ w ] &= ~bit;
+			}
+		}
+	}
+
+	private static final int SET = 0;
+
+	private static final int AND = 1;
+
+	private static final int OR = 2;
+
+	private static final int XOR = 3;
+
+	private static final int AND_NOT = 4;
+
+	private static int apply( final int op, final int a, final int b )
+	{
+		switch ( op )
+		{
+		case AND:
+			return a & b;
+		case OR:
+			return a | b;
+		case XOR:
+			return a ^ b;
+		case AND_NOT:
+			return a & ~b;
+		default:
+			return b;
+		}
+	}
+
+	private interface WordRange
+	{
+		void run( int from, int to );
+	}
+
+	/**
+	 * Split [0, numWords) into disjoint ranges and run them on the executor.
+	 */
+	private void forEachWordRange( final int numWords, final WordRange range )
+	{
+		final int numTasks = Math.max( 1, Math.min( numWords, TaskExecutor.suggestNumTasks( 32l * numWords, executor.getParallelism() ) ) );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( numTasks );
+		for ( int t = 0; t < numTasks; ++t )
+		{
+			final int from = ( int ) ( ( long ) numWords * t / numTasks );
+			final int to = ( int ) ( ( long ) numWords * ( t + 1 ) / numTasks );
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					range.run( from, to );
+				}
+			} );
+		}
+		executor.run( tasks );
+	}
+
+	private void combine( final ArrayImg< BitType, BitArray > a, final ArrayImg< BitType, BitArray > b, final ArrayImg< BitType, BitArray > out, final int op )
+	{
+		checkDimensions( a, b );
+		checkDimensions( a, out );
+		final int[] src1 = words( a );
+		final int[] src2 = words( b );
+		final int[] dst = words( out );
+		forEachWordRange( dst.length, new WordRange()
+		{
+			@Override
+			public void run( final int from, final int to )
+			{
+				switch ( op )
+				{
+				case AND:
+					for ( int w = from; w < to; ++w )
+						dst[ w ] = src1[ w ] & src2[ w ];
+					break;
+				case OR:
+					for ( int w = from; w < to; ++w )
+						dst[ w ] = src1[ w ] | src2[ w ];
+					break;
+				case XOR:
+					for ( int w = from; w < to; ++w )
+						dst[ w ] = src1[ w ] ^ src2[ w ];
+					break;
+				default:
+					for ( int w = from; w < to; ++w )
+						dst[ w ] = src1[ w ] & ~src2[ w ];
+				}
+			}
+		} );
+	}
+
+	private void box( final ArrayImg< BitType, BitArray > in, final ArrayImg< BitType, BitArray > out, final int[] radius, final int op )
+	{
+		checkDimensions( in, out );
+		final long[] dims = dimensions( in );
+		final int[] src = words( in );
+		final int[] dst = words( out );
+		final int[][] tmp = new int[ 3 ][ dst.length ];
+
+		int[] cur = src;
+		for ( int d = 0; d < dims.length; ++d )
+		{
+			if ( radius[ d ] > 0 )
+			{
+				// dst(x) = op of src(x + t) for t in [0, r], op with src(x - t) for t in [0, r]
+				oneSided( cur, tmp[ 2 ], tmp[ 0 ], tmp[ 1 ], dims, d, radius[ d ] + 1, 1, op );
+				oneSided( cur, dst, tmp[ 0 ], tmp[ 1 ], dims, d, radius[ d ] + 1, -1, op );
+				shiftCombine( tmp[ 2 ], dst, dims, d, 0, op );
+				cur = dst;
+			}
+		}
+
+		if ( cur != dst )
+			System.arraycopy( cur, 0, dst, 0, dst.length );
+	}
+
+	/**
+	 * dst(x) = op of src(x + sign * t) for t in [0, length), length &gt; 1.
+	 * The window is built by doubling, R_2p(x) = R_p(x) op R_p(x + sign * p),
+	 * and composed from two overlapping windows of length p. As the windows
+	 * only extend to one side, they are exact for all x in the image. dst may
+	 * be src.
+	 *
+	 * @param tmp1 - a buffer different from src and dst
+	 * @param tmp2 - a buffer different from src, dst, and tmp1
+	 */
+	private void oneSided( final int[] src, final int[] dst, final int[] tmp1, final int[] tmp2, final long[] dims, final int d, final int length, final int sign, final int op )
+	{
+		int[] cur = src;
+		int p = 1;
+		while ( 2 * p <= length )
+		{
+			final int[] next = cur == tmp1 ? tmp2 : tmp1;
+			System.arraycopy( cur, 0, next, 0, next.length );
+			shiftCombine( cur, next, dims, d, -sign * p, op );
+			cur = next;
+			p *= 2;
+		}
+
+		System.arraycopy( cur, 0, dst, 0, dst.length );
+		if ( length > p )
+			shiftCombine( cur, dst, dims, d, -sign * ( length - p ), op );
+	}
+
+	private void cross( final ArrayImg< BitType, BitArray > in, final ArrayImg< BitType, BitArray > out, final int op )
+	{
+		checkDimensions( in, out );
+		final long[] dims = dimensions( in );
+		final int[] dst = words( out );
+		final int[] src = words( in ) == dst ? dst.clone() : words( in );
+		System.arraycopy( src, 0, dst, 0, dst.length );
+		for ( int d = 0; d < dims.length; ++d )
+		{
+			shiftCombine( src, dst, dims, d, 1, op );
+			shiftCombine( src, dst, dims, d, -1, op );
+		}
+	}
+
+	/**
+	 * dst = dst op shift(src), where shift(src)(x) = src(x - offset * e_d),
+	 * false outside of the image. src and dst must be different arrays.
+	 */
+	private void shiftCombine( final int[] src, final int[] dst, final long[] dims, final int d, final long offset, final int op )
+	{
+		long stride = 1;
+		for ( int i = 0; i < d; ++i )
+			stride *= dims[ i ];
+		final long bitOffset = offset * stride;
+		final int[] mask = validMask( dims, d, offset, dst.length );
+		forEachWordRange( dst.length, new WordRange()
+		{
+			@Override
+			public void run( final int from, final int to )
+			{
+				for ( int w = from; w < to; ++w )
+				{
+					final int shifted = mask[ w ] == 0 ? 0 : bits( src, 32l * w - bitOffset ) & mask[ w ];
+					dst[ w ] = apply( op, dst[ w ], shifted );
+				}
+			}
+		} );
+	}
+
+	/**
+	 * @return the pixels that are inside of the image after shifting by offset along d.
+	 */
+	private static int[] validMask( final long[] dims, final int d, final long offset, final int numWords )
+	{
+		long n = 1;
+		for ( final long dim : dims )
+			n *= dim;
+		long stride = 1;
+		for ( int i = 0; i < d; ++i )
+			stride *= dims[ i ];
+		final long size = dims[ d ];
+		final long period = stride * size;
+		final long lo = Math.max( 0, offset ) * stride;
+		final long hi = Math.min( size, size + offset ) * stride;
+
+		final int[] mask = new int[ numWords ];
+		if ( lo < hi )
+			for ( long start = 0; start < n; start += period )
+				setRange( mask, start + lo, start + hi );
+		return mask;
+	}
+
+	/**
+	 * Set bits [from, to).
+	 */
+	private static void setRange( final int[] words, final long from, final long to )
+	{
+		final int fw = ( int ) ( from >>> 5 );
+		final int tw = ( int ) ( ( to - 1 ) >>> 5 );
+		final int fm = -1 << ( int ) ( from & 31 );
+		final int tm = -1 >>> ( 31 - ( int ) ( ( to - 1 ) & 31 ) );
+		if ( fw == tw )
+			words[ fw ] |= fm & tm;
+		else
+		{
+			words[ fw ] |= fm;
+			for ( int w = fw + 1; w < tw; ++w )
+				words[ w ] = -1;
+			words[ tw ] |= tm;
+		}
+	}
+
+	/**
+	 * @return the 32 bits starting at bit index b, false outside of the array.
+	 */
+	private static int bits( final int[] words, final long b )
+	{
+		final long w = b >> 5;
+		final int o = ( int ) ( b & 31 );
+		final int lo = w >= 0 && w < words.length ? words[ ( int ) w ] : 0;
+		if ( o == 0 )
+			return lo;
+		final int hi = w + 1 >= 0 && w + 1 < words.length ? words[ ( int ) w + 1 ] : 0;
+		return ( lo >>> o ) | ( hi << ( 32 - o ) );
+	}
+
+	/**
+	 * Clear the unused bits of the last word.
+	 */
+	private static void clearTail( final int[] words, final int n )
+	{
+		if ( n % 32 != 0 )
+			words[ words.length - 1 ] &= ( 1 << ( n % 32 ) ) - 1;
+	}
+
+	private static int[] words( final ArrayImg< BitType, BitArray > img )
+	{
+		return img.update( null ).getCurrentStorageArray();
+	}
+
+	private static long[] dimensions( final ArrayImg< BitType, BitArray > img )
+	{
+		final long[] dims = new long[ img.numDimensions() ];
+		img.dimensions( dims );
+		return dims;
+	}
+
+	private static void checkDimensions( final ArrayImg< BitType, BitArray > a, final ArrayImg< BitType, BitArray > b )
+	{
+		if ( a.numDimensions() != b.numDimensions() )
+			throw new IllegalArgumentException( "Images are not compatible" );
+		for ( int d = 0; d < a.numDimensions(); ++d )
+			if ( a.dimension( d ) != b.dimension( d ) )
+				throw new IllegalArgumentException( "Images are not compatible" );
+	}
+}
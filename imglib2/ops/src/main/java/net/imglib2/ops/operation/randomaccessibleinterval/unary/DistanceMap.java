@@ -35,30 +35,82 @@
  */
 package net.imglib2.ops.operation.randomaccessibleinterval.unary;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.meta.CalibratedSpace;
+import net.imglib2.multithreading.Chunk;
+import net.imglib2.multithreading.TaskExecutor;
 import net.imglib2.ops.operation.UnaryOperation;
 import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.LongType;
 import net.imglib2.type.numeric.real.FloatType;
 
 /**
  * Image distance Map.
  * 
+ * Computes for every pixel the exact Euclidean distance to the nearest
+ * background pixel (a pixel with value 0, e.g. false for a BitType image or
+ * the background of a label index image) for images of any dimensionality.
+ * The squared distance transform is separable: it is computed by one pass of
+ * 1D lower envelopes of parabolas per dimension (Felzenszwalb and
+ * Huttenlocher), which is linear in the number of pixels. Within each pass,
+ * the lines are processed in parallel.
+ * 
+ * The pixel spacing is taken from the {@link CalibratedSpace} calibration of
+ * the source (e.g. an ImgPlus) if it is not given explicitly. Pixels of an
+ * image without background get an infinite distance. Optionally, the flat
+ * index (dimension 0 fastest) of the nearest background pixel is written to
+ * a feature image.
+ * 
  * @author Jens Metzner (University of Konstanz)
+ * @author ImgLib2 developers
  */
 public class DistanceMap< T extends RealType< T >, K extends RandomAccessibleInterval< T >, M extends RandomAccessibleInterval< FloatType >> implements UnaryOperation< K, M >
 {
 
+	private final double[] m_spacing;
+
+	private final boolean m_squared;
+
+	private TaskExecutor m_executor = TaskExecutor.getDefault();
+
 	/**
-	 *
+	 * Euclidean distances using the calibration of the source.
 	 */
-	public final static int MAX_DIMS = 4;
+	public DistanceMap()
+	{
+		this( null, false );
+	}
 
 	/**
-	 *
+	 * @param squared
+	 *            - whether the squared distances are computed
 	 */
-	public final static int MIN_DIMS = 2;
+	public DistanceMap( final boolean squared )
+	{
+		this( null, squared );
+	}
+
+	/**
+	 * @param spacing
+	 *            - the pixel spacing per dimension, null to use the
+	 *            calibration of the source
+	 * @param squared
+	 *            - whether the squared distances are computed
+	 */
+	public DistanceMap( final double[] spacing, final boolean squared )
+	{
+		m_spacing = spacing == null ? null : spacing.clone();
+		m_squared = squared;
+	}
+
+	public void setTaskExecutor( final TaskExecutor executor )
+	{
+		m_executor = executor;
+	}
 
 	/**
 	 * {@inheritDoc}
@@ -68,242 +120,208 @@ public class DistanceMap< T extends RealType< T >, K extends RandomAccessibleInt
 	@Override
 	public M compute( final K src, final M res )
 	{
+		return compute( src, res, null );
+	}
 
-		final RandomAccess< FloatType > resAccess = res.randomAccess();
-		final RandomAccess< T > srcAccess = src.randomAccess();
-
-		// Cursor<FloatType> resCursor = res.cursor();
-		// DIM SELECTION
-		final int[] dim_sel = new int[ MAX_DIMS ];
-		final int[] dim_val = new int[ MAX_DIMS ];
-		final double[] dim_unit = new double[ MAX_DIMS ];
-		final int[] pos = new int[ src.numDimensions() ];
+	/**
+	 * Compute the distance map and the nearest feature map.
+	 * 
+	 * @param src
+	 *            - the source, pixels with value 0 are background
+	 * @param res
+	 *            - the distances, same size as the source
+	 * @param features
+	 *            - the flat index of the nearest background pixel (-1 if there
+	 *            is none), same size as the source, may be null
+	 * @return res
+	 */
+	public M compute( final K src, final M res, final RandomAccessibleInterval< LongType > features )
+	{
+		final int n = src.numDimensions();
+		final double[] spacing = new double[ n ];
+		for ( int d = 0; d < n; ++d )
 		{
-			int a = 0;
-			for ( int i = 0; i < src.numDimensions(); ++i )
-			{
-				// if (src.dimension(i) > 1) {
-				if ( a < MAX_DIMS )
-				{
-					if ( src instanceof CalibratedSpace )
-						dim_unit[ a ] = ( ( CalibratedSpace ) src ).calibration( i );
-					else
-						dim_unit[ a ] = 1;
-
-					dim_val[ a ] = ( int ) src.dimension( i );
-					dim_sel[ a++ ] = i;
+			if ( m_spacing != null )
+				spacing[ d ] = m_spacing[ d ];
+			else if ( src instanceof CalibratedSpace )
+				spacing[ d ] = ( ( CalibratedSpace ) src ).calibration( d );
+			else
+				spacing[ d ] = 1;
 
-					// System.out.println(dim_sel[a - 1] +
-					// " "
-					// + dim_val[a - 1] + " " + dim_unit[a -
-					// 1]);
-				}
-				else
-				{
-					throw new IllegalArgumentException( "Too many dimensions are selected." ); // TODO
-				}
-				// }
-			}
-			if ( a < MIN_DIMS ) { throw new IllegalArgumentException( "Two dimensions have to be selected." ); // TODO
-			}
-			for ( int i = a; i < MAX_DIMS; ++i )
-			{
-				dim_val[ i ] = 1;
-			}
+			if ( !( spacing[ d ] > 0 ) || Double.isInfinite( spacing[ d ] ) )
+				spacing[ d ] = 1;
 		}
 
-		pos[ dim_sel[ 3 ] ] = dim_val[ 3 ];
-		while ( --pos[ dim_sel[ 3 ] ] >= 0 )
-		{
+		for ( int d = 0; d < n; ++d )
+			transformDimension( src, res, features, d, spacing[ d ], !m_squared && d == n - 1 );
+
+		return res;
+	}
+
+	/**
+	 * Transform all lines along one dimension in parallel. The first pass reads
+	 * the source, all further passes read and write the result of the previous
+	 * pass in place.
+	 */
+	private void transformDimension( final K src, final M res, final RandomAccessibleInterval< LongType > features, final int d, final double spacing, final boolean sqrt )
+	{
+		final int n = src.numDimensions();
+		final int length = ( int ) src.dimension( d );
+		long numLines = 1;
+		for ( int e = 0; e < n; ++e )
+			if ( e != d )
+				numLines *= src.dimension( e );
 
-			final int[][] g = new int[ dim_val[ 0 ] ][ dim_val[ 1 ] ];
-			pos[ dim_sel[ 2 ] ] = dim_val[ 2 ];
-			while ( --pos[ dim_sel[ 2 ] ] >= 0 )
+		// flat index steps of the source
+		final long[] steps = new long[ n ];
+		steps[ 0 ] = 1;
+		for ( int e = 1; e < n; ++e )
+			steps[ e ] = steps[ e - 1 ] * src.dimension( e - 1 );
+
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >();
+		for ( final Chunk chunk : m_executor.divideIntoChunks( numLines ) )
+		{
+			tasks.add( new Runnable()
 			{
-				// First Phase
-				pos[ dim_sel[ 0 ] ] = dim_val[ 0 ];
-				while ( --pos[ dim_sel[ 0 ] ] >= 0 )
+				@Override
+				public void run()
 				{
-					pos[ dim_sel[ 1 ] ] = 0;
-					srcAccess.setPosition( pos );
-					g[ pos[ dim_sel[ 0 ] ] ][ 0 ] = ( srcAccess.get().getRealDouble() == 1.0 ? dim_val[ 0 ] + dim_val[ 1 ] : 0 );
-					for ( pos[ dim_sel[ 1 ] ] = 1; pos[ dim_sel[ 1 ] ] < dim_val[ 1 ]; ++pos[ dim_sel[ 1 ] ] )
-					{
-						// Scan 1
-						srcAccess.setPosition( pos );
-						g[ pos[ dim_sel[ 0 ] ] ][ pos[ dim_sel[ 1 ] ] ] = ( srcAccess.get().getRealDouble() == 1.0 ) ? 1 + g[ pos[ dim_sel[ 0 ] ] ][ pos[ dim_sel[ 1 ] ] - 1 ] : 0;
+					final RandomAccess< T > srcAccess = d == 0 ? src.randomAccess() : null;
+					final RandomAccess< FloatType > resAccess = res.randomAccess();
+					final RandomAccess< LongType > featureAccess = features == null ? null : features.randomAccess();
 
-					}
-					pos[ dim_sel[ 1 ] ] = dim_val[ 1 ] - 1;
-					while ( --pos[ dim_sel[ 1 ] ] >= 0 )
-					{ // Scan
-						// 2
-						final int gnext = g[ pos[ dim_sel[ 0 ] ] ][ pos[ dim_sel[ 1 ] ] + 1 ];
-						if ( gnext < g[ pos[ dim_sel[ 0 ] ] ][ pos[ dim_sel[ 1 ] ] ] )
-						{
-							g[ pos[ dim_sel[ 0 ] ] ][ pos[ dim_sel[ 1 ] ] ] = 1 + gnext;
-						}
-					}
-				}
-				// Second Phase
-				{
-					int q = 0;
-					int w;
-					pos[ dim_sel[ 1 ] ] = dim_val[ 1 ];
-					final int[] s = new int[ dim_val[ 0 ] ];
-					final int[] t = new int[ dim_val[ 0 ] ];
-					while ( --pos[ dim_sel[ 1 ] ] >= 0 )
+					final double[] f = new double[ length ];
+					final double[] dist = new double[ length ];
+					final int[] nearest = new int[ length ];
+					final int[] v = new int[ length ];
+					final double[] z = new double[ length + 1 ];
+					final long[] lineFeatures = features == null ? null : new long[ length ];
+					final long[] position = new long[ n ];
+
+					final long end = chunk.getStartPosition() + chunk.getLoopSize();
+					for ( long line = chunk.getStartPosition(); line < end; ++line )
 					{
-						q = 0;
-						s[ 0 ] = 0;
-						t[ 0 ] = 0;
-						for ( int u = 1; u < dim_val[ 0 ]; ++u )
-						{ // Scan
-							// 3
-							while ( q >= 0 )
-							{
-								final int tqsq = ( t[ q ] - s[ q ] );
-								final int gsqy = g[ s[ q ] ][ pos[ dim_sel[ 1 ] ] ];
-								final int tqu = ( t[ q ] - u );
-								final int guy = g[ u ][ pos[ dim_sel[ 1 ] ] ];
-								if ( ( tqsq * tqsq + gsqy * gsqy ) > ( tqu * tqu + guy * guy ) )
-								{
-									--q;
-								}
-								else
-								{
-									break;
-								}
-							}
-							if ( q < 0 )
-							{
-								q = 0;
-								s[ 0 ] = u;
-							}
-							else
+						// the first pixel of the line and its flat index
+						long l = line;
+						long flat = 0;
+						for ( int e = 0; e < n; ++e )
+						{
+							if ( e == d )
 							{
-								final int sq = s[ q ];
-								final int guy = g[ u ][ pos[ dim_sel[ 1 ] ] ];
-								final int gsqy = g[ s[ q ] ][ pos[ dim_sel[ 1 ] ] ];
-								w = 1 + ( ( u * u - sq * sq + guy * guy - gsqy * gsqy ) / ( ( u - sq ) << 1 ) );
-								if ( w < dim_val[ 0 ] )
-								{
-									++q;
-									s[ q ] = u;
-									t[ q ] = w;
-								}
+								position[ e ] = src.min( e );
+								continue;
 							}
+							final long dim = src.dimension( e );
+							final long p = l % dim;
+							l /= dim;
+							position[ e ] = src.min( e ) + p;
+							flat += p * steps[ e ];
 						}
-						for ( int u = dim_val[ 0 ] - 1; 0 <= u; --u )
-						{ // Scan
-							// 4
-							final int sq = s[ q ];
-							final int gsqy = g[ s[ q ] ][ pos[ dim_sel[ 1 ] ] ];
-							pos[ dim_sel[ 0 ] ] = u;
-							resAccess.setPosition( pos );
 
-							resAccess.get().set( ( float ) ( dim_val[ 2 ] > 1 ? ( u - sq ) * ( u - sq ) + gsqy * gsqy : Math.sqrt( ( ( u - sq ) * ( u - sq ) + gsqy * gsqy ) ) ) );
-							if ( u == t[ q ] )
+						if ( d == 0 )
+						{
+							srcAccess.setPosition( position );
+							for ( int i = 0; i < length; ++i, srcAccess.fwd( d ) )
 							{
-								--q;
+								final boolean background = srcAccess.get().getRealDouble() == 0;
+								f[ i ] = background ? 0 : Double.POSITIVE_INFINITY;
+								if ( lineFeatures != null )
+									lineFeatures[ i ] = background ? flat + i * steps[ d ] : -1;
 							}
 						}
-					}
-				}
-			}
-			// Second phase for z
-			if ( dim_val[ 2 ] > 1 )
-			{
-				final int[] s = new int[ dim_val[ 2 ] ];
-				final int[] t = new int[ dim_val[ 2 ] ];
-				final double[] val_z = new double[ dim_val[ 2 ] ];
-				int q = 0;
-				int w;
-				pos[ dim_sel[ 0 ] ] = dim_val[ 0 ];
-				while ( --pos[ dim_sel[ 0 ] ] >= 0 )
-				{
-					resAccess.setPosition( pos[ dim_sel[ 0 ] ], dim_sel[ 0 ] );
-					pos[ dim_sel[ 1 ] ] = dim_val[ 1 ];
-					while ( --pos[ dim_sel[ 1 ] ] >= 0 )
-					{
-						resAccess.setPosition( pos[ dim_sel[ 1 ] ], dim_sel[ 1 ] );
-						pos[ dim_sel[ 2 ] ] = dim_val[ 2 ];
-						while ( --pos[ dim_sel[ 2 ] ] >= 0 )
+						else
 						{
-							q = 0;
-							s[ 0 ] = 0;
-							t[ 0 ] = 0;
-							for ( int u = 1; u < dim_val[ 2 ]; ++u )
-							{ // Scan
-								// 3
-								while ( q >= 0 )
-								{
-									final int tqsq = ( t[ q ] - s[ q ] );
-									resAccess.setPosition( s[ q ], dim_sel[ 2 ] );
-									final int gsq = ( int ) resAccess.get().getRealDouble();
-									final int tqu = ( t[ q ] - u );
-									resAccess.setPosition( u, dim_sel[ 2 ] );
-									final int gu = ( int ) resAccess.get().getRealDouble();
-									if ( ( tqsq * tqsq + gsq * gsq ) > ( tqu * tqu + gu * gu ) )
-									{
-										--q;
-									}
-									else
-									{
-										break;
-									}
-								}
-								if ( q < 0 )
-								{
-									q = 0;
-									s[ 0 ] = u;
-								}
-								else
-								{
-									final int sq = s[ q ];
-									resAccess.setPosition( u, dim_sel[ 2 ] );
-									final int gu = ( int ) resAccess.get().getRealDouble();
-									resAccess.setPosition( s[ q ], dim_sel[ 2 ] );
-									final int gsq = ( int ) resAccess.get().getRealDouble();
-									w = 1 + ( u * u - sq * sq + gu * gu - gsq * gsq ) / ( ( u - sq ) << 1 );
-									if ( w < dim_val[ 2 ] )
-									{
-										++q;
-										s[ q ] = u;
-										t[ q ] = w;
-									}
-								}
-							}
-							for ( int u = dim_val[ 2 ] - 1; 0 <= u; --u )
-							{ // Scan
-								// 4
-								resAccess.setPosition( u, dim_sel[ 2 ] );
-								final int sq = s[ q ];
-								resAccess.setPosition( s[ q ], dim_sel[ 2 ] );
-								final double gsq = resAccess.get().getRealDouble();
-								val_z[ u ] = Math.sqrt( ( ( u - sq ) * ( u - sq ) + gsq * gsq ) );
-								if ( u == t[ q ] )
-								{
-									--q;
-								}
+							resAccess.setPosition( position );
+							for ( int i = 0; i < length; ++i, resAccess.fwd( d ) )
+								f[ i ] = resAccess.get().getRealDouble();
+							if ( lineFeatures != null )
+							{
+								featureAccess.setPosition( position );
+								for ( int i = 0; i < length; ++i, featureAccess.fwd( d ) )
+									lineFeatures[ i ] = featureAccess.get().get();
 							}
 						}
-						for ( int u = 0; u < dim_val[ 2 ]; ++u )
+
+						transformLine( f, length, spacing, dist, nearest, v, z );
+
+						resAccess.setPosition( position );
+						for ( int i = 0; i < length; ++i, resAccess.fwd( d ) )
+							resAccess.get().set( ( float ) ( sqrt ? Math.sqrt( dist[ i ] ) : dist[ i ] ) );
+						if ( lineFeatures != null )
 						{
-							resAccess.setPosition( u, dim_sel[ 2 ] );
-							resAccess.get().set( ( float ) val_z[ u ] );
+							featureAccess.setPosition( position );
+							for ( int i = 0; i < length; ++i, featureAccess.fwd( d ) )
+								featureAccess.get().set( nearest[ i ] < 0 ? -1 : lineFeatures[ nearest[ i ] ] );
 						}
 					}
 				}
+			} );
+		}
+		m_executor.run( tasks );
+	}
+
+	/**
+	 * 1D squared distance transform of a sampled function: dist[ i ] = min_j (
+	 * ( ( i - j ) * spacing )^2 + f[ j ] ), computed from the lower envelope
+	 * of the parabolas rooted at the finite samples.
+	 * 
+	 * @param nearest
+	 *            - the minimizing j for every i, -1 if all f are infinite
+	 * @param v
+	 *            - buffer for the roots of the parabolas of the envelope
+	 * @param z
+	 *            - buffer for the boundaries between the parabolas
+	 */
+	static void transformLine( final double[] f, final int length, final double spacing, final double[] dist, final int[] nearest, final int[] v, final double[] z )
+	{
+		int k = -1;
+		for ( int q = 0; q < length; ++q )
+		{
+			if ( f[ q ] == Double.POSITIVE_INFINITY )
+				continue;
+
+			final double xq = q * spacing;
+			double s = Double.NEGATIVE_INFINITY;
+			while ( k >= 0 )
+			{
+				final double xv = v[ k ] * spacing;
+				s = ( ( f[ q ] + xq * xq ) - ( f[ v[ k ] ] + xv * xv ) ) / ( 2 * ( xq - xv ) );
+				if ( s > z[ k ] )
+					break;
+				--k;
 			}
+			if ( k < 0 )
+				s = Double.NEGATIVE_INFINITY;
+			++k;
+			v[ k ] = q;
+			z[ k ] = s;
+			z[ k + 1 ] = Double.POSITIVE_INFINITY;
 		}
 
-		return res;
+		if ( k < 0 )
+		{
+			Arrays.fill( dist, 0, length, Double.POSITIVE_INFINITY );
+			Arrays.fill( nearest, 0, length, -1 );
+			return;
+		}
+
+		int j = 0;
+		for ( int q = 0; q < length; ++q )
+		{
+			final double x = q * spacing;
+			while ( z[ j + 1 ] < x )
+				++j;
+			final double dx = x - v[ j ] * spacing;
+			dist[ q ] = dx * dx + f[ v[ j ] ];
+			nearest[ q ] = v[ j ];
+		}
 	}
 
 	@Override
 	public UnaryOperation< K, M > copy()
 	{
-		return new DistanceMap< T, K, M >();
+		final DistanceMap< T, K, M > copy = new DistanceMap< T, K, M >( m_spacing, m_squared );
+		copy.setTaskExecutor( m_executor );
+		return copy;
 	}
 }
@@ -42,7 +42,10 @@ import net.imglib2.Cursor;
 import net.imglib2.IterableInterval;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.BitArray;
 import net.imglib2.iterator.IntervalIterator;
+import net.imglib2.ops.img.PackedBitOps;
 import net.imglib2.ops.types.ConnectedType;
 import net.imglib2.type.logic.BitType;
 import net.imglib2.view.Views;
@@ -65,6 +68,13 @@ public class BinaryOps< K extends RandomAccessibleInterval< BitType > & Iterable
 
 	private K binaryop( ConnectedType type, final K r, final K op, final boolean erode, final int count )
 	{
+		// with count 1 this is plain erosion/dilation, which is done word-wise on packed images
+		if ( count == 1 && PackedBitOps.isPacked( r ) && PackedBitOps.isPacked( op ) )
+		{
+			packed( type, r, op, erode );
+			return r;
+		}
+
 		long[] dim = new long[ r.numDimensions() ];
 		r.dimensions( dim );
 		switch ( r.numDimensions() )
@@ -101,6 +111,33 @@ public class BinaryOps< K extends RandomAccessibleInterval< BitType > & Iterable
 		return r;
 	}
 
+	@SuppressWarnings( "unchecked" )
+	private void packed( ConnectedType type, final K r, final K op, final boolean erode )
+	{
+		final ArrayImg< BitType, BitArray > res = ( ArrayImg< BitType, BitArray > ) r;
+		final ArrayImg< BitType, BitArray > src = ( ArrayImg< BitType, BitArray > ) op;
+		final PackedBitOps ops = new PackedBitOps();
+		switch ( type )
+		{
+		case EIGHT_CONNECTED:
+			final int[] radius = new int[ op.numDimensions() ];
+			Arrays.fill( radius, 1 );
+			if ( erode )
+				ops.erodeBox( src, res, radius );
+			else
+				ops.dilateBox( src, res, radius );
+			break;
+		case FOUR_CONNECTED:
+			if ( erode )
+				ops.erodeCross( src, res );
+			else
+				ops.dilateCross( src, res );
+			break;
+		default:
+			throw new IllegalArgumentException( "Can't find ConnectionType. Please choose between for connected and eightconnected" );
+		}
+	}
+
 	private void unrolled2DFourConnected( final K r, final K op, final boolean erode, final int count )
 	{
 
@@ -258,10 +295,12 @@ public class BinaryOps< K extends RandomAccessibleInterval< BitType > & Iterable
 		while ( lineCur.hasNext() )
 		{
 			lineCur.fwd();
-			// Initialize kernel in new line
+			// Initialize kernel in new line with the columns x0 - 1 and x0
+			// for x0 = 0
+			Arrays.fill( kernel, 0 );
 			kernelIndex = 0;
 			sum = 0;
-			for ( x0 = -2; x0 < 0; x0++ )
+			for ( x0 = -1; x0 < 1; x0++ )
 			{
 				op.setPosition( x0, 0 );
 				roiCur.reset();
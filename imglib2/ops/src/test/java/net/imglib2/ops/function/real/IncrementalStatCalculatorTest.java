@@ -0,0 +1,288 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+
+package net.imglib2.ops.function.real;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.ops.function.Function;
+import net.imglib2.ops.input.PointSetInputIterator;
+import net.imglib2.ops.pointset.HyperVolumePointSet;
+import net.imglib2.ops.pointset.PointSet;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.real.DoubleType;
+
+import org.junit.Test;
+
+/**
+ * Tests that {@link IncrementalStatCalculator} computes the same values as
+ * {@link StatCalculator} while a neighborhood slides through an image.
+ * 
+ * @author ImgLib2 developers
+ */
+public class IncrementalStatCalculatorTest {
+
+	private <T extends RealType<T> & NativeType<T>> Img<T> makeImage(
+		long[] dims, T type, double range, long seed)
+	{
+		Img<T> img = new ArrayImgFactory<T>().create(dims, type);
+		Random rng = new Random(seed);
+		Cursor<T> cursor = img.cursor();
+		while (cursor.hasNext()) {
+			// few distinct values to exercise ties
+			cursor.next().setReal(Math.floor(rng.nextDouble() * range) * 0.5);
+		}
+		return img;
+	}
+
+	private <T extends RealType<T>> void assertSameStats(Img<T> img,
+		long[] negOffsets, long[] posOffsets, T type)
+	{
+		int numDims = img.numDimensions();
+		long[] min = new long[numDims];
+		long[] max = new long[numDims];
+		for (int i = 0; i < numDims; i++) {
+			min[i] = negOffsets[i];
+			max[i] = img.dimension(i) - 1 - posOffsets[i];
+		}
+		HyperVolumePointSet space = new HyperVolumePointSet(min, max);
+		HyperVolumePointSet neigh =
+			new HyperVolumePointSet(new long[numDims], negOffsets, posOffsets);
+		Function<long[], T> imageFunc =
+			new RealImageFunction<T, T>(img, type);
+		PointSetInputIterator iter = new PointSetInputIterator(space, neigh);
+		StatCalculator<T> expected = null;
+		IncrementalStatCalculator<T> actual = null;
+		PointSet points = null;
+		while (iter.hasNext()) {
+			points = iter.next(points);
+			if (expected == null) {
+				expected = new StatCalculator<T>(imageFunc, points);
+				actual = new IncrementalStatCalculator<T>(imageFunc, points);
+			}
+			else {
+				expected.reset(imageFunc, points);
+				actual.reset(imageFunc, points);
+			}
+			double tol = 1e-9;
+			assertEquals(expected.median(), actual.median(), 0);
+			assertEquals(expected.min(), actual.min(), 0);
+			assertEquals(expected.max(), actual.max(), 0);
+			assertEquals(expected.midpoint(), actual.midpoint(), 0);
+			assertEquals(expected.alphaTrimmedMean(2), actual.alphaTrimmedMean(2), tol);
+			assertEquals(expected.sum(), actual.sum(), tol);
+			assertEquals(expected.arithmeticMean(), actual.arithmeticMean(), tol);
+			assertEquals(expected.sumOfSquaredDeviations(), actual.sumOfSquaredDeviations(), tol);
+			assertEquals(expected.populationVariance(), actual.populationVariance(), tol);
+			assertEquals(expected.sampleStdDev(), actual.sampleStdDev(), tol);
+			assertEquals(expected.populationSkew(), actual.populationSkew(), 1e-6);
+			assertEquals(expected.sampleKurtosisExcess(), actual.sampleKurtosisExcess(), 1e-6);
+		}
+	}
+
+	@Test
+	public void testIntegerHistogram2D() {
+		Img<UnsignedByteType> img =
+			makeImage(new long[] { 23, 17 }, new UnsignedByteType(), 500, 1);
+		assertSameStats(img, new long[] { 2, 1 }, new long[] { 2, 3 },
+			new UnsignedByteType());
+	}
+
+	@Test
+	public void testReal2D() {
+		Img<DoubleType> img =
+			makeImage(new long[] { 23, 17 }, new DoubleType(), 40, 2);
+		assertSameStats(img, new long[] { 3, 3 }, new long[] { 3, 3 },
+			new DoubleType());
+	}
+
+	@Test
+	public void testReal3D() {
+		Img<DoubleType> img =
+			makeImage(new long[] { 11, 9, 7 }, new DoubleType(), 1000, 3);
+		assertSameStats(img, new long[] { 1, 2, 1 }, new long[] { 1, 1, 2 },
+			new DoubleType());
+	}
+
+	@Test
+	public void testRegionChanges() {
+		Img<DoubleType> img =
+			makeImage(new long[] { 20, 20 }, new DoubleType(), 100, 4);
+		Function<long[], DoubleType> imageFunc =
+			new RealImageFunction<DoubleType, DoubleType>(img, new DoubleType());
+		HyperVolumePointSet small = new HyperVolumePointSet(new long[] { 5, 5 },
+			new long[] { 1, 1 }, new long[] { 1, 1 });
+		HyperVolumePointSet large = new HyperVolumePointSet(new long[] { 5, 5 },
+			new long[] { 3, 3 }, new long[] { 3, 3 });
+		StatCalculator<DoubleType> expected =
+			new StatCalculator<DoubleType>(imageFunc, small);
+		IncrementalStatCalculator<DoubleType> actual =
+			new IncrementalStatCalculator<DoubleType>(imageFunc, small);
+		assertEquals(expected.median(), actual.median(), 0);
+		// a different region
+		expected.reset(imageFunc, large);
+		actual.reset(imageFunc, large);
+		assertEquals(expected.median(), actual.median(), 0);
+		assertEquals(expected.sum(), actual.sum(), 1e-9);
+		// a jump without overlap
+		large.translate(new long[] { 8, 9 });
+		expected.reset(imageFunc, large);
+		actual.reset(imageFunc, large);
+		assertEquals(expected.median(), actual.median(), 0);
+		assertEquals(expected.sum(), actual.sum(), 1e-9);
+		// a diagonal step
+		large.translate(new long[] { -1, -1 });
+		expected.reset(imageFunc, large);
+		actual.reset(imageFunc, large);
+		assertEquals(expected.median(), actual.median(), 0);
+		assertEquals(expected.populationVariance(), actual.populationVariance(), 1e-9);
+	}
+	@Test
+	public void testNonFiniteSamples() {
+		double[] data = { 1, 2, Double.NaN, 4, 5, Double.POSITIVE_INFINITY, 7, 8,
+			Double.NEGATIVE_INFINITY, 10, 11, 12, 13 };
+		Img<DoubleType> img =
+			new ArrayImgFactory<DoubleType>().create(new long[] { data.length },
+				new DoubleType());
+		Cursor<DoubleType> cursor = img.cursor();
+		for (double value : data)
+			cursor.next().set(value);
+		assertSameStats(img, new long[] { 2 }, new long[] { 2 }, new DoubleType());
+		// once the last non-finite sample has left the window the moments are
+		// finite again
+		Function<long[], DoubleType> imageFunc =
+			new RealImageFunction<DoubleType, DoubleType>(img, new DoubleType());
+		HyperVolumePointSet window = new HyperVolumePointSet(new long[] { 1 },
+			new long[] { 1 }, new long[] { 1 });
+		IncrementalStatCalculator<DoubleType> actual =
+			new IncrementalStatCalculator<DoubleType>(imageFunc, window);
+		for (int i = 2; i < data.length - 1; i++) {
+			window.translate(new long[] { 1 });
+			actual.reset(imageFunc, window);
+		}
+		assertEquals(12, actual.arithmeticMean(), 1e-9);
+		assertEquals(2.0 / 3, actual.populationVariance(), 1e-9);
+	}
+
+	@Test
+	public void testChangedData() {
+		Img<DoubleType> img =
+			makeImage(new long[] { 20, 20 }, new DoubleType(), 100, 5);
+		Function<long[], DoubleType> imageFunc =
+			new RealImageFunction<DoubleType, DoubleType>(img, new DoubleType());
+		HyperVolumePointSet neigh = new HyperVolumePointSet(new long[] { 5, 5 },
+			new long[] { 2, 2 }, new long[] { 2, 2 });
+		IncrementalStatCalculator<DoubleType> actual =
+			new IncrementalStatCalculator<DoubleType>(imageFunc, neigh);
+		// overwrite the column that is about to leave the region: the values
+		// must be removed as they were added
+		RandomAccess<DoubleType> access = img.randomAccess();
+		for (long y = 3; y <= 7; y++) {
+			access.setPosition(new long[] { 3, y });
+			access.get().set(1000 + y);
+		}
+		neigh.translate(new long[] { 1, 0 });
+		actual.reset(imageFunc, neigh);
+		StatCalculator<DoubleType> expected =
+			new StatCalculator<DoubleType>(imageFunc, neigh);
+		assertEquals(expected.median(), actual.median(), 0);
+		assertEquals(expected.sum(), actual.sum(), 1e-9);
+		assertEquals(expected.populationVariance(), actual.populationVariance(),
+			1e-9);
+		// data changed inside a region that did not move is gathered again
+		access.setPosition(new long[] { 6, 5 });
+		access.get().set(-50);
+		actual.reset(imageFunc, neigh);
+		expected.reset(imageFunc, neigh);
+		assertEquals(expected.min(), actual.min(), 0);
+		assertEquals(expected.sum(), actual.sum(), 1e-9);
+		// data changed inside the overlap of a moving region needs invalidate()
+		access.setPosition(new long[] { 6, 6 });
+		access.get().set(-70);
+		neigh.translate(new long[] { 0, 1 });
+		actual.invalidate();
+		actual.reset(imageFunc, neigh);
+		expected.reset(imageFunc, neigh);
+		assertEquals(expected.min(), actual.min(), 0);
+		assertEquals(expected.median(), actual.median(), 0);
+		assertEquals(expected.sum(), actual.sum(), 1e-9);
+	}
+
+	@Test
+	public void testIncrementalFunction() {
+		Img<DoubleType> img =
+			makeImage(new long[] { 20, 20 }, new DoubleType(), 100, 6);
+		Function<long[], DoubleType> imageFunc =
+			new RealImageFunction<DoubleType, DoubleType>(img, new DoubleType());
+		HyperVolumePointSet neigh = new HyperVolumePointSet(new long[] { 5, 5 },
+			new long[] { 2, 2 }, new long[] { 2, 2 });
+		RealMedianFunction<DoubleType> incremental =
+			new RealMedianFunction<DoubleType>(imageFunc, true);
+		RealMedianFunction<DoubleType> gathering =
+			new RealMedianFunction<DoubleType>(imageFunc);
+		DoubleType actual = new DoubleType();
+		DoubleType expected = new DoubleType();
+		incremental.compute(neigh, actual);
+		// change the overlap of the next region: only seen after a reset()
+		RandomAccess<DoubleType> access = img.randomAccess();
+		for (long y = 3; y <= 7; y++) {
+			access.setPosition(new long[] { 5, y });
+			access.get().set(-1);
+		}
+		neigh.translate(new long[] { 1, 0 });
+		incremental.reset();
+		incremental.compute(neigh, actual);
+		gathering.compute(neigh, expected);
+		assertEquals(expected.get(), actual.get(), 0);
+		// a copy is incremental as well and slides through the image
+		RealMedianFunction<DoubleType> copy = incremental.copy();
+		for (int i = 0; i < 8; i++) {
+			neigh.translate(new long[] { 1, 0 });
+			copy.compute(neigh, actual);
+			gathering.compute(neigh, expected);
+			assertEquals(expected.get(), actual.get(), 0);
+		}
+	}
+}
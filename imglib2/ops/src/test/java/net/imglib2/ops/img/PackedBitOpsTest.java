@@ -0,0 +1,298 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.ops.img;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.basictypeaccess.array.BitArray;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.ops.operation.bool.binary.BinaryXor;
+import net.imglib2.ops.operation.randomaccessibleinterval.unary.morph.Dilate;
+import net.imglib2.ops.operation.randomaccessibleinterval.unary.morph.Erode;
+import net.imglib2.ops.types.ConnectedType;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link PackedBitOps}, comparing with pixel-wise computation.
+ *
+ * @author ImgLib2 developers
+ */
+public class PackedBitOpsTest
+{
+	final PackedBitOps ops = new PackedBitOps();
+
+	@SuppressWarnings( "unchecked" )
+	private static ArrayImg< BitType, BitArray > create( final long[] dims )
+	{
+		return ( ArrayImg< BitType, BitArray > ) new ArrayImgFactory< BitType >().create( dims, new BitType() );
+	}
+
+	private static ArrayImg< BitType, BitArray > createRandom( final long[] dims, final double density, final long seed )
+	{
+		final ArrayImg< BitType, BitArray > img = create( dims );
+		final Random random = new Random( seed );
+		for ( final BitType t : img )
+			t.set( random.nextDouble() < density );
+		return img;
+	}
+
+	private static void assertImgEquals( final Img< BitType > expected, final Img< BitType > actual )
+	{
+		final Cursor< BitType > c = expected.localizingCursor();
+		final RandomAccess< BitType > a = actual.randomAccess();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			a.setPosition( c );
+			assertEquals( c.get().get(), a.get().get() );
+		}
+	}
+
+	/**
+	 * Brute force erosion/dilation with a box, pixels outside are false.
+	 */
+	private static Img< BitType > bruteForceBox( final Img< BitType > in, final int[] radius, final boolean erode )
+	{
+		final Img< BitType > out = create( dimensions( in ) );
+		final RandomAccess< BitType > a = Views.extendValue( in, new BitType( false ) ).randomAccess();
+		final Cursor< BitType > c = out.localizingCursor();
+		final int n = in.numDimensions();
+		final long[] pos = new long[ n ];
+		final long[] q = new long[ n ];
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( pos );
+			boolean value = erode;
+			final long[] offset = new long[ n ];
+			for ( int d = 0; d < n; ++d )
+				offset[ d ] = -radius[ d ];
+			while ( true )
+			{
+				for ( int d = 0; d < n; ++d )
+					q[ d ] = pos[ d ] + offset[ d ];
+				a.setPosition( q );
+				value = erode ? value && a.get().get() : value || a.get().get();
+				int d = 0;
+				while ( d < n && ++offset[ d ] > radius[ d ] )
+					offset[ d++ ] = -radius[ d - 1 ];
+				if ( d == n )
+					break;
+			}
+			c.get().set( value );
+		}
+		return out;
+	}
+
+	private static long[] dimensions( final Img< BitType > img )
+	{
+		final long[] dims = new long[ img.numDimensions() ];
+		img.dimensions( dims );
+		return dims;
+	}
+
+	@Test
+	public void testBooleanOps()
+	{
+		final long[] dims = new long[] { 37, 23 };
+		final ArrayImg< BitType, BitArray > a = createRandom( dims, 0.5, 1 );
+		final ArrayImg< BitType, BitArray > b = createRandom( dims, 0.5, 2 );
+		final ArrayImg< BitType, BitArray > and = create( dims );
+		final ArrayImg< BitType, BitArray > or = create( dims );
+		final ArrayImg< BitType, BitArray > xor = create( dims );
+		final ArrayImg< BitType, BitArray > andNot = create( dims );
+		final ArrayImg< BitType, BitArray > not = create( dims );
+		ops.and( a, b, and );
+		ops.or( a, b, or );
+		ops.xor( a, b, xor );
+		ops.andNot( a, b, andNot );
+		ops.not( a, not );
+
+		long count = 0;
+		final Cursor< BitType > ca = a.cursor();
+		final Cursor< BitType > cb = b.cursor();
+		final Cursor< BitType > cand = and.cursor();
+		final Cursor< BitType > cor = or.cursor();
+		final Cursor< BitType > cxor = xor.cursor();
+		final Cursor< BitType > candNot = andNot.cursor();
+		final Cursor< BitType > cnot = not.cursor();
+		while ( ca.hasNext() )
+		{
+			final boolean va = ca.next().get();
+			final boolean vb = cb.next().get();
+			assertEquals( va && vb, cand.next().get() );
+			assertEquals( va || vb, cor.next().get() );
+			assertEquals( va ^ vb, cxor.next().get() );
+			assertEquals( va && !vb, candNot.next().get() );
+			assertEquals( !va, cnot.next().get() );
+			if ( va )
+				++count;
+		}
+		assertEquals( count, ops.count( a ) );
+		assertEquals( a.size() - count, ops.count( not ) );
+	}
+
+	@Test
+	public void testShift()
+	{
+		final long[] dims = new long[] { 37, 11, 5 };
+		final ArrayImg< BitType, BitArray > in = createRandom( dims, 0.5, 3 );
+		final ArrayImg< BitType, BitArray > out = create( dims );
+		final RandomAccess< BitType > a = Views.extendValue( in, new BitType( false ) ).randomAccess();
+		for ( int d = 0; d < dims.length; ++d )
+		{
+			for ( final long offset : new long[] { -40, -3, -1, 1, 2, 33 } )
+			{
+				ops.shift( in, out, d, offset );
+				final Cursor< BitType > c = out.localizingCursor();
+				while ( c.hasNext() )
+				{
+					c.fwd();
+					a.setPosition( c );
+					a.move( -offset, d );
+					assertEquals( a.get().get(), c.get().get() );
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testBox()
+	{
+		final long[] dims = new long[] { 67, 19, 7 };
+		final ArrayImg< BitType, BitArray > in = createRandom( dims, 0.1, 4 );
+		final ArrayImg< BitType, BitArray > dense = createRandom( dims, 0.9, 5 );
+		final ArrayImg< BitType, BitArray > out = create( dims );
+		for ( final int[] radius : new int[][] { { 1, 1, 1 }, { 3, 0, 2 }, { 5, 2, 1 } } )
+		{
+			ops.dilateBox( in, out, radius );
+			assertImgEquals( bruteForceBox( in, radius, false ), out );
+			ops.erodeBox( dense, out, radius );
+			assertImgEquals( bruteForceBox( dense, radius, true ), out );
+		}
+	}
+
+	@Test
+	public void testMorphologyMatchesPixelwise()
+	{
+		for ( final long[] dims : new long[][] { { 45, 29 }, { 21, 13, 6 } } )
+		{
+			for ( final ConnectedType type : new ConnectedType[] { ConnectedType.EIGHT_CONNECTED, ConnectedType.FOUR_CONNECTED } )
+			{
+				for ( final boolean erode : new boolean[] { false, true } )
+				{
+					final ArrayImg< BitType, BitArray > packedIn = createRandom( dims, erode ? 0.8 : 0.2, 6 );
+					final ArrayImg< BitType, BitArray > packedOut = create( dims );
+
+					final Img< BitType > cellIn = new CellImgFactory< BitType >( 8 ).create( dims, new BitType() );
+					final Img< BitType > cellOut = new CellImgFactory< BitType >( 8 ).create( dims, new BitType() );
+					final Cursor< BitType > c = cellIn.localizingCursor();
+					final RandomAccess< BitType > a = packedIn.randomAccess();
+					while ( c.hasNext() )
+					{
+						c.fwd();
+						a.setPosition( c );
+						c.get().set( a.get() );
+					}
+
+					if ( erode )
+					{
+						new Erode< Img< BitType > >( type, 1 ).compute( packedIn, packedOut );
+						new Erode< Img< BitType > >( type, 1 ).compute( cellIn, cellOut );
+					}
+					else
+					{
+						new Dilate< Img< BitType > >( type, 1 ).compute( packedIn, packedOut );
+						new Dilate< Img< BitType > >( type, 1 ).compute( cellIn, cellOut );
+					}
+					assertImgEquals( cellOut, packedOut );
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testAssignment()
+	{
+		final long[] dims = new long[] { 70, 3 };
+		final ArrayImg< BitType, BitArray > a = createRandom( dims, 0.5, 7 );
+		final ArrayImg< BitType, BitArray > b = createRandom( dims, 0.5, 8 );
+		final ArrayImg< BitType, BitArray > out = create( dims );
+		new BinaryOperationAssignment< BitType, BitType, BitType >( new BinaryXor() ).compute( a, b, out );
+
+		final Cursor< BitType > ca = a.cursor();
+		final Cursor< BitType > cb = b.cursor();
+		final Cursor< BitType > co = out.cursor();
+		while ( ca.hasNext() )
+			assertEquals( ca.next().get() ^ cb.next().get(), co.next().get() );
+	}
+
+	@Test
+	public void testConcurrentWriter() throws InterruptedException
+	{
+		final ArrayImg< BitType, BitArray > img = create( new long[] { 1000 } );
+		final PackedBitOps.ConcurrentWriter writer = new PackedBitOps.ConcurrentWriter( img );
+		final Thread[] threads = new Thread[ 4 ];
+		for ( int t = 0; t < threads.length; ++t )
+		{
+			final int offset = t;
+			threads[ t ] = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					for ( int i = offset; i < 1000; i += threads.length )
+						writer.set( i, true );
+				}
+			};
+			threads[ t ].start();
+		}
+		for ( final Thread thread : threads )
+			thread.join();
+		assertEquals( 1000, ops.count( img ) );
+	}
+}
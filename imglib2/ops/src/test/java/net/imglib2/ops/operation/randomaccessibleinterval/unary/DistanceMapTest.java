@@ -0,0 +1,190 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+package net.imglib2.ops.operation.randomaccessibleinterval.unary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgPlus;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.multithreading.TaskExecutor;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.IntervalIndexer;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link DistanceMap}, comparing with brute force distances.
+ *
+ * @author ImgLib2 developers
+ */
+public class DistanceMapTest
+{
+	private static Img< BitType > createRandom( final long[] dims, final double density, final long seed )
+	{
+		final Img< BitType > img = new ArrayImgFactory< BitType >().create( dims, new BitType() );
+		final Random random = new Random( seed );
+		for ( final BitType t : img )
+			t.set( random.nextDouble() >= density );
+		return img;
+	}
+
+	private static double distance( final long[] a, final long[] b, final double[] spacing )
+	{
+		double sum = 0;
+		for ( int d = 0; d < a.length; ++d )
+		{
+			final double x = ( a[ d ] - b[ d ] ) * spacing[ d ];
+			sum += x * x;
+		}
+		return Math.sqrt( sum );
+	}
+
+	/**
+	 * Compare distances and nearest features to the distance to every
+	 * background pixel.
+	 */
+	private static void check( final Img< BitType > img, final double[] spacing, final Img< FloatType > dist, final Img< LongType > features )
+	{
+		final int n = img.numDimensions();
+		final long[] dims = new long[ n ];
+		img.dimensions( dims );
+		final long[] position = new long[ n ], other = new long[ n ], feature = new long[ n ];
+		final RandomAccess< BitType > imgAccess = img.randomAccess();
+		final RandomAccess< FloatType > distAccess = dist.randomAccess();
+		final RandomAccess< LongType > featureAccess = features.randomAccess();
+
+		final Cursor< BitType > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( position );
+			double expected = Double.POSITIVE_INFINITY;
+			final Cursor< BitType > b = img.localizingCursor();
+			while ( b.hasNext() )
+				if ( !b.next().get() )
+				{
+					b.localize( other );
+					expected = Math.min( expected, distance( position, other, spacing ) );
+				}
+
+			distAccess.setPosition( position );
+			assertEquals( expected, distAccess.get().get(), 1e-4 * Math.max( 1, expected ) );
+
+			// the nearest feature is a background pixel at that distance
+			featureAccess.setPosition( position );
+			IntervalIndexer.indexToPosition( featureAccess.get().get(), dims, feature );
+			imgAccess.setPosition( feature );
+			assertTrue( !imgAccess.get().get() );
+			assertEquals( expected, distance( position, feature, spacing ), 1e-4 * Math.max( 1, expected ) );
+		}
+	}
+
+	private static void test( final long[] dims, final double[] spacing, final long seed )
+	{
+		final Img< BitType > img = createRandom( dims, 0.03, seed );
+		final Img< FloatType > dist = new ArrayImgFactory< FloatType >().create( dims, new FloatType() );
+		final Img< LongType > features = new ArrayImgFactory< LongType >().create( dims, new LongType() );
+		final DistanceMap< BitType, Img< BitType >, Img< FloatType >> op = new DistanceMap< BitType, Img< BitType >, Img< FloatType >>( spacing, false );
+		op.setTaskExecutor( new TaskExecutor( 4 ) );
+		op.compute( img, dist, features );
+		check( img, spacing, dist, features );
+	}
+
+	@Test
+	public void test2D()
+	{
+		test( new long[] { 47, 31 }, new double[] { 1, 1 }, 1 );
+	}
+
+	@Test
+	public void testAnisotropic3D()
+	{
+		test( new long[] { 17, 13, 11 }, new double[] { 0.5, 1, 2.5 }, 2 );
+	}
+
+	@Test
+	public void test5D()
+	{
+		test( new long[] { 7, 6, 5, 4, 3 }, new double[] { 1, 1, 1, 1, 1 }, 3 );
+	}
+
+	@Test
+	public void testCalibration()
+	{
+		// the spacing is taken from the calibration of an ImgPlus
+		final long[] dims = new long[] { 20, 15, 9 };
+		final double[] calibration = new double[] { 0.3, 0.3, 1.7 };
+		final Img< BitType > img = createRandom( dims, 0.05, 4 );
+		final ImgPlus< BitType > imgPlus = new ImgPlus< BitType >( img );
+		imgPlus.setCalibration( calibration );
+		final Img< FloatType > dist = new ArrayImgFactory< FloatType >().create( dims, new FloatType() );
+		final Img< LongType > features = new ArrayImgFactory< LongType >().create( dims, new LongType() );
+		new DistanceMap< BitType, ImgPlus< BitType >, Img< FloatType >>().compute( imgPlus, dist, features );
+		check( img, calibration, dist, features );
+	}
+
+	@Test
+	public void testSquaredWithoutBackground()
+	{
+		final long[] dims = new long[] { 9, 8 };
+		final Img< BitType > img = new ArrayImgFactory< BitType >().create( dims, new BitType() );
+		for ( final BitType t : img )
+			t.set( true );
+		final Img< FloatType > dist = new ArrayImgFactory< FloatType >().create( dims, new FloatType() );
+		new DistanceMap< BitType, Img< BitType >, Img< FloatType >>( true ).compute( img, dist );
+		for ( final FloatType t : dist )
+			assertEquals( Float.POSITIVE_INFINITY, t.get(), 0 );
+
+		// a single background pixel in the corner
+		img.firstElement().set( false );
+		new DistanceMap< BitType, Img< BitType >, Img< FloatType >>( true ).compute( img, dist );
+		final Cursor< FloatType > c = dist.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			final long x = c.getLongPosition( 0 ), y = c.getLongPosition( 1 );
+			assertEquals( x * x + y * y, c.get().get(), 0 );
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package tests;
 
 import ij.ImageJ;
+import net.imglib2.display.ParallelXYProjector;
 import net.imglib2.display.RealARGBConverter;
 import net.imglib2.display.XYProjector;
 import net.imglib2.exception.IncompatibleTypeException;
@@ -9,6 +10,7 @@ import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.img.display.imagej.ImageJFunctions;
 import net.imglib2.io.ImgIOException;
 import net.imglib2.io.ImgOpener;
+import net.imglib2.multithreading.TaskExecutor;
 import net.imglib2.type.numeric.ARGBType;
 import net.imglib2.type.numeric.integer.UnsignedByteType;
 
@@ -25,6 +27,7 @@ public class XYProjectorBenchmark
 		img = new ImgOpener().openImg( filename, factory, new UnsignedByteType() );
 		argbImg = new ArrayImgFactory< ARGBType >().create( img, new ARGBType() );
 		convert( img, argbImg );
+		convertParallel( img, argbImg );
 
 		ImageJFunctions.show( argbImg );
 	}
@@ -42,6 +45,30 @@ public class XYProjectorBenchmark
 		}
 	}
 
+	public void convertParallel( final Img< UnsignedByteType > in,  final Img< ARGBType > out )
+	{
+		for ( int numThreads = 1; numThreads <= Runtime.getRuntime().availableProcessors(); numThreads *= 2 )
+		{
+			final TaskExecutor executor = new TaskExecutor( numThreads );
+			try
+			{
+				final ParallelXYProjector< UnsignedByteType, ARGBType > projector = new ParallelXYProjector< UnsignedByteType, ARGBType >( in, out, new RealARGBConverter< UnsignedByteType >(0, 1000), executor );
+				for ( int iteration = 0; iteration < 10; ++iteration )
+				{
+					final long start = System.currentTimeMillis();
+					for ( int i = 0; i < 50; ++i )
+						projector.map();
+					final long end = System.currentTimeMillis();
+					System.out.println( ( end - start ) + " ms (parallel, " + numThreads + " threads, iteration " + iteration + ")" );
+				}
+			}
+			finally
+			{
+				executor.getExecutorService().shutdown();
+			}
+		}
+	}
+
 	public static void main( final String[] args ) throws IncompatibleTypeException, ImgIOException
 	{
 		new ImageJ();
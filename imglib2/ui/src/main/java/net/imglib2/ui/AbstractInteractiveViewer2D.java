@@ -1,8 +1,10 @@
 package net.imglib2.ui;
 
 import java.awt.Graphics;
+import java.util.ArrayList;
 
 import net.imglib2.display.ARGBScreenImage;
+import net.imglib2.display.ParallelXYProjector;
 import net.imglib2.display.XYRandomAccessibleProjector;
 import net.imglib2.realtransform.AffineTransform2D;
 import net.imglib2.type.numeric.ARGBType;
@@ -36,10 +38,22 @@ public abstract class AbstractInteractiveViewer2D< T extends NumericType< T > >
 	final protected AffineTransform2D sourceToScreen = new AffineTransform2D();
 
 	/**
-	 * Currently active projector, used to re-paint the display. It maps the
-	 * {@link #source} data to {@link #screenImage}.
+	 * Progressive rendering state: screen images for every screen scale,
+	 * currently rendered scale, and render time estimate.
 	 */
-	protected XYRandomAccessibleProjector< T, ARGBType > projector;
+	final protected MultiResolutionRenderState renderState = new MultiResolutionRenderState();
+
+	/**
+	 * Transformations from {@link #source} to the screen images at every
+	 * screen scale, i.e., {@link #sourceToScreen} scaled by the screen scale.
+	 */
+	final protected AffineTransform2D[] sourceToScaledScreen = createAffineTransform2Ds( renderState.numScales() );
+
+	/**
+	 * Currently active projectors, used to re-paint the display. They map the
+	 * {@link #source} data to the screen images at every screen scale.
+	 */
+	protected volatile ArrayList< XYRandomAccessibleProjector< T, ARGBType > > projectors;
 
 	/**
 	 * Window used for displaying the rendered {@link #screenImage}.
@@ -61,7 +75,12 @@ public abstract class AbstractInteractiveViewer2D< T extends NumericType< T > >
 	 */
 	public void setSourceTransform( final AffineTransform2D transform )
 	{
-		sourceTransform.set( transform );
+		synchronized( viewerTransform )
+		{
+			sourceTransform.set( transform );
+			renderState.requestNewFrame();
+			cancelProjectors();
+		}
 		display.requestRepaint();
 	}
 
@@ -69,20 +88,95 @@ public abstract class AbstractInteractiveViewer2D< T extends NumericType< T > >
 	public void screenImageChanged( final ARGBScreenImage screenImage )
 	{
 		this.screenImage = screenImage;
-		projector = createProjector();
+		synchronized( viewerTransform )
+		{
+			renderState.setScreenImage( screenImage );
+		}
+		updateProjectors();
 	}
 
-	protected abstract XYRandomAccessibleProjector< T, ARGBType > createProjector();
+	/**
+	 * Create a projector that maps the {@link #source} data to the given
+	 * target screen image. Projectors that extend {@link ParallelXYProjector}
+	 * render in parallel and can be aborted when the transform changes.
+	 *
+	 * @param target
+	 *            the screen image to render to.
+	 * @param sourceToTarget
+	 *            transformation from {@link #source} to target. The projector
+	 *            should use this transformation (or its live inverse) directly,
+	 *            because it is updated for every frame.
+	 */
+	protected abstract XYRandomAccessibleProjector< T, ARGBType > createProjector( final ARGBScreenImage target, final AffineTransform2D sourceToTarget );
 
+	/**
+	 * Re-create the projectors for all screen scales, e.g., after the
+	 * interpolation method was changed.
+	 */
+	protected void updateProjectors()
+	{
+		final ArrayList< XYRandomAccessibleProjector< T, ARGBType > > p = new ArrayList< XYRandomAccessibleProjector< T, ARGBType > >( renderState.numScales() );
+		for ( int i = 0; i < renderState.numScales(); ++i )
+			p.add( createProjector( renderState.getScreenImage( i ), sourceToScaledScreen[ i ] ) );
+		projectors = p;
+		synchronized( viewerTransform )
+		{
+			renderState.requestNewFrame();
+		}
+	}
+
+	/**
+	 * Abort rendering of the current (stale) frame. This is called while
+	 * holding the lock on {@link #viewerTransform}.
+	 */
+	protected void cancelProjectors()
+	{
+		final ArrayList< XYRandomAccessibleProjector< T, ARGBType > > p = projectors;
+		if ( p != null )
+			for ( final XYRandomAccessibleProjector< T, ARGBType > projector : p )
+				if ( projector instanceof ParallelXYProjector )
+					( ( ParallelXYProjector< T, ARGBType > ) projector ).cancel();
+	}
+
+	/**
+	 * Render one step of the progressive rendering: the current frame at the
+	 * current screen scale. If the frame should be refined, another repaint is
+	 * requested from the {@link #display}.
+	 */
 	@Override
 	public void drawScreenImage()
 	{
+		final int scaleIndex;
+		final XYRandomAccessibleProjector< T, ARGBType > projector;
 		synchronized( viewerTransform )
 		{
 			sourceToScreen.set( viewerTransform );
+			sourceToScreen.concatenate( sourceTransform );
+			scaleIndex = renderState.beginFrame();
+
+			// transform changes cancel the projectors while holding the same
+			// lock, so a cancel() after this point is for a newer frame
+			projector = projectors.get( scaleIndex );
+			if ( projector instanceof ParallelXYProjector )
+				( ( ParallelXYProjector< T, ARGBType > ) projector ).resetCanceled();
+		}
+
+		final double scale = renderState.getScreenScale( scaleIndex );
+		final AffineTransform2D t = sourceToScaledScreen[ scaleIndex ];
+		t.set( sourceToScreen );
+		if ( scale != 1 )
+		{
+			// the center of screen pixel x at this scale is at (x + 0.5) / scale - 0.5
+			final double shift = 0.5 * scale - 0.5;
+			t.scale( scale );
+			t.set( t.get( 0, 2 ) + shift, 0, 2 );
+			t.set( t.get( 1, 2 ) + shift, 1, 2 );
 		}
-		sourceToScreen.concatenate( sourceTransform );
+
+		final long start = System.nanoTime();
 		projector.map();
+		if ( renderState.endFrame( scaleIndex, System.nanoTime() - start ) )
+			display.requestRepaint();
 	}
 
 	@Override
@@ -94,6 +188,8 @@ public abstract class AbstractInteractiveViewer2D< T extends NumericType< T > >
 		synchronized( viewerTransform )
 		{
 			viewerTransform.set( transform );
+			renderState.requestNewFrame();
+			cancelProjectors();
 		}
 	}
 
@@ -101,4 +197,12 @@ public abstract class AbstractInteractiveViewer2D< T extends NumericType< T > >
 	{
 		return display;
 	}
+
+	protected static AffineTransform2D[] createAffineTransform2Ds( final int n )
+	{
+		final AffineTransform2D[] transforms = new AffineTransform2D[ n ];
+		for ( int i = 0; i < n; ++i )
+			transforms[ i ] = new AffineTransform2D();
+		return transforms;
+	}
 }
@@ -4,6 +4,8 @@ import net.imglib2.Interval;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RealRandomAccessible;
 import net.imglib2.converter.Converter;
+import net.imglib2.display.ARGBScreenImage;
+import net.imglib2.display.ParallelXYProjector;
 import net.imglib2.display.XYRandomAccessibleProjector;
 import net.imglib2.realtransform.AffineGet;
 import net.imglib2.realtransform.AffineRandomAccessible;
@@ -43,14 +45,14 @@ public class InteractiveRealViewer3D< T extends NumericType< T > > extends Abstr
 		super( width, height, sourceInterval, sourceTransform, displayType );
 		this.source = source;
 		this.converter = converter;
-		projector = createProjector();
+		updateProjectors();
 		display.startPainter();
 	}
 
 	@Override
-	protected XYRandomAccessibleProjector< T, ARGBType > createProjector()
+	protected XYRandomAccessibleProjector< T, ARGBType > createProjector( final ARGBScreenImage target, final AffineTransform3D sourceToTarget )
 	{
-		final AffineRandomAccessible< T, AffineGet > mapping = new AffineRandomAccessible< T, AffineGet >( source, sourceToScreen.inverse() );
-		return new XYRandomAccessibleProjector< T, ARGBType >( mapping, screenImage, converter );
+		final AffineRandomAccessible< T, AffineGet > mapping = new AffineRandomAccessible< T, AffineGet >( source, sourceToTarget.inverse() );
+		return new ParallelXYProjector< T, ARGBType >( mapping, target, converter );
 	}
 }
@@ -0,0 +1,234 @@
+package net.imglib2.ui;
+
+import net.imglib2.display.ARGBScreenImage;
+
+/**
+ * Bookkeeping for progressive, coarse-to-fine rendering of a screen image.
+ *
+ * <p>
+ * A frame is rendered first at a reduced screen scale (e.g., 1/8 of the full
+ * resolution), shown, and then refined at successively finer scales until the
+ * full resolution is reached. Whenever a new frame is requested (e.g., because
+ * the viewer transform changed), refinement of the current frame is abandoned
+ * and the new frame is started at the coarsest scale that is expected to render
+ * within {@link #getTargetRenderNanos() the target time}. The expected render
+ * time is predicted from the time per pixel measured for previous frames.
+ * </p>
+ *
+ * <p>
+ * Scale index 0 is the full resolution screen image provided by the display.
+ * Higher indices are coarser.
+ * </p>
+ */
+public class MultiResolutionRenderState
+{
+	/**
+	 * Default screen scales, from full resolution to 1/8.
+	 */
+	final public static double[] DEFAULT_SCREEN_SCALES = new double[] { 1, 0.5, 0.25, 0.125 };
+
+	/**
+	 * Default target render time for the first (coarse) frame after a
+	 * transform change.
+	 */
+	final public static long DEFAULT_TARGET_RENDER_NANOS = 30 * 1000000l;
+
+	/**
+	 * Screen scale factors, starting with 1 (full resolution), in descending
+	 * order.
+	 */
+	final protected double[] screenScales;
+
+	final protected long targetRenderNanos;
+
+	/**
+	 * Screen images for every scale. <code>screenImages[0]</code> is the full
+	 * resolution screen image of the display.
+	 */
+	protected ARGBScreenImage[] screenImages;
+
+	/**
+	 * Scale index to be rendered by the next {@link #beginFrame()}.
+	 */
+	protected int requestedScaleIndex;
+
+	/**
+	 * Incremented for every {@link #requestNewFrame()}. Used to detect whether
+	 * a frame has become stale while it was rendered.
+	 */
+	protected long frameId;
+
+	/**
+	 * frameId when the current rendering was started.
+	 */
+	protected long renderingFrameId;
+
+	/**
+	 * Estimated rendering time per screen pixel. Negative if nothing was
+	 * rendered yet.
+	 */
+	protected double nanosPerPixel;
+
+	public MultiResolutionRenderState()
+	{
+		this( DEFAULT_SCREEN_SCALES, DEFAULT_TARGET_RENDER_NANOS );
+	}
+
+	/**
+	 * @param screenScales
+	 *            scale factors, starting with 1 (full resolution), in
+	 *            descending order.
+	 * @param targetRenderNanos
+	 *            target time for rendering the first frame after a
+	 *            {@link #requestNewFrame()}.
+	 */
+	public MultiResolutionRenderState( final double[] screenScales, final long targetRenderNanos )
+	{
+		if ( screenScales.length == 0 || screenScales[ 0 ] != 1 )
+			throw new IllegalArgumentException( "screenScales must start with 1" );
+		this.screenScales = screenScales.clone();
+		this.targetRenderNanos = targetRenderNanos;
+		screenImages = new ARGBScreenImage[ screenScales.length ];
+		requestedScaleIndex = screenScales.length - 1;
+		frameId = 0;
+		renderingFrameId = -1;
+		nanosPerPixel = -1;
+	}
+
+	public int numScales()
+	{
+		return screenScales.length;
+	}
+
+	public double getScreenScale( final int scaleIndex )
+	{
+		return screenScales[ scaleIndex ];
+	}
+
+	public long getTargetRenderNanos()
+	{
+		return targetRenderNanos;
+	}
+
+	/**
+	 * Set the full resolution screen image and (re-)create the screen images
+	 * for the coarser scales. This also requests a new frame.
+	 */
+	public synchronized void setScreenImage( final ARGBScreenImage screenImage )
+	{
+		final int w = ( int ) screenImage.dimension( 0 );
+		final int h = ( int ) screenImage.dimension( 1 );
+		screenImages[ 0 ] = screenImage;
+		for ( int i = 1; i < screenScales.length; ++i )
+		{
+			final int sw = Math.max( 1, ( int ) Math.ceil( w * screenScales[ i ] ) );
+			final int sh = Math.max( 1, ( int ) Math.ceil( h * screenScales[ i ] ) );
+			screenImages[ i ] = new ARGBScreenImage( sw, sh );
+		}
+		requestNewFrame();
+	}
+
+	public ARGBScreenImage getScreenImage( final int scaleIndex )
+	{
+		return screenImages[ scaleIndex ];
+	}
+
+	/**
+	 * Abandon refinement of the current frame and start the next frame at the
+	 * coarsest scale that is predicted to meet the target render time.
+	 */
+	public synchronized void requestNewFrame()
+	{
+		++frameId;
+		requestedScaleIndex = suggestScaleIndex();
+	}
+
+	/**
+	 * Start rendering a frame.
+	 *
+	 * @return the scale index to render.
+	 */
+	public synchronized int beginFrame()
+	{
+		renderingFrameId = frameId;
+		return requestedScaleIndex;
+	}
+
+	/**
+	 * Finish rendering a frame at the given scale. If the frame is still
+	 * current, the measured time is used to update the time-per-pixel
+	 * estimate, a coarse screen image is copied (up-sampled) to the full
+	 * resolution screen image, and the next finer scale is requested.
+	 *
+	 * @param scaleIndex
+	 *            the scale index that was rendered, as returned by
+	 *            {@link #beginFrame()}.
+	 * @param renderNanos
+	 *            time taken to render.
+	 * @return true if the frame should be refined further, i.e., a repaint at
+	 *         the next finer scale should be triggered.
+	 */
+	public synchronized boolean endFrame( final int scaleIndex, final long renderNanos )
+	{
+		if ( renderingFrameId != frameId )
+			return false;
+
+		final ARGBScreenImage rendered = screenImages[ scaleIndex ];
+		final double npp = ( double ) renderNanos / ( rendered.dimension( 0 ) * rendered.dimension( 1 ) );
+		nanosPerPixel = nanosPerPixel < 0 ? npp : 0.5 * ( nanosPerPixel + npp );
+
+		if ( scaleIndex == 0 )
+			return false;
+
+		upsample( rendered, screenImages[ 0 ], screenScales[ scaleIndex ] );
+		requestedScaleIndex = scaleIndex - 1;
+		return true;
+	}
+
+	/**
+	 * @return the finest scale index for which rendering is predicted to take
+	 *         at most {@link #targetRenderNanos}, or the coarsest scale index
+	 *         if there is no prediction yet.
+	 */
+	protected int suggestScaleIndex()
+	{
+		final int coarsest = screenScales.length - 1;
+		if ( nanosPerPixel < 0 || screenImages[ 0 ] == null )
+			return coarsest;
+		final double numPixels = screenImages[ 0 ].dimension( 0 ) * screenImages[ 0 ].dimension( 1 );
+		for ( int i = 0; i < coarsest; ++i )
+		{
+			final double s = screenScales[ i ];
+			if ( nanosPerPixel * numPixels * s * s <= targetRenderNanos )
+				return i;
+		}
+		return coarsest;
+	}
+
+	/**
+	 * Nearest-neighbor up-sampling of a coarse screen image to the full
+	 * resolution screen image. The center of coarse pixel <em>i</em> is assumed
+	 * to be at full resolution coordinate <em>(i + 0.5) / scale - 0.5</em>.
+	 */
+	protected static void upsample( final ARGBScreenImage source, final ARGBScreenImage target, final double scale )
+	{
+		final int sw = ( int ) source.dimension( 0 );
+		final int sh = ( int ) source.dimension( 1 );
+		final int tw = ( int ) target.dimension( 0 );
+		final int th = ( int ) target.dimension( 1 );
+		final int[] s = source.getData();
+		final int[] t = target.getData();
+
+		final int[] sx = new int[ tw ];
+		for ( int x = 0; x < tw; ++x )
+			sx[ x ] = Math.min( sw - 1, ( int ) ( ( x + 0.5 ) * scale ) );
+
+		for ( int y = 0; y < th; ++y )
+		{
+			final int so = Math.min( sh - 1, ( int ) ( ( y + 0.5 ) * scale ) ) * sw;
+			final int to = y * tw;
+			for ( int x = 0; x < tw; ++x )
+				t[ to + x ] = s[ so + sx[ x ] ];
+		}
+	}
+}